@@ -0,0 +1,81 @@
+/*
+ * Activation functions for the layers of an A-B-C-D network.
+ *
+ * Author: Jack Hsieh
+ * Date of creation: November 11, 2021
+ */
+
+/*
+ * Defines an activation function applied to a whole layer at once. The model computes every Theta of a layer first and
+ * then makes one call to activate the layer, and in backpropagation one call to turn the layer's Omegas into Psis, so
+ * each implementation is a flat loop over arrays that the JIT compiler can vectorize.
+ *
+ * Each layer after the input layer has its own activation, chosen by name in the network configuration file (see
+ * NAMES and forName). Implementations hold no mutable state, so models and threads may share them.
+ */
+public interface ABCDActivation
+{
+   /*
+    * Names accepted by forName
+    */
+   String[] NAMES = {"tanh", "fastTanh", "sigmoid", "relu", "leakyRelu", "linear", "softmax"};
+
+   /*
+    * Returns the activation's name, as accepted by forName
+    */
+   String getName();
+
+   /*
+    * Activates a layer
+    *
+    * parameters: theta holds the layer's Thetas, a receives the activations (it may be theta itself), and length is the
+    *             number of units in the layer
+    * postconditions: a[n] is the activation of theta[n] for n in [0, length) (for softmax, of the whole layer)
+    */
+   void apply(double[] theta, double[] a, int length);
+
+   /*
+    * Turns a layer's Omegas into Psis by multiplying by the activation's derivative (for softmax, its Jacobian)
+    *
+    * parameters: theta and a are the layer's Thetas and activations from apply, psi holds the Omegas, and length is the
+    *             number of units in the layer
+    * postconditions: psi holds the Psis: psi[n] *= f'(theta[n]) for an element-wise activation
+    */
+   void multiplyByDerivative(double[] theta, double[] a, double[] psi, int length);
+
+   /*
+    * Returns whether the activation couples the units of its layer and may therefore only activate the output layer
+    */
+   boolean isOutputOnly();
+
+   /*
+    * Returns the activation with the given name
+    *
+    * parameters: name is one of NAMES
+    * return: a new activation
+    * postconditions: throws an IllegalArgumentException if the name is unknown
+    */
+   static ABCDActivation forName(String name) throws IllegalArgumentException
+   {
+      switch (name)
+      {
+         case "tanh":
+            return (new ABCDTanhActivation(false));
+         case "fastTanh":
+            return (new ABCDTanhActivation(true));
+         case "sigmoid":
+            return (new ABCDSigmoidActivation());
+         case "relu":
+            return (new ABCDReLUActivation(0.0));
+         case "leakyRelu":
+            return (new ABCDReLUActivation(ABCDReLUActivation.LEAKY_SLOPE));
+         case "linear":
+            return (new ABCDLinearActivation());
+         case "softmax":
+            return (new ABCDSoftmaxActivation());
+         default:
+            throw (new IllegalArgumentException("Invalid activation. " + name + " is not one of " + String.join(", ", NAMES) + "."));
+      } // switch (name)
+   } // static ABCDActivation forName(String name)
+
+} // public interface ABCDActivation
@@ -0,0 +1,60 @@
+/*
+ * In-memory dataset for A-B-C-D networks.
+ *
+ * Author: Jack Hsieh
+ * Date of creation: November 11, 2021
+ */
+
+/*
+ * Presents an input set and a target set already held as arrays as an ABCDDataset. Rows are returned directly, never copied.
+ */
+public class ABCDArrayDataset implements ABCDDataset
+{
+   private final double[][] inputSet;
+   private final double[][] targetSet;
+
+   /*
+    * Wraps an input set and its target set
+    *
+    * parameters: inputSet holds the input members, and targetSet holds the corresponding targets (or null for a set that is only run)
+    * preconditions: each inputSet element corresponds with the targetSet element of the same index
+    */
+   public ABCDArrayDataset(double[][] inputSet, double[][] targetSet)
+   {
+      this.inputSet = inputSet;
+      this.targetSet = targetSet;
+
+      return;
+   } // public ABCDArrayDataset(double[][] inputSet, double[][] targetSet)
+
+   @Override
+   public int getNumMembers()
+   {
+      return this.inputSet.length;
+   } // public int getNumMembers()
+
+   @Override
+   public int getNumInputUnits()
+   {
+      return (this.inputSet.length == 0) ? 0 : this.inputSet[0].length;
+   } // public int getNumInputUnits()
+
+   @Override
+   public int getNumOutputUnits()
+   {
+      return (this.targetSet == null || this.targetSet.length == 0) ? 0 : this.targetSet[0].length;
+   } // public int getNumOutputUnits()
+
+   @Override
+   public double[] getInputs(int member, double[] buffer)
+   {
+      return this.inputSet[member];
+   } // public double[] getInputs(int member, double[] buffer)
+
+   @Override
+   public double[] getTargets(int member, double[] buffer)
+   {
+      return this.targetSet[member];
+   } // public double[] getTargets(int member, double[] buffer)
+
+} // public class ABCDArrayDataset implements ABCDDataset
@@ -0,0 +1,288 @@
+/*
+ * Endless dataset of augmented members produced ahead of training by background threads.
+ *
+ * Author: Jack Hsieh
+ * Date of creation: November 11, 2021
+ */
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.AtomicReference;
+
+/*
+ * Presents a base dataset as a stream of augmented variants (see ABCDAugmenter) for trainOnSet(ABCDDataset). Each
+ * iteration over the numMembers members of this dataset is a fresh pass over the base members in order, each one a new
+ * random variant, so the augmented set is never held in full.
+ *
+ * Producer threads make the variants ahead of the consumer. Producer p makes the stream members p, p + P, p + 2P, ...
+ * (for P producers) into its own bounded queue, and the consumer takes member k from queue k mod P, so the order is
+ * fixed and training is repeatable for a given seed and number of producers. Each queue holds at most queueCapacity
+ * finished members; their rows are recycled through a second queue per producer, so producing allocates nothing.
+ *
+ * Unlike other datasets, members must be read strictly in order, once each, the inputs before the targets, as
+ * trainOnSet does: the member index is ignored, getInputs takes the next member from its queue, and getTargets returns
+ * its targets. Both are copied into the caller's buffers. Only one thread may consume. close() stops the producers,
+ * and an exception in a producer is rethrown by the consumer.
+ */
+public class ABCDAugmentedDataset implements ABCDDataset, AutoCloseable
+{
+   /*
+    * A produced member: the variant's inputs and the base member's targets
+    */
+   private static class Slot
+   {
+      final double[] inputs;
+      final double[] targets;
+
+      Slot(int numInputUnits, int numOutputUnits)
+      {
+         this.inputs = new double[numInputUnits];
+         this.targets = new double[numOutputUnits];
+      } // Slot(int numInputUnits, int numOutputUnits)
+   } // private static class Slot
+
+   private static final Slot FAILED = new Slot(0, 0);     // Queued by a producer that failed, in place of its next member
+
+   private final ABCDDataset base;
+   private final ABCDAugmenter augmenter;
+   private final List<ArrayBlockingQueue<Slot>> filled;
+   private final List<ArrayBlockingQueue<Slot>> free;
+   private final Thread[] producers;
+   private final AtomicReference<RuntimeException> failure = new AtomicReference<RuntimeException>();
+
+   private long nextMember;                               // Stream index of the member the consumer takes next
+   private final double[] currentTargets;                 // Targets of the member last taken by getInputs
+   private long stallNanos;                               // Time the consumer spent waiting on empty queues
+   private long numStalls;
+
+   /*
+    * Starts the producers
+    *
+    * parameters: base supplies the members to augment (it is read by every producer at once, each with its own buffers),
+    *             augmenter makes the variants, numProducers is the number of producer threads (at least 1),
+    *             queueCapacity is the number of finished members each producer may hold ahead (at least 1),
+    *             and seed seeds producer p's Random with seed + p
+    * postconditions: the daemon producer threads are running. Throws an IllegalArgumentException if base is empty or a
+    *                 count is below 1.
+    */
+   public ABCDAugmentedDataset(ABCDDataset base, ABCDAugmenter augmenter, int numProducers, int queueCapacity, long seed)
+                               throws IllegalArgumentException
+   {
+      if (base.getNumMembers() == 0 || numProducers < 1 || queueCapacity < 1)
+      {
+         throw (new IllegalArgumentException("Invalid augmentation. The base set must have members, and the numbers of producers and "
+                                             + "queued members must be at least 1."));
+      } // if (base.getNumMembers() == 0 || numProducers < 1 || queueCapacity < 1)
+
+      this.base = base;
+      this.augmenter = augmenter;
+      this.filled = new ArrayList<ArrayBlockingQueue<Slot>>(numProducers);
+      this.free = new ArrayList<ArrayBlockingQueue<Slot>>(numProducers);
+      this.producers = new Thread[numProducers];
+      this.currentTargets = new double[base.getNumOutputUnits()];
+
+      for (int p = 0; p < numProducers; ++p)
+      {
+         this.filled.add(new ArrayBlockingQueue<Slot>(queueCapacity + 1));     // Room for FAILED behind every slot
+         this.free.add(new ArrayBlockingQueue<Slot>(queueCapacity));
+
+         for (int s = 0; s < queueCapacity; ++s)
+         {
+            this.free.get(p).add(new Slot(base.getNumInputUnits(), base.getNumOutputUnits()));
+         } // for (int s = 0; s < queueCapacity; ++s)
+
+         int producer = p;
+         Random random = new Random(seed + p);
+
+         this.producers[p] = new Thread(() -> this.produce(producer, random), "ABCDAugmentedDataset-" + p);
+         this.producers[p].setDaemon(true);
+      } // for (int p = 0; p < numProducers; ++p)
+
+      for (Thread producer : this.producers)
+      {
+         producer.start();
+      } // for (Thread producer : this.producers)
+
+      return;
+   } // public ABCDAugmentedDataset(ABCDDataset base, ABCDAugmenter augmenter, int numProducers, int queueCapacity, long seed)
+
+   /*
+    * Producer loop: makes stream members producer, producer + P, ... until interrupted by close()
+    */
+   private void produce(int producer, Random random)
+   {
+      int numMembers = this.base.getNumMembers();
+      int numProducers = this.producers.length;
+      double[] inputBuffer = new double[this.base.getNumInputUnits()];
+      long member = producer;
+
+      try
+      {
+         while (true)
+         {
+            Slot slot = this.free.get(producer).take();
+            int baseMember = (int) (member % numMembers);
+
+            this.augmenter.augment(this.base.getInputs(baseMember, inputBuffer), slot.inputs, random);
+            double[] targets = this.base.getTargets(baseMember, slot.targets);
+
+            if (targets != slot.targets)
+               System.arraycopy(targets, 0, slot.targets, 0, slot.targets.length);
+
+            this.filled.get(producer).put(slot);
+            member += numProducers;
+         } // while (true)
+      } // try
+
+      catch (InterruptedException interruptedException)     // close() was called
+      {
+      } // catch (InterruptedException interruptedException)
+
+      catch (RuntimeException runtimeException)
+      {
+         this.failure.compareAndSet(null, runtimeException);
+         this.filled.get(producer).offer(FAILED);                // Always room (see the constructor)
+      } // catch (RuntimeException runtimeException)
+
+      return;
+   } // private void produce(int producer, Random random)
+
+   /*
+    * Returns the number of members in one iteration, the number of base members
+    */
+   @Override
+   public int getNumMembers()
+   {
+      return this.base.getNumMembers();
+   } // public int getNumMembers()
+
+   @Override
+   public int getNumInputUnits()
+   {
+      return this.base.getNumInputUnits();
+   } // public int getNumInputUnits()
+
+   @Override
+   public int getNumOutputUnits()
+   {
+      return this.base.getNumOutputUnits();
+   } // public int getNumOutputUnits()
+
+   /*
+    * Takes the next member of the stream, waiting for its producer if it is not ready
+    *
+    * parameters: member is ignored (see the class comment), and buffer receives the inputs
+    * return: buffer
+    * postconditions: throws an IllegalStateException if a producer failed or the consumer is interrupted
+    */
+   @Override
+   public double[] getInputs(int member, double[] buffer) throws IllegalStateException
+   {
+      ArrayBlockingQueue<Slot> queue = this.filled.get((int) (this.nextMember % this.producers.length));
+      Slot slot = queue.poll();
+
+      if (slot == null)                                      // The producer has fallen behind: wait and record the stall
+      {
+         long start = System.nanoTime();
+
+         try
+         {
+            slot = queue.take();
+         } // try
+
+         catch (InterruptedException interruptedException)
+         {
+            Thread.currentThread().interrupt();
+            throw (new IllegalStateException("Interrupted while waiting for an augmented member."));
+         } // catch (InterruptedException interruptedException)
+
+         this.stallNanos += System.nanoTime() - start;
+         ++this.numStalls;
+      } // if (slot == null)
+
+      if (slot == FAILED)
+      {
+         queue.offer(FAILED);                                // Keep failing if the consumer reads on
+         throw (new IllegalStateException("Augmentation failed: " + this.failure.get().getMessage(), this.failure.get()));
+      } // if (slot == FAILED)
+
+      /*
+       * Copy the member out so its slot goes straight back to the producer while the caller uses the rows
+       */
+      System.arraycopy(slot.inputs, 0, buffer, 0, buffer.length);
+      System.arraycopy(slot.targets, 0, this.currentTargets, 0, this.currentTargets.length);
+      this.free.get((int) (this.nextMember % this.producers.length)).add(slot);
+      ++this.nextMember;
+
+      return buffer;
+   } // public double[] getInputs(int member, double[] buffer)
+
+   /*
+    * Returns the targets of the member taken by the last getInputs call
+    *
+    * parameters: member is ignored, and buffer receives the targets
+    * return: buffer
+    */
+   @Override
+   public double[] getTargets(int member, double[] buffer)
+   {
+      System.arraycopy(this.currentTargets, 0, buffer, 0, buffer.length);
+
+      return buffer;
+   } // public double[] getTargets(int member, double[] buffer)
+
+   /*
+    * Returns the total time the consumer has waited for producers, in nanoseconds
+    */
+   public long getStallNanos()
+   {
+      return this.stallNanos;
+   } // public long getStallNanos()
+
+   /*
+    * Returns the number of members the consumer had to wait for
+    */
+   public long getNumStalls()
+   {
+      return this.numStalls;
+   } // public long getNumStalls()
+
+   /*
+    * Returns the number of members consumed so far
+    */
+   public long getNumMembersConsumed()
+   {
+      return this.nextMember;
+   } // public long getNumMembersConsumed()
+
+   /*
+    * Stops the producers and waits for them to exit
+    */
+   @Override
+   public void close()
+   {
+      for (Thread producer : this.producers)
+      {
+         producer.interrupt();
+      } // for (Thread producer : this.producers)
+
+      for (Thread producer : this.producers)
+      {
+         try
+         {
+            producer.join();
+         } // try
+
+         catch (InterruptedException interruptedException)
+         {
+            Thread.currentThread().interrupt();
+            return;
+         } // catch (InterruptedException interruptedException)
+      } // for (Thread producer : this.producers)
+
+      return;
+   } // public void close()
+
+} // public class ABCDAugmentedDataset implements ABCDDataset, AutoCloseable
@@ -0,0 +1,133 @@
+/*
+ * Random image augmentation for A-B-C-D network training members.
+ *
+ * Author: Jack Hsieh
+ * Date of creation: November 11, 2021
+ */
+
+import java.util.Random;
+
+/*
+ * Makes a randomly shifted, rotated, scaled, and brightness-jittered variant of an image member, in place of hand-made
+ * variants of the hand sign images.
+ *
+ * Each variant draws a shift in [-maxShift, maxShift] pixels on each axis, a rotation in [-maxRotationDegrees,
+ * maxRotationDegrees] about the image center, a scale in [1 - maxScale, 1 + maxScale], and a brightness factor in
+ * [1 - maxBrightness, 1 + maxBrightness]. Every output pixel is mapped back through the inverse transform and sampled
+ * bilinearly from the source; pixels that fall outside the source read as 0, the black background of the images. The
+ * result is multiplied by the brightness factor and clamped to [0, 1].
+ *
+ * An augmenter holds no mutable state, so several threads may share one as long as each passes its own Random.
+ */
+public class ABCDAugmenter
+{
+   private final int imageWidth;
+   private final int imageHeight;
+   private final double maxShift;
+   private final double maxRotationRadians;
+   private final double maxScale;
+   private final double maxBrightness;
+
+   /*
+    * Constructs an augmenter
+    *
+    * parameters: imageWidth and imageHeight give the member's image shape, and the other parameters bound each random
+    *             change as described above. All zero gives an exact copy.
+    * postconditions: throws an IllegalArgumentException if the shape is not positive, a bound is negative, or maxScale
+    *                 or maxBrightness is 1 or more
+    */
+   public ABCDAugmenter(int imageWidth, int imageHeight, double maxShift, double maxRotationDegrees, double maxScale,
+                        double maxBrightness) throws IllegalArgumentException
+   {
+      if (imageWidth <= 0 || imageHeight <= 0)
+      {
+         throw (new IllegalArgumentException("Invalid image shape. " + imageWidth + "x" + imageHeight + " is not a positive image size."));
+      } // if (imageWidth <= 0 || imageHeight <= 0)
+
+      if (!(maxShift >= 0.0 && maxRotationDegrees >= 0.0 && maxScale >= 0.0 && maxScale < 1.0 && maxBrightness >= 0.0 && maxBrightness < 1.0))
+      {
+         throw (new IllegalArgumentException("Invalid augmentation. The shift and rotation must not be negative, and the scale and "
+                                             + "brightness ranges must be in [0, 1)."));
+      } // if (!(maxShift >= 0.0 && ...))
+
+      this.imageWidth = imageWidth;
+      this.imageHeight = imageHeight;
+      this.maxShift = maxShift;
+      this.maxRotationRadians = Math.toRadians(maxRotationDegrees);
+      this.maxScale = maxScale;
+      this.maxBrightness = maxBrightness;
+
+      return;
+   } // public ABCDAugmenter(int imageWidth, int imageHeight, double maxShift, double maxRotationDegrees, double maxScale, ...)
+
+   /*
+    * Returns a uniform random value in [-range, range], or exactly 0 for a range of 0 without drawing
+    */
+   private static double uniform(Random random, double range)
+   {
+      return (range == 0.0) ? 0.0 : range * (2.0 * random.nextDouble() - 1.0);
+   } // private static double uniform(Random random, double range)
+
+   /*
+    * Writes a random variant of a member
+    *
+    * parameters: source is the member's inputs in row-major image order, destination receives the variant (it must not
+    *             be source), and random supplies the random changes
+    * postconditions: destination holds the variant. With every bound 0 it equals source and random is not used.
+    */
+   public void augment(double[] source, double[] destination, Random random)
+   {
+      double shiftX = ABCDAugmenter.uniform(random, this.maxShift);
+      double shiftY = ABCDAugmenter.uniform(random, this.maxShift);
+      double angle = ABCDAugmenter.uniform(random, this.maxRotationRadians);
+      double scale = 1.0 + ABCDAugmenter.uniform(random, this.maxScale);
+      double brightness = 1.0 + ABCDAugmenter.uniform(random, this.maxBrightness);
+
+      /*
+       * Inverse transform: rotate back by -angle and shrink by 1 / scale about the center
+       */
+      double cos = Math.cos(angle) / scale;
+      double sin = Math.sin(angle) / scale;
+      double centerX = (this.imageWidth - 1) / 2.0;
+      double centerY = (this.imageHeight - 1) / 2.0;
+
+      for (int y = 0; y < this.imageHeight; ++y)
+      {
+         double v = y - centerY - shiftY;
+
+         for (int x = 0; x < this.imageWidth; ++x)
+         {
+            double u = x - centerX - shiftX;
+            double sourceX = cos * u + sin * v + centerX;
+            double sourceY = -sin * u + cos * v + centerY;
+
+            /*
+             * Bilinear sample of the four neighboring source pixels, each 0 outside the image
+             */
+            int left = (int) Math.floor(sourceX);
+            int top = (int) Math.floor(sourceY);
+            double fractionX = sourceX - left;
+            double fractionY = sourceY - top;
+
+            double sample = (1.0 - fractionY) * ((1.0 - fractionX) * this.pixel(source, left, top) + fractionX * this.pixel(source, left + 1, top))
+                            + fractionY * ((1.0 - fractionX) * this.pixel(source, left, top + 1) + fractionX * this.pixel(source, left + 1, top + 1));
+
+            destination[y * this.imageWidth + x] = Math.min(1.0, Math.max(0.0, brightness * sample));
+         } // for (int x = 0; x < this.imageWidth; ++x)
+      } // for (int y = 0; y < this.imageHeight; ++y)
+
+      return;
+   } // public void augment(double[] source, double[] destination, Random random)
+
+   /*
+    * Returns a source pixel, or 0 outside the image
+    */
+   private double pixel(double[] source, int x, int y)
+   {
+      if (x < 0 || y < 0 || x >= this.imageWidth || y >= this.imageHeight)
+         return 0.0;
+
+      return source[y * this.imageWidth + x];
+   } // private double pixel(double[] source, int x, int y)
+
+} // public class ABCDAugmenter
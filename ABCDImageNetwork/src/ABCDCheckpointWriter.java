@@ -0,0 +1,196 @@
+/*
+ * Background weights checkpoint writer for A-B-C-D network training.
+ *
+ * Author: Jack Hsieh
+ * Date of creation: November 11, 2021
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/*
+ * Writes weight checkpoints on a background thread so training keeps running during the write.
+ *
+ * Two snapshot buffers alternate: a checkpoint copies the weights into the buffer that is not being written, waits for
+ * the previous write (if any) to finish, and hands the snapshot to the writer thread. The copy is the only work done on
+ * the training thread, and at most one write is in flight.
+ *
+ * Every write goes to a temporary file next to the target and is renamed over it, atomically where the file system
+ * allows, so a crash during a write leaves the previous complete file in place.
+ */
+public class ABCDCheckpointWriter
+{
+   /*
+    * Writes a snapshot of the weights to a file in some format
+    */
+   public interface Writer
+   {
+      void write(File file, double[] w) throws IOException;
+   } // public interface Writer
+
+   /*
+    * Writes one checkpoint's files from a snapshot of the weights
+    */
+   public interface Task
+   {
+      void write(double[] snapshot) throws IOException;
+   } // public interface Task
+
+   public static final String TEMPORARY_SUFFIX = ".tmp";
+
+   private final Writer writer;
+   private final ExecutorService thread;
+
+   private final double[][] snapshots = new double[2][];
+   private int nextSnapshot;                        // The snapshot buffer the next checkpoint copies into
+   private Future<?> pendingWrite;                  // The write in flight, or null
+
+   /*
+    * Constructs a checkpoint writer
+    *
+    * parameters: numWeights is the number of weights in each snapshot, and writer writes a snapshot in the desired format
+    * postconditions: both snapshot buffers and the daemon writer thread are allocated
+    */
+   public ABCDCheckpointWriter(int numWeights, Writer writer)
+   {
+      this.writer = writer;
+      this.snapshots[0] = new double[numWeights];
+      this.snapshots[1] = new double[numWeights];
+
+      this.thread = Executors.newSingleThreadExecutor(runnable ->
+      {
+         Thread daemon = new Thread(runnable, "ABCDCheckpointWriter");
+         daemon.setDaemon(true);
+         return daemon;
+      });
+
+      return;
+   } // public ABCDCheckpointWriter(int numWeights, Writer writer)
+
+   /*
+    * Snapshots the weights and writes them to a file in the background
+    *
+    * parameters: file is the file to replace, and w holds the current weights
+    * postconditions: the weights are copied, the previous write has finished, and the new write is in flight.
+    *                 If the previous write failed, its IOException is thrown instead and nothing new is written.
+    */
+   public void checkpoint(File file, double[] w) throws IOException
+   {
+      this.checkpoint(w, snapshot -> ABCDCheckpointWriter.replaceAtomically(file, snapshot, this.writer));
+
+      return;
+   } // public void checkpoint(File file, double[] w) throws IOException
+
+   /*
+    * Snapshots the weights and runs a task that writes them in the background
+    * Used when a checkpoint writes several files from the same snapshot.
+    *
+    * parameters: w holds the current weights, and task writes the snapshot (typically through replaceAtomically)
+    * postconditions: as in checkpoint(File, double[])
+    */
+   public void checkpoint(double[] w, Task task) throws IOException
+   {
+      double[] snapshot = this.snapshots[this.nextSnapshot];
+      System.arraycopy(w, 0, snapshot, 0, w.length);
+
+      this.await();
+
+      this.pendingWrite = this.thread.submit(() ->
+      {
+         task.write(snapshot);
+         return null;
+      });
+
+      this.nextSnapshot = 1 - this.nextSnapshot;
+
+      return;
+   } // public void checkpoint(double[] w, Task task) throws IOException
+
+   /*
+    * Waits for the write in flight, if any
+    *
+    * postconditions: no write is in flight. If the last write failed, its IOException is thrown.
+    */
+   public void await() throws IOException
+   {
+      if (this.pendingWrite != null)
+      {
+         Future<?> write = this.pendingWrite;
+         this.pendingWrite = null;
+
+         try
+         {
+            write.get();
+         } // try
+
+         catch (InterruptedException interruptedException)
+         {
+            Thread.currentThread().interrupt();
+            throw (new IOException("Interrupted while waiting for a weights checkpoint to be written."));
+         } // catch (InterruptedException interruptedException)
+
+         catch (ExecutionException executionException)
+         {
+            Throwable cause = executionException.getCause();
+
+            if (cause instanceof IOException)
+               throw ((IOException) cause);
+
+            throw (new IOException("IO exception encountered while writing to output file: " + cause, cause));
+         } // catch (ExecutionException executionException)
+      } // if (this.pendingWrite != null)
+
+      return;
+   } // public void await() throws IOException
+
+   /*
+    * Writes weights to a temporary file beside the target and renames it over the target
+    * The temporary name keeps the target's extension (weights.bin is written as weights.tmp.bin) because writers choose
+    * the format from the name.
+    *
+    * parameters: file is the file to replace, w holds the weights, and writer writes them in the desired format
+    * postconditions: file holds the complete new weights. If writing fails, the temporary file is deleted,
+    *                 the target is unchanged, and an IOException is thrown.
+    */
+   public static void replaceAtomically(File file, double[] w, Writer writer) throws IOException
+   {
+      String name = file.getName();
+      int extensionStart = name.lastIndexOf('.');
+
+      if (extensionStart <= 0)                       // No extension (or a hidden file's leading dot): append the suffix
+         extensionStart = name.length();
+
+      String temporaryName = name.substring(0, extensionStart) + TEMPORARY_SUFFIX + name.substring(extensionStart);
+      File temporary = new File(file.getAbsoluteFile().getParentFile(), temporaryName);
+
+      try
+      {
+         writer.write(temporary, w);
+
+         try
+         {
+            Files.move(temporary.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+         } // try
+
+         catch (AtomicMoveNotSupportedException atomicMoveNotSupportedException)  // Fall back to a plain replace
+         {
+            Files.move(temporary.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+         } // catch (AtomicMoveNotSupportedException atomicMoveNotSupportedException)
+      } // try
+
+      finally
+      {
+         temporary.delete();                        // Only still exists if the write or rename failed
+      } // finally
+
+      return;
+   } // public static void replaceAtomically(File file, double[] w, Writer writer) throws IOException
+
+} // public class ABCDCheckpointWriter
@@ -0,0 +1,51 @@
+/*
+ * Member-at-a-time view of a training or test set for A-B-C-D networks.
+ *
+ * Author: Jack Hsieh
+ * Date of creation: November 11, 2021
+ */
+
+/*
+ * A set of input members and their targets that trainOnSet and runOnSet read one member at a time, so the set does not
+ * have to be held in memory as double[numMembers][numInputUnits]. ABCDArrayDataset wraps in-memory arrays and
+ * ABCDDatasetFile decodes members from a memory-mapped packed dataset on demand.
+ *
+ * A member's inputs and targets are returned either in the caller's buffer or in a row the dataset already holds, so an
+ * in-memory set is read without copying. Callers must treat the returned rows as read-only and must not keep them past
+ * the next call with the same buffer. Implementations may be read from several threads at once as long as each thread
+ * passes its own buffers.
+ */
+public interface ABCDDataset
+{
+   /*
+    * Returns the number of members
+    */
+   int getNumMembers();
+
+   /*
+    * Returns the number of input units per member
+    */
+   int getNumInputUnits();
+
+   /*
+    * Returns the number of output units per target
+    */
+   int getNumOutputUnits();
+
+   /*
+    * Returns a member's inputs
+    *
+    * parameters: member is the member index, and buffer is a scratch row of getNumInputUnits() the dataset may fill
+    * return: a row holding the member's inputs, either buffer or a row held by the dataset
+    */
+   double[] getInputs(int member, double[] buffer);
+
+   /*
+    * Returns a member's targets
+    *
+    * parameters: member is the member index, and buffer is a scratch row of getNumOutputUnits() the dataset may fill
+    * return: a row holding the member's targets, either buffer or a row held by the dataset
+    */
+   double[] getTargets(int member, double[] buffer);
+
+} // public interface ABCDDataset
@@ -0,0 +1,576 @@
+/*
+ * Packed binary dataset format for A-B-C-D network image members.
+ *
+ * Author: Jack Hsieh
+ * Date of creation: November 11, 2021
+ */
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/*
+ * Stores a training or test set of 8-bit grayscale images in one file: one byte per pixel and a target vector per member.
+ * The text input files hold each pixel k as the double k / 255 (about 18 characters), so a packed dataset is about 18 times
+ * smaller than the text files and 8 times smaller than the expanded input set.
+ *
+ * Layout (every field little-endian):
+ *    offset 0:   int       MAGIC, the bytes "ABDS"
+ *    offset 4:   int       VERSION
+ *    offset 8:   int       numMembers
+ *    offset 12:  int       imageWidth
+ *    offset 16:  int       imageHeight, with imageWidth * imageHeight input units per member
+ *    offset 20:  int       numOutputUnits
+ *    offset 24:  int       PIXEL_MAX, the byte value stored for an input of 1.0
+ *    offset 28:  int       reserved, 0
+ *    offset 32:  long      CRC-32 of the payload bytes
+ *    offset 40:  double[]  the targets, numOutputUnits per member in member order
+ *    then:       byte[]    the pixels, imageWidth * imageHeight unsigned bytes per member in member order
+ *
+ * An opened dataset is an ABCDDataset: it keeps the file memory-mapped and expands a member's bytes into doubles or floats
+ * only when that member is read, so trainOnSet and runOnSet can stream sets larger than the heap. Datasets are recognized by their magic number, so
+ * extractInputSetFromSuperFile and extractTargetSetFromFile accept a dataset in place of a super file or target set file.
+ * The main method converts a super file and a target set file into a dataset.
+ */
+public class ABCDDatasetFile implements ABCDDataset
+{
+   public static final int MAGIC = 0x53444241;           // "ABDS" read as a little-endian int
+   public static final int VERSION = 1;
+   public static final int PIXEL_MAX = 255;
+
+   private static final int HEADER_BYTES = 40;
+   private static final int MAX_SEGMENT_BYTES = 1 << 30;   // Pixels are mapped in segments of whole members no larger than this
+   private static final double[] PIXEL_VALUES = new double[PIXEL_MAX + 1];   // PIXEL_VALUES[k] = k / 255, as the text files hold it
+
+   static
+   {
+      for (int k = 0; k <= PIXEL_MAX; ++k)
+      {
+         PIXEL_VALUES[k] = (double) k / PIXEL_MAX;
+      } // for (int k = 0; k <= PIXEL_MAX; ++k)
+   } // static
+
+   /*
+    * The opened dataset
+    */
+   private final int numMembers;
+   private final int imageWidth;
+   private final int imageHeight;
+   private final int numInputUnits;
+   private final int numOutputUnits;
+   private final ByteBuffer targets;                     // The mapped target block, little-endian
+   private final ByteBuffer[] pixelSegments;             // The mapped pixel block, membersPerSegment members per segment
+   private final int membersPerSegment;
+
+   /*
+    * Maps an opened dataset's target block and pixel segments
+    *
+    * parameters: channel is the open dataset file, and header holds its validated header
+    * postconditions: the mappings stay valid after the channel is closed
+    */
+   private ABCDDatasetFile(FileChannel channel, ByteBuffer header) throws IOException
+   {
+      this.numMembers = header.getInt(8);
+      this.imageWidth = header.getInt(12);
+      this.imageHeight = header.getInt(16);
+      this.numOutputUnits = header.getInt(20);
+      this.numInputUnits = this.imageWidth * this.imageHeight;
+
+      long targetBytes = 8L * this.numMembers * this.numOutputUnits;
+
+      this.targets = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_BYTES, targetBytes).order(ByteOrder.LITTLE_ENDIAN);
+
+      this.membersPerSegment = Math.max(1, MAX_SEGMENT_BYTES / Math.max(1, this.numInputUnits));
+      this.pixelSegments = new ByteBuffer[(this.numMembers + this.membersPerSegment - 1) / this.membersPerSegment];
+
+      for (int segment = 0; segment < this.pixelSegments.length; ++segment)
+      {
+         int firstMember = segment * this.membersPerSegment;
+         int segmentMembers = Math.min(this.membersPerSegment, this.numMembers - firstMember);
+
+         this.pixelSegments[segment] = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_BYTES + targetBytes + (long) firstMember * this.numInputUnits,
+                                                   (long) segmentMembers * this.numInputUnits);
+      } // for (int segment = 0; segment < this.pixelSegments.length; ++segment)
+
+      return;
+   } // private ABCDDatasetFile(FileChannel channel, ByteBuffer header) throws IOException
+
+   /*
+    * Returns whether a file is a packed dataset
+    *
+    * parameters: file is the file to check
+    * return: true if the file exists and begins with the magic number
+    */
+   public static boolean isDataset(File file)
+   {
+      boolean dataset = false;
+
+      if (file.isFile() && file.length() >= 4)
+      {
+         try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ))
+         {
+            ByteBuffer magic = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+            channel.read(magic, 0);
+            dataset = (magic.getInt(0) == MAGIC);
+         } // try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ))
+
+         catch (IOException ioException)                 // An unreadable file is left to the text loaders to report
+         {
+            dataset = false;
+         } // catch (IOException ioException)
+      } // if (file.isFile() && file.length() >= 4)
+
+      return dataset;
+   } // public static boolean isDataset(File file)
+
+   /*
+    * Writes an input set and its target set as a packed dataset
+    *
+    * parameters: datasetFile is the file to write, inputSet and targetSet hold the members, and imageWidth and imageHeight
+    *             give the image shape
+    * preconditions: each inputSet element corresponds with the targetSet element of the same index
+    * postconditions: as in write(File, ABCDDataset, int, int)
+    */
+   public static void write(File datasetFile, double[][] inputSet, double[][] targetSet, int imageWidth, int imageHeight)
+      throws IOException, IllegalArgumentException
+   {
+      if (targetSet.length != inputSet.length)
+      {
+         throw (new IllegalArgumentException("Invalid dataset. The input set has " + inputSet.length + " members but the target set has "
+                                             + targetSet.length + "."));
+      } // if (targetSet.length != inputSet.length)
+
+      ABCDDatasetFile.write(datasetFile, new ABCDArrayDataset(inputSet, targetSet), imageWidth, imageHeight);
+
+      return;
+   } // public static void write(File datasetFile, double[][] inputSet, double[][] targetSet, int imageWidth, int imageHeight)
+
+   /*
+    * Writes a dataset as a packed dataset, one member at a time, so the source need not fit in memory
+    *
+    * parameters: datasetFile is the file to write, source supplies the members, and imageWidth and imageHeight give the image shape
+    * postconditions: the file is created or overwritten. If an input is not exactly k / 255 for a byte k or a member's inputs
+    *                 do not match the image shape, throws an IllegalArgumentException and deletes the partly written file.
+    *                 If writing fails, an IOException is thrown.
+    */
+   public static void write(File datasetFile, ABCDDataset source, int imageWidth, int imageHeight) throws IOException, IllegalArgumentException
+   {
+      int numMembers = source.getNumMembers();
+      int numInputUnits = imageWidth * imageHeight;
+      int numOutputUnits = source.getNumOutputUnits();
+
+      double[] inputBuffer = new double[numInputUnits];
+      double[] targetBuffer = new double[numOutputUnits];
+      ByteBuffer targetBytes = ByteBuffer.allocate(8 * numOutputUnits).order(ByteOrder.LITTLE_ENDIAN);
+      ByteBuffer pixelBytes = ByteBuffer.allocate(numInputUnits);
+      CRC32 checksum = new CRC32();
+      boolean written = false;
+
+      try (FileChannel channel = FileChannel.open(datasetFile.toPath(), StandardOpenOption.CREATE,
+                                                  StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING))
+      {
+         long position = HEADER_BYTES;
+
+         /*
+          * The target block, then the pixel block, checksumming each member's bytes as they are written
+          */
+         for (int member = 0; member < numMembers; ++member)
+         {
+            double[] targets = source.getTargets(member, targetBuffer);
+            targetBytes.clear();
+
+            for (int i = 0; i < numOutputUnits; ++i)
+            {
+               targetBytes.putDouble(targets[i]);
+            } // for (int i = 0; i < numOutputUnits; ++i)
+
+            position = ABCDDatasetFile.writeFully(channel, targetBytes.flip(), position, checksum);
+         } // for (int member = 0; member < numMembers; ++member)
+
+         for (int member = 0; member < numMembers; ++member)
+         {
+            double[] inputs = source.getInputs(member, inputBuffer);
+
+            if (inputs.length != numInputUnits)
+            {
+               throw (new IllegalArgumentException("Invalid dataset. Member " + member + " has " + inputs.length
+                                                   + " input units but the image shape " + imageWidth + "x" + imageHeight + " holds " + numInputUnits + "."));
+            } // if (inputs.length != numInputUnits)
+
+            pixelBytes.clear();
+
+            for (int m = 0; m < numInputUnits; ++m)
+            {
+               pixelBytes.put((byte) ABCDDatasetFile.toPixel(inputs[m], member, m));
+            } // for (int m = 0; m < numInputUnits; ++m)
+
+            position = ABCDDatasetFile.writeFully(channel, pixelBytes.flip(), position, checksum);
+         } // for (int member = 0; member < numMembers; ++member)
+
+         /*
+          * The header, now that the checksum is known
+          */
+         ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+         header.putInt(MAGIC).putInt(VERSION).putInt(numMembers).putInt(imageWidth).putInt(imageHeight).putInt(numOutputUnits);
+         header.putInt(PIXEL_MAX).putInt(0).putLong(checksum.getValue());
+
+         ABCDDatasetFile.writeFully(channel, header.flip(), 0, null);
+         written = true;
+      } // try (FileChannel channel = ...)
+
+      catch (IOException ioException)
+      {
+         throw (new IOException("IO exception encountered while writing to output file: " + ioException.getMessage()));
+      } // catch (IOException ioException)
+
+      finally
+      {
+         if (!written)
+            datasetFile.delete();                        // Never leave a partial dataset behind
+      } // finally
+
+      return;
+   } // public static void write(File datasetFile, ABCDDataset source, int imageWidth, int imageHeight)
+
+   /*
+    * Writes all of a buffer at a file position
+    *
+    * parameters: channel is the file, bytes are the bytes to write, position is where, and checksum (if not null) is updated with them
+    * return: the position after the bytes
+    */
+   private static long writeFully(FileChannel channel, ByteBuffer bytes, long position, CRC32 checksum) throws IOException
+   {
+      if (checksum != null)
+         checksum.update(bytes.duplicate());
+
+      while (bytes.hasRemaining())
+      {
+         position += channel.write(bytes, position);
+      } // while (bytes.hasRemaining())
+
+      return position;
+   } // private static long writeFully(FileChannel channel, ByteBuffer bytes, long position, CRC32 checksum) throws IOException
+
+   /*
+    * Converts an input value to its pixel byte
+    *
+    * parameters: value is the input value, and member and m locate it for the error message
+    * return: the byte k with k / 255 == value
+    * postconditions: throws an IllegalArgumentException if no byte reproduces the value exactly
+    */
+   private static int toPixel(double value, int member, int m) throws IllegalArgumentException
+   {
+      long pixel = Math.round(value * PIXEL_MAX);
+
+      if (pixel < 0 || pixel > PIXEL_MAX || PIXEL_VALUES[(int) pixel] != value)
+      {
+         throw (new IllegalArgumentException("Invalid dataset. Input " + m + " of member " + member + " (" + value
+                                             + ") is not an 8-bit pixel value k/" + PIXEL_MAX + "."));
+      } // if (pixel < 0 || pixel > PIXEL_MAX || PIXEL_VALUES[(int) pixel] != value)
+
+      return (int) pixel;
+   } // private static int toPixel(double value, int member, int m)
+
+   /*
+    * Opens a packed dataset through memory mappings
+    * The pixels are mapped in segments, so a dataset may be larger than both the heap and the 2 GB limit of one mapping.
+    * Only the pages of the members being read need to be resident.
+    *
+    * parameters: datasetFile is the dataset file
+    * return: the opened dataset
+    * postconditions: the header and checksum are verified; no member is expanded yet.
+    *                 If the file is not found, throws a FileNotFoundException.
+    *                 If it is not a valid dataset, throws an IllegalArgumentException.
+    */
+   public static ABCDDatasetFile open(File datasetFile) throws FileNotFoundException, IllegalArgumentException
+   {
+      if (!datasetFile.isFile())
+      {
+         throw (new FileNotFoundException("Dataset file not found: " + datasetFile.getPath()));
+      } // if (!datasetFile.isFile())
+
+      ABCDDatasetFile dataset;
+
+      try (FileChannel channel = FileChannel.open(datasetFile.toPath(), StandardOpenOption.READ))
+      {
+         ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+
+         while (header.hasRemaining() && channel.read(header, header.position()) > 0)
+         {
+         } // while (header.hasRemaining() && channel.read(header, header.position()) > 0)
+
+         if (header.hasRemaining() || header.getInt(0) != MAGIC)
+         {
+            throw (new IllegalArgumentException("Invalid dataset file. The file is not a packed dataset."));
+         } // if (header.hasRemaining() || header.getInt(0) != MAGIC)
+
+         if (header.getInt(4) != VERSION)
+         {
+            throw (new IllegalArgumentException("Invalid dataset file. The dataset version (" + header.getInt(4)
+                                                + ") is not supported (" + VERSION + ")."));
+         } // if (header.getInt(4) != VERSION)
+
+         if (header.getInt(24) != PIXEL_MAX)
+         {
+            throw (new IllegalArgumentException("Invalid dataset file. The pixel maximum (" + header.getInt(24)
+                                                + ") is not supported (" + PIXEL_MAX + ")."));
+         } // if (header.getInt(24) != PIXEL_MAX)
+
+         long expectedBytes = HEADER_BYTES + 8L * header.getInt(8) * header.getInt(20) + (long) header.getInt(8) * header.getInt(12) * header.getInt(16);
+
+         if (channel.size() != expectedBytes)
+         {
+            throw (new IllegalArgumentException("Invalid dataset file. The file holds " + channel.size() + " bytes but "
+                                                + expectedBytes + " are expected."));
+         } // if (channel.size() != expectedBytes)
+
+         dataset = new ABCDDatasetFile(channel, header);
+
+         /*
+          * Checksum the targets and then the pixels, in file order
+          */
+         CRC32 checksum = new CRC32();
+         checksum.update(dataset.targets.duplicate());
+
+         for (int segment = 0; segment < dataset.pixelSegments.length; ++segment)
+         {
+            checksum.update(dataset.pixelSegments[segment].duplicate());
+         } // for (int segment = 0; segment < dataset.pixelSegments.length; ++segment)
+
+         if (checksum.getValue() != header.getLong(32))
+         {
+            throw (new IllegalArgumentException("Invalid dataset file. The payload checksum does not match its header."));
+         } // if (checksum.getValue() != header.getLong(32))
+      } // try (FileChannel channel = FileChannel.open(datasetFile.toPath(), StandardOpenOption.READ))
+
+      catch (IOException ioException)
+      {
+         throw (new IllegalArgumentException("Invalid dataset file. The dataset file could not be read: " + ioException.getMessage()));
+      } // catch (IOException ioException)
+
+      return dataset;
+   } // public static ABCDDatasetFile open(File datasetFile) throws FileNotFoundException, IllegalArgumentException
+
+   /*
+    * Returns the number of members
+    */
+   @Override
+   public int getNumMembers()
+   {
+      return this.numMembers;
+   } // public int getNumMembers()
+
+   /*
+    * Returns the image width in pixels
+    */
+   public int getImageWidth()
+   {
+      return this.imageWidth;
+   } // public int getImageWidth()
+
+   /*
+    * Returns the image height in pixels
+    */
+   public int getImageHeight()
+   {
+      return this.imageHeight;
+   } // public int getImageHeight()
+
+   /*
+    * Returns the number of input units per member, imageWidth * imageHeight
+    */
+   @Override
+   public int getNumInputUnits()
+   {
+      return this.numInputUnits;
+   } // public int getNumInputUnits()
+
+   /*
+    * Returns the number of output units per target
+    */
+   @Override
+   public int getNumOutputUnits()
+   {
+      return this.numOutputUnits;
+   } // public int getNumOutputUnits()
+
+   /*
+    * Expands a member's pixels into doubles
+    *
+    * parameters: member is the member index, and inputs receives its getNumInputUnits() inputs, each k / 255
+    * postconditions: inputs holds exactly the values the text input files hold for the member
+    */
+   public void readInputs(int member, double[] inputs)
+   {
+      ByteBuffer segment = this.pixelSegments[member / this.membersPerSegment];
+      int base = (member % this.membersPerSegment) * this.numInputUnits;
+
+      for (int m = 0; m < this.numInputUnits; ++m)
+      {
+         inputs[m] = PIXEL_VALUES[segment.get(base + m) & 0xFF];
+      } // for (int m = 0; m < this.numInputUnits; ++m)
+
+      return;
+   } // public void readInputs(int member, double[] inputs)
+
+   /*
+    * Expands a member's pixels into floats
+    *
+    * parameters: member is the member index, and inputs receives its getNumInputUnits() inputs, each k / 255 rounded to float
+    */
+   public void readInputs(int member, float[] inputs)
+   {
+      ByteBuffer segment = this.pixelSegments[member / this.membersPerSegment];
+      int base = (member % this.membersPerSegment) * this.numInputUnits;
+
+      for (int m = 0; m < this.numInputUnits; ++m)
+      {
+         inputs[m] = (float) PIXEL_VALUES[segment.get(base + m) & 0xFF];
+      } // for (int m = 0; m < this.numInputUnits; ++m)
+
+      return;
+   } // public void readInputs(int member, float[] inputs)
+
+   /*
+    * Reads a member's target vector
+    *
+    * parameters: member is the member index, and targets receives its getNumOutputUnits() targets
+    */
+   public void readTargets(int member, double[] targets)
+   {
+      int base = 8 * member * this.numOutputUnits;
+
+      for (int i = 0; i < this.numOutputUnits; ++i)
+      {
+         targets[i] = this.targets.getDouble(base + 8 * i);
+      } // for (int i = 0; i < this.numOutputUnits; ++i)
+
+      return;
+   } // public void readTargets(int member, double[] targets)
+
+   /*
+    * Decodes a member's inputs into the caller's buffer (see ABCDDataset)
+    */
+   @Override
+   public double[] getInputs(int member, double[] buffer)
+   {
+      this.readInputs(member, buffer);
+
+      return buffer;
+   } // public double[] getInputs(int member, double[] buffer)
+
+   /*
+    * Reads a member's targets into the caller's buffer (see ABCDDataset)
+    */
+   @Override
+   public double[] getTargets(int member, double[] buffer)
+   {
+      this.readTargets(member, buffer);
+
+      return buffer;
+   } // public double[] getTargets(int member, double[] buffer)
+
+   /*
+    * Expands every member's inputs, for the methods that take a whole input set
+    *
+    * return: the input set, one row per member
+    */
+   public double[][] toInputSet()
+   {
+      double[][] inputSet = new double[this.numMembers][this.numInputUnits];
+
+      for (int member = 0; member < this.numMembers; ++member)
+      {
+         this.readInputs(member, inputSet[member]);
+      } // for (int member = 0; member < this.numMembers; ++member)
+
+      return inputSet;
+   } // public double[][] toInputSet()
+
+   /*
+    * Reads every member's targets
+    *
+    * return: the target set, one row per member
+    */
+   public double[][] toTargetSet()
+   {
+      double[][] targetSet = new double[this.numMembers][this.numOutputUnits];
+
+      for (int member = 0; member < this.numMembers; ++member)
+      {
+         this.readTargets(member, targetSet[member]);
+      } // for (int member = 0; member < this.numMembers; ++member)
+
+      return targetSet;
+   } // public double[][] toTargetSet()
+
+   /*
+    * Converts a super input file and a target set file into a packed dataset
+    *
+    * parameters: args holds a network configuration filename (which fixes the number of input and output units), the super
+    *             input filename, the target set filename, the output dataset filename, and optionally the image width
+    *             (square images are assumed otherwise)
+    * postconditions: the dataset is written and its size is printed next to the text files' size
+    */
+   public static void main(String[] args)
+   {
+      if (args.length != 4 && args.length != 5)
+      {
+         System.out.println("Usage: java ABCDDatasetFile <network configuration file> <super input file> <target set file> "
+                            + "<output dataset file> [image width]");
+      } // if (args.length != 4 && args.length != 5)
+
+      else
+      {
+         try
+         {
+            ABCDNetwork network = new ABCDNetwork(new File(args[0]));
+            File superFile = new File(args[1]);
+            File targetSetFile = new File(args[2]);
+            File datasetFile = new File(args[3]);
+
+            double[][] inputSet = network.extractInputSetFromSuperFile(superFile);
+            double[][] targetSet = network.extractTargetSetFromFile(targetSetFile);
+
+            int numInputUnits = network.getNumInputUnits();
+            int imageWidth = (args.length == 5) ? Integer.parseInt(args[4]) : (int) Math.round(Math.sqrt(numInputUnits));
+
+            if (imageWidth <= 0 || numInputUnits % imageWidth != 0)
+            {
+               throw (new IllegalArgumentException("Invalid image width. " + numInputUnits + " input units are not a whole number of "
+                                                   + imageWidth + "-pixel rows; give the image width as the fifth argument."));
+            } // if (imageWidth <= 0 || numInputUnits % imageWidth != 0)
+
+            ABCDDatasetFile.write(datasetFile, inputSet, targetSet, imageWidth, numInputUnits / imageWidth);
+
+            /*
+             * Compare against the text files: the super file, each distinct mini file it names, and the target set file
+             */
+            long textBytes = superFile.length() + targetSetFile.length();
+            java.util.List<String> lines = java.nio.file.Files.readAllLines(superFile.toPath());
+
+            for (String miniFile : new java.util.HashSet<String>(lines.subList(2, lines.size())))
+            {
+               textBytes += new File(miniFile).length();
+            } // for (String miniFile : new java.util.HashSet<String>(lines.subList(2, lines.size())))
+
+            System.out.println("Wrote " + inputSet.length + " members of " + imageWidth + "x" + (numInputUnits / imageWidth)
+                               + " pixels to " + datasetFile.getName() + ": " + datasetFile.length() + " bytes (text files: "
+                               + textBytes + " bytes)");
+         } // try
+
+         catch (Exception exception)   // Catch and print any exceptions. Abort execution.
+         {
+            System.out.println("An exception has terminated execution:\n\t" + exception.getMessage());
+         } // catch (Exception exception)
+      } // if (args.length != 4 && args.length != 5)... else
+
+      return;
+   } // public static void main(String[] args)
+
+} // public class ABCDDatasetFile implements ABCDDataset
@@ -0,0 +1,308 @@
+/*
+ * Per-thread execution state for an A-B-C-D network model.
+ *
+ * Author: Jack Hsieh
+ * Date of creation: November 11, 2021
+ */
+
+/*
+ * Holds everything a single forward or backward pass writes: the units, the compressed input layer, and (if allocated
+ * for training) the targets, Thetas, and Psis. An ABCDModel only reads its weights during execution, so any number of
+ * threads can run the same model concurrently as long as each thread uses its own context.
+ *
+ * The fields are package-private so the model's kernels can read and write them directly.
+ */
+public class ABCDExecutionContext
+{
+   /*
+    * Layer sizes of the model this context was allocated for
+    */
+   final int NUM_LAYERS;
+   final int[] LAYER_SIZES;
+
+   /*
+    * Units
+    */
+   final double[][] a;                 // Each row is a layer: row 0 is the input layer, row 1 is the first hidden layer, etc.
+
+   /*
+    * Compressed input layer: the indices and values of the non-zero input units, rebuilt whenever inputs are loaded.
+    * Background pixels are exactly 0.0, so hand-sign members are mostly zeros and the input layer only needs these entries.
+    */
+   final int[] inputIndices;           // Of size LAYER_SIZES[0]; only the first numNonzeroInputs entries are used
+   final double[] inputValues;         // Of size LAYER_SIZES[0]; only the first numNonzeroInputs entries are used
+   int numNonzeroInputs;
+   boolean inputsAreSparse;            // True if the current inputs are sparse enough to use the compressed input layer (forward and backward)
+
+   /*
+    * The largest fraction of non-zero inputs for which the compressed input layer is used.
+    * Above it, the indexed loads cost more than the skipped multiplies save.
+    */
+   private double MAX_SPARSE_INPUT_DENSITY = 0.6;
+   private boolean useSparseInputs = true;
+
+   /*
+    * Targets
+    */
+   double[] T;                         // Only set if allocated for training
+
+   /*
+    * Training hidden-output details. Only allocated if allocated for training.
+    * Both arrays contain NUM_LAYER rows
+    */
+   final double[][] Theta;             // The first (the input layer) is null since it is never used
+   final double[][] Psi;               // The first layer (the input layer) is null since it is never used
+
+   /*
+    * Hidden units of a block of members for batched execution: blockUnits[alpha][b] is hidden layer alpha of member b.
+    * The input and output rows are the caller's arrays, so their entries are null. Allocated on first use.
+    */
+   double[][][] blockUnits;
+   int blockCapacity;
+
+   /*
+    * Results of one 2 x 2 tile of dot products
+    */
+   final double[] tile = new double[4];
+
+   /*
+    * Allocates a context for a model with the given layer sizes
+    *
+    * parameters: layerSizes holds the number of units in each layer, and allocateForTraining is whether to allocate
+    *             the Theta and Psi arrays needed to train
+    * postconditions: the unit and compressed input arrays are allocated, and the Theta and Psi arrays are allocated if requested
+    */
+   public ABCDExecutionContext(int[] layerSizes, boolean allocateForTraining)
+   {
+      this.NUM_LAYERS = layerSizes.length;
+      this.LAYER_SIZES = layerSizes.clone();
+
+      /*
+       * Allocate each layer of units
+       */
+      this.a = new double[this.NUM_LAYERS][];
+
+      for (int alpha = 0; alpha < this.NUM_LAYERS; ++alpha)
+      {
+         this.a[alpha] = new double[this.LAYER_SIZES[alpha]];
+      } // for (int alpha = 0; alpha < this.NUM_LAYERS; ++alpha)
+
+      /*
+       * Allocate the compressed input layer for the worst case of no zero inputs
+       */
+      this.inputIndices = new int[this.LAYER_SIZES[0]];
+      this.inputValues = new double[this.LAYER_SIZES[0]];
+
+      /*
+       * Allocate the training arrays if desired
+       */
+      if (allocateForTraining)
+      {
+         this.Theta = this.allocateThetas();
+         this.Psi = this.allocatePsis();
+      } // if (allocateForTraining)
+
+      else
+      {
+         this.Theta = null;
+         this.Psi = null;
+      } // if (allocateForTraining)... else
+
+      return;
+   } // public ABCDExecutionContext(int[] layerSizes, boolean allocateForTraining)
+
+   /*
+    * Allocate the necessary Theta arrays
+    *
+    * return: the hidden and output layer Theta arrays as a 2D array of size NUM_LAYERS.
+    *         The input layer theta array is not allocated: its row is included as empty to simplify indexing.
+    *         Output Thetas are stored because the output activation's derivative may need them.
+    */
+   private double[][] allocateThetas()
+   {
+      double[][] newTheta = new double[this.NUM_LAYERS][];                 // Overall array
+
+      /*
+       * Input Thetas never need to be stored: leave a placeholder for simplified indexing
+       */
+      newTheta[0] = null;
+
+      for (int alpha = 1; alpha < this.NUM_LAYERS; ++alpha)               // Loops over hidden and output layers
+      {
+         newTheta[alpha] = new double[this.LAYER_SIZES[alpha]];
+      } // for (int alpha = 1; alpha < this.NUM_LAYERS; ++alpha)
+
+      return newTheta;
+   } // private double[][] allocateThetas()
+
+   /*
+    * Allocate the necessary Psi arrays
+    *
+    * return: the hidden and output Psi arrays as a 2D array of size NUM_LAYERS.
+    *         The input layer Psi array is not allocated: its row is included as empty to simplify indexing.
+    *         The first hidden layer's Psis are accumulated row by row during backpropagation, so they are stored too
+    */
+   private double[][] allocatePsis()
+   {
+      double[][] newPsi = new double[this.NUM_LAYERS][];                   // Overall array
+
+      newPsi[0] = null;                                                    // Input layer Psis are never needed
+
+      for (int alpha = 1; alpha < this.NUM_LAYERS; ++alpha)                // Loops over the hidden and output layers
+      {
+         newPsi[alpha] = new double[this.LAYER_SIZES[alpha]];
+      } // for (int alpha = 1; alpha < this.NUM_LAYERS; ++alpha)
+
+      return newPsi;
+   } // private double[][] allocatePsis()
+
+   /*
+    * Makes sure the block units can hold a block of members
+    *
+    * parameters: blockSize is the number of members in the block
+    * postconditions: blockUnits holds at least blockSize rows for each hidden layer. Existing rows are kept when large enough.
+    */
+   void ensureBlockCapacity(int blockSize)
+   {
+      if (blockSize > this.blockCapacity)
+      {
+         this.blockUnits = new double[this.NUM_LAYERS][][];
+
+         for (int alpha = 1; alpha < this.NUM_LAYERS - 1; ++alpha)   // Hidden layers only
+         {
+            this.blockUnits[alpha] = new double[blockSize][this.LAYER_SIZES[alpha]];
+         } // for (int alpha = 1; alpha < this.NUM_LAYERS - 1; ++alpha)
+
+         this.blockCapacity = blockSize;
+      } // if (blockSize > this.blockCapacity)
+
+      return;
+   } // void ensureBlockCapacity(int blockSize)
+
+   /*
+    * Loads new inputs into the input units.
+    *
+    * parameters: new_a are the new inputs
+    * preconditions: the argument new_a is of length LAYER_SIZES[0]
+    * postconditions: the input units refer to new_a (it is not copied) and the compressed input layer is rebuilt from them
+    */
+   void loadInputs(double[] new_a)
+   {
+      this.a[0] = new_a;
+
+      this.compressInputs();
+
+      return;
+   } // void loadInputs(double[] new_a)
+
+   /*
+    * Builds the compressed input layer from the current input units
+    *
+    * preconditions: the input units are loaded
+    * postconditions: the first numNonzeroInputs entries of inputIndices and inputValues hold the non-zero input units in ascending order,
+    *                 and inputsAreSparse is set if sparse inputs are enabled and the inputs are at most MAX_SPARSE_INPUT_DENSITY non-zero
+    */
+   private void compressInputs()
+   {
+      double[] inputs = this.a[0];
+      int numInputs = this.LAYER_SIZES[0];
+
+      this.numNonzeroInputs = 0;
+
+      for (int m = 0; m < numInputs; ++m)
+      {
+         if (inputs[m] != 0.0)
+         {
+            this.inputIndices[this.numNonzeroInputs] = m;
+            this.inputValues[this.numNonzeroInputs] = inputs[m];
+            ++this.numNonzeroInputs;
+         } // if (inputs[m] != 0.0)
+      } // for (int m = 0; m < numInputs; ++m)
+
+      this.inputsAreSparse = this.useSparseInputs && (this.numNonzeroInputs <= this.MAX_SPARSE_INPUT_DENSITY * numInputs);
+
+      return;
+   } // private void compressInputs()
+
+   /*
+    * Loads new targets
+    *
+    * parameters: new_T is the new targets
+    * preconditions: new_T is of length LAYER_SIZES[NUM_LAYERS - 1]
+    * postconditions: the targets refer to new_T (it is not copied)
+    */
+   void loadTargets(double[] new_T)
+   {
+      this.T = new_T;
+
+      return;
+   } // void loadTargets(double[] new_T)
+
+   /*
+    * Returns whether the context can be used for training
+    *
+    * return: true if the Theta and Psi arrays are allocated
+    */
+   public boolean isAllocatedForTraining()
+   {
+      return (this.Theta != null);
+   } // public boolean isAllocatedForTraining()
+
+   /*
+    * Sets whether sparse inputs use the compressed input layer
+    * This covers both the input layer's forward pass and its weight updates during training.
+    *
+    * parameters: useSparseInputs is true to run and train the input layer over only the non-zero inputs when they are sparse enough,
+    *             false to always use the dense input layer
+    * postconditions: takes effect the next time inputs are loaded
+    */
+   public void setUseSparseInputs(boolean useSparseInputs)
+   {
+      this.useSparseInputs = useSparseInputs;
+
+      return;
+   } // public void setUseSparseInputs(boolean useSparseInputs)
+
+   /*
+    * Returns the output units
+    *
+    * return: the output layer of units (not a copy), overwritten by the next execution with this context
+    */
+   public double[] getOutputs()
+   {
+      return this.a[this.NUM_LAYERS - 1];
+   } // public double[] getOutputs()
+
+   /*
+    * Returns one layer of units
+    *
+    * parameters: alpha is the layer index
+    * return: the layer of units (not a copy)
+    */
+   public double[] getUnits(int alpha)
+   {
+      return this.a[alpha];
+   } // public double[] getUnits(int alpha)
+
+   /*
+    * Calculates the error
+    *
+    * preconditions: the targets are loaded and the output units are calculated
+    * return: the total error of the network for the last member
+    */
+   public double getError()
+   {
+      double total = 0.0;
+      double current_omega;
+      double[] outputs = this.a[this.NUM_LAYERS - 1];
+
+      for (int i = 0; i < outputs.length; ++i)
+      {
+         current_omega = this.T[i] - outputs[i];
+         total += current_omega * current_omega;
+      } // for (int i = 0; i < outputs.length; ++i)
+
+      return (total/2.0);
+   } // public double getError()
+
+} // public class ABCDExecutionContext
@@ -0,0 +1,60 @@
+/*
+ * Fast rational approximation of the hyperbolic tangent for the A-B-C-D network's activations.
+ *
+ * Author: Jack Hsieh
+ * Date of creation: November 11, 2021
+ */
+
+/*
+ * Math.tanh and Math.cosh are not intrinsics: each call runs a software exp. This class evaluates tanh as the (9, 8)
+ * convergent of Lambert's continued fraction,
+ *
+ *    tanh(x) ~ x (34459425 + 4729725 x^2 + 135135 x^4 + 990 x^6 + x^8) / (34459425 + 16216200 x^2 + 945945 x^4 + 13860 x^6 + 45 x^8),
+ *
+ * a handful of multiply-adds and one division, clamped to [-1, 1]. The fraction is odd and increasing up to
+ * |x| = SATURATION, where it first reaches 1, and beyond that the result is exactly +-1.
+ *
+ * Maximum absolute error against Math.tanh: MAX_ERROR, reached just below SATURATION. The error shrinks quickly
+ * toward 0: it is below 1e-9 for |x| < 3. The derivative 1 - a^2 computed from the approximation a is off by
+ * |tanh(x) - a| |tanh(x) + a| <= 2 * MAX_ERROR, which MAX_DERIVATIVE_ERROR rounds up with some margin.
+ * ABCDFeatureTester.testFastTanh checks both bounds.
+ */
+public class ABCDFastTanh
+{
+   public static final double SATURATION = 6.2971; // Smallest |x| (to 4 places) at which the fraction reaches 1
+   public static final double MAX_ERROR = 6.8e-6;  // Maximum absolute error over all doubles
+   public static final double MAX_DERIVATIVE_ERROR = 1.4e-5;   // Maximum absolute error of 1 - a^2, measured at 1.357e-5
+
+   /*
+    * Returns the approximate hyperbolic tangent of a real number
+    *
+    * parameters: x, the real number input
+    * return: an odd, non-decreasing approximation of tanh(x) in [-1, 1], within MAX_ERROR of Math.tanh(x)
+    */
+   public static double tanh(double x)
+   {
+      if (x >= SATURATION)
+         return 1.0;
+
+      if (x <= -SATURATION)
+         return -1.0;
+
+      double x2 = x * x;
+      double numerator = x * (34459425.0 + x2 * (4729725.0 + x2 * (135135.0 + x2 * (990.0 + x2))));
+      double denominator = 34459425.0 + x2 * (16216200.0 + x2 * (945945.0 + x2 * (13860.0 + x2 * 45.0)));
+
+      return Math.max(-1.0, Math.min(1.0, numerator / denominator));
+   } // public static double tanh(double x)
+
+   /*
+    * Returns the derivative of the hyperbolic tangent from an activation already computed, with no transcendental call
+    *
+    * parameters: activation is tanh of the unit's Theta (exact or approximate)
+    * return: 1 - activation^2
+    */
+   public static double derivativeFromActivation(double activation)
+   {
+      return 1.0 - activation * activation;
+   } // public static double derivativeFromActivation(double activation)
+
+} // public class ABCDFastTanh
@@ -0,0 +1,1715 @@
+/*
+ * Tester for the A-B-C-D network's file formats, datasets, precisions, and activations
+ *
+ * Author: Jack Hsieh
+ * Date of creation: November 11, 2021
+ */
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.PrintWriter;
+import java.io.RandomAccessFile;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.InputMismatchException;
+import java.util.List;
+import java.util.Random;
+import java.util.Scanner;
+import java.util.concurrent.ForkJoinPool;
+import javax.imageio.ImageIO;
+
+/*
+ * Suite for checking the network's features beyond its kernels against the plain behavior they replace.
+ *
+ * With no command line arguments, checks the text weights parser against java.util.Scanner, the fast tanh approximation,
+ * and every activation and its derivative, and times the activations. If a network configuration filename and a super
+ * input filename are given as the first and second arguments, also checks the binary weights format, parallel and image
+ * loading, and the int8 quantized model. If a target set filename is given as the third argument, also checks packed and
+ * streamed datasets, augmentation, float32 precision, the fast and configured activations, and networks of other depths.
+ * Given a text weights file as the fourth argument, it also times the text parser against java.util.Scanner.
+ *
+ * As in ABCDKernelTester, the network tests run on a temporary copy of the configuration (see
+ * ABCDKernelTester.testConfiguration) that trains at most TEST_ITERATIONS iterations and saves its weights only to a
+ * temporary file. The tests that compare two networks load both from the same saved weights (see
+ * ABCDKernelTester.configurationWithWeightsOf), so they do not depend on randomized starting weights.
+ */
+public class ABCDFeatureTester
+{
+   private static Random random = new Random(2021);
+   private static double TRAINING_WEIGHT_RANGE = 0.03;   // Small enough not to saturate the hidden units of a 5625-unit input layer
+
+   /*
+    * Checks that weights survive a round trip through the binary format, that truncated files and corrupted payloads are
+    * rejected, and compares the load times of the text and binary formats
+    *
+    * return: true if the binary round trip is exact, matches the text round trip, every truncated file or impossible layer
+    *         count is rejected as invalid, and the corrupted file fails its checksum
+    */
+   public static boolean testBinaryWeights(File networkConfigurationFile) throws Exception
+   {
+      ABCDNetwork network = new ABCDNetwork(networkConfigurationFile);
+      File textFile = File.createTempFile("ABCDWeights", ".txt");
+      File binaryFile = File.createTempFile("ABCDWeights", ABCDWeightsFile.BINARY_EXTENSION);
+      textFile.deleteOnExit();
+      binaryFile.deleteOnExit();
+
+      network.saveWeights(textFile);
+      network.saveWeights(binaryFile);
+
+      ABCDNetwork textCopy = new ABCDNetwork(ABCDWeightsFile.readLayerSizes(textFile));
+      ABCDNetwork binaryCopy = new ABCDNetwork(ABCDWeightsFile.readLayerSizes(binaryFile));
+
+      long start = System.nanoTime();
+      textCopy.loadWeights(textFile);
+      long textTime = System.nanoTime() - start;
+
+      start = System.nanoTime();
+      binaryCopy.loadWeights(binaryFile);
+      long binaryTime = System.nanoTime() - start;
+
+      boolean exact = Arrays.equals(network.getWeights(), binaryCopy.getWeights());
+      boolean matchesText = Arrays.equals(textCopy.getWeights(), binaryCopy.getWeights());
+
+      /*
+       * Cut the file short at every point through the header and inside the payload, and claim more layers than the file
+       * can hold (4 * 0x40000000 overflows an int to 0), and expect each to be rejected as invalid
+       */
+      byte[] image = Files.readAllBytes(binaryFile.toPath());
+      File truncatedFile = File.createTempFile("ABCDTruncatedWeights", ABCDWeightsFile.BINARY_EXTENSION);
+      truncatedFile.deleteOnExit();
+      int[] lengths = {4, 8, 12, 15, 16, 20, 24, 28, 32, image.length - 8, image.length - 1};
+      int[] badNumLayers = {0x40000000, Integer.MAX_VALUE, -1};
+      int numRejected = 0;
+
+      for (int length : lengths)
+      {
+         Files.write(truncatedFile.toPath(), Arrays.copyOf(image, length));
+
+         try
+         {
+            if (length < 32)                                          // Within the header
+            {
+               ABCDWeightsFile.readLayerSizes(truncatedFile);
+            } // if (length < 32)
+
+            else
+            {
+               binaryCopy.loadWeights(truncatedFile);
+            } // if (length < 32)... else
+         } // try
+
+         catch (IllegalArgumentException illegalArgumentException)
+         {
+            ++numRejected;
+         } // catch (IllegalArgumentException illegalArgumentException)
+      } // for (int length : lengths)
+
+      for (int numLayers : badNumLayers)
+      {
+         byte[] badHeader = image.clone();
+         ByteBuffer.wrap(badHeader).order(ByteOrder.LITTLE_ENDIAN).putInt(12, numLayers);
+         Files.write(truncatedFile.toPath(), badHeader);
+
+         try
+         {
+            ABCDWeightsFile.readLayerSizes(truncatedFile);
+         } // try
+
+         catch (IllegalArgumentException illegalArgumentException)
+         {
+            ++numRejected;
+         } // catch (IllegalArgumentException illegalArgumentException)
+      } // for (int numLayers : badNumLayers)
+
+      boolean truncationCaught = (numRejected == lengths.length + badNumLayers.length);
+
+      /*
+       * Flip one payload byte and expect the checksum to catch it
+       */
+      boolean corruptionCaught = false;
+
+      try (RandomAccessFile corrupter = new RandomAccessFile(binaryFile, "rw"))
+      {
+         corrupter.seek(corrupter.length() - 1);
+         int lastByte = corrupter.read();
+         corrupter.seek(corrupter.length() - 1);
+         corrupter.write(lastByte ^ 0x01);
+      } // try (RandomAccessFile corrupter = new RandomAccessFile(binaryFile, "rw"))
+
+      try
+      {
+         binaryCopy.loadWeights(binaryFile);
+      } // try
+
+      catch (IllegalArgumentException illegalArgumentException)
+      {
+         corruptionCaught = true;
+      } // catch (IllegalArgumentException illegalArgumentException)
+
+      boolean passed = exact && matchesText && truncationCaught && corruptionCaught;
+      System.out.println((passed ? "PASS" : "FAIL") + " binary weights: exact " + exact + ", matches text " + matchesText
+                         + ", truncation caught " + truncationCaught + ", corruption caught " + corruptionCaught + ", load text " + textTime / 1000000 + " ms, binary "
+                         + binaryTime / 1000000 + " ms");
+
+      return passed;
+   } // public static boolean testBinaryWeights(File networkConfigurationFile)
+
+   /*
+    * Checks that loading a super file in parallel matches loading its mini files one by one in order, and that a bad
+    * mini file makes the load fail with that file's name
+    *
+    * parameters: numWorkers is the number of loading workers
+    * return: true if the parallel load matches and both a missing and a malformed mini file are reported by name
+    */
+   public static boolean testParallelLoading(int numWorkers, File networkConfigurationFile, File superFile) throws Exception
+   {
+      ABCDNetwork network = new ABCDNetwork(networkConfigurationFile);
+      ForkJoinPool pool = new ForkJoinPool(numWorkers);
+      network.setRunPool(pool);
+
+      /*
+       * Serial reference: the mini files listed after the super file's two header lines, loaded in order
+       */
+      List<String> lines = Files.readAllLines(superFile.toPath());
+      int numMembers = lines.size() - 2;
+      double[][] expected = new double[numMembers][];
+
+      long start = System.nanoTime();
+
+      for (int member = 0; member < numMembers; ++member)
+      {
+         expected[member] = network.extractInputMemberFromMiniFile(new File(lines.get(member + 2)));
+      } // for (int member = 0; member < numMembers; ++member)
+
+      long serialTime = System.nanoTime() - start;
+
+      start = System.nanoTime();
+      double[][] actual = network.extractInputSetFromSuperFile(superFile);
+      long parallelTime = System.nanoTime() - start;
+
+      boolean matches = Arrays.deepEquals(expected, actual);
+
+      /*
+       * Replace the last member with a missing file, then with a malformed one
+       */
+      File malformedFile = File.createTempFile("ABCDMalformedMember", ".txt");
+      File badSuperFile = File.createTempFile("ABCDBadSuperFile", ".txt");
+      malformedFile.deleteOnExit();
+      badSuperFile.deleteOnExit();
+      Files.write(malformedFile.toPath(), "NUM_INPUT_UNITS:".concat(network.getNumInputUnits() + "\n0.5,x").getBytes());
+
+      String missingPath = new File(malformedFile.getParentFile(), "ABCDMissingMember.txt").getPath();
+      boolean missingReported = false;
+      boolean malformedReported = false;
+
+      for (String badPath : new String[] {missingPath, malformedFile.getPath()})
+      {
+         lines.set(lines.size() - 1, badPath);
+         Files.write(badSuperFile.toPath(), String.join("\n", lines).getBytes());
+
+         try
+         {
+            network.extractInputSetFromSuperFile(badSuperFile);
+         } // try
+
+         catch (FileNotFoundException fileNotFoundException)
+         {
+            missingReported = fileNotFoundException.getMessage().contains(missingPath);
+         } // catch (FileNotFoundException fileNotFoundException)
+
+         catch (IllegalArgumentException illegalArgumentException)
+         {
+            malformedReported = illegalArgumentException.getMessage().contains(malformedFile.getPath());
+         } // catch (IllegalArgumentException illegalArgumentException)
+      } // for (String badPath : new String[] {missingPath, malformedFile.getPath()})
+
+      pool.shutdown();
+
+      boolean passed = matches && missingReported && malformedReported;
+      System.out.println((passed ? "PASS" : "FAIL") + " parallel loading (" + numWorkers + " workers): matches serial " + matches
+                         + ", missing file reported " + missingReported + ", malformed file reported " + malformedReported
+                         + ", serial " + serialTime / 1000000 + " ms, parallel " + parallelTime / 1000000 + " ms");
+
+      return passed;
+   } // public static boolean testParallelLoading(int numWorkers, File networkConfigurationFile, File superFile)
+
+   /*
+    * Checks that a packed dataset reproduces the text input and target sets exactly, that corruption is caught, and that
+    * inputs which are not 8-bit pixels are refused
+    *
+    * return: true if every check passes
+    */
+   public static boolean testDataset(File networkConfigurationFile, File inputSetFile, File targetSetFile) throws Exception
+   {
+      ABCDNetwork network = new ABCDNetwork(networkConfigurationFile);
+      double[][] inputSet = network.extractInputSetFromSuperFile(inputSetFile);
+      double[][] targetSet = network.extractTargetSetFromFile(targetSetFile);
+      int imageWidth = (int) Math.round(Math.sqrt(network.getNumInputUnits()));
+
+      File datasetFile = File.createTempFile("ABCDDataset", ".abds");
+      datasetFile.deleteOnExit();
+      ABCDDatasetFile.write(datasetFile, inputSet, targetSet, imageWidth, network.getNumInputUnits() / imageWidth);
+
+      boolean exact = Arrays.deepEquals(inputSet, network.extractInputSetFromSuperFile(datasetFile))
+                      && Arrays.deepEquals(targetSet, network.extractTargetSetFromFile(datasetFile));
+
+      /*
+       * Lazily expanded float rows match the doubles rounded to float
+       */
+      ABCDDatasetFile dataset = ABCDDatasetFile.open(datasetFile);
+      float[] floatRow = new float[dataset.getNumInputUnits()];
+      boolean floatsMatch = true;
+
+      for (int member = 0; member < dataset.getNumMembers(); ++member)
+      {
+         dataset.readInputs(member, floatRow);
+
+         for (int m = 0; m < floatRow.length; ++m)
+         {
+            floatsMatch = floatsMatch && (floatRow[m] == (float) inputSet[member][m]);
+         } // for (int m = 0; m < floatRow.length; ++m)
+      } // for (int member = 0; member < dataset.getNumMembers(); ++member)
+
+      boolean corruptionCaught = false;
+
+      try (RandomAccessFile corrupter = new RandomAccessFile(datasetFile, "rw"))
+      {
+         corrupter.seek(corrupter.length() - 1);
+         int lastByte = corrupter.read();
+         corrupter.seek(corrupter.length() - 1);
+         corrupter.write(lastByte ^ 0x01);
+      } // try (RandomAccessFile corrupter = new RandomAccessFile(datasetFile, "rw"))
+
+      try
+      {
+         ABCDDatasetFile.open(datasetFile);
+      } // try
+
+      catch (IllegalArgumentException illegalArgumentException)
+      {
+         corruptionCaught = true;
+      } // catch (IllegalArgumentException illegalArgumentException)
+
+      boolean unpackableRefused = false;
+      inputSet[0][0] = 0.5;                                            // Not k / 255 for any byte k
+
+      try
+      {
+         ABCDDatasetFile.write(datasetFile, inputSet, targetSet, imageWidth, network.getNumInputUnits() / imageWidth);
+      } // try
+
+      catch (IllegalArgumentException illegalArgumentException)
+      {
+         unpackableRefused = true;
+      } // catch (IllegalArgumentException illegalArgumentException)
+
+      boolean passed = exact && floatsMatch && corruptionCaught && unpackableRefused;
+      System.out.println((passed ? "PASS" : "FAIL") + " packed dataset: exact " + exact + ", floats match " + floatsMatch
+                         + ", corruption caught " + corruptionCaught + ", unpackable input refused " + unpackableRefused);
+
+      return passed;
+   } // public static boolean testDataset(File networkConfigurationFile, File inputSetFile, File targetSetFile)
+
+   /*
+    * Checks that training and running on a memory-mapped dataset gives the same weights and outputs as the expanded arrays,
+    * training per member, in serial mini-batches of 4, and in mini-batches of 4 on 3 threads from the same starting weights
+    *
+    * return: true if the weights after each kind of training and the outputs of both run methods are identical
+    */
+   public static boolean testDatasetStreaming(File networkConfigurationFile, File inputSetFile, File targetSetFile) throws Exception
+   {
+      File[] configurationFiles = {ABCDKernelTester.configurationWith(networkConfigurationFile, "maxIterations:" + ABCDKernelTester.TEST_ITERATIONS,
+                                                                      "batchSize:1", "numTrainingThreads:1"),
+                                   ABCDKernelTester.configurationWith(networkConfigurationFile, "maxIterations:" + ABCDKernelTester.TEST_ITERATIONS,
+                                                                      "batchSize:4", "numTrainingThreads:1"),
+                                   ABCDKernelTester.configurationWith(networkConfigurationFile, "maxIterations:" + ABCDKernelTester.TEST_ITERATIONS,
+                                                                      "batchSize:4", "numTrainingThreads:3")};
+      String[] descriptions = {"per member", "batches of 4", "batches of 4 on 3 threads"};
+
+      ABCDNetwork firstNetwork = new ABCDNetwork(configurationFiles[0]);
+      double[][] inputSet = firstNetwork.extractInputSetFromSuperFile(inputSetFile);
+      double[][] targetSet = firstNetwork.extractTargetSetFromFile(targetSetFile);
+      double[] startingWeights = firstNetwork.getWeights().clone();
+      int imageWidth = (int) Math.round(Math.sqrt(firstNetwork.getNumInputUnits()));
+
+      File datasetFile = File.createTempFile("ABCDDataset", ".abds");
+      datasetFile.deleteOnExit();
+      ABCDDatasetFile.write(datasetFile, inputSet, targetSet, imageWidth, firstNetwork.getNumInputUnits() / imageWidth);
+
+      boolean passed = true;
+      String report = "";
+      ABCDNetwork arrayNetwork = null;
+
+      for (int configuration = 0; configuration < configurationFiles.length; ++configuration)
+      {
+         arrayNetwork = new ABCDNetwork(configurationFiles[configuration]);
+         ABCDNetwork streamingNetwork = new ABCDNetwork(configurationFiles[configuration]);
+
+         System.arraycopy(startingWeights, 0, arrayNetwork.getWeights(), 0, startingWeights.length);
+         System.arraycopy(startingWeights, 0, streamingNetwork.getWeights(), 0, startingWeights.length);
+
+         arrayNetwork.trainOnSet(inputSet, targetSet);
+         streamingNetwork.trainOnSet(datasetFile, datasetFile);
+
+         boolean weightsMatch = Arrays.equals(arrayNetwork.getWeights(), streamingNetwork.getWeights());
+         passed = passed && weightsMatch;
+         report += descriptions[configuration] + " " + weightsMatch + ", ";
+      } // for (int configuration = 0; configuration < configurationFiles.length; ++configuration)
+
+      ABCDDatasetFile dataset = ABCDDatasetFile.open(datasetFile);
+      double[][] expected = arrayNetwork.runOnSet(inputSet);
+      boolean outputsMatch = Arrays.deepEquals(expected, arrayNetwork.runOnSet(dataset))
+                             && Arrays.deepEquals(expected, arrayNetwork.runOnSetInParallel(dataset));
+
+      passed = passed && outputsMatch;
+      System.out.println((passed ? "PASS" : "FAIL") + " dataset streaming: trained weights match " + report
+                         + "outputs match " + outputsMatch);
+
+      return passed;
+   } // public static boolean testDatasetStreaming(File networkConfigurationFile, File inputSetFile, File targetSetFile)
+
+   /*
+    * Checks that images load to exactly the text inputs they were made from: each member of a super file is written as a
+    * gray BMP at the network's size and as an opaque ARGB PNG at twice the size with black side margins, which the crop
+    * removes and the resize averages back. Also checks that a transparent image reads as zeros, that a super file may list
+    * images, and that an undecodable image is reported by name.
+    *
+    * parameters: numWorkers is the number of loading workers
+    * return: true if every check passes
+    */
+   public static boolean testImageLoading(int numWorkers, File networkConfigurationFile, File superFile) throws Exception
+   {
+      ABCDNetwork network = new ABCDNetwork(networkConfigurationFile);
+      ForkJoinPool pool = new ForkJoinPool(numWorkers);
+      network.setRunPool(pool);
+
+      double[][] expected = network.extractInputSetFromSuperFile(superFile);
+      int numMembers = expected.length;
+      int width = network.getImageWidth();
+      int height = network.getImageHeight();
+      int margin = 3;
+
+      Path directory = Files.createTempDirectory("ABCDImages");
+      File[] imageFiles = new File[2 * numMembers];
+
+      for (int member = 0; member < numMembers; ++member)
+      {
+         BufferedImage gray = new BufferedImage(width, height, BufferedImage.TYPE_3BYTE_BGR);
+         BufferedImage large = new BufferedImage(2 * width + 2 * margin, 2 * height, BufferedImage.TYPE_INT_ARGB);
+
+         for (int y = 0; y < 2 * height; ++y)
+         {
+            for (int x = 0; x < 2 * width + 2 * margin; ++x)
+            {
+               large.setRGB(x, y, 0xFF000000);
+            } // for (int x = 0; x < 2 * width + 2 * margin; ++x)
+         } // for (int y = 0; y < 2 * height; ++y)
+
+         for (int y = 0; y < height; ++y)
+         {
+            for (int x = 0; x < width; ++x)
+            {
+               int level = (int) Math.round(expected[member][y * width + x] * 255.0);
+               gray.setRGB(x, y, level * 0x010101);
+
+               /*
+                * Two of the four pixels in each block are one level brighter and two one level darker, so the block only
+                * averages back to the gray level through the resize
+                */
+               int spread = (level == 0 || level == 255) ? 0 : 1;
+               int bright = 0xFF000000 | ((level + spread) * 0x010101);
+               int dark = 0xFF000000 | ((level - spread) * 0x010101);
+
+               large.setRGB(margin + 2 * x, 2 * y, bright);
+               large.setRGB(margin + 2 * x + 1, 2 * y, dark);
+               large.setRGB(margin + 2 * x, 2 * y + 1, dark);
+               large.setRGB(margin + 2 * x + 1, 2 * y + 1, bright);
+            } // for (int x = 0; x < width; ++x)
+         } // for (int y = 0; y < height; ++y)
+
+         imageFiles[member] = directory.resolve("member" + member + ".bmp").toFile();
+         imageFiles[numMembers + member] = directory.resolve("member" + member + ".png").toFile();
+         ImageIO.write(gray, "bmp", imageFiles[member]);
+         ImageIO.write(large, "png", imageFiles[numMembers + member]);
+      } // for (int member = 0; member < numMembers; ++member)
+
+      long start = System.nanoTime();
+      double[][] actual = network.extractInputSetFromFiles(imageFiles);
+      long loadTime = System.nanoTime() - start;
+
+      boolean matches = true;
+
+      for (int member = 0; member < 2 * numMembers; ++member)
+      {
+         matches = Arrays.equals(expected[member % numMembers], actual[member]) && matches;
+      } // for (int member = 0; member < 2 * numMembers; ++member)
+
+      /*
+       * A super file listing the images, then the same list ending in a transparent image and then an undecodable one
+       */
+      List<String> lines = new ArrayList<String>();
+      lines.add("NUM_MEMBERS:" + numMembers);
+      lines.add("\"separator\"");
+
+      for (int member = 0; member < numMembers; ++member)
+      {
+         lines.add(imageFiles[member].getPath());
+      } // for (int member = 0; member < numMembers; ++member)
+
+      File imageSuperFile = directory.resolve("super.txt").toFile();
+      Files.write(imageSuperFile.toPath(), String.join("\n", lines).getBytes());
+      boolean superFileMatches = Arrays.deepEquals(expected, network.extractInputSetFromSuperFile(imageSuperFile));
+
+      File transparentFile = directory.resolve("transparent.png").toFile();
+      BufferedImage transparent = new BufferedImage(width + 5, height, BufferedImage.TYPE_INT_ARGB);
+
+      for (int y = 0; y < height; ++y)
+      {
+         for (int x = 0; x < width + 5; ++x)
+         {
+            transparent.setRGB(x, y, 0x00FFFFFF);
+         } // for (int x = 0; x < width + 5; ++x)
+      } // for (int y = 0; y < height; ++y)
+
+      ImageIO.write(transparent, "png", transparentFile);
+      boolean transparentIsZero = Arrays.equals(new double[width * height], network.extractInputMemberFromMiniFile(transparentFile));
+
+      File corruptFile = directory.resolve("corrupt.bmp").toFile();
+      Files.write(corruptFile.toPath(), "not an image".getBytes());
+      lines.set(lines.size() - 1, corruptFile.getPath());
+      Files.write(imageSuperFile.toPath(), String.join("\n", lines).getBytes());
+      boolean corruptReported = false;
+
+      try
+      {
+         network.extractInputSetFromSuperFile(imageSuperFile);
+      } // try
+
+      catch (IllegalArgumentException illegalArgumentException)
+      {
+         corruptReported = illegalArgumentException.getMessage().contains(corruptFile.getPath());
+      } // catch (IllegalArgumentException illegalArgumentException)
+
+      pool.shutdown();
+
+      for (File file : directory.toFile().listFiles())
+      {
+         file.delete();
+      } // for (File file : directory.toFile().listFiles())
+
+      directory.toFile().delete();
+
+      boolean passed = matches && superFileMatches && transparentIsZero && corruptReported;
+      System.out.println((passed ? "PASS" : "FAIL") + " image loading (" + numWorkers + " workers): images match text inputs " + matches
+                         + ", super file of images matches " + superFileMatches + ", transparent reads as zero " + transparentIsZero
+                         + ", undecodable image reported " + corruptReported + ", " + 2 * numMembers + " images in "
+                         + loadTime / 1000000 + " ms");
+
+      return passed;
+   } // public static boolean testImageLoading(int numWorkers, File networkConfigurationFile, File superFile)
+
+   /*
+    * Checks augmented training: with every augmentation bound 0 the producers' stream trains exactly as the plain set does,
+    * augmented training is repeatable for a seed, variants stay in [0, 1], and a failing producer is reported to the consumer
+    *
+    * parameters: numProducers is the number of producer threads
+    * return: true if every check passes
+    */
+   public static boolean testAugmentation(int numProducers, File networkConfigurationFile, File inputSetFile, File targetSetFile) throws Exception
+   {
+      ABCDNetwork plainNetwork = new ABCDNetwork(networkConfigurationFile);
+      double[][] inputSet = plainNetwork.extractInputSetFromSuperFile(inputSetFile);
+      double[][] targetSet = plainNetwork.extractTargetSetFromFile(targetSetFile);
+      ABCDArrayDataset base = new ABCDArrayDataset(inputSet, targetSet);
+      double[] startingWeights = plainNetwork.getWeights().clone();
+      int width = plainNetwork.getImageWidth();
+      int height = plainNetwork.getImageHeight();
+
+      plainNetwork.trainOnSet(inputSet, targetSet);
+
+      /*
+       * No augmentation: identical to plain training
+       */
+      ABCDNetwork copyNetwork = new ABCDNetwork(networkConfigurationFile);
+      System.arraycopy(startingWeights, 0, copyNetwork.getWeights(), 0, startingWeights.length);
+
+      try (ABCDAugmentedDataset copies = new ABCDAugmentedDataset(base, new ABCDAugmenter(width, height, 0.0, 0.0, 0.0, 0.0),
+                                                                  numProducers, 4, 1L))
+      {
+         copyNetwork.trainOnSet(copies);
+      } // try (ABCDAugmentedDataset copies = ...)
+
+      boolean copiesMatch = Arrays.equals(plainNetwork.getWeights(), copyNetwork.getWeights());
+
+      /*
+       * Augmented training twice with the same seed
+       */
+      ABCDAugmenter augmenter = new ABCDAugmenter(width, height, 3.0, 10.0, 0.1, 0.2);
+      double[][] augmentedWeights = new double[2][];
+      long stallNanos = 0;
+      long numConsumed = 0;
+      long trainingNanos = 0;
+
+      for (int run = 0; run < 2; ++run)
+      {
+         ABCDNetwork augmentedNetwork = new ABCDNetwork(networkConfigurationFile);
+         System.arraycopy(startingWeights, 0, augmentedNetwork.getWeights(), 0, startingWeights.length);
+
+         try (ABCDAugmentedDataset variants = new ABCDAugmentedDataset(base, augmenter, numProducers, 4, 1L))
+         {
+            long start = System.nanoTime();
+            augmentedNetwork.trainOnSet(variants);
+            trainingNanos = System.nanoTime() - start;
+            stallNanos = variants.getStallNanos();
+            numConsumed = variants.getNumMembersConsumed();
+         } // try (ABCDAugmentedDataset variants = ...)
+
+         augmentedWeights[run] = augmentedNetwork.getWeights().clone();
+      } // for (int run = 0; run < 2; ++run)
+
+      boolean repeatable = Arrays.equals(augmentedWeights[0], augmentedWeights[1])
+                           && !Arrays.equals(augmentedWeights[0], plainNetwork.getWeights());
+
+      double[] variant = new double[width * height];
+      augmenter.augment(inputSet[0], variant, new Random(2L));
+      boolean inRange = !Arrays.equals(variant, inputSet[0]);
+
+      for (double value : variant)
+      {
+         inRange = inRange && value >= 0.0 && value <= 1.0;
+      } // for (double value : variant)
+
+      /*
+       * A base set that fails on its third member
+       */
+      ABCDDataset failing = new ABCDArrayDataset(inputSet, targetSet)
+      {
+         @Override
+         public double[] getInputs(int member, double[] buffer)
+         {
+            if (member == 2)
+               throw (new IllegalArgumentException("member 2 is unreadable"));
+
+            return super.getInputs(member, buffer);
+         } // public double[] getInputs(int member, double[] buffer)
+      };
+
+      boolean failureReported = false;
+
+      try (ABCDAugmentedDataset variants = new ABCDAugmentedDataset(failing, augmenter, numProducers, 4, 1L))
+      {
+         for (int member = 0; member < 3; ++member)
+         {
+            variants.getInputs(member, variant);
+         } // for (int member = 0; member < 3; ++member)
+      } // try (ABCDAugmentedDataset variants = ...)
+
+      catch (IllegalStateException illegalStateException)
+      {
+         failureReported = illegalStateException.getMessage().contains("member 2 is unreadable");
+      } // catch (IllegalStateException illegalStateException)
+
+      boolean passed = copiesMatch && repeatable && inRange && failureReported;
+      System.out.println((passed ? "PASS" : "FAIL") + " augmentation (" + numProducers + " producers): unaugmented stream matches "
+                         + copiesMatch + ", repeatable " + repeatable + ", variants in range " + inRange + ", producer failure reported "
+                         + failureReported + ", training waited " + stallNanos / 1000000 + " of " + trainingNanos / 1000000 + " ms for "
+                         + numConsumed + " variants");
+
+      return passed;
+   } // public static boolean testAugmentation(int numProducers, File networkConfigurationFile, File inputSetFile, File targetSetFile)
+
+   /*
+    * Returns the index of the largest output, the network's classification
+    */
+   private static int argmax(double[] outputs)
+   {
+      int best = 0;
+
+      for (int i = 1; i < outputs.length; ++i)
+      {
+         if (outputs[i] > outputs[best])
+            best = i;
+      } // for (int i = 1; i < outputs.length; ++i)
+
+      return best;
+   } // private static int argmax(double[] outputs)
+
+   /*
+    * Counts the members two runs classify alike and records the largest output difference in maxDifference[0]
+    */
+   private static int countAgreements(double[][] outputs, double[][] otherOutputs, double[] maxDifference)
+   {
+      int agreements = 0;
+
+      for (int member = 0; member < outputs.length; ++member)
+      {
+         if (ABCDFeatureTester.argmax(outputs[member]) == ABCDFeatureTester.argmax(otherOutputs[member]))
+            ++agreements;
+
+         for (int i = 0; i < outputs[member].length; ++i)
+         {
+            maxDifference[0] = Math.max(maxDifference[0], Math.abs(outputs[member][i] - otherOutputs[member][i]));
+         } // for (int i = 0; i < outputs[member].length; ++i)
+      } // for (int member = 0; member < outputs.length; ++member)
+
+      return agreements;
+   } // private static int countAgreements(double[][] outputs, double[][] otherOutputs, double[] maxDifference)
+
+   /*
+    * Counts the members whose largest output is their target's largest
+    */
+   private static int countCorrect(double[][] outputs, double[][] targetSet)
+   {
+      int correct = 0;
+
+      for (int member = 0; member < outputs.length; ++member)
+      {
+         if (ABCDFeatureTester.argmax(outputs[member]) == ABCDFeatureTester.argmax(targetSet[member]))
+            ++correct;
+      } // for (int member = 0; member < outputs.length; ++member)
+
+      return correct;
+   } // private static int countCorrect(double[][] outputs, double[][] targetSet)
+
+   /*
+    * Writes a temporary copy of a network configuration file whose error threshold every precision and activation can
+    * reach within TEST_ITERATIONS: a probe network starting from random weights in [-TRAINING_WEIGHT_RANGE,
+    * TRAINING_WEIGHT_RANGE] trains for a quarter of TEST_ITERATIONS, and the set error it reaches becomes the threshold,
+    * as in ABCDKernelTester.testHogwildTraining
+    *
+    * return: the copy, which starts from the probe's starting weights and stops at the probe's set error
+    */
+   private static File reachableThresholdConfiguration(File networkConfigurationFile, File inputSetFile, File targetSetFile) throws Exception
+   {
+      File probeConfigurationFile = ABCDKernelTester.configurationWith(networkConfigurationFile, "randomizeWeights:true",
+                                                                       "RANDOM_WEIGHT_MIN:" + (-TRAINING_WEIGHT_RANGE),
+                                                                       "RANDOM_WEIGHT_MAX:" + TRAINING_WEIGHT_RANGE, "errorThreshold:0",
+                                                                       "maxIterations:" + ABCDKernelTester.TEST_ITERATIONS / 4);
+      ABCDNetwork probeNetwork = new ABCDNetwork(probeConfigurationFile);
+      File startConfigurationFile = ABCDKernelTester.configurationWithWeightsOf(probeNetwork, networkConfigurationFile);
+
+      probeNetwork.trainOnSet(probeNetwork.extractInputSetFromSuperFile(inputSetFile), probeNetwork.extractTargetSetFromFile(targetSetFile));
+
+      return ABCDKernelTester.configurationWith(startConfigurationFile, "errorThreshold:" + probeNetwork.getMaximumSetError());
+   } // private static File reachableThresholdConfiguration(File networkConfigurationFile, File inputSetFile, File targetSetFile)
+
+   /*
+    * Checks the float32 precision mode against the default double precision: both start from the same weights and their
+    * classifications of the set are compared, then each trains from the same weights to the error threshold of
+    * reachableThresholdConfiguration. Single training steps agree to about 1e-7, but those differences compound over many
+    * steps, so after training the two networks are compared by the error they reach and how they classify, not weight by weight.
+    *
+    * return: true if the float weights are the rounded double weights, every member is classified alike before training,
+    *         and after training both networks reach the threshold, beat chance, and classify every member alike
+    */
+   public static boolean testFloatPrecision(File networkConfigurationFile, File inputSetFile, File targetSetFile) throws Exception
+   {
+      ABCDNetwork doubleNetwork = new ABCDNetwork(networkConfigurationFile);
+      ABCDNetwork floatNetwork = new ABCDNetwork(ABCDKernelTester.configurationWithWeightsOf(doubleNetwork, networkConfigurationFile,
+                                                                                            "precision:float32"));
+      double[][] inputSet = doubleNetwork.extractInputSetFromSuperFile(inputSetFile);
+      double[][] targetSet = doubleNetwork.extractTargetSetFromFile(targetSetFile);
+
+      double[] doubleWeights = doubleNetwork.getWeights();
+      double[] floatWeights = floatNetwork.getWeights();
+      boolean rounded = doubleWeights.length == floatWeights.length;
+
+      for (int index = 0; rounded && index < doubleWeights.length; ++index)
+      {
+         rounded = floatWeights[index] == (float) doubleWeights[index];
+      } // for (int index = 0; rounded && index < doubleWeights.length; ++index)
+
+      double[][] doubleOutputs = doubleNetwork.runOnSet(inputSet);
+      double[][] floatOutputs = floatNetwork.runOnSet(inputSet);
+      double[] runDifference = new double[1];
+      int runAgreements = ABCDFeatureTester.countAgreements(doubleOutputs, floatOutputs, runDifference);
+
+      File thresholdConfigurationFile = ABCDFeatureTester.reachableThresholdConfiguration(networkConfigurationFile, inputSetFile, targetSetFile);
+      ABCDNetwork doubleTrainedNetwork = new ABCDNetwork(thresholdConfigurationFile);
+      ABCDNetwork floatTrainedNetwork = new ABCDNetwork(ABCDKernelTester.configurationWith(thresholdConfigurationFile, "precision:float32"));
+
+      doubleTrainedNetwork.trainOnSet(inputSet, targetSet);
+      floatTrainedNetwork.trainOnSet(inputSet, targetSet);
+
+      double[][] doubleTrainedOutputs = doubleTrainedNetwork.runOnSet(inputSet);
+      double[][] floatTrainedOutputs = floatTrainedNetwork.runOnSet(inputSet);
+      int chance = inputSet.length / targetSet[0].length;
+      int doubleCorrect = ABCDFeatureTester.countCorrect(doubleTrainedOutputs, targetSet);
+      int floatCorrect = ABCDFeatureTester.countCorrect(floatTrainedOutputs, targetSet);
+      double[] trainedDifference = new double[1];
+      int trainedAgreements = ABCDFeatureTester.countAgreements(doubleTrainedOutputs, floatTrainedOutputs, trainedDifference);
+      boolean reached = doubleTrainedNetwork.isErrorThresholdSatisfied() && floatTrainedNetwork.isErrorThresholdSatisfied();
+
+      boolean passed = rounded && runAgreements == inputSet.length && reached && doubleCorrect > chance && floatCorrect > chance
+                       && trainedAgreements == inputSet.length;
+      System.out.println((passed ? "PASS" : "FAIL") + " float32 precision: weights rounded " + rounded + ", top-1 agreement "
+                         + runAgreements + "/" + inputSet.length + " (max output difference " + runDifference[0] + "), trained to the probe's error in double "
+                         + doubleTrainedNetwork.getNumIterations() + " and float "
+                         + floatTrainedNetwork.getNumIterations() + " iterations (reached " + reached + "), set errors double "
+                         + doubleTrainedNetwork.getMaximumSetError() + ", float " + floatTrainedNetwork.getMaximumSetError() + ", correct double "
+                         + doubleCorrect + ", float " + floatCorrect + " (chance " + chance + "), agreement " + trainedAgreements + "/"
+                         + inputSet.length + " (max output difference " + trainedDifference[0] + ")");
+
+      return passed;
+   } // public static boolean testFloatPrecision(File networkConfigurationFile, File inputSetFile, File targetSetFile)
+
+   /*
+    * Times training in double and in float32 precision from the same weights. Each round trains a new network of each
+    * precision for a quarter of ABCDKernelTester.TEST_ITERATIONS, and the first half of the rounds warm up.
+    *
+    * return: true (the benchmark only reports, since the speedup depends on the kernel and the CPU's gathers)
+    */
+   public static boolean benchmarkFloatTraining(File networkConfigurationFile, File inputSetFile, File targetSetFile) throws Exception
+   {
+      int numRounds = 4;
+      File doubleConfigurationFile = ABCDKernelTester.configurationWith(networkConfigurationFile, "maxIterations:" + ABCDKernelTester.TEST_ITERATIONS / 4);
+      ABCDNetwork firstNetwork = new ABCDNetwork(doubleConfigurationFile);
+      File floatConfigurationFile = ABCDKernelTester.configurationWithWeightsOf(firstNetwork, doubleConfigurationFile, "precision:float32");
+      doubleConfigurationFile = ABCDKernelTester.configurationWithWeightsOf(firstNetwork, doubleConfigurationFile);
+      double[][] inputSet = firstNetwork.extractInputSetFromSuperFile(inputSetFile);
+      double[][] targetSet = firstNetwork.extractTargetSetFromFile(targetSetFile);
+
+      long doubleTime = 0L;
+      long floatTime = 0L;
+      int numIterations = 0;
+
+      for (int round = 0; round < numRounds; ++round)
+      {
+         ABCDNetwork doubleNetwork = new ABCDNetwork(doubleConfigurationFile);
+         ABCDNetwork floatNetwork = new ABCDNetwork(floatConfigurationFile);
+
+         long start = System.nanoTime();
+         doubleNetwork.trainOnSet(inputSet, targetSet);
+         long doubleEnd = System.nanoTime();
+         floatNetwork.trainOnSet(inputSet, targetSet);
+         long floatEnd = System.nanoTime();
+
+         if (round >= numRounds / 2)
+         {
+            doubleTime += doubleEnd - start;
+            floatTime += floatEnd - doubleEnd;
+            numIterations += doubleNetwork.getNumIterations();
+         } // if (round >= numRounds / 2)
+      } // for (int round = 0; round < numRounds; ++round)
+
+      System.out.println("Float32 training benchmark (" + firstNetwork.getKernel().getClass().getName()
+                         + ", ms per iteration): double " + String.format("%.2f", doubleTime / 1e6 / numIterations) + ", float "
+                         + String.format("%.2f", floatTime / 1e6 / numIterations) + ", speedup "
+                         + String.format("%.2f", (double) doubleTime / floatTime));
+
+      return true;
+   } // public static boolean benchmarkFloatTraining(File networkConfigurationFile, File inputSetFile, File targetSetFile)
+
+   /*
+    * Checks the int8 quantized model against the double model it was quantized from: their classifications of the set
+    * are compared, the integer input layer must give identical outputs on the dense and sparse paths, the scalar kernel
+    * must agree within ABCDKernelTester.TOLERANCE (its hidden layers' dot products round differently), and a network configured with
+    * "precision:int8" from the same weights must run exactly as the quantized model. Running the set is then timed in
+    * double and in int8 over several rounds, the first half of which warm up.
+    *
+    * return: true if the quantized paths agree and at most one member is classified differently from the double model
+    */
+   public static boolean testQuantizedModel(File networkConfigurationFile, File inputSetFile) throws Exception
+   {
+      int numRounds = 200;
+      ABCDNetwork network = new ABCDNetwork(networkConfigurationFile);
+      double[][] inputSet = network.extractInputSetFromSuperFile(inputSetFile);
+      ABCDQuantizedModel quantized = network.quantize();
+
+      double[][] doubleOutputs = network.runOnSet(inputSet);
+      double[][] quantizedOutputs = quantized.runOnSet(inputSet);
+
+      double[] maxDifference = new double[1];
+      int agreements = ABCDFeatureTester.countAgreements(doubleOutputs, quantizedOutputs, maxDifference);
+
+      /*
+       * The dense integer path must give the same sums as the sparse path, and the scalar kernel the same outputs
+       * up to the rounding of the hidden layers
+       */
+      ABCDQuantizedExecutionContext denseContext = quantized.newContext();
+      denseContext.setUseSparseInputs(false);
+      double[][] scalarOutputs = quantized.withKernel(new ABCDScalarKernel()).runOnSet(inputSet);
+      boolean pathsMatch = true;
+
+      for (int member = 0; member < inputSet.length; ++member)
+      {
+         pathsMatch = pathsMatch && Arrays.equals(quantizedOutputs[member], quantized.run(denseContext, inputSet[member]))
+                      && ABCDKernelTester.maxDifference(quantizedOutputs[member], scalarOutputs[member]) <= ABCDKernelTester.TOLERANCE;
+      } // for (int member = 0; member < inputSet.length; ++member)
+
+      /*
+       * The same configuration run-only with "precision:int8", loading this network's weights
+       */
+      File int8ConfigurationFile = ABCDKernelTester.configurationWithWeightsOf(network, networkConfigurationFile, "precision:int8",
+                                                                               "allocateForTraining:false");
+      ABCDNetwork int8Network = new ABCDNetwork(int8ConfigurationFile);
+      boolean configuredMatch = Arrays.deepEquals(quantizedOutputs, int8Network.runOnSetInParallel(inputSet));
+
+      long doubleTime = 0L;
+      long quantizedTime = 0L;
+
+      for (int round = 0; round < numRounds; ++round)
+      {
+         long start = System.nanoTime();
+         network.runOnSet(inputSet);
+         long doubleEnd = System.nanoTime();
+         quantized.runOnSet(inputSet);
+         long quantizedEnd = System.nanoTime();
+
+         if (round >= numRounds / 2)
+         {
+            doubleTime += doubleEnd - start;
+            quantizedTime += quantizedEnd - doubleEnd;
+         } // if (round >= numRounds / 2)
+      } // for (int round = 0; round < numRounds; ++round)
+
+      int numTimedRounds = numRounds - numRounds / 2;
+      long doubleSize = (long) Double.BYTES * network.getWeights().length;
+      boolean passed = pathsMatch && configuredMatch && agreements >= inputSet.length - 1;
+      System.out.println((passed ? "PASS" : "FAIL") + " int8 quantized model: top-1 agreement " + agreements + "/" + inputSet.length
+                         + " (max output difference " + maxDifference[0] + "), dense, sparse, and scalar paths match " + pathsMatch
+                         + ", int8 configuration matches " + configuredMatch + ", size " + quantized.getSizeInBytes() + " bytes (double "
+                         + doubleSize + "), run (" + quantized.getKernel().getClass().getName() + ", ms per set) double "
+                         + String.format("%.2f", doubleTime / 1e6 / numTimedRounds) + ", int8 "
+                         + String.format("%.2f", quantizedTime / 1e6 / numTimedRounds) + ", speedup "
+                         + String.format("%.2f", (double) doubleTime / quantizedTime));
+
+      return passed;
+   } // public static boolean testQuantizedModel(File networkConfigurationFile, File inputSetFile)
+
+   /*
+    * Checks ABCDFastTanh against Math.tanh on a fine sweep of [-10, 10] and on random doubles of every magnitude
+    *
+    * return: true if the approximation and its derivative 1 - a^2 stay within their documented bounds, and the
+    *         approximation is odd, non-decreasing over the sweep, and within [-1, 1]
+    */
+   public static boolean testFastTanh()
+   {
+      double maxError = 0.0;
+      double maxErrorAt = 0.0;
+      double maxDerivativeError = 0.0;
+      boolean shaped = ABCDFastTanh.tanh(0.0) == 0.0 && ABCDFastTanh.tanh(Double.POSITIVE_INFINITY) == 1.0
+                       && Double.isNaN(ABCDFastTanh.tanh(Double.NaN));
+      double previous = -1.0;
+
+      for (int n = -10000000; n <= 10000000 + 1000000; ++n)
+      {
+         double x = (n <= 10000000) ? n * 1.0e-6 : Double.longBitsToDouble(random.nextLong());   // Sweep, then random doubles
+
+         if (Double.isNaN(x))
+            continue;
+
+         double approximate = ABCDFastTanh.tanh(x);
+         double exact = Math.tanh(x);
+         double error = Math.abs(approximate - exact);
+
+         if (error > maxError)
+         {
+            maxError = error;
+            maxErrorAt = x;
+         } // if (error > maxError)
+
+         maxDerivativeError = Math.max(maxDerivativeError, Math.abs(ABCDFastTanh.derivativeFromActivation(approximate) - (1.0 - exact * exact)));
+         shaped = shaped && ABCDFastTanh.tanh(-x) == -approximate && Math.abs(approximate) <= 1.0;
+
+         if (n <= 10000000)
+         {
+            shaped = shaped && approximate >= previous;
+            previous = approximate;
+         } // if (n <= 10000000)
+      } // for (int n = -10000000; n <= 10000000 + 1000000; ++n)
+
+      boolean passed = shaped && maxError <= ABCDFastTanh.MAX_ERROR && maxDerivativeError <= ABCDFastTanh.MAX_DERIVATIVE_ERROR;
+      System.out.println((passed ? "PASS" : "FAIL") + " fast tanh: max error " + maxError + " at " + maxErrorAt + " (bound "
+                         + ABCDFastTanh.MAX_ERROR + "), max derivative error " + maxDerivativeError + " (bound " + ABCDFastTanh.MAX_DERIVATIVE_ERROR
+                         + "), odd, monotonic, and bounded " + shaped);
+
+      return passed;
+   } // public static boolean testFastTanh()
+
+   /*
+    * Times the exact and fast activations and derivatives over Thetas spread like a trained network's
+    *
+    * return: true (the benchmark only reports)
+    */
+   public static boolean benchmarkActivation()
+   {
+      int numThetas = 1 << 20;
+      int numRounds = 20;
+      double[] thetas = new double[numThetas];
+      double[] activations = new double[numThetas];
+      double sink = 0.0;
+
+      for (int n = 0; n < numThetas; ++n)
+      {
+         thetas[n] = 2.0 * random.nextGaussian();
+      } // for (int n = 0; n < numThetas; ++n)
+
+      long[] nanos = new long[4];                                          // tanh, fast tanh, 1 / cosh^2, 1 - a^2
+
+      for (int round = 0; round < numRounds; ++round)                      // The first half of the rounds warm up
+      {
+         long start = System.nanoTime();
+
+         for (int n = 0; n < numThetas; ++n)
+         {
+            activations[n] = Math.tanh(thetas[n]);
+         } // for (int n = 0; n < numThetas; ++n)
+
+         long tanhEnd = System.nanoTime();
+
+         for (int n = 0; n < numThetas; ++n)
+         {
+            activations[n] = ABCDFastTanh.tanh(thetas[n]);
+         } // for (int n = 0; n < numThetas; ++n)
+
+         long fastEnd = System.nanoTime();
+
+         for (int n = 0; n < numThetas; ++n)
+         {
+            double c = Math.cosh(thetas[n]);
+            sink += 1.0/(c * c);
+         } // for (int n = 0; n < numThetas; ++n)
+
+         long coshEnd = System.nanoTime();
+
+         for (int n = 0; n < numThetas; ++n)
+         {
+            sink += ABCDFastTanh.derivativeFromActivation(activations[n]);
+         } // for (int n = 0; n < numThetas; ++n)
+
+         long cachedEnd = System.nanoTime();
+
+         if (round >= numRounds / 2)
+         {
+            nanos[0] += tanhEnd - start;
+            nanos[1] += fastEnd - tanhEnd;
+            nanos[2] += coshEnd - fastEnd;
+            nanos[3] += cachedEnd - coshEnd;
+         } // if (round >= numRounds / 2)
+
+         sink += activations[round];
+      } // for (int round = 0; round < numRounds; ++round)
+
+      double calls = (double) numThetas * (numRounds - numRounds / 2);
+      System.out.println("Activation benchmark (ns per call): Math.tanh " + String.format("%.2f", nanos[0] / calls) + ", ABCDFastTanh.tanh "
+                         + String.format("%.2f", nanos[1] / calls) + ", 1 / cosh^2 " + String.format("%.2f", nanos[2] / calls)
+                         + ", 1 - a^2 " + String.format("%.2f", nanos[3] / calls) + " (checksum " + (float) sink + ")");
+
+      return true;
+   } // public static boolean benchmarkActivation()
+
+   /*
+    * Compares a network with "activation:fastTanh" against the same network with the exact tanh: their classifications of
+    * the set from the same weights, then their training times and accuracies when both train from the same weights to the
+    * error threshold of reachableThresholdConfiguration
+    *
+    * return: true if every member is classified alike before training, and after training both networks reach the
+    *         threshold, beat chance, and classify every member alike
+    */
+   public static boolean testFastActivation(File networkConfigurationFile, File inputSetFile, File targetSetFile) throws Exception
+   {
+      ABCDNetwork exactNetwork = new ABCDNetwork(networkConfigurationFile);
+      File fastConfigurationFile = ABCDKernelTester.configurationWithWeightsOf(exactNetwork, networkConfigurationFile, "activation:fastTanh");
+      ABCDNetwork fastNetwork = new ABCDNetwork(fastConfigurationFile);
+      double[][] inputSet = exactNetwork.extractInputSetFromSuperFile(inputSetFile);
+      double[][] targetSet = exactNetwork.extractTargetSetFromFile(targetSetFile);
+
+      double[] runDifference = new double[1];
+      int runAgreements = ABCDFeatureTester.countAgreements(exactNetwork.runOnSet(inputSet), fastNetwork.runOnSet(inputSet), runDifference);
+
+      File thresholdConfigurationFile = ABCDFeatureTester.reachableThresholdConfiguration(networkConfigurationFile, inputSetFile, targetSetFile);
+      ABCDNetwork exactTrainedNetwork = new ABCDNetwork(thresholdConfigurationFile);
+      ABCDNetwork fastTrainedNetwork = new ABCDNetwork(ABCDKernelTester.configurationWith(thresholdConfigurationFile, "activation:fastTanh"));
+
+      long start = System.nanoTime();
+      exactTrainedNetwork.trainOnSet(inputSet, targetSet);
+      long exactTime = System.nanoTime() - start;
+
+      start = System.nanoTime();
+      fastTrainedNetwork.trainOnSet(inputSet, targetSet);
+      long fastTime = System.nanoTime() - start;
+
+      double[][] exactOutputs = exactTrainedNetwork.runOnSet(inputSet);
+      double[][] fastOutputs = fastTrainedNetwork.runOnSet(inputSet);
+      int chance = inputSet.length / targetSet[0].length;
+      int exactCorrect = ABCDFeatureTester.countCorrect(exactOutputs, targetSet);
+      int fastCorrect = ABCDFeatureTester.countCorrect(fastOutputs, targetSet);
+      double[] trainedDifference = new double[1];
+      int trainedAgreements = ABCDFeatureTester.countAgreements(exactOutputs, fastOutputs, trainedDifference);
+      boolean reached = exactTrainedNetwork.isErrorThresholdSatisfied() && fastTrainedNetwork.isErrorThresholdSatisfied();
+
+      boolean passed = runAgreements == inputSet.length && reached && exactCorrect > chance && fastCorrect > chance
+                       && trainedAgreements == inputSet.length;
+      System.out.println((passed ? "PASS" : "FAIL") + " fast activation: top-1 agreement " + runAgreements + "/" + inputSet.length
+                         + " (max output difference " + runDifference[0] + "), trained to the probe's error in exact "
+                         + exactTrainedNetwork.getNumIterations() + " and fast " + fastTrainedNetwork.getNumIterations()
+                         + " iterations (reached " + reached + "), set errors exact " + exactTrainedNetwork.getMaximumSetError() + ", fast "
+                         + fastTrainedNetwork.getMaximumSetError() + ", correct exact " + exactCorrect + ", fast " + fastCorrect + " (chance "
+                         + chance + "), agreement " + trainedAgreements + "/" + inputSet.length + ", ms per training iteration exact "
+                         + String.format("%.2f", exactTime / 1e6 / exactTrainedNetwork.getNumIterations()) + ", fast "
+                         + String.format("%.2f", fastTime / 1e6 / fastTrainedNetwork.getNumIterations()));
+
+      return passed;
+   } // public static boolean testFastActivation(File networkConfigurationFile, File inputSetFile, File targetSetFile)
+
+   /*
+    * Checks every ABCDActivation: applying in place matches applying to a separate array, the names round-trip through
+    * forName, multiplyByDerivative matches central finite differences of apply (the Jacobian for softmax), and the weight
+    * changes from one training step of small models with mixed per-layer activations match finite differences of the error
+    *
+    * return: true if every check passes
+    */
+   public static boolean testActivations()
+   {
+      int length = 7;
+      double h = 1.0e-6;
+      double maxLayerError = 0.0;
+      boolean consistent = true;
+
+      for (String name : ABCDActivation.NAMES)
+      {
+         ABCDActivation activation = ABCDActivation.forName(name);
+         consistent = consistent && activation.getName().equals(name) && activation.isOutputOnly() == name.equals("softmax");
+
+         for (int trial = 0; trial < 100; ++trial)
+         {
+            double[] theta = new double[length];
+            double[] omega = new double[length];
+
+            for (int n = 0; n < length; ++n)
+            {
+               theta[n] = (0.1 + 3.0 * random.nextDouble()) * (random.nextBoolean() ? 1.0 : -1.0);   // Away from the ReLU kink
+               omega[n] = random.nextGaussian();
+            } // for (int n = 0; n < length; ++n)
+
+            double[] a = new double[length];
+            double[] inPlace = theta.clone();
+            activation.apply(theta, a, length);
+            activation.apply(inPlace, inPlace, length);
+            consistent = consistent && Arrays.equals(a, inPlace);
+
+            double[] psi = omega.clone();
+            activation.multiplyByDerivative(theta, a, psi, length);
+
+            double[] above = new double[length];
+            double[] below = new double[length];
+
+            for (int j = 0; j < length; ++j)                               // psi[j] = sum over i of omega[i] da[i]/dtheta[j]
+            {
+               double[] shifted = theta.clone();
+               shifted[j] = theta[j] + h;
+               activation.apply(shifted, above, length);
+               shifted[j] = theta[j] - h;
+               activation.apply(shifted, below, length);
+
+               double expected = 0.0;
+
+               for (int i = 0; i < length; ++i)
+               {
+                  expected += omega[i] * (above[i] - below[i]) / (2.0 * h);
+               } // for (int i = 0; i < length; ++i)
+
+               maxLayerError = Math.max(maxLayerError, Math.abs(psi[j] - expected) / Math.max(1.0, Math.abs(expected)));
+            } // for (int j = 0; j < length; ++j)
+         } // for (int trial = 0; trial < 100; ++trial)
+      } // for (String name : ABCDActivation.NAMES)
+
+      /*
+       * Gradient checks: train changes each weight by lambda times the negative gradient of the error. fastTanh is left
+       * out: it backpropagates 1 - a^2, the exact tanh derivative to within ABCDFastTanh's bound rather than the slope of
+       * the approximation itself, which testFastTanh and testFastActivation check instead.
+       */
+      String[][] combinations = {{"tanh", "tanh", "tanh"}, {"leakyRelu", "sigmoid", "softmax"}, {"relu", "tanh", "linear"},
+                                 {"sigmoid", "leakyRelu", "tanh"}};
+      int[] layerSizes = {6, 5, 4, 3};
+      double maxGradientError = 0.0;
+
+      for (String[] combination : combinations)
+      {
+         ABCDActivation[] activations = new ABCDActivation[layerSizes.length];
+
+         for (int alpha = 1; alpha < layerSizes.length; ++alpha)
+         {
+            activations[alpha] = ABCDActivation.forName(combination[alpha - 1]);
+         } // for (int alpha = 1; alpha < layerSizes.length; ++alpha)
+
+         ABCDModel model = new ABCDModel(layerSizes, new ABCDScalarKernel()).withActivations(activations);
+         maxGradientError = Math.max(maxGradientError, ABCDFeatureTester.trainingGradientError(model));
+      } // for (String[] combination : combinations)
+
+      boolean rejected;
+
+      try
+      {
+         ABCDActivation[] hiddenSoftmax = {null, new ABCDSoftmaxActivation(), new ABCDTanhActivation(false), new ABCDTanhActivation(false)};
+         new ABCDModel(layerSizes, new ABCDScalarKernel()).withActivations(hiddenSoftmax);
+         rejected = false;
+      } // try
+
+      catch (IllegalArgumentException illegalArgumentException)
+      {
+         rejected = true;
+      } // catch (IllegalArgumentException illegalArgumentException)
+
+      boolean passed = consistent && rejected && maxLayerError < 1.0e-6 && maxGradientError < 1.0e-6;
+      System.out.println((passed ? "PASS" : "FAIL") + " activations: in place and names consistent " + consistent
+                         + ", max derivative error " + maxLayerError + ", max training gradient error " + maxGradientError
+                         + ", hidden softmax rejected " + rejected);
+
+      return passed;
+   } // public static boolean testActivations()
+
+   /*
+    * Compares one training step of a model with random weights, inputs, and a one-hot target against central finite
+    * differences of the error: train changes each weight by lambda times the negative gradient
+    *
+    * parameters: model is the model to check; its weights are overwritten
+    * return: the largest difference between a weight's change per lambda and its negative gradient, relative to at least 1
+    */
+   private static double trainingGradientError(ABCDModel model)
+   {
+      double h = 1.0e-6;
+      double lambda = 1.0e-3;
+      ABCDExecutionContext context = model.newContext(true);
+      double[] w = model.getWeights();
+      double[] inputs = new double[model.getLayerSize(0)];
+      double[] targets = new double[model.getLayerSize(model.getNumLayers() - 1)];
+
+      for (int n = 0; n < w.length; ++n)
+      {
+         w[n] = random.nextGaussian();
+      } // for (int n = 0; n < w.length; ++n)
+
+      for (int n = 0; n < inputs.length; ++n)
+      {
+         inputs[n] = random.nextDouble();
+      } // for (int n = 0; n < inputs.length; ++n)
+
+      targets[random.nextInt(targets.length)] = 1.0;
+
+      double[] gradient = new double[w.length];                            // Central differences of the error
+
+      for (int n = 0; n < w.length; ++n)
+      {
+         double original = w[n];
+         w[n] = original + h;
+         double errorAbove = ABCDFeatureTester.squaredError(model.run(context, inputs), targets);
+         w[n] = original - h;
+         double errorBelow = ABCDFeatureTester.squaredError(model.run(context, inputs), targets);
+         w[n] = original;
+         gradient[n] = (errorAbove - errorBelow) / (2.0 * h);
+      } // for (int n = 0; n < w.length; ++n)
+
+      double[] before = w.clone();
+      double maxError = 0.0;
+      model.train(context, inputs, targets, lambda);
+
+      for (int n = 0; n < w.length; ++n)
+      {
+         double change = (w[n] - before[n]) / lambda;
+         maxError = Math.max(maxError, Math.abs(change + gradient[n]) / Math.max(1.0, Math.abs(gradient[n])));
+      } // for (int n = 0; n < w.length; ++n)
+
+      return maxError;
+   } // private static double trainingGradientError(ABCDModel model)
+
+   /*
+    * Returns half the summed squared difference between outputs and targets, as ABCDExecutionContext.getError computes it
+    */
+   private static double squaredError(double[] outputs, double[] targets)
+   {
+      double total = 0.0;
+
+      for (int i = 0; i < outputs.length; ++i)
+      {
+         total += (targets[i] - outputs[i]) * (targets[i] - outputs[i]);
+      } // for (int i = 0; i < outputs.length; ++i)
+
+      return (total/2.0);
+   } // private static double squaredError(double[] outputs, double[] targets)
+
+   /*
+    * Returns the summed squaredError of a set of outputs against their targets
+    */
+   private static double setError(double[][] outputSet, double[][] targetSet)
+   {
+      double total = 0.0;
+
+      for (int member = 0; member < outputSet.length; ++member)
+      {
+         total += ABCDFeatureTester.squaredError(outputSet[member], targetSet[member]);
+      } // for (int member = 0; member < outputSet.length; ++member)
+
+      return total;
+   } // private static double setError(double[][] outputSet, double[][] targetSet)
+
+   /*
+    * Times each activation's bulk apply and multiplyByDerivative over a layer of Thetas spread like a trained network's
+    *
+    * return: true (the benchmark only reports)
+    */
+   public static boolean benchmarkActivations()
+   {
+      int length = 200;                                                    // A first hidden layer's worth of units
+      int numLayers = 1 << 13;
+      int numRounds = 20;
+      double[] theta = new double[length];
+      double[] a = new double[length];
+      double[] psi = new double[length];
+      double sink = 0.0;
+      StringBuilder report = new StringBuilder("Activation layer benchmark (ns per unit, apply + derivative):");
+
+      for (int n = 0; n < length; ++n)
+      {
+         theta[n] = 2.0 * random.nextGaussian();
+      } // for (int n = 0; n < length; ++n)
+
+      for (String name : ABCDActivation.NAMES)
+      {
+         ABCDActivation activation = ABCDActivation.forName(name);
+         long applyNanos = 0;
+         long derivativeNanos = 0;
+
+         for (int round = 0; round < numRounds; ++round)                   // The first half of the rounds warm up
+         {
+            long start = System.nanoTime();
+
+            for (int layer = 0; layer < numLayers; ++layer)
+            {
+               activation.apply(theta, a, length);
+               sink += a[layer % length];
+            } // for (int layer = 0; layer < numLayers; ++layer)
+
+            long applyEnd = System.nanoTime();
+
+            for (int layer = 0; layer < numLayers; ++layer)
+            {
+               Arrays.fill(psi, 1.0);
+               activation.multiplyByDerivative(theta, a, psi, length);
+               sink += psi[layer % length];
+            } // for (int layer = 0; layer < numLayers; ++layer)
+
+            if (round >= numRounds / 2)
+            {
+               applyNanos += applyEnd - start;
+               derivativeNanos += System.nanoTime() - applyEnd;
+            } // if (round >= numRounds / 2)
+         } // for (int round = 0; round < numRounds; ++round)
+
+         double units = (double) length * numLayers * (numRounds - numRounds / 2);
+         report.append(" " + name + " " + String.format("%.2f", applyNanos / units) + " + " + String.format("%.2f", derivativeNanos / units));
+      } // for (String name : ABCDActivation.NAMES)
+
+      System.out.println(report + " (checksum " + (float) sink + ")");
+
+      return true;
+   } // public static boolean benchmarkActivations()
+
+   /*
+    * Checks per-layer activations read from the network configuration file, with every network loading the default
+    * network's weights: listing tanh for every layer gives exactly the default network's outputs, and "relu-relu-softmax"
+    * outputs are probabilities and training reduces the set's error
+    *
+    * return: true if the tanh outputs match exactly, every softmax output row is positive and sums to 1, and the softmax
+    *         network's summed error over the set is lower after training than before
+    */
+   public static boolean testConfiguredActivations(File networkConfigurationFile, File inputSetFile, File targetSetFile) throws Exception
+   {
+      ABCDNetwork defaultNetwork = new ABCDNetwork(networkConfigurationFile);
+      File tanhConfigurationFile = ABCDKernelTester.configurationWithWeightsOf(defaultNetwork, networkConfigurationFile,
+                                                                              "activation:tanh-tanh-tanh");
+      /*
+       * ReLU units are unbounded, so from weights sized for tanh their sums over thousands of inputs are large and
+       * training at the tanh networks' learning rate diverges; the softmax network trains a hundred times more slowly
+       */
+      File softmaxConfigurationFile = ABCDKernelTester.configurationWithWeightsOf(defaultNetwork, networkConfigurationFile,
+                                                                                 "activation:relu-relu-softmax", "lambda:0.001");
+      ABCDNetwork tanhNetwork = new ABCDNetwork(tanhConfigurationFile);
+      ABCDNetwork softmaxNetwork = new ABCDNetwork(softmaxConfigurationFile);
+      double[][] inputSet = defaultNetwork.extractInputSetFromSuperFile(inputSetFile);
+      double[][] targetSet = defaultNetwork.extractTargetSetFromFile(targetSetFile);
+
+      boolean tanhMatches = Arrays.deepEquals(defaultNetwork.runOnSet(inputSet), tanhNetwork.runOnSet(inputSet));
+
+      double errorBefore = ABCDFeatureTester.setError(softmaxNetwork.runOnSet(inputSet), targetSet);
+      long start = System.nanoTime();
+      softmaxNetwork.trainOnSet(inputSet, targetSet);
+      long softmaxTime = System.nanoTime() - start;
+      double errorAfter = ABCDFeatureTester.setError(softmaxNetwork.runOnSet(inputSet), targetSet);
+
+      boolean probabilities = true;
+
+      for (double[] outputs : softmaxNetwork.runOnSet(inputSet))
+      {
+         double sum = 0.0;
+
+         for (double output : outputs)
+         {
+            probabilities = probabilities && output > 0.0;
+            sum += output;
+         } // for (double output : outputs)
+
+         probabilities = probabilities && Math.abs(sum - 1.0) < 1.0e-12;
+      } // for (double[] outputs : softmaxNetwork.runOnSet(inputSet))
+
+      boolean passed = tanhMatches && probabilities && errorAfter < errorBefore;
+      System.out.println((passed ? "PASS" : "FAIL") + " configured activations: tanh-tanh-tanh matches the default " + tanhMatches
+                         + ", relu-relu-softmax outputs are probabilities " + probabilities + ", set error " + errorBefore + " before and "
+                         + errorAfter + " after training for " + softmaxTime / 1000000 + " ms");
+
+      return passed;
+   } // public static boolean testConfiguredActivations(File networkConfigurationFile, File inputSetFile, File targetSetFile)
+
+   /*
+    * Checks networks of other depths than 5625-200-25-5: training gradients of small models from 2 to 7 layers match
+    * finite differences, blocked execution of a deep model matches per-member execution, and a deep, narrow network read
+    * from the configuration file trains, saves, and reloads its weights exactly. Reports the training time per iteration
+    * of the configured network and of the deep network.
+    *
+    * return: true if every check passes
+    */
+   public static boolean testArbitraryDepth(File networkConfigurationFile, File inputSetFile, File targetSetFile) throws Exception
+   {
+      int[][] depths = {{6, 3}, {6, 5, 3}, {6, 5, 4, 4, 3}, {6, 5, 4, 4, 4, 4, 3}};
+      double maxGradientError = 0.0;
+
+      for (int[] layerSizes : depths)
+      {
+         maxGradientError = Math.max(maxGradientError, ABCDFeatureTester.trainingGradientError(new ABCDModel(layerSizes, new ABCDScalarKernel())));
+      } // for (int[] layerSizes : depths)
+
+      ABCDModel deepModel = new ABCDModel(new int[] {40, 17, 9, 9, 8, 3}, ABCDKernel.getDefaultKernel());
+      double[] deepWeights = deepModel.getWeights();
+      double[][] deepInputs = new double[7][40];
+
+      for (int n = 0; n < deepWeights.length; ++n)
+      {
+         deepWeights[n] = random.nextGaussian() * 0.3;
+      } // for (int n = 0; n < deepWeights.length; ++n)
+
+      for (double[] member : deepInputs)
+      {
+         for (int n = 0; n < member.length; ++n)
+         {
+            member[n] = random.nextDouble();
+         } // for (int n = 0; n < member.length; ++n)
+      } // for (double[] member : deepInputs)
+
+      ABCDExecutionContext deepContext = deepModel.newContext(false);
+      double[][] perMember = new double[deepInputs.length][];
+
+      for (int member = 0; member < deepInputs.length; ++member)
+      {
+         perMember[member] = deepModel.run(deepContext, deepInputs[member]).clone();
+      } // for (int member = 0; member < deepInputs.length; ++member)
+
+      boolean blockedMatches = Arrays.deepEquals(perMember, deepModel.runOnSet(deepInputs, 4));
+
+      /*
+       * A deep, narrow network from the configuration file, with random weights
+       */
+      String[] configuredSizes = Files.readAllLines(networkConfigurationFile.toPath()).get(0).split(":")[1].split("-");
+      String deepSizes = configuredSizes[0] + "-32-32-32-32-" + configuredSizes[configuredSizes.length - 1];
+      File deepConfigurationFile = ABCDKernelTester.configurationWith(networkConfigurationFile, "LAYER_SIZES:" + deepSizes,
+                                                                      "randomizeWeights:true");
+
+      ABCDNetwork network = new ABCDNetwork(networkConfigurationFile);
+      ABCDNetwork deepNetwork = new ABCDNetwork(deepConfigurationFile);
+      double[][] inputSet = network.extractInputSetFromSuperFile(inputSetFile);
+      double[][] targetSet = network.extractTargetSetFromFile(targetSetFile);
+
+      long start = System.nanoTime();
+      network.trainOnSet(inputSet, targetSet);
+      long time = System.nanoTime() - start;
+
+      start = System.nanoTime();
+      deepNetwork.trainOnSet(inputSet, targetSet);
+      long deepTime = System.nanoTime() - start;
+
+      File weightsFile = File.createTempFile("ABCDDeepWeights", ".txt");
+      weightsFile.deleteOnExit();
+      deepNetwork.saveWeights(weightsFile);
+      ABCDNetwork reloaded = new ABCDNetwork(ABCDWeightsFile.readLayerSizes(weightsFile));
+      reloaded.loadWeights(weightsFile);
+
+      boolean reloadMatches = deepNetwork.getModel().getNumLayers() == 6 && Arrays.equals(deepNetwork.getWeights(), reloaded.getWeights())
+                              && Arrays.deepEquals(deepNetwork.runOnSet(inputSet), reloaded.runOnSet(inputSet));
+
+      boolean passed = maxGradientError < 1.0e-6 && blockedMatches && reloadMatches;
+      System.out.println((passed ? "PASS" : "FAIL") + " arbitrary depth: max training gradient error for 2 to 7 layers " + maxGradientError
+                         + ", blocked deep run matches " + blockedMatches + ", " + deepSizes + " reloads exactly " + reloadMatches
+                         + ", ms per training iteration " + String.join("-", configuredSizes) + " "
+                         + time / 1000000 / Math.max(1, network.getNumIterations()) + ", " + deepSizes + " "
+                         + deepTime / 1000000 / Math.max(1, deepNetwork.getNumIterations()));
+
+      return passed;
+   } // public static boolean testArbitraryDepth(File networkConfigurationFile, File inputSetFile, File targetSetFile)
+
+   /*
+    * Checks that ABCDTextReader parses doubles exactly as Double.parseDouble does, on random values of every magnitude
+    * written by Double.toString and on short decimals, integers, exponents, signed zeros, and long digit strings
+    *
+    * return: true if every value parses to the same bits and malformed tokens are rejected
+    */
+   public static boolean testTextParser() throws Exception
+   {
+      int numValues = 1000000;
+      String[] tokens = new String[numValues];
+
+      for (int n = 0; n < numValues; ++n)
+      {
+         switch (n % 6)
+         {
+            case 0:                                                      // Any finite double
+               double value;
+
+               do
+               {
+                  value = Double.longBitsToDouble(random.nextLong());
+               } while (Double.isNaN(value) || Double.isInfinite(value));
+
+               tokens[n] = Double.toString(value);
+               break;
+            case 1:                                                      // Weights-sized values
+               tokens[n] = Double.toString(random.nextGaussian() * 0.1);
+               break;
+            case 2:                                                      // Short decimals like the input files
+               tokens[n] = String.format("%." + random.nextInt(8) + "f", random.nextDouble());
+               break;
+            case 3:                                                      // Integers and exponents
+               tokens[n] = random.nextInt(2000000) - 1000000 + "e" + (random.nextInt(640) - 330);
+               break;
+            case 4:                                                      // Up to 25 significant digits, which may need the fallback
+               tokens[n] = "0." + new BigInteger(83, random).toString() + "E-" + random.nextInt(20);
+               break;
+            default:                                                     // Float values, whose shortest forms are often halfway-adjacent
+               tokens[n] = Double.toString((double) Float.intBitsToFloat(random.nextInt() & 0x7F7FFFFF));
+               break;
+         } // switch (n % 6)
+      } // for (int n = 0; n < numValues; ++n)
+
+      tokens[0] = "-0.0";
+      tokens[1] = "4.9E-324";
+      tokens[2] = "1.7976931348623157E308";
+      tokens[3] = "2.2250738585072014E-308";
+
+      File textFile = File.createTempFile("ABCDTextReader", ".txt");
+      textFile.deleteOnExit();
+
+      try (PrintWriter writer = new PrintWriter(textFile))
+      {
+         for (int n = 0; n < numValues; ++n)
+         {
+            writer.print(tokens[n]);
+            writer.print((n % 10 == 9) ? "\n" : ",");
+         } // for (int n = 0; n < numValues; ++n)
+
+         writer.print("1.5x,,");                                      // Malformed, then an empty token
+      } // try (PrintWriter writer = new PrintWriter(textFile))
+
+      int numMismatches = 0;
+      boolean malformedRejected = false;
+      boolean emptyRejected = false;
+
+      try (ABCDTextReader reader = new ABCDTextReader(textFile).useDelimiters(":\n,"))
+      {
+         for (int n = 0; n < numValues; ++n)
+         {
+            if (Double.doubleToRawLongBits(reader.nextDouble()) != Double.doubleToRawLongBits(Double.parseDouble(tokens[n])))
+            {
+               if (numMismatches < 5)
+                  System.out.println("   Mismatch on " + tokens[n]);
+
+               ++numMismatches;
+            } // if (Double.doubleToRawLongBits(reader.nextDouble()) != ...)
+         } // for (int n = 0; n < numValues; ++n)
+
+         try
+         {
+            reader.nextDouble();
+         } // try
+
+         catch (InputMismatchException inputMismatchException)
+         {
+            malformedRejected = true;
+         } // catch (InputMismatchException inputMismatchException)
+
+         try
+         {
+            reader.nextDouble();
+         } // try
+
+         catch (InputMismatchException inputMismatchException)
+         {
+            emptyRejected = true;
+         } // catch (InputMismatchException inputMismatchException)
+      } // try (ABCDTextReader reader = new ABCDTextReader(textFile).useDelimiters(":\n,"))
+
+      boolean passed = (numMismatches == 0) && malformedRejected && emptyRejected;
+      System.out.println((passed ? "PASS" : "FAIL") + " text parser: " + numMismatches + " mismatches in " + numValues
+                         + " values, malformed rejected " + malformedRejected + ", empty rejected " + emptyRejected);
+
+      return passed;
+   } // public static boolean testTextParser()
+
+   /*
+    * Times reading every value of a text weights file with java.util.Scanner and with ABCDTextReader
+    *
+    * parameters: weightsFile is a text weights file, such as the 75x75 network's trained weights
+    * return: true if both read the same values
+    */
+   public static boolean benchmarkTextWeights(File weightsFile) throws Exception
+   {
+      int[] layerSizes = ABCDWeightsFile.readLayerSizes(weightsFile);
+      int numWeights = 0;
+
+      for (int alpha = 0; alpha < layerSizes.length - 1; ++alpha)
+      {
+         numWeights += layerSizes[alpha] * layerSizes[alpha + 1];
+      } // for (int alpha = 0; alpha < layerSizes.length - 1; ++alpha)
+
+      double[] scanned = new double[numWeights];
+      double[] parsed = new double[numWeights];
+
+      long start = System.nanoTime();
+
+      try (Scanner scanner = new Scanner(weightsFile))
+      {
+         scanner.useDelimiter(":|\\n|,|-");
+         scanner.next();
+         scanner.nextInt();
+         scanner.next();
+
+         for (int alpha = 0; alpha < layerSizes.length; ++alpha)
+         {
+            scanner.nextInt();
+         } // for (int alpha = 0; alpha < layerSizes.length; ++alpha)
+
+         scanner.useDelimiter(":|\\n|,");
+         int n = 0;
+
+         for (int alpha = 0; alpha < layerSizes.length - 1; ++alpha)
+         {
+            scanner.next();
+
+            for (int k = 0; k < layerSizes[alpha] * layerSizes[alpha + 1]; ++k)
+            {
+               scanned[n++] = scanner.nextDouble();
+            } // for (int k = 0; k < layerSizes[alpha] * layerSizes[alpha + 1]; ++k)
+         } // for (int alpha = 0; alpha < layerSizes.length - 1; ++alpha)
+      } // try (Scanner scanner = new Scanner(weightsFile))
+
+      long scannerTime = System.nanoTime() - start;
+
+      start = System.nanoTime();
+
+      try (ABCDTextReader reader = new ABCDTextReader(weightsFile))
+      {
+         reader.useDelimiters(":\n,-");
+         reader.skip();
+         reader.nextInt();
+         reader.skip();
+
+         for (int alpha = 0; alpha < layerSizes.length; ++alpha)
+         {
+            reader.nextInt();
+         } // for (int alpha = 0; alpha < layerSizes.length; ++alpha)
+
+         reader.useDelimiters(":\n,");
+         int n = 0;
+
+         for (int alpha = 0; alpha < layerSizes.length - 1; ++alpha)
+         {
+            reader.skip();
+
+            for (int k = 0; k < layerSizes[alpha] * layerSizes[alpha + 1]; ++k)
+            {
+               parsed[n++] = reader.nextDouble();
+            } // for (int k = 0; k < layerSizes[alpha] * layerSizes[alpha + 1]; ++k)
+         } // for (int alpha = 0; alpha < layerSizes.length - 1; ++alpha)
+      } // try (ABCDTextReader reader = new ABCDTextReader(weightsFile))
+
+      long readerTime = System.nanoTime() - start;
+
+      boolean passed = Arrays.equals(scanned, parsed);
+      System.out.println((passed ? "PASS" : "FAIL") + " text weights benchmark: " + numWeights + " weights, Scanner "
+                         + scannerTime / 1000000 + " ms, ABCDTextReader " + readerTime / 1000000 + " ms ("
+                         + String.format("%.1f", (double) scannerTime / readerTime) + "x)");
+
+      return passed;
+   } // public static boolean benchmarkTextWeights(File weightsFile)
+
+   /*
+    * Checks the network's features
+    *
+    * parameters: args optionally holds a network configuration filename, a super input filename, a target set filename,
+    *             and a text weights filename to benchmark parsing on
+    * postconditions: a PASS or FAIL line is printed for each check, followed by an overall result.
+    *                 The network tests run on ABCDKernelTester.testConfiguration's copy of the configuration file.
+    *                 The tester exits with status 1 if any check fails or an exception is thrown.
+    */
+   public static void main(String[] args)
+   {
+      boolean passed = false;
+
+      try
+      {
+         passed = ABCDFeatureTester.testTextParser();
+         passed = ABCDFeatureTester.testFastTanh() && passed;
+         passed = ABCDFeatureTester.benchmarkActivation() && passed;
+         passed = ABCDFeatureTester.testActivations() && passed;
+         passed = ABCDFeatureTester.benchmarkActivations() && passed;
+
+         File networkConfigurationFile = null;
+
+         if (args.length >= 2)
+         {
+            networkConfigurationFile = ABCDKernelTester.testConfiguration(new File(args[0]));
+
+            passed = ABCDFeatureTester.testBinaryWeights(networkConfigurationFile) && passed;
+            passed = ABCDFeatureTester.testParallelLoading(3, networkConfigurationFile, new File(args[1])) && passed;
+            passed = ABCDFeatureTester.testImageLoading(3, networkConfigurationFile, new File(args[1])) && passed;
+            passed = ABCDFeatureTester.testQuantizedModel(networkConfigurationFile, new File(args[1])) && passed;
+         } // if (args.length >= 2)
+
+         if (args.length >= 3)
+         {
+            passed = ABCDFeatureTester.testDataset(networkConfigurationFile, new File(args[1]), new File(args[2])) && passed;
+            passed = ABCDFeatureTester.testDatasetStreaming(networkConfigurationFile, new File(args[1]), new File(args[2])) && passed;
+            passed = ABCDFeatureTester.testAugmentation(2, networkConfigurationFile, new File(args[1]), new File(args[2])) && passed;
+            passed = ABCDFeatureTester.testFloatPrecision(networkConfigurationFile, new File(args[1]), new File(args[2])) && passed;
+            passed = ABCDFeatureTester.benchmarkFloatTraining(networkConfigurationFile, new File(args[1]), new File(args[2])) && passed;
+            passed = ABCDFeatureTester.testFastActivation(networkConfigurationFile, new File(args[1]), new File(args[2])) && passed;
+            passed = ABCDFeatureTester.testConfiguredActivations(networkConfigurationFile, new File(args[1]), new File(args[2])) && passed;
+            passed = ABCDFeatureTester.testArbitraryDepth(networkConfigurationFile, new File(args[1]), new File(args[2])) && passed;
+         } // if (args.length >= 3)
+
+         if (args.length >= 4)
+         {
+            passed = ABCDFeatureTester.benchmarkTextWeights(new File(args[3])) && passed;
+         } // if (args.length >= 4)
+
+         System.out.println(passed ? "All feature checks passed" : "Feature checks FAILED");
+      } // try
+
+      catch (Exception exception)   // Catch and print any exceptions. Abort execution.
+      {
+         System.out.println("An exception has terminated execution:\n\t" + exception.getMessage());
+         exception.printStackTrace();
+         passed = false;
+      } // catch (Exception exception)
+
+      if (!passed)
+         System.exit(1);
+
+      return;
+   } // public static void main(String[] args)
+
+} // public class ABCDFeatureTester
@@ -0,0 +1,210 @@
+/*
+ * Per-thread single-precision execution state for an A-B-C-D network model.
+ *
+ * Author: Jack Hsieh
+ * Date of creation: November 11, 2021
+ */
+
+/*
+ * The float counterpart of ABCDExecutionContext for an ABCDFloatModel: the units, compressed input layer, targets,
+ * and Psis are all stored as float. There are no Thetas since the model takes derivatives from the units. Inputs and targets arrive as double and are converted as they are loaded;
+ * the output layer is also kept as double for callers.
+ *
+ * The fields are package-private so the model's kernels can read and write them directly.
+ */
+public class ABCDFloatExecutionContext
+{
+   /*
+    * Layer sizes of the model this context was allocated for
+    */
+   final int NUM_LAYERS;
+   final int[] LAYER_SIZES;
+
+   /*
+    * Units, one row per layer. Unlike the double context, the input row is a copy of the loaded inputs.
+    */
+   final float[][] a;
+
+   /*
+    * Compressed input layer (see ABCDExecutionContext)
+    */
+   final int[] inputIndices;
+   final float[] inputValues;
+   int numNonzeroInputs;
+   boolean inputsAreSparse;
+
+   private double MAX_SPARSE_INPUT_DENSITY = 0.6;
+   private boolean useSparseInputs = true;
+
+   /*
+    * Targets and training details, only allocated if allocated for training
+    */
+   final float[] T;
+   final float[][] Psi;                // The first row is null since it is never used
+
+   /*
+    * The output layer widened to double, refreshed after each execution
+    */
+   final double[] outputs;
+
+   /*
+    * Allocates a context for a model with the given layer sizes
+    *
+    * parameters: layerSizes holds the number of units in each layer, and allocateForTraining is whether to allocate
+    *             the targets and Psi arrays needed to train
+    */
+   public ABCDFloatExecutionContext(int[] layerSizes, boolean allocateForTraining)
+   {
+      this.NUM_LAYERS = layerSizes.length;
+      this.LAYER_SIZES = layerSizes.clone();
+
+      this.a = new float[this.NUM_LAYERS][];
+
+      for (int alpha = 0; alpha < this.NUM_LAYERS; ++alpha)
+      {
+         this.a[alpha] = new float[this.LAYER_SIZES[alpha]];
+      } // for (int alpha = 0; alpha < this.NUM_LAYERS; ++alpha)
+
+      this.inputIndices = new int[this.LAYER_SIZES[0]];
+      this.inputValues = new float[this.LAYER_SIZES[0]];
+      this.outputs = new double[this.LAYER_SIZES[this.NUM_LAYERS - 1]];
+
+      if (allocateForTraining)
+      {
+         this.T = new float[this.LAYER_SIZES[this.NUM_LAYERS - 1]];
+         this.Psi = new float[this.NUM_LAYERS][];
+
+         for (int alpha = 1; alpha < this.NUM_LAYERS; ++alpha)
+         {
+            this.Psi[alpha] = new float[this.LAYER_SIZES[alpha]];
+         } // for (int alpha = 1; alpha < this.NUM_LAYERS; ++alpha)
+      } // if (allocateForTraining)
+
+      else
+      {
+         this.T = null;
+         this.Psi = null;
+      } // if (allocateForTraining)... else
+
+      return;
+   } // public ABCDFloatExecutionContext(int[] layerSizes, boolean allocateForTraining)
+
+   /*
+    * Loads new inputs into the input units, rounding each to float, and rebuilds the compressed input layer
+    *
+    * parameters: new_a are the new inputs, of length LAYER_SIZES[0]
+    */
+   void loadInputs(double[] new_a)
+   {
+      float[] inputs = this.a[0];
+      int numInputs = this.LAYER_SIZES[0];
+
+      this.numNonzeroInputs = 0;
+
+      for (int m = 0; m < numInputs; ++m)
+      {
+         inputs[m] = (float) new_a[m];
+
+         if (inputs[m] != 0.0f)
+         {
+            this.inputIndices[this.numNonzeroInputs] = m;
+            this.inputValues[this.numNonzeroInputs] = inputs[m];
+            ++this.numNonzeroInputs;
+         } // if (inputs[m] != 0.0f)
+      } // for (int m = 0; m < numInputs; ++m)
+
+      this.inputsAreSparse = this.useSparseInputs && (this.numNonzeroInputs <= this.MAX_SPARSE_INPUT_DENSITY * numInputs);
+
+      return;
+   } // void loadInputs(double[] new_a)
+
+   /*
+    * Loads new targets, rounding each to float
+    *
+    * parameters: new_T is the new targets, of length LAYER_SIZES[NUM_LAYERS - 1]
+    */
+   void loadTargets(double[] new_T)
+   {
+      for (int i = 0; i < this.T.length; ++i)
+      {
+         this.T[i] = (float) new_T[i];
+      } // for (int i = 0; i < this.T.length; ++i)
+
+      return;
+   } // void loadTargets(double[] new_T)
+
+   /*
+    * Copies the output layer into the double outputs
+    */
+   void widenOutputs()
+   {
+      float[] output = this.a[this.NUM_LAYERS - 1];
+
+      for (int i = 0; i < output.length; ++i)
+      {
+         this.outputs[i] = output[i];
+      } // for (int i = 0; i < output.length; ++i)
+
+      return;
+   } // void widenOutputs()
+
+   /*
+    * Sets whether sparse inputs use the compressed input layer (see ABCDExecutionContext.setUseSparseInputs)
+    */
+   public void setUseSparseInputs(boolean useSparseInputs)
+   {
+      this.useSparseInputs = useSparseInputs;
+
+      return;
+   } // public void setUseSparseInputs(boolean useSparseInputs)
+
+   /*
+    * Returns the output units as double
+    *
+    * return: the widened output layer (not a copy), overwritten by the next execution with this context
+    */
+   public double[] getOutputs()
+   {
+      return this.outputs;
+   } // public double[] getOutputs()
+
+   /*
+    * Returns one layer of units widened to double
+    *
+    * parameters: alpha is the layer index
+    * return: a new array holding the layer
+    */
+   public double[] getUnits(int alpha)
+   {
+      double[] units = new double[this.LAYER_SIZES[alpha]];
+
+      for (int beta = 0; beta < units.length; ++beta)
+      {
+         units[beta] = this.a[alpha][beta];
+      } // for (int beta = 0; beta < units.length; ++beta)
+
+      return units;
+   } // public double[] getUnits(int alpha)
+
+   /*
+    * Calculates the error, in double from the float outputs and targets
+    *
+    * preconditions: the targets are loaded and the output units are calculated
+    * return: the total error of the network for the last member
+    */
+   public double getError()
+   {
+      double total = 0.0;
+      double current_omega;
+      float[] output = this.a[this.NUM_LAYERS - 1];
+
+      for (int i = 0; i < output.length; ++i)
+      {
+         current_omega = (double) this.T[i] - output[i];
+         total += current_omega * current_omega;
+      } // for (int i = 0; i < output.length; ++i)
+
+      return (total/2.0);
+   } // public double getError()
+
+} // public class ABCDFloatExecutionContext
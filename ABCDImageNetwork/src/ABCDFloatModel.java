@@ -0,0 +1,395 @@
+/*
+ * Single-precision weights and forward/backward kernels of an A-B-C-D network.
+ *
+ * Author: Jack Hsieh
+ * Date of creation: November 11, 2021
+ */
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/*
+ * The float counterpart of ABCDModel, selected by "precision:float32" in the network configuration file. The weights,
+ * units and Psis are stored as float, which halves the memory streamed per member and doubles the lanes of the
+ * vector kernel. Each activation is evaluated in double and rounded to float. Its derivative is computed in float from
+ * the rounded activation as 1 - a^2, so backpropagation makes no transcendental call and keeps no Thetas.
+ *
+ * The weight layout is the same destination-major flat buffer as ABCDModel, so weights convert between the two by
+ * rounding or widening element by element (see setWeights and getWeights(double[])). Inputs, targets, and outputs
+ * cross the interface as double.
+ *
+ * As with ABCDModel, running only reads the weights, so threads may run one model concurrently with their own contexts.
+ * Members are run one at a time; there is no block (matrix-matrix) path.
+ */
+public class ABCDFloatModel
+{
+   private final int NUM_LAYERS;
+   private final int[] LAYER_SIZES;
+
+   /*
+    * Weights, laid out as in ABCDModel
+    */
+   private final float[] w;
+   private final int[] weightOffsets;
+
+   private final ABCDKernel kernel;
+   private final boolean fastActivation;                // Whether the activation is ABCDFastTanh (see ABCDTanhActivation)
+
+   /*
+    * Constructs a model with zeroed weights
+    *
+    * parameters: layerSizes holds the number of units in each layer, from input to output,
+    *             and kernel is the kernel to execute and train with
+    */
+   public ABCDFloatModel(int[] layerSizes, ABCDKernel kernel)
+   {
+      this.NUM_LAYERS = layerSizes.length;
+      this.LAYER_SIZES = layerSizes.clone();
+      this.kernel = kernel;
+      this.fastActivation = false;
+
+      this.weightOffsets = new int[this.NUM_LAYERS];
+
+      for (int alpha = 0; alpha < this.NUM_LAYERS - 1; ++alpha)
+      {
+         this.weightOffsets[alpha + 1] = this.weightOffsets[alpha] + this.LAYER_SIZES[alpha] * this.LAYER_SIZES[alpha + 1];
+      } // for (int alpha = 0; alpha < this.NUM_LAYERS - 1; ++alpha)
+
+      this.w = new float[this.weightOffsets[this.NUM_LAYERS - 1]];
+
+      return;
+   } // public ABCDFloatModel(int[] layerSizes, ABCDKernel kernel)
+
+   /*
+    * Constructs a model that shares another model's layer sizes and weights but uses a different kernel or activation
+    */
+   private ABCDFloatModel(ABCDFloatModel model, ABCDKernel kernel, boolean fastActivation)
+   {
+      this.NUM_LAYERS = model.NUM_LAYERS;
+      this.LAYER_SIZES = model.LAYER_SIZES;
+      this.weightOffsets = model.weightOffsets;
+      this.w = model.w;
+      this.kernel = kernel;
+      this.fastActivation = fastActivation;
+
+      return;
+   } // private ABCDFloatModel(ABCDFloatModel model, ABCDKernel kernel, boolean fastActivation)
+
+   /*
+    * Returns a model sharing this model's weights that executes and trains with the given kernel
+    */
+   public ABCDFloatModel withKernel(ABCDKernel kernel)
+   {
+      return (new ABCDFloatModel(this, kernel, this.fastActivation));
+   } // public ABCDFloatModel withKernel(ABCDKernel kernel)
+
+   /*
+    * Returns a model sharing this model's weights that uses the fast or the exact tanh activation (see ABCDModel)
+    */
+   public ABCDFloatModel withFastActivation(boolean fastActivation)
+   {
+      return (new ABCDFloatModel(this, this.kernel, fastActivation));
+   } // public ABCDFloatModel withFastActivation(boolean fastActivation)
+
+   /*
+    * Allocates an execution context sized for this model
+    *
+    * parameters: allocateForTraining is whether the context should hold the arrays needed to train
+    * return: a new context; use one per thread
+    */
+   public ABCDFloatExecutionContext newContext(boolean allocateForTraining)
+   {
+      return (new ABCDFloatExecutionContext(this.LAYER_SIZES, allocateForTraining));
+   } // public ABCDFloatExecutionContext newContext(boolean allocateForTraining)
+
+   /*
+    * Rounds double weights into this model's weights
+    *
+    * parameters: source is laid out like the weights of an ABCDModel with the same layer sizes
+    */
+   public void setWeights(double[] source)
+   {
+      for (int index = 0; index < this.w.length; ++index)
+      {
+         this.w[index] = (float) source[index];
+      } // for (int index = 0; index < this.w.length; ++index)
+
+      return;
+   } // public void setWeights(double[] source)
+
+   /*
+    * Widens this model's weights into a double buffer
+    *
+    * parameters: destination is laid out like the weights of an ABCDModel with the same layer sizes
+    */
+   public void getWeights(double[] destination)
+   {
+      for (int index = 0; index < this.w.length; ++index)
+      {
+         destination[index] = this.w[index];
+      } // for (int index = 0; index < this.w.length; ++index)
+
+      return;
+   } // public void getWeights(double[] destination)
+
+   /*
+    * Returns the model's flat weights buffer itself (not a copy)
+    */
+   public float[] getWeights()
+   {
+      return this.w;
+   } // public float[] getWeights()
+
+   /*
+    * Runs the model on the given inputs WITHOUT calculating training details
+    *
+    * parameters: context is the calling thread's execution context, inputs are the new inputs
+    * return: the context's widened output units (not a copy)
+    */
+   public double[] run(ABCDFloatExecutionContext context, double[] inputs)
+   {
+      context.loadInputs(inputs);
+      this.execute(context, false);
+      context.widenOutputs();
+
+      return context.getOutputs();
+   } // public double[] run(ABCDFloatExecutionContext context, double[] inputs)
+
+   /*
+    * Runs the model on every member of an input set
+    *
+    * return: the set of outputs, one row per member in the same order as inputSet
+    */
+   public double[][] runOnSet(double[][] inputSet)
+   {
+      double[][] outputSet = new double[inputSet.length][];
+
+      this.runRange(inputSet, outputSet, 0, inputSet.length);
+
+      return outputSet;
+   } // public double[][] runOnSet(double[][] inputSet)
+
+   /*
+    * Runs the model on every member of an input set in parallel, in about one contiguous range per pool worker
+    *
+    * return: the set of outputs, one row per member in the same order as inputSet, identical to runOnSet(inputSet)
+    */
+   public double[][] runOnSet(double[][] inputSet, ForkJoinPool pool)
+   {
+      int numMembers = inputSet.length;
+      double[][] outputSet = new double[numMembers][];
+      int rangeSize = Math.max(1, (numMembers + pool.getParallelism() - 1) / pool.getParallelism());
+      ForkJoinTask<?>[] ranges = new ForkJoinTask<?>[(numMembers + rangeSize - 1) / rangeSize];
+
+      for (int range = 0; range < ranges.length; ++range)
+      {
+         int start = range * rangeSize;
+         int end = Math.min(numMembers, start + rangeSize);
+
+         ranges[range] = ForkJoinTask.adapt(() -> this.runRange(inputSet, outputSet, start, end));
+      } // for (int range = 0; range < ranges.length; ++range)
+
+      pool.invoke(ForkJoinTask.adapt(() -> ForkJoinTask.invokeAll(ranges)));
+
+      return outputSet;
+   } // public double[][] runOnSet(double[][] inputSet, ForkJoinPool pool)
+
+   /*
+    * Runs members [start, end) with one context, copying each member's outputs into a new row of outputSet
+    */
+   private void runRange(double[][] inputSet, double[][] outputSet, int start, int end)
+   {
+      ABCDFloatExecutionContext context = this.newContext(false);
+
+      for (int member = start; member < end; ++member)
+      {
+         outputSet[member] = this.run(context, inputSet[member]).clone();
+      } // for (int member = start; member < end; ++member)
+
+      return;
+   } // private void runRange(double[][] inputSet, double[][] outputSet, int start, int end)
+
+   /*
+    * Trains the model on a single training member
+    *
+    * parameters: context is the calling thread's training context, inputs and targets are the member,
+    *             and lambda is the learning rate
+    * postconditions: the context's units and Psis are calculated and the weight changes are applied
+    */
+   public void train(ABCDFloatExecutionContext context, double[] inputs, double[] targets, double lambda)
+   {
+      context.loadInputs(inputs);
+      context.loadTargets(targets);
+
+      this.execute(context, true);
+      context.widenOutputs();
+      this.backpropagate(context, (float) lambda, true);
+
+      return;
+   } // public void train(ABCDFloatExecutionContext context, double[] inputs, double[] targets, double lambda)
+
+   /*
+    * Trains the model on a mini-batch of training members with a single weight update, as ABCDModel.trainOnBatch does
+    *
+    * postconditions: contexts[b] holds member (start + b) from before the update, and the summed changes are applied
+    */
+   public void trainOnBatch(ABCDFloatExecutionContext[] contexts, double[][] inputSet, double[][] targetSet, int start, int count,
+                            double lambda)
+   {
+      ABCDFloatExecutionContext context;
+
+      for (int b = 0; b < count; ++b)
+      {
+         contexts[b].loadInputs(inputSet[start + b]);
+         contexts[b].loadTargets(targetSet[start + b]);
+
+         this.execute(contexts[b], true);
+         contexts[b].widenOutputs();
+         this.backpropagate(contexts[b], (float) lambda, false);          // Psis only
+      } // for (int b = 0; b < count; ++b)
+
+      /*
+       * Apply the summed changes row by row, as ABCDModel.applyBatchUpdate does
+       */
+      for (int alpha = 0; alpha < this.NUM_LAYERS - 1; ++alpha)
+      {
+         int rowOffset = this.weightOffsets[alpha];
+
+         for (int gamma = 0; gamma < this.LAYER_SIZES[alpha + 1]; ++gamma)
+         {
+            for (int b = 0; b < count; ++b)
+            {
+               context = contexts[b];
+
+               if (alpha == 0 && context.inputsAreSparse)
+                  this.kernel.sparseUpdateRow(this.w, rowOffset, context.inputIndices, context.inputValues,
+                                              (float) lambda, context.Psi[alpha + 1][gamma], context.numNonzeroInputs);
+               else
+                  this.kernel.updateRow(this.w, rowOffset, context.a[alpha], (float) lambda, context.Psi[alpha + 1][gamma], this.LAYER_SIZES[alpha]);
+            } // for (int b = 0; b < count; ++b)
+
+            rowOffset += this.LAYER_SIZES[alpha];
+         } // for (int gamma = 0; gamma < this.LAYER_SIZES[alpha + 1]; ++gamma)
+      } // for (int alpha = 0; alpha < this.NUM_LAYERS - 1; ++alpha)
+
+      return;
+   } // public void trainOnBatch(ABCDFloatExecutionContext[] contexts, double[][] inputSet, double[][] targetSet, int start, int count, ...)
+
+   /*
+    * Computes the hidden and output units, and if withDetails the output Psis too
+    *
+    * preconditions: the context's inputs (and for withDetails its targets) are loaded
+    */
+   private void execute(ABCDFloatExecutionContext context, boolean withDetails)
+   {
+      float[][] a = context.a;
+      int lastLayer = this.NUM_LAYERS - 1;
+      float theta;
+
+      for (int alpha = 1; alpha < this.NUM_LAYERS; ++alpha)
+      {
+         int length = this.LAYER_SIZES[alpha - 1];
+         int rowOffset = this.weightOffsets[alpha - 1];
+
+         for (int beta = 0; beta < this.LAYER_SIZES[alpha]; ++beta)
+         {
+            if (alpha == 1 && context.inputsAreSparse)
+               theta = this.kernel.sparseDotProduct(this.w, rowOffset, context.inputIndices, context.inputValues, context.numNonzeroInputs);
+            else
+               theta = this.kernel.dotProduct(this.w, rowOffset, a[alpha - 1], length);
+
+            a[alpha][beta] = (float) (this.fastActivation ? ABCDFastTanh.tanh(theta) : Math.tanh(theta));
+
+            if (withDetails && alpha == lastLayer)                       // Output Psi: Omega times the derivative
+               context.Psi[alpha][beta] = (context.T[beta] - a[alpha][beta]) * this.activationFunctionDerivative(a[alpha][beta]);
+
+            rowOffset += length;
+         } // for (int beta = 0; beta < this.LAYER_SIZES[alpha]; ++beta)
+      } // for (int alpha = 1; alpha < this.NUM_LAYERS; ++alpha)
+
+      return;
+   } // private void execute(ABCDFloatExecutionContext context, boolean withDetails)
+
+   /*
+    * Calculates the hidden Psis from the output Psis, layer by layer from the right, as ABCDModel.backpropagate does.
+    * If update is true, each row receives its rank-1 update right after contributing its pre-update weights to the Omegas.
+    *
+    * preconditions: the context's units and output Psis are calculated
+    */
+   private void backpropagate(ABCDFloatExecutionContext context, float lambda, boolean update)
+   {
+      float[][] a = context.a;
+      float[][] Psi = context.Psi;
+      int rowOffset;
+
+      for (int alpha = this.NUM_LAYERS - 2; alpha >= 1; --alpha)
+      {
+         Arrays.fill(Psi[alpha], 0.0f);                                    // Reset the Omega accumulators
+         rowOffset = this.weightOffsets[alpha];
+
+         for (int gamma = 0; gamma < this.LAYER_SIZES[alpha + 1]; ++gamma)
+         {
+            this.kernel.accumulateScaled(Psi[alpha], this.w, rowOffset, Psi[alpha + 1][gamma], this.LAYER_SIZES[alpha]);
+
+            if (update)
+               this.kernel.updateRow(this.w, rowOffset, a[alpha], lambda, Psi[alpha + 1][gamma], this.LAYER_SIZES[alpha]);
+
+            rowOffset += this.LAYER_SIZES[alpha];
+         } // for (int gamma = 0; gamma < this.LAYER_SIZES[alpha + 1]; ++gamma)
+
+         for (int beta = 0; beta < this.LAYER_SIZES[alpha]; ++beta)        // Turn each Omega into a Psi
+         {
+            Psi[alpha][beta] *= this.activationFunctionDerivative(a[alpha][beta]);
+         } // for (int beta = 0; beta < this.LAYER_SIZES[alpha]; ++beta)
+      } // for (int alpha = this.NUM_LAYERS - 2; alpha >= 1; --alpha)
+
+      /*
+       * Update the input layer weights, touching only the weights from non-zero inputs when they are sparse
+       */
+      if (update)
+      {
+         rowOffset = this.weightOffsets[0];
+
+         for (int k = 0; k < this.LAYER_SIZES[1]; ++k)
+         {
+            if (context.inputsAreSparse)
+               this.kernel.sparseUpdateRow(this.w, rowOffset, context.inputIndices, context.inputValues, lambda, Psi[1][k],
+                                           context.numNonzeroInputs);
+            else
+               this.kernel.updateRow(this.w, rowOffset, a[0], lambda, Psi[1][k], this.LAYER_SIZES[0]);
+
+            rowOffset += this.LAYER_SIZES[0];
+         } // for (int k = 0; k < this.LAYER_SIZES[1]; ++k)
+      } // if (update)
+
+      return;
+   } // private void backpropagate(ABCDFloatExecutionContext context, float lambda, boolean update)
+
+   /*
+    * Returns the derivative of the hyperbolic tangent from the activation f = tanh(Theta), as 1 - f^2 in float
+    * This is within a float rounding of 1 / cosh^2(Theta) except where f rounds to +-1, and it costs one multiply
+    * instead of a software cosh per unit, which dominated float training time.
+    */
+   private float activationFunctionDerivative(float f)
+   {
+      return (1.0f - f * f);
+   } // private float activationFunctionDerivative(float f)
+
+   /*
+    * Returns the number of units in a layer
+    */
+   public int getLayerSize(int alpha)
+   {
+      return this.LAYER_SIZES[alpha];
+   } // public int getLayerSize(int alpha)
+
+   /*
+    * Returns the kernel used for dot products and weight updates
+    */
+   public ABCDKernel getKernel()
+   {
+      return this.kernel;
+   } // public ABCDKernel getKernel()
+
+} // public class ABCDFloatModel
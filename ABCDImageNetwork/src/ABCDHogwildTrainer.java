@@ -0,0 +1,215 @@
+/*
+ * Lock-free asynchronous (Hogwild) trainer for an A-B-C-D network model.
+ *
+ * Author: Jack Hsieh
+ * Date of creation: November 11, 2021
+ */
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+
+/*
+ * Trains a shared model on several threads at once with per-member weight updates and no locks on the weights.
+ * Each thread has its own execution context (units, Thetas, Psis) and repeatedly claims the next member from a shared
+ * atomic counter: claim k is member (k % numMembers) of iteration (k / numMembers), so the members are visited in the same
+ * order as trainOnSet, just with several in flight. Each thread reads and writes the weights without synchronization,
+ * so an update can be computed with weights that another thread is changing. Hand-sign members are mostly zeros and the
+ * sparse input layer only updates the rows of non-zero inputs, so concurrent updates rarely touch the same weights.
+ *
+ * An iteration is complete once all its members are trained. Its set error is the largest of its members' errors, each
+ * taken before that member's update as in trainOnSet. Training stops once an iteration's set error is below the error
+ * threshold or maxIterations iterations are claimed. Results vary from run to run with thread timing.
+ */
+public class ABCDHogwildTrainer
+{
+   private final ABCDModel model;
+   private final int numThreads;
+
+   /*
+    * Shared training state, reset by train
+    */
+   private AtomicLong nextClaim;                      // The next member claim: member (k % numMembers) of iteration (k / numMembers)
+   private AtomicIntegerArray membersTrained;         // Number of members trained in each iteration (of size maxIterations)
+   private AtomicLongArray setErrorBits;              // Raw bits of each iteration's largest error. Non-negative doubles order like their bits.
+   private volatile boolean errorThresholdSatisfied;
+   private volatile boolean stopRequested;            // Set when the threshold is met or a thread fails
+
+   /*
+    * Results of the last call to train
+    */
+   private int numIterations;
+   private double maximumSetError;
+
+   /*
+    * Constructs a trainer for a shared model
+    *
+    * parameters: model is the model whose weights are trained, and numThreads is the number of training threads (at least 1)
+    */
+   public ABCDHogwildTrainer(ABCDModel model, int numThreads)
+   {
+      this.model = model;
+      this.numThreads = numThreads;
+
+      return;
+   } // public ABCDHogwildTrainer(ABCDModel model, int numThreads)
+
+   /*
+    * Trains the model on a training set with all threads until an iteration's set error is below the error threshold
+    * or maxIterations iterations are claimed
+    *
+    * parameters: inputSet and targetSet hold the training members, lambda is the learning rate, errorThreshold is the
+    *             largest set error to stop at, and maxIterations is the largest number of iterations over the set
+    * preconditions: each inputSet element corresponds with the targetSet element of the same index
+    * postconditions: the model's weights are trained and the threads have finished. getNumIterations and getMaximumSetError
+    *                 describe the completed iterations. If a thread throws, an IllegalStateException carrying its cause is thrown.
+    */
+   public void train(double[][] inputSet, double[][] targetSet, double lambda, double errorThreshold, int maxIterations)
+   {
+      int numMembers = inputSet.length;
+      long numClaims = (long) numMembers * maxIterations;
+
+      this.nextClaim = new AtomicLong(0);
+      this.membersTrained = new AtomicIntegerArray(maxIterations);
+      this.setErrorBits = new AtomicLongArray(maxIterations);
+      this.errorThresholdSatisfied = false;
+      this.stopRequested = false;
+
+      AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+      Thread[] threads = new Thread[this.numThreads];
+
+      for (int t = 0; t < this.numThreads; ++t)
+      {
+         threads[t] = new Thread(() ->
+         {
+            try
+            {
+               this.trainUntilDone(inputSet, targetSet, lambda, errorThreshold, numClaims);
+            } // try
+
+            catch (Throwable throwable)
+            {
+               failure.compareAndSet(null, throwable);
+               this.stopRequested = true;                      // Stops the other threads; the failure is reported below
+            } // catch (Throwable throwable)
+         }, "ABCDHogwildTrainer-" + t);
+
+         threads[t].start();
+      } // for (int t = 0; t < this.numThreads; ++t)
+
+      try
+      {
+         for (int t = 0; t < this.numThreads; ++t)
+         {
+            threads[t].join();
+         } // for (int t = 0; t < this.numThreads; ++t)
+      } // try
+
+      catch (InterruptedException interruptedException)
+      {
+         this.stopRequested = true;                            // Stop the threads
+         Thread.currentThread().interrupt();
+         throw (new IllegalStateException("Asynchronous training was interrupted."));
+      } // catch (InterruptedException interruptedException)
+
+      if (failure.get() != null)
+      {
+         throw (new IllegalStateException("Asynchronous training failed: " + failure.get(), failure.get()));
+      } // if (failure.get() != null)
+
+      this.summarize(numMembers, maxIterations);
+
+      return;
+   } // public void train(double[][] inputSet, double[][] targetSet, double lambda, double errorThreshold, int maxIterations)
+
+   /*
+    * Claims and trains members until training stops. Run by each thread.
+    *
+    * parameters: numClaims is the total number of member claims in maxIterations iterations; the rest are as in train
+    * postconditions: the thread's members are trained, and the iterations it completed are checked against the error threshold
+    */
+   private void trainUntilDone(double[][] inputSet, double[][] targetSet, double lambda, double errorThreshold, long numClaims)
+   {
+      ABCDExecutionContext context = this.model.newContext(true);    // This thread's units, Thetas, and Psis
+      int numMembers = inputSet.length;
+      long claim;
+
+      while (!this.stopRequested && (claim = this.nextClaim.getAndIncrement()) < numClaims)
+      {
+         int iteration = (int) (claim / numMembers);
+         int member = (int) (claim % numMembers);
+
+         this.model.train(context, inputSet[member], targetSet[member], lambda);
+
+         this.setErrorBits.getAndAccumulate(iteration, Double.doubleToRawLongBits(context.getError()), Math::max);
+
+         /*
+          * The thread that trains an iteration's last member checks the iteration's set error
+          */
+         if (this.membersTrained.incrementAndGet(iteration) == numMembers
+             && Double.longBitsToDouble(this.setErrorBits.get(iteration)) < errorThreshold)
+         {
+            this.errorThresholdSatisfied = true;
+            this.stopRequested = true;
+         } // if (this.membersTrained.incrementAndGet(iteration) == numMembers && ...)
+      } // while (!this.stopRequested && (claim = this.nextClaim.getAndIncrement()) < numClaims)
+
+      return;
+   } // private void trainUntilDone(double[][] inputSet, double[][] targetSet, double lambda, double errorThreshold, long numClaims)
+
+   /*
+    * Counts the completed iterations and finds the set error of the last one
+    *
+    * preconditions: all threads have finished
+    * postconditions: numIterations is the number of iterations with every member trained, and maximumSetError is the
+    *                 set error of the latest of them (0.0 if there are none)
+    */
+   private void summarize(int numMembers, int maxIterations)
+   {
+      this.numIterations = 0;
+      this.maximumSetError = 0.0;
+
+      for (int iteration = 0; iteration < maxIterations; ++iteration)
+      {
+         if (this.membersTrained.get(iteration) == numMembers)
+         {
+            ++this.numIterations;
+            this.maximumSetError = Double.longBitsToDouble(this.setErrorBits.get(iteration));
+         } // if (this.membersTrained.get(iteration) == numMembers)
+      } // for (int iteration = 0; iteration < maxIterations; ++iteration)
+
+      return;
+   } // private void summarize(int numMembers, int maxIterations)
+
+   /*
+    * Returns the number of iterations completed by the last call to train
+    *
+    * return: the number of iterations over the set with every member trained
+    */
+   public int getNumIterations()
+   {
+      return this.numIterations;
+   } // public int getNumIterations()
+
+   /*
+    * Returns the set error of the last completed iteration
+    *
+    * return: the largest member error of the latest completed iteration, or 0.0 if none completed
+    */
+   public double getMaximumSetError()
+   {
+      return this.maximumSetError;
+   } // public double getMaximumSetError()
+
+   /*
+    * Returns whether the last call to train stopped on the error threshold
+    *
+    * return: true if a completed iteration's set error was below the error threshold
+    */
+   public boolean isErrorThresholdSatisfied()
+   {
+      return this.errorThresholdSatisfied;
+   } // public boolean isErrorThresholdSatisfied()
+
+} // public class ABCDHogwildTrainer
@@ -0,0 +1,155 @@
+/*
+ * Decodes hand sign images (BMP, PNG, and the other formats ImageIO reads) directly into network inputs.
+ *
+ * Author: Jack Hsieh
+ * Date of creation: November 11, 2021
+ */
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.List;
+import javax.imageio.ImageIO;
+
+/*
+ * Replaces the out-of-band image to text conversion. An image becomes one input member in four steps:
+ *    1. Grayscale: each pixel's luma, round((299 R + 587 G + 114 B) / 1000), composited onto black by its alpha so the
+ *       transparent background of the background-removed PNGs reads as 0. Gray pixels (R = G = B) keep their value.
+ *    2. Crop: the largest centered region with the network's aspect ratio, so signs are not stretched.
+ *    3. Resize: each output pixel is the area-weighted mean of the source pixels it covers (a box filter). An image
+ *       already at the network's size is copied unchanged.
+ *    4. Normalize: the result is rounded to a whole gray level k and stored as k / 255.0, in [0, 1].
+ *
+ * Images already at the network's size therefore give exactly the values of the repository's converted text files, and
+ * every input is an 8-bit pixel, so image input sets can be packed into a dataset (see ABCDDatasetFile) without loss.
+ */
+public class ABCDImageFile
+{
+   public static final List<String> IMAGE_SUFFIXES = List.of(".bmp", ".png", ".gif", ".jpg", ".jpeg");   // Unmodifiable
+   public static final int PIXEL_MAX = 255;
+
+   /*
+    * Checks whether a file is an image by its suffix, ignoring case
+    *
+    * return: true if the filename ends in one of IMAGE_SUFFIXES
+    */
+   public static boolean isImage(File file)
+   {
+      String name = file.getName().toLowerCase();
+
+      for (String suffix : IMAGE_SUFFIXES)
+      {
+         if (name.endsWith(suffix))
+            return true;
+      } // for (String suffix : IMAGE_SUFFIXES)
+
+      return false;
+   } // public static boolean isImage(File file)
+
+   /*
+    * Reads an image into a preallocated input member
+    *
+    * parameters: imageFile is the image, imageWidth and imageHeight are the network's image shape, and inputMember is the
+    *             row to fill, of length imageWidth * imageHeight, in row-major order
+    * postconditions: inputMember holds the grayscale, cropped, resized, and normalized image.
+    *                 If the file does not exist, throws a FileNotFoundException naming it.
+    *                 If the file cannot be decoded, throws an IllegalArgumentException.
+    */
+   public static void read(File imageFile, int imageWidth, int imageHeight, double[] inputMember)
+                           throws FileNotFoundException, IllegalArgumentException
+   {
+      BufferedImage image;
+
+      if (!imageFile.isFile())
+      {
+         throw (new FileNotFoundException(imageFile.getPath() + " (No such file)"));
+      } // if (!imageFile.isFile())
+
+      try
+      {
+         image = ImageIO.read(imageFile);
+      } // try
+
+      catch (IOException ioException)
+      {
+         throw (new IllegalArgumentException("Invalid image file. " + ioException.getMessage()));
+      } // catch (IOException ioException)
+
+      if (image == null)
+      {
+         throw (new IllegalArgumentException("Invalid image file. The file is not in a format ImageIO can decode."));
+      } // if (image == null)
+
+      int sourceWidth = image.getWidth();
+      int sourceHeight = image.getHeight();
+
+      /*
+       * Centered crop with the network's aspect ratio
+       */
+      int cropWidth = sourceWidth;
+      int cropHeight = sourceHeight;
+
+      if ((long) sourceWidth * imageHeight > (long) sourceHeight * imageWidth)     // Wider than the network: trim the sides
+         cropWidth = Math.max(1, (int) Math.round((double) sourceHeight * imageWidth / imageHeight));
+      else                                                                         // Taller: trim the top and bottom
+         cropHeight = Math.max(1, (int) Math.round((double) sourceWidth * imageHeight / imageWidth));
+
+      int cropX = (sourceWidth - cropWidth) / 2;
+      int cropY = (sourceHeight - cropHeight) / 2;
+
+      int[] argb = image.getRGB(cropX, cropY, cropWidth, cropHeight, null, 0, cropWidth);
+      int[] gray = new int[argb.length];
+
+      for (int i = 0; i < argb.length; ++i)
+      {
+         int alpha = argb[i] >>> 24;
+         int luma = (299 * ((argb[i] >> 16) & 0xFF) + 587 * ((argb[i] >> 8) & 0xFF) + 114 * (argb[i] & 0xFF) + 500) / 1000;
+         gray[i] = (luma * alpha + PIXEL_MAX / 2) / PIXEL_MAX;
+      } // for (int i = 0; i < argb.length; ++i)
+
+      /*
+       * Box filter resize: rows first into columnsResized, then columns into the member
+       */
+      double[] columnsResized = new double[cropHeight * imageWidth];
+
+      for (int x = 0; x < imageWidth; ++x)
+      {
+         double low = (double) x * cropWidth / imageWidth;
+         double high = (double) (x + 1) * cropWidth / imageWidth;
+
+         for (int y = 0; y < cropHeight; ++y)
+         {
+            double sum = 0.0;
+
+            for (int sourceX = (int) low; sourceX < high; ++sourceX)
+            {
+               sum += gray[y * cropWidth + sourceX] * (Math.min(high, sourceX + 1) - Math.max(low, sourceX));
+            } // for (int sourceX = (int) low; sourceX < high; ++sourceX)
+
+            columnsResized[y * imageWidth + x] = sum / (high - low);
+         } // for (int y = 0; y < cropHeight; ++y)
+      } // for (int x = 0; x < imageWidth; ++x)
+
+      for (int y = 0; y < imageHeight; ++y)
+      {
+         double low = (double) y * cropHeight / imageHeight;
+         double high = (double) (y + 1) * cropHeight / imageHeight;
+
+         for (int x = 0; x < imageWidth; ++x)
+         {
+            double sum = 0.0;
+
+            for (int sourceY = (int) low; sourceY < high; ++sourceY)
+            {
+               sum += columnsResized[sourceY * imageWidth + x] * (Math.min(high, sourceY + 1) - Math.max(low, sourceY));
+            } // for (int sourceY = (int) low; sourceY < high; ++sourceY)
+
+            inputMember[y * imageWidth + x] = Math.round(sum / (high - low)) / (double) PIXEL_MAX;
+         } // for (int x = 0; x < imageWidth; ++x)
+      } // for (int y = 0; y < imageHeight; ++y)
+
+      return;
+   } // public static void read(File imageFile, int imageWidth, int imageHeight, double[] inputMember)
+
+} // public class ABCDImageFile
@@ -0,0 +1,146 @@
+/*
+ * Numerical kernels shared by the A-B-C-D network's forward and backward passes.
+ *
+ * Author: Jack Hsieh
+ * Date of creation: November 11, 2021
+ */
+
+/*
+ * Defines the inner loops the network spends nearly all of its time in. Every operation works on a contiguous
+ * run of a flat weights buffer, so an implementation is free to vectorize it.
+ *
+ * ABCDScalarKernel is the reference implementation. ABCDVectorKernel uses the JDK Vector API and is only
+ * selected when the jdk.incubator.vector module is present at runtime.
+ */
+public interface ABCDKernel
+{
+   /*
+    * Module and class names of the optional Vector API kernel
+    */
+   String VECTOR_MODULE_NAME = "jdk.incubator.vector";
+   String VECTOR_KERNEL_CLASS_NAME = "ABCDVectorKernel";
+
+   /*
+    * Computes the dot product of a weight row and a layer of units
+    *
+    * parameters: w is the weights buffer, wOffset is the start of the weight row,
+    *             x is the layer of units, and length is the number of units to use
+    * preconditions: w has at least (wOffset + length) elements and x has at least length elements
+    * return: the sum of w[wOffset + n] * x[n] for n in [0, length)
+    */
+   double dotProduct(double[] w, int wOffset, double[] x, int length);
+
+   /*
+    * Computes a 2 x 2 tile of dot products: two weight rows against two layers of units
+    * Each weight and unit loaded is used twice, so a block of members streams the weights at half the cost of dotProduct.
+    *
+    * parameters: w is the weights buffer, wOffset0 and wOffset1 are the starts of the two weight rows,
+    *             x0 and x1 are the two layers of units, length is the number of units to use, and tile receives the results
+    * preconditions: both weight rows and both layers have at least length elements, and tile has at least 4 elements
+    * postconditions: tile holds (row 0 . x0, row 0 . x1, row 1 . x0, row 1 . x1), each identical to the corresponding dotProduct
+    */
+   void dotProductTile(double[] w, int wOffset0, int wOffset1, double[] x0, double[] x1, int length, double[] tile);
+
+   /*
+    * Computes the dot product of a weight row and a sparse layer of units given as its non-zero entries
+    *
+    * parameters: w is the weights buffer, wOffset is the start of the weight row, indices and values hold the
+    *             unit indices and values of the layer's non-zero units in ascending index order, and count is the number of them
+    * preconditions: indices and values have at least count elements and every index is within the weight row
+    * return: the sum of w[wOffset + indices[n]] * values[n] for n in [0, count)
+    */
+   double sparseDotProduct(double[] w, int wOffset, int[] indices, double[] values, int count);
+
+   /*
+    * Accumulates a scaled weight row into an array
+    *
+    * parameters: y is the accumulator, x is the weights buffer, xOffset is the start of the weight row,
+    *             scale is the factor applied to every weight, and length is the number of elements to accumulate
+    * preconditions: y has at least length elements and x has at least (xOffset + length) elements
+    * postconditions: y[n] is increased by scale * x[xOffset + n] for n in [0, length)
+    */
+   void accumulateScaled(double[] y, double[] x, int xOffset, double scale, int length);
+
+   /*
+    * Applies a rank-1 weight update to one weight row
+    *
+    * parameters: w is the weights buffer, wOffset is the start of the weight row, x is the layer of source units,
+    *             lambda is the learning rate, psi is the destination unit's psi, and length is the number of weights to update
+    * preconditions: w has at least (wOffset + length) elements and x has at least length elements
+    * postconditions: w[wOffset + n] is increased by lambda * x[n] * psi for n in [0, length)
+    */
+   void updateRow(double[] w, int wOffset, double[] x, double lambda, double psi, int length);
+
+   /*
+    * Applies a rank-1 weight update to the weights of one row whose source units are non-zero
+    *
+    * parameters: w is the weights buffer, wOffset is the start of the weight row, indices and values hold the
+    *             unit indices and values of the source layer's non-zero units, lambda is the learning rate,
+    *             psi is the destination unit's psi, and count is the number of non-zero units
+    * preconditions: indices are distinct and within the weight row, and indices and values have at least count elements
+    * postconditions: w[wOffset + indices[n]] is increased by lambda * values[n] * psi for n in [0, count).
+    *                 The skipped weights would have been increased by zero, so the row matches updateRow over the dense layer.
+    */
+   void sparseUpdateRow(double[] w, int wOffset, int[] indices, double[] values, double lambda, double psi, int count);
+
+   /*
+    * Single-precision versions of the kernels, used by ABCDFloatModel
+    * Each computes the same sum or update as its double version in float arithmetic; the vector kernel fits twice as many
+    * float lanes as double lanes in a register.
+    */
+   float dotProduct(float[] w, int wOffset, float[] x, int length);
+
+   float sparseDotProduct(float[] w, int wOffset, int[] indices, float[] values, int count);
+
+   void accumulateScaled(float[] y, float[] x, int xOffset, float scale, int length);
+
+   void updateRow(float[] w, int wOffset, float[] x, float lambda, float psi, int length);
+
+   void sparseUpdateRow(float[] w, int wOffset, int[] indices, float[] values, float lambda, float psi, int count);
+
+   /*
+    * Kernels for the signed 8-bit weights of ABCDQuantizedModel
+    *
+    * accumulateScaled(int[], ...) adds scale * x[xOffset + n] to y[n] for n in [0, length), reading the weights as signed.
+    * The quantized input layer is stored source-major, so this adds one pixel's weights into every first hidden unit's
+    * integer sum. sparseAccumulateScaled does the same for the count non-zero pixels, adding values[k] times the column
+    * at indices[k] * length for k in [0, count). The sums are exact in int32 for up to 2^31 / (128 * 255), about 65000,
+    * inputs, so the order of accumulation does not matter.
+    *
+    * dotProduct(byte[], ...) is the dot product of an int8 weight row and a layer of double units, used on the hidden layers.
+    */
+   void accumulateScaled(int[] y, byte[] x, int xOffset, int scale, int length);
+
+   void sparseAccumulateScaled(int[] y, byte[] x, int[] indices, int[] values, int count, int length);
+
+   double dotProduct(byte[] w, int wOffset, double[] x, int length);
+
+   /*
+    * Selects the fastest kernel available in the running JVM
+    *
+    * return: an ABCDVectorKernel if the Vector API module is resolved and the class loads, otherwise an ABCDScalarKernel
+    */
+   static ABCDKernel getDefaultKernel()
+   {
+      ABCDKernel kernel = new ABCDScalarKernel();
+
+      /*
+       * Only touch the vector kernel class when its module is resolved, since loading it otherwise fails to link
+       */
+      if (ModuleLayer.boot().findModule(VECTOR_MODULE_NAME).isPresent())
+      {
+         try
+         {
+            kernel = (ABCDKernel) Class.forName(VECTOR_KERNEL_CLASS_NAME).getDeclaredConstructor().newInstance();
+         } // try
+
+         catch (ReflectiveOperationException | LinkageError exception)   // If the vector kernel was not compiled in, keep the scalar kernel
+         {
+            kernel = new ABCDScalarKernel();
+         } // catch (ReflectiveOperationException | LinkageError exception)
+      } // if (ModuleLayer.boot().findModule(VECTOR_MODULE_NAME).isPresent())
+
+      return kernel;
+   } // static ABCDKernel getDefaultKernel()
+
+} // public interface ABCDKernel
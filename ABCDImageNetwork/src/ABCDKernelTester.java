@@ -0,0 +1,795 @@
+/*
+ * Tester for the A-B-C-D network kernels and the execution and training engines built on them
+ *
+ * Author: Jack Hsieh
+ * Date of creation: November 11, 2021
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+/*
+ * Suite for checking that the network kernels, and the ways the network executes and trains with them, agree with the
+ * scalar reference kernel and the plain per-member loops.
+ *
+ * With no command line arguments, compares the default kernel against ABCDScalarKernel on random dense and sparse rows
+ * of assorted lengths, including the 5625-unit input layer. If a network configuration filename and a super input
+ * filename are given as the first and second arguments, also runs that network on the input set with both kernels, on
+ * sparse inputs, from several threads sharing one model, in parallel, and in blocks, and compares the outputs. If a
+ * target set filename is given as the third argument, also checks mini-batch, data-parallel, and asynchronous training.
+ *
+ * The network tests never touch the given configuration's own weights output file: main runs them on a temporary copy
+ * of the configuration (see testConfiguration) that trains at most TEST_ITERATIONS iterations and saves its weights only
+ * at the end, to a temporary file. The file formats, datasets, precisions, and activations are tested by
+ * ABCDFeatureTester, which takes the same arguments.
+ *
+ * Run with "--add-modules jdk.incubator.vector" to exercise the Vector API kernel.
+ */
+public class ABCDKernelTester
+{
+   /*
+    * Largest allowed difference between kernels, relative to the magnitude of the reference result
+    */
+   static double TOLERANCE = 1.0e-9;
+
+   /*
+    * Row lengths tested: short rows that are all tail, rows around common vector widths, and the network's layer sizes
+    */
+   private static int[] ROW_LENGTHS = {1, 3, 4, 5, 7, 8, 9, 16, 25, 31, 50, 200, 5625};
+
+   /*
+    * Number of random rows compared per length
+    */
+   private static int NUM_TRIALS = 20;
+
+   /*
+    * Training iterations allowed for the network tests, which run on a copy of the given configuration file with this
+    * maxIterations so a full run takes minutes instead of training every network to the configured limit
+    */
+   static int TEST_ITERATIONS = 200;
+
+   private static Random random = new Random(2021);
+
+   /*
+    * Writes a temporary copy of a network configuration file with some entries replaced
+    *
+    * parameters: networkConfigurationFile is the file to copy, and entries are "label:value" lines. Each replaces the line
+    *             with the same label, or, if the file has no such line, is inserted after the line of the entry before it
+    *             (after the LAYER_SIZES line for the first entry). So optional entries are given after the entry they follow,
+    *             as in "maxIterations:200", "batchSize:4", "numTrainingThreads:3".
+    * return: the copy, deleted when the tester exits
+    */
+   static File configurationWith(File networkConfigurationFile, String... entries) throws IOException
+   {
+      List<String> lines = new ArrayList<String>(Files.readAllLines(networkConfigurationFile.toPath()));
+      int previousLine = 0;
+
+      for (String entry : entries)
+      {
+         String label = entry.substring(0, entry.indexOf(':') + 1);
+         int entryLine = -1;
+
+         for (int line = 0; line < lines.size(); ++line)
+         {
+            if (lines.get(line).startsWith(label))
+            {
+               lines.set(line, entry);
+               entryLine = line;
+            } // if (lines.get(line).startsWith(label))
+         } // for (int line = 0; line < lines.size(); ++line)
+
+         if (entryLine < 0)
+         {
+            entryLine = previousLine + 1;
+            lines.add(entryLine, entry);
+         } // if (entryLine < 0)
+
+         previousLine = entryLine;
+      } // for (String entry : entries)
+
+      File copy = File.createTempFile("ABCDConfiguration", ".txt");
+      copy.deleteOnExit();
+      Files.write(copy.toPath(), String.join("\n", lines).getBytes());
+
+      return copy;
+   } // static File configurationWith(File networkConfigurationFile, String... entries)
+
+   /*
+    * Writes a temporary copy of a network configuration file that loads a network's current weights instead of
+    * randomizing, so networks built from different configurations start from the same weights
+    *
+    * parameters: network holds the weights, and entries are further entries as in configurationWith
+    * return: the copy; it and the saved binary weights file are deleted when the tester exits
+    */
+   static File configurationWithWeightsOf(ABCDNetwork network, File networkConfigurationFile, String... entries) throws IOException
+   {
+      File weightsFile = File.createTempFile("ABCDSharedWeights", ABCDWeightsFile.BINARY_EXTENSION);
+      weightsFile.deleteOnExit();
+      network.saveWeights(weightsFile);
+
+      String[] allEntries = Arrays.copyOf(entries, entries.length + 2);
+      allEntries[entries.length] = "randomizeWeights:false";
+      allEntries[entries.length + 1] = "weightsInputFilename:" + weightsFile.getPath();
+
+      return ABCDKernelTester.configurationWith(networkConfigurationFile, allEntries);
+   } // static File configurationWithWeightsOf(ABCDNetwork network, File networkConfigurationFile, String... entries)
+
+   /*
+    * Writes the temporary copy of a network configuration file that the network tests of both testers run on
+    *
+    * return: the copy, which trains at most TEST_ITERATIONS iterations, never saves weights during training, and saves
+    *         them at the end to a temporary file instead of the configured weights output file; both are deleted when
+    *         the tester exits
+    */
+   static File testConfiguration(File networkConfigurationFile) throws IOException
+   {
+      File weightsOutputFile = File.createTempFile("ABCDTesterWeights", ".txt");
+      weightsOutputFile.deleteOnExit();
+
+      return ABCDKernelTester.configurationWith(networkConfigurationFile, "maxIterations:" + TEST_ITERATIONS, "saveWeightsEvery:0",
+                                                "weightsOutputFilename:" + weightsOutputFile.getPath());
+   } // static File testConfiguration(File networkConfigurationFile)
+
+   /*
+    * Returns an array of random doubles in the interval [-1, 1)
+    */
+   private static double[] randomArray(int length)
+   {
+      double[] array = new double[length];
+
+      for (int n = 0; n < length; ++n)
+      {
+         array[n] = 2.0 * random.nextDouble() - 1.0;
+      } // for (int n = 0; n < length; ++n)
+
+      return array;
+   } // private static double[] randomArray(int length)
+
+   /*
+    * Returns an array of random doubles in the interval [-1, 1) where about zeroFraction of the elements are exactly 0.0
+    */
+   private static double[] randomSparseArray(int length, double zeroFraction)
+   {
+      double[] array = randomArray(length);
+
+      for (int n = 0; n < length; ++n)
+      {
+         if (random.nextDouble() < zeroFraction)
+         {
+            array[n] = 0.0;
+         } // if (random.nextDouble() < zeroFraction)
+      } // for (int n = 0; n < length; ++n)
+
+      return array;
+   } // private static double[] randomSparseArray(int length, double zeroFraction)
+
+   /*
+    * Returns the largest element-wise difference between two arrays
+    */
+   static double maxDifference(double[] expected, double[] actual)
+   {
+      double maximum = 0.0;
+
+      for (int n = 0; n < expected.length; ++n)
+      {
+         maximum = Math.max(maximum, Math.abs(expected[n] - actual[n]));
+      } // for (int n = 0; n < expected.length; ++n)
+
+      return maximum;
+   } // static double maxDifference(double[] expected, double[] actual)
+
+   /*
+    * Compares every kernel operation of a candidate kernel against the reference kernel on random rows
+    *
+    * parameters: reference is the kernel assumed correct, candidate is the kernel under test
+    * return: true if every comparison was within TOLERANCE
+    */
+   public static boolean testKernelEquivalence(ABCDKernel reference, ABCDKernel candidate)
+   {
+      boolean passed = true;
+
+      for (int length : ROW_LENGTHS)
+      {
+         double worstDot = 0.0;
+         double worstAccumulate = 0.0;
+         double worstUpdate = 0.0;
+         boolean tileExact = true;
+
+         for (int trial = 0; trial < NUM_TRIALS; ++trial)
+         {
+            /*
+             * Offset the row inside a larger buffer, as the network does
+             */
+            int offset = random.nextInt(8);
+            double[] w = randomArray(offset + length);
+            double[] x = randomArray(length);
+            double scale = random.nextDouble();
+
+            /*
+             * Dot product
+             */
+            double expectedDot = reference.dotProduct(w, offset, x, length);
+            double actualDot = candidate.dotProduct(w, offset, x, length);
+            worstDot = Math.max(worstDot, Math.abs(expectedDot - actualDot) / Math.max(1.0, Math.abs(expectedDot)));
+
+            /*
+             * 2 x 2 tile: each kernel's tile must reproduce its own dot products exactly
+             */
+            double[] w1 = randomArray(length);
+            double[] x1 = randomArray(length);
+            double[] wTile = new double[offset + 2 * length];
+            System.arraycopy(w, offset, wTile, offset, length);
+            System.arraycopy(w1, 0, wTile, offset + length, length);
+
+            for (ABCDKernel kernel : new ABCDKernel[] {reference, candidate})
+            {
+               double[] tile = new double[4];
+               kernel.dotProductTile(wTile, offset, offset + length, x, x1, length, tile);
+
+               tileExact = tileExact && (tile[0] == kernel.dotProduct(wTile, offset, x, length))
+                                     && (tile[1] == kernel.dotProduct(wTile, offset, x1, length))
+                                     && (tile[2] == kernel.dotProduct(wTile, offset + length, x, length))
+                                     && (tile[3] == kernel.dotProduct(wTile, offset + length, x1, length));
+            } // for (ABCDKernel kernel : new ABCDKernel[] {reference, candidate})
+
+            /*
+             * Scaled accumulation
+             */
+            double[] expectedY = randomArray(length);
+            double[] actualY = expectedY.clone();
+            reference.accumulateScaled(expectedY, w, offset, scale, length);
+            candidate.accumulateScaled(actualY, w, offset, scale, length);
+            worstAccumulate = Math.max(worstAccumulate, maxDifference(expectedY, actualY));
+
+            /*
+             * Rank-1 row update
+             */
+            double[] expectedW = w.clone();
+            double[] actualW = w.clone();
+            reference.updateRow(expectedW, offset, x, 0.1, scale, length);
+            candidate.updateRow(actualW, offset, x, 0.1, scale, length);
+            worstUpdate = Math.max(worstUpdate, maxDifference(expectedW, actualW));
+         } // for (int trial = 0; trial < NUM_TRIALS; ++trial)
+
+         boolean lengthPassed = (worstDot <= TOLERANCE && worstAccumulate <= TOLERANCE && worstUpdate <= TOLERANCE && tileExact);
+         passed = passed && lengthPassed;
+
+         System.out.println((lengthPassed ? "PASS" : "FAIL") + " length " + length + ": dotProduct " + worstDot
+               + ", accumulateScaled " + worstAccumulate + ", updateRow " + worstUpdate + ", dotProductTile exact " + tileExact);
+      } // for (int length : ROW_LENGTHS)
+
+      return passed;
+   } // public static boolean testKernelEquivalence(ABCDKernel reference, ABCDKernel candidate)
+
+   /*
+    * Checks the sparse dot product of a kernel against the reference kernel's dense dot product on background-heavy rows
+    * The reference kernel's sparse dot product must match its dense dot product exactly.
+    *
+    * parameters: reference is the kernel assumed correct, candidate is the kernel under test
+    * return: true if the reference matched exactly and the candidate was within TOLERANCE
+    */
+   public static boolean testSparseEquivalence(ABCDKernel reference, ABCDKernel candidate)
+   {
+      boolean passed = true;
+
+      for (int length : ROW_LENGTHS)
+      {
+         boolean referenceExact = true;
+         double worstCandidate = 0.0;
+         double worstUpdate = 0.0;
+
+         for (int trial = 0; trial < NUM_TRIALS; ++trial)
+         {
+            int offset = random.nextInt(8);
+            double[] w = randomArray(offset + length);
+            double[] x = randomSparseArray(length, 0.7);
+
+            /*
+             * Compress the row into its non-zero indices and values
+             */
+            int[] indices = new int[length];
+            double[] values = new double[length];
+            int count = 0;
+
+            for (int n = 0; n < length; ++n)
+            {
+               if (x[n] != 0.0)
+               {
+                  indices[count] = n;
+                  values[count] = x[n];
+                  ++count;
+               } // if (x[n] != 0.0)
+            } // for (int n = 0; n < length; ++n)
+
+            double expected = reference.dotProduct(w, offset, x, length);
+
+            referenceExact = referenceExact && (reference.sparseDotProduct(w, offset, indices, values, count) == expected);
+
+            double actual = candidate.sparseDotProduct(w, offset, indices, values, count);
+            worstCandidate = Math.max(worstCandidate, Math.abs(expected - actual) / Math.max(1.0, Math.abs(expected)));
+
+            /*
+             * Sparse row updates must leave the row exactly as a dense update does
+             */
+            double[] expectedW = w.clone();
+            double[] referenceW = w.clone();
+            double[] actualW = w.clone();
+            reference.updateRow(expectedW, offset, x, 0.1, 0.5, length);
+            reference.sparseUpdateRow(referenceW, offset, indices, values, 0.1, 0.5, count);
+            candidate.sparseUpdateRow(actualW, offset, indices, values, 0.1, 0.5, count);
+
+            referenceExact = referenceExact && (maxDifference(expectedW, referenceW) == 0.0);
+            worstUpdate = Math.max(worstUpdate, maxDifference(expectedW, actualW));
+         } // for (int trial = 0; trial < NUM_TRIALS; ++trial)
+
+         boolean lengthPassed = referenceExact && worstCandidate <= TOLERANCE && worstUpdate <= TOLERANCE;
+         passed = passed && lengthPassed;
+
+         System.out.println((lengthPassed ? "PASS" : "FAIL") + " sparse length " + length + ": reference exact " + referenceExact
+               + ", candidate sparseDotProduct " + worstCandidate + ", sparseUpdateRow " + worstUpdate);
+      } // for (int length : ROW_LENGTHS)
+
+      return passed;
+   } // public static boolean testSparseEquivalence(ABCDKernel reference, ABCDKernel candidate)
+
+   /*
+    * Runs a network on an input set with dense and compressed input layers using the reference kernel,
+    * then trains two copies of the network on each member once, one with each input layer, and compares their weights
+    *
+    * parameters: networkConfigurationFile and inputSetFile identify the network and the super input file to run it on
+    * preconditions: the network configuration allocates for training
+    * return: true if the outputs and the trained weights were identical
+    */
+   public static boolean testSparseNetworkEquivalence(ABCDKernel reference, File networkConfigurationFile, File inputSetFile) throws Exception
+   {
+      ABCDNetwork network = new ABCDNetwork(networkConfigurationFile);
+      double[][] inputSet = network.extractInputSetFromSuperFile(inputSetFile);
+
+      network.setKernel(reference);
+
+      network.setUseSparseInputs(false);
+      double[][] denseOutputs = network.runOnSet(inputSet);
+
+      network.setUseSparseInputs(true);
+      double[][] sparseOutputs = network.runOnSet(inputSet);
+
+      double worst = 0.0;
+
+      for (int member = 0; member < inputSet.length; ++member)
+      {
+         worst = Math.max(worst, maxDifference(denseOutputs[member], sparseOutputs[member]));
+      } // for (int member = 0; member < inputSet.length; ++member)
+
+      /*
+       * Train a dense and a sparse copy with identical starting weights
+       */
+      ABCDNetwork sparseNetwork = new ABCDNetwork(networkConfigurationFile);
+      System.arraycopy(network.getWeights(), 0, sparseNetwork.getWeights(), 0, network.getWeights().length);
+
+      sparseNetwork.setKernel(reference);
+      network.setUseSparseInputs(false);
+      sparseNetwork.setUseSparseInputs(true);
+
+      for (int member = 0; member < inputSet.length; ++member)
+      {
+         network.trainOnMember(inputSet[member], denseOutputs[member]);
+         sparseNetwork.trainOnMember(inputSet[member], denseOutputs[member]);
+      } // for (int member = 0; member < inputSet.length; ++member)
+
+      double worstWeight = maxDifference(network.getWeights(), sparseNetwork.getWeights());
+
+      boolean passed = (worst == 0.0 && worstWeight == 0.0);
+      System.out.println((passed ? "PASS" : "FAIL") + " sparse network on " + inputSet.length + " members: outputs " + worst
+            + ", trained weights " + worstWeight);
+
+      return passed;
+   } // public static boolean testSparseNetworkEquivalence(ABCDKernel reference, File networkConfigurationFile, File inputSetFile)
+
+   /*
+    * Runs a network on an input set with the reference and candidate kernels and compares the outputs
+    *
+    * parameters: networkConfigurationFile and inputSetFile identify the network and the super input file to run it on
+    * return: true if every output differed by at most TOLERANCE
+    */
+   public static boolean testNetworkEquivalence(ABCDKernel reference, ABCDKernel candidate,
+                                                File networkConfigurationFile, File inputSetFile) throws Exception
+   {
+      ABCDNetwork network = new ABCDNetwork(networkConfigurationFile);
+      double[][] inputSet = network.extractInputSetFromSuperFile(inputSetFile);
+
+      network.setKernel(reference);
+      double[][] expectedOutputs = network.runOnSet(inputSet);
+
+      network.setKernel(candidate);
+      double[][] actualOutputs = network.runOnSet(inputSet);
+
+      double worst = 0.0;
+
+      for (int member = 0; member < inputSet.length; ++member)
+      {
+         worst = Math.max(worst, maxDifference(expectedOutputs[member], actualOutputs[member]));
+      } // for (int member = 0; member < inputSet.length; ++member)
+
+      boolean passed = (worst <= TOLERANCE);
+      System.out.println((passed ? "PASS" : "FAIL") + " network outputs on " + inputSet.length + " members: " + worst);
+
+      return passed;
+   } // public static boolean testNetworkEquivalence(...)
+
+   /*
+    * Checks that several threads sharing one model, each with its own execution context,
+    * reproduce the outputs of running the members one at a time
+    *
+    * parameters: numThreads is the number of concurrent threads, each running the whole input set several times
+    * return: true if every thread's outputs exactly match the serial outputs
+    */
+   public static boolean testConcurrentModel(int numThreads, File networkConfigurationFile, File inputSetFile) throws Exception
+   {
+      ABCDNetwork network = new ABCDNetwork(networkConfigurationFile);
+      double[][] inputSet = network.extractInputSetFromSuperFile(inputSetFile);
+      double[][] expectedOutputs = new double[inputSet.length][];
+
+      for (int member = 0; member < inputSet.length; ++member)
+      {
+         expectedOutputs[member] = network.runOnMember(inputSet[member]).clone();
+      } // for (int member = 0; member < inputSet.length; ++member)
+
+      ABCDModel model = network.getModel();
+      Thread[] threads = new Thread[numThreads];
+      boolean[] threadPassed = new boolean[numThreads];
+
+      for (int t = 0; t < numThreads; ++t)
+      {
+         int threadIndex = t;
+
+         threads[t] = new Thread(() ->
+         {
+            ABCDExecutionContext context = model.newContext(false);
+            boolean matches = true;
+
+            for (int pass = 0; pass < NUM_TRIALS; ++pass)
+            {
+               for (int member = 0; member < inputSet.length; ++member)
+               {
+                  int index = (member + threadIndex) % inputSet.length;   // Stagger the members so threads are out of step
+                  matches = matches && (maxDifference(expectedOutputs[index], model.run(context, inputSet[index])) == 0.0);
+               } // for (int member = 0; member < inputSet.length; ++member)
+            } // for (int pass = 0; pass < NUM_TRIALS; ++pass)
+
+            threadPassed[threadIndex] = matches;
+         });
+
+         threads[t].start();
+      } // for (int t = 0; t < numThreads; ++t)
+
+      boolean passed = true;
+
+      for (int t = 0; t < numThreads; ++t)
+      {
+         threads[t].join();
+         passed = passed && threadPassed[t];
+      } // for (int t = 0; t < numThreads; ++t)
+
+      System.out.println((passed ? "PASS" : "FAIL") + " shared model on " + numThreads + " threads");
+
+      return passed;
+   } // public static boolean testConcurrentModel(int numThreads, File networkConfigurationFile, File inputSetFile)
+
+   /*
+    * Checks that runOnSetInParallel reproduces runOnSet exactly and in order, and prints both times
+    *
+    * parameters: numWorkers is the parallelism of the fork-join pool to run on
+    * return: true if every member's parallel outputs exactly match the serial outputs
+    */
+   public static boolean testParallelRunOnSet(int numWorkers, File networkConfigurationFile, File inputSetFile) throws Exception
+   {
+      ABCDNetwork network = new ABCDNetwork(networkConfigurationFile);
+      double[][] inputSet = network.extractInputSetFromSuperFile(inputSetFile);
+      ForkJoinPool pool = new ForkJoinPool(numWorkers);
+
+      network.setRunPool(pool);
+
+      long timeBefore = System.nanoTime();
+      double[][] expectedOutputs = network.runOnSet(inputSet);
+      long serialNanos = System.nanoTime() - timeBefore;
+
+      timeBefore = System.nanoTime();
+      double[][] actualOutputs = network.runOnSetInParallel(inputSet);
+      long parallelNanos = System.nanoTime() - timeBefore;
+
+      pool.shutdown();
+
+      boolean passed = (expectedOutputs.length == actualOutputs.length);
+
+      for (int member = 0; passed && member < inputSet.length; ++member)
+      {
+         passed = (maxDifference(expectedOutputs[member], actualOutputs[member]) == 0.0);
+      } // for (int member = 0; passed && member < inputSet.length; ++member)
+
+      System.out.println((passed ? "PASS" : "FAIL") + " parallel runOnSet on " + numWorkers + " workers: serial "
+                         + serialNanos/1000 + " us, parallel " + parallelNanos/1000 + " us");
+
+      return passed;
+   } // public static boolean testParallelRunOnSet(int numWorkers, File networkConfigurationFile, File inputSetFile)
+
+   /*
+    * Checks that running an input set in blocks reproduces running each member on its own, for several block sizes,
+    * and prints the time of each block size
+    *
+    * parameters: reference is the kernel to run with; with the scalar kernel the outputs must match exactly
+    * return: true if every block size's outputs are within TOLERANCE of the per-member outputs (exact for the scalar kernel)
+    */
+   public static boolean testBlockedRunOnSet(ABCDKernel reference, File networkConfigurationFile, File inputSetFile) throws Exception
+   {
+      ABCDNetwork network = new ABCDNetwork(networkConfigurationFile);
+      double[][] inputSet = network.extractInputSetFromSuperFile(inputSetFile);
+      double[][] expectedOutputs = new double[inputSet.length][];
+      double tolerance = (reference instanceof ABCDScalarKernel) ? 0.0 : TOLERANCE;
+
+      network.setKernel(reference);
+
+      long timeBefore = System.nanoTime();
+
+      for (int member = 0; member < inputSet.length; ++member)
+      {
+         expectedOutputs[member] = network.runOnMember(inputSet[member]).clone();
+      } // for (int member = 0; member < inputSet.length; ++member)
+
+      String timings = "per member " + (System.nanoTime() - timeBefore)/1000 + " us";
+      boolean passed = true;
+
+      for (int blockSize : new int[] {1, 2, 3, 5, 8, 16})
+      {
+         network.setRunBlockSize(blockSize);
+
+         timeBefore = System.nanoTime();
+         double[][] actualOutputs = network.runOnSet(inputSet);
+         timings += ", B=" + blockSize + " " + (System.nanoTime() - timeBefore)/1000 + " us";
+
+         for (int member = 0; member < inputSet.length; ++member)
+         {
+            passed = passed && (maxDifference(expectedOutputs[member], actualOutputs[member]) <= tolerance);
+         } // for (int member = 0; member < inputSet.length; ++member)
+      } // for (int blockSize : new int[] {1, 2, 3, 5, 8, 16})
+
+      System.out.println((passed ? "PASS" : "FAIL") + " blocked runOnSet on " + inputSet.length + " members: " + timings);
+
+      return passed;
+   } // public static boolean testBlockedRunOnSet(ABCDKernel reference, File networkConfigurationFile, File inputSetFile)
+
+   /*
+    * Checks that a mini-batch update equals the sum of the members' individual weight changes from the same starting weights
+    *
+    * parameters: batchSize is the number of members in the batch (at most the number of members in the input set)
+    * return: true if the batch's weight changes are within TOLERANCE of the summed individual weight changes
+    */
+   public static boolean testBatchTraining(int batchSize, File networkConfigurationFile, File inputSetFile, File targetSetFile) throws Exception
+   {
+      ABCDNetwork network = new ABCDNetwork(networkConfigurationFile);
+      double[][] inputSet = network.extractInputSetFromSuperFile(inputSetFile);
+      double[][] targetSet = network.extractTargetSetFromFile(targetSetFile);
+      ABCDModel model = network.getModel();
+      double[] w = model.getWeights();
+      double[] startingWeights = w.clone();
+      double[] summedChanges = new double[w.length];
+      double lambda = 0.1;
+
+      /*
+       * Each member's individual weight change from the starting weights
+       */
+      ABCDExecutionContext context = model.newContext(true);
+
+      for (int member = 0; member < batchSize; ++member)
+      {
+         System.arraycopy(startingWeights, 0, w, 0, w.length);
+         model.train(context, inputSet[member], targetSet[member], lambda);
+
+         for (int index = 0; index < w.length; ++index)
+         {
+            summedChanges[index] += w[index] - startingWeights[index];
+         } // for (int index = 0; index < w.length; ++index)
+      } // for (int member = 0; member < batchSize; ++member)
+
+      /*
+       * The batch's weight change from the same starting weights
+       */
+      ABCDExecutionContext[] contexts = new ABCDExecutionContext[batchSize];
+
+      for (int b = 0; b < batchSize; ++b)
+      {
+         contexts[b] = model.newContext(true);
+      } // for (int b = 0; b < batchSize; ++b)
+
+      System.arraycopy(startingWeights, 0, w, 0, w.length);
+      model.trainOnBatch(contexts, inputSet, targetSet, 0, batchSize, lambda);
+
+      double worst = 0.0;
+
+      for (int index = 0; index < w.length; ++index)
+      {
+         worst = Math.max(worst, Math.abs((w[index] - startingWeights[index]) - summedChanges[index]));
+      } // for (int index = 0; index < w.length; ++index)
+
+      boolean passed = (worst <= TOLERANCE);
+      System.out.println((passed ? "PASS" : "FAIL") + " mini-batch of " + batchSize + " members: " + worst);
+
+      return passed;
+   } // public static boolean testBatchTraining(int batchSize, File networkConfigurationFile, File inputSetFile, File targetSetFile)
+
+   /*
+    * Checks that data-parallel training of a mini-batch matches single-threaded mini-batch training and is repeatable
+    *
+    * parameters: numWorkers is the number of workers, and batchSize is the number of members in the batch
+    *             (at most the number of members in the input set)
+    * return: true if the parallel weights are within TOLERANCE of the single-threaded weights and every parallel run,
+    *         including one after the trainer is shut down, agrees exactly
+    */
+   public static boolean testParallelTraining(int numWorkers, int batchSize, File networkConfigurationFile, File inputSetFile, File targetSetFile) throws Exception
+   {
+      ABCDNetwork network = new ABCDNetwork(networkConfigurationFile);
+      double[][] inputSet = network.extractInputSetFromSuperFile(inputSetFile);
+      double[][] targetSet = network.extractTargetSetFromFile(targetSetFile);
+      ABCDModel model = network.getModel();
+      double[] w = model.getWeights();
+      double[] startingWeights = w.clone();
+      double lambda = 0.1;
+
+      /*
+       * Single-threaded mini-batch weights
+       */
+      ABCDExecutionContext[] contexts = new ABCDExecutionContext[batchSize];
+
+      for (int b = 0; b < batchSize; ++b)
+      {
+         contexts[b] = model.newContext(true);
+      } // for (int b = 0; b < batchSize; ++b)
+
+      model.trainOnBatch(contexts, inputSet, targetSet, 0, batchSize, lambda);
+      double[] serialWeights = w.clone();
+
+      /*
+       * Three parallel runs from the same starting weights, the last after the trainer's pool is shut down and restarted
+       */
+      ABCDParallelTrainer trainer = new ABCDParallelTrainer(model, numWorkers, batchSize);
+
+      System.arraycopy(startingWeights, 0, w, 0, w.length);
+      trainer.trainOnBatch(model, inputSet, targetSet, 0, batchSize, lambda);
+      double[] parallelWeights = w.clone();
+
+      System.arraycopy(startingWeights, 0, w, 0, w.length);
+      trainer.trainOnBatch(model, inputSet, targetSet, 0, batchSize, lambda);
+      boolean repeatable = Arrays.equals(parallelWeights, w);
+      trainer.shutdown();
+
+      System.arraycopy(startingWeights, 0, w, 0, w.length);
+      trainer.trainOnBatch(model, inputSet, targetSet, 0, batchSize, lambda);
+      repeatable = repeatable && Arrays.equals(parallelWeights, w);
+      trainer.shutdown();
+
+      double worst = ABCDKernelTester.maxDifference(serialWeights, parallelWeights);
+
+      boolean passed = (worst <= TOLERANCE) && repeatable;
+      System.out.println((passed ? "PASS" : "FAIL") + " parallel mini-batch of " + batchSize + " members on " + numWorkers
+                         + " workers: " + worst + (repeatable ? "" : " (not repeatable)"));
+
+      return passed;
+   } // public static boolean testParallelTraining(int numWorkers, int batchSize, File networkConfigurationFile, File inputSetFile, File targetSetFile)
+
+   /*
+    * Compares the time to the error threshold of asynchronous training against the serial trainOnSet from the same starting weights
+    * The threshold is the set error a serial probe reaches after a quarter of TEST_ITERATIONS, so both sessions can reach it
+    * within TEST_ITERATIONS whatever the configured errorThreshold and starting weights are.
+    *
+    * parameters: numThreads is the number of asynchronous training threads
+    * return: true if both sessions stopped on the error threshold
+    */
+   public static boolean testHogwildTraining(int numThreads, File networkConfigurationFile, File inputSetFile, File targetSetFile) throws Exception
+   {
+      ABCDNetwork probeNetwork = new ABCDNetwork(ABCDKernelTester.configurationWith(networkConfigurationFile, "errorThreshold:0",
+                                                                                   "maxIterations:" + TEST_ITERATIONS / 4));
+      double[][] inputSet = probeNetwork.extractInputSetFromSuperFile(inputSetFile);
+      double[][] targetSet = probeNetwork.extractTargetSetFromFile(targetSetFile);
+      double[] startingWeights = probeNetwork.getWeights().clone();
+
+      probeNetwork.trainOnSet(inputSet, targetSet);
+      double errorThreshold = probeNetwork.getMaximumSetError();
+
+      File thresholdConfigurationFile = ABCDKernelTester.configurationWith(networkConfigurationFile, "errorThreshold:" + errorThreshold);
+      ABCDNetwork serialNetwork = new ABCDNetwork(thresholdConfigurationFile);
+      ABCDNetwork asynchronousNetwork = new ABCDNetwork(thresholdConfigurationFile);
+
+      System.arraycopy(startingWeights, 0, serialNetwork.getWeights(), 0, startingWeights.length);
+      System.arraycopy(startingWeights, 0, asynchronousNetwork.getWeights(), 0, startingWeights.length);
+
+      long start = System.nanoTime();
+      serialNetwork.trainOnSet(inputSet, targetSet);
+      long serialTime = System.nanoTime() - start;
+
+      start = System.nanoTime();
+      asynchronousNetwork.trainOnSetAsynchronously(inputSet, targetSet, numThreads);
+      long asynchronousTime = System.nanoTime() - start;
+
+      boolean passed = serialNetwork.isErrorThresholdSatisfied() && asynchronousNetwork.isErrorThresholdSatisfied();
+
+      System.out.println((passed ? "PASS" : "FAIL") + " asynchronous training on " + numThreads + " threads to error "
+                         + errorThreshold + ": serial " + serialNetwork.getNumIterations() + " iterations in " + serialTime / 1000000
+                         + " ms" + (serialNetwork.isErrorThresholdSatisfied() ? "" : " (not reached)") + ", asynchronous "
+                         + asynchronousNetwork.getNumIterations() + " iterations in " + asynchronousTime / 1000000 + " ms"
+                         + (asynchronousNetwork.isErrorThresholdSatisfied() ? "" : " (not reached)") + ", speedup "
+                         + String.format("%.2f", (double) serialTime / asynchronousTime) + " on "
+                         + Runtime.getRuntime().availableProcessors() + " processors");
+
+      return passed;
+   } // public static boolean testHogwildTraining(int numThreads, File networkConfigurationFile, File inputSetFile, File targetSetFile)
+
+   /*
+    * Compares the default kernel against the scalar reference kernel
+    *
+    * parameters: args optionally holds a network configuration filename, a super input filename, and a target set filename
+    * postconditions: a PASS or FAIL line is printed for each comparison, followed by an overall result.
+    *                 The network tests run on testConfiguration's copy of the configuration file.
+    *                 The tester exits with status 1 if any comparison fails or an exception is thrown.
+    */
+   public static void main(String[] args)
+   {
+      ABCDKernel reference = new ABCDScalarKernel();
+      ABCDKernel candidate = ABCDKernel.getDefaultKernel();
+
+      System.out.println("Comparing " + candidate.getClass().getName() + " against " + reference.getClass().getName());
+
+      if (candidate instanceof ABCDScalarKernel)
+      {
+         System.out.println("The Vector API kernel is unavailable (run with --add-modules " + ABCDKernel.VECTOR_MODULE_NAME + ")");
+      } // if (candidate instanceof ABCDScalarKernel)
+
+      boolean passed = false;
+
+      try
+      {
+         passed = ABCDKernelTester.testKernelEquivalence(reference, candidate);
+         passed = ABCDKernelTester.testSparseEquivalence(reference, candidate) && passed;
+
+         File networkConfigurationFile = null;
+
+         if (args.length >= 2)
+         {
+            networkConfigurationFile = ABCDKernelTester.testConfiguration(new File(args[0]));
+
+            passed = ABCDKernelTester.testNetworkEquivalence(reference, candidate, networkConfigurationFile, new File(args[1])) && passed;
+            passed = ABCDKernelTester.testSparseNetworkEquivalence(reference, networkConfigurationFile, new File(args[1])) && passed;
+            passed = ABCDKernelTester.testConcurrentModel(4, networkConfigurationFile, new File(args[1])) && passed;
+            passed = ABCDKernelTester.testParallelRunOnSet(3, networkConfigurationFile, new File(args[1])) && passed;
+            passed = ABCDKernelTester.testBlockedRunOnSet(reference, networkConfigurationFile, new File(args[1])) && passed;
+            passed = ABCDKernelTester.testBlockedRunOnSet(candidate, networkConfigurationFile, new File(args[1])) && passed;
+         } // if (args.length >= 2)
+
+         if (args.length >= 3)
+         {
+            passed = ABCDKernelTester.testBatchTraining(4, networkConfigurationFile, new File(args[1]), new File(args[2])) && passed;
+            passed = ABCDKernelTester.testParallelTraining(3, 5, networkConfigurationFile, new File(args[1]), new File(args[2])) && passed;
+            passed = ABCDKernelTester.testHogwildTraining(4, networkConfigurationFile, new File(args[1]), new File(args[2])) && passed;
+         } // if (args.length >= 3)
+
+         System.out.println(passed ? "All kernel comparisons passed" : "Kernel comparisons FAILED");
+      } // try
+
+      catch (Exception exception)   // Catch and print any exceptions. Abort execution.
+      {
+         System.out.println("An exception has terminated execution:\n\t" + exception.getMessage());
+         exception.printStackTrace();
+         passed = false;
+      } // catch (Exception exception)
+
+      if (!passed)
+         System.exit(1);
+
+      return;
+   } // public static void main(String[] args)
+
+} // public class ABCDKernelTester
@@ -0,0 +1,36 @@
+/*
+ * Linear (identity) activation for A-B-C-D network layers.
+ *
+ * Author: Jack Hsieh
+ * Date of creation: November 11, 2021
+ */
+
+/*
+ * f(x) = x, with derivative 1, so the Omegas are already the Psis.
+ */
+public class ABCDLinearActivation implements ABCDActivation
+{
+   public String getName()
+   {
+      return "linear";
+   } // public String getName()
+
+   public void apply(double[] theta, double[] a, int length)
+   {
+      if (a != theta)
+         System.arraycopy(theta, 0, a, 0, length);
+
+      return;
+   } // public void apply(double[] theta, double[] a, int length)
+
+   public void multiplyByDerivative(double[] theta, double[] a, double[] psi, int length)
+   {
+      return;
+   } // public void multiplyByDerivative(double[] theta, double[] a, double[] psi, int length)
+
+   public boolean isOutputOnly()
+   {
+      return false;
+   } // public boolean isOutputOnly()
+
+} // public class ABCDLinearActivation implements ABCDActivation
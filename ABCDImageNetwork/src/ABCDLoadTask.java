@@ -0,0 +1,103 @@
+/*
+ * Fork-join task that loads a range of mini input files into an input set.
+ *
+ * Author: Jack Hsieh
+ * Date of creation: November 11, 2021
+ */
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicReference;
+
+/*
+ * Parses the mini input files [start, end) of a super file into their rows of a preallocated input matrix, so members
+ * keep their super file order however the files are scheduled. Ranges longer than the leaf size are split in half and
+ * loaded in parallel.
+ *
+ * The first file that fails is recorded in the shared failure reference, with its filename in the message, and every
+ * task stops opening files once a failure is recorded. The caller rethrows the recorded exception after the tasks finish.
+ */
+public class ABCDLoadTask extends RecursiveAction
+{
+   private static final long serialVersionUID = 1L;
+
+   private final ABCDNetwork network;
+   private final File[] miniFiles;
+   private final double[][] inputSet;
+   private final int start;
+   private final int end;
+   private final int leafSize;
+   private final AtomicReference<Exception> failure;
+
+   /*
+    * Constructs a task over a range of mini files
+    *
+    * parameters: network parses the files, miniFiles holds the super file's mini files in order, inputSet is the preallocated
+    *             input matrix with one row per mini file, [start, end) is the range of files to load, leafSize is the largest
+    *             range loaded without splitting (at least 1), and failure receives the first exception thrown by any task
+    */
+   public ABCDLoadTask(ABCDNetwork network, File[] miniFiles, double[][] inputSet, int start, int end, int leafSize,
+                       AtomicReference<Exception> failure)
+   {
+      this.network = network;
+      this.miniFiles = miniFiles;
+      this.inputSet = inputSet;
+      this.start = start;
+      this.end = end;
+      this.leafSize = leafSize;
+      this.failure = failure;
+
+      return;
+   } // public ABCDLoadTask(ABCDNetwork network, File[] miniFiles, double[][] inputSet, int start, int end, int leafSize, ...)
+
+   /*
+    * Loads the range directly if it is small enough, otherwise splits it in half and loads both halves
+    *
+    * postconditions: inputSet[member] holds the inputs of miniFiles[member] for every member in [start, end),
+    *                 unless a failure was recorded, in which case the remaining files are skipped
+    */
+   @Override
+   protected void compute()
+   {
+      if (this.end - this.start <= this.leafSize)
+      {
+         for (int member = this.start; member < this.end && this.failure.get() == null; ++member)
+         {
+            File miniFile = this.miniFiles[member];
+
+            try
+            {
+               this.network.extractInputMemberFromMiniFile(miniFile, this.inputSet[member]);
+            } // try
+
+            catch (FileNotFoundException fileNotFoundException)        // The message already names the file
+            {
+               this.failure.compareAndSet(null, fileNotFoundException);
+            } // catch (FileNotFoundException fileNotFoundException)
+
+            catch (IllegalArgumentException illegalArgumentException)
+            {
+               this.failure.compareAndSet(null, new IllegalArgumentException(illegalArgumentException.getMessage()
+                                                                             + " Input set file: " + miniFile.getPath()));
+            } // catch (IllegalArgumentException illegalArgumentException)
+
+            catch (RuntimeException runtimeException)                   // For example an I/O error partway through a file
+            {
+               this.failure.compareAndSet(null, runtimeException);
+            } // catch (RuntimeException runtimeException)
+         } // for (int member = this.start; member < this.end && this.failure.get() == null; ++member)
+      } // if (this.end - this.start <= this.leafSize)
+
+      else
+      {
+         int middle = (this.start + this.end) >>> 1;
+
+         ABCDLoadTask.invokeAll(new ABCDLoadTask(this.network, this.miniFiles, this.inputSet, this.start, middle, this.leafSize, this.failure),
+                                new ABCDLoadTask(this.network, this.miniFiles, this.inputSet, middle, this.end, this.leafSize, this.failure));
+      } // if (this.end - this.start <= this.leafSize)... else
+
+      return;
+   } // protected void compute()
+
+} // public class ABCDLoadTask extends RecursiveAction
@@ -0,0 +1,794 @@
+/*
+ * Shareable weights and forward/backward kernels of an A-B-C-D network.
+ *
+ * Author: Jack Hsieh
+ * Date of creation: November 11, 2021
+ */
+
+import java.nio.DoubleBuffer;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+
+/*
+ * An A-B-C-D network's layer sizes, flat weights buffer, and the kernels that execute and train it.
+ *
+ * The model keeps no per-execution state: every pass reads and writes an ABCDExecutionContext, and all loop indices are local.
+ * Running the model only reads the weights, so many threads can classify concurrently against one model, each with its own context.
+ * Training writes the weights; callers are responsible for not training while other threads run or train the same model.
+ *
+ * The layer sizes and the weights buffer are fixed at construction. The weight values change only through training
+ * or through the buffer returned by getWeights().
+ */
+public class ABCDModel
+{
+   /*
+    * Total number of layers, including input, hidden, and output layers
+    */
+   private final int NUM_LAYERS;
+
+   /*
+    * Number of units in each layer
+    * LAYER_SIZES[0] is the number of input units
+    * LAYER_SIZES[NUM_LAYERS - 1] is the number of output units
+    */
+   private final int[] LAYER_SIZES;    // Of size NUM_LAYERS
+
+   /*
+    * Weights
+    * All weights live in one flat buffer. Each weight layer alpha is a destination-major block starting at weightOffsets[alpha]:
+    * the weight connecting unit beta of layer alpha to unit gamma of layer (alpha + 1) is
+    * w[weightOffsets[alpha] + gamma * LAYER_SIZES[alpha] + beta], so each destination unit's incoming weights are one contiguous row.
+    */
+   private final double[] w;
+   private final int[] weightOffsets;  // Of size NUM_LAYERS: the last entry is the total number of weights
+
+   /*
+    * Kernel used for every dot product and weight-row update
+    */
+   private final ABCDKernel kernel;
+
+   /*
+    * Activation of each layer, indexed by layer: activations[0] is null since the input layer is not activated.
+    * Every layer is exact tanh unless withActivations chooses otherwise.
+    */
+   private final ABCDActivation[] activations;
+
+   /*
+    * Constructs a model with zeroed weights
+    *
+    * parameters: layerSizes holds the number of units in each layer, from input to output,
+    *             and kernel is the kernel to execute and train with
+    * postconditions: the layer sizes are copied, the per-layer weight offsets are computed, and the flat weights buffer is allocated
+    */
+   public ABCDModel(int[] layerSizes, ABCDKernel kernel)
+   {
+      this.NUM_LAYERS = layerSizes.length;
+      this.LAYER_SIZES = layerSizes.clone();
+      this.kernel = kernel;
+
+      this.activations = new ABCDActivation[this.NUM_LAYERS];
+
+      for (int alpha = 1; alpha < this.NUM_LAYERS; ++alpha)
+      {
+         this.activations[alpha] = new ABCDTanhActivation(false);
+      } // for (int alpha = 1; alpha < this.NUM_LAYERS; ++alpha)
+
+      /*
+       * Each weight block starts where the previous one ends
+       */
+      this.weightOffsets = new int[this.NUM_LAYERS];
+      this.weightOffsets[0] = 0;
+
+      for (int alpha = 0; alpha < this.NUM_LAYERS - 1; ++alpha)
+      {
+         this.weightOffsets[alpha + 1] = this.weightOffsets[alpha] + this.LAYER_SIZES[alpha] * this.LAYER_SIZES[alpha + 1];
+      } // for (int alpha = 0; alpha < this.NUM_LAYERS - 1; ++alpha)
+
+      this.w = new double[this.weightOffsets[this.NUM_LAYERS - 1]];   // Allocate the flat buffer
+
+      return;
+   } // public ABCDModel(int[] layerSizes, ABCDKernel kernel)
+
+   /*
+    * Constructs a model that shares another model's layer sizes and weights but uses a different kernel or activation
+    */
+   private ABCDModel(ABCDModel model, ABCDKernel kernel, ABCDActivation[] activations)
+   {
+      this.NUM_LAYERS = model.NUM_LAYERS;
+      this.LAYER_SIZES = model.LAYER_SIZES;
+      this.weightOffsets = model.weightOffsets;
+      this.w = model.w;
+      this.kernel = kernel;
+      this.activations = activations;
+
+      return;
+   } // private ABCDModel(ABCDModel model, ABCDKernel kernel, ABCDActivation[] activations)
+
+   /*
+    * Returns a model sharing this model's weights that executes and trains with the given kernel
+    *
+    * parameters: kernel is the kernel to use
+    * return: a new model over the same weights buffer (changes to either model's weights are seen by both)
+    */
+   public ABCDModel withKernel(ABCDKernel kernel)
+   {
+      return (new ABCDModel(this, kernel, this.activations));
+   } // public ABCDModel withKernel(ABCDKernel kernel)
+
+   /*
+    * Returns a model sharing this model's weights that activates each layer with the given activation
+    *
+    * parameters: activations holds one activation per layer, indexed by layer; activations[0] is ignored
+    * return: a new model over the same weights buffer and kernel
+    * postconditions: throws an IllegalArgumentException if there is not one activation per layer
+    *                 or if an output-only activation (softmax) is given for a hidden layer
+    */
+   public ABCDModel withActivations(ABCDActivation[] activations) throws IllegalArgumentException
+   {
+      if (activations.length != this.NUM_LAYERS)
+         throw (new IllegalArgumentException("Invalid activations. There must be one per layer (" + this.NUM_LAYERS + "), not "
+                                             + activations.length + "."));
+
+      ABCDActivation[] copy = new ABCDActivation[this.NUM_LAYERS];
+
+      for (int alpha = 1; alpha < this.NUM_LAYERS; ++alpha)
+      {
+         if (activations[alpha].isOutputOnly() && alpha != this.NUM_LAYERS - 1)
+            throw (new IllegalArgumentException("Invalid activations. " + activations[alpha].getName()
+                                                + " can only activate the output layer, not layer " + alpha + "."));
+
+         copy[alpha] = activations[alpha];
+      } // for (int alpha = 1; alpha < this.NUM_LAYERS; ++alpha)
+
+      return (new ABCDModel(this, this.kernel, copy));
+   } // public ABCDModel withActivations(ABCDActivation[] activations)
+
+   /*
+    * Returns a copy of the per-layer activations, indexed by layer (entry 0 is null)
+    */
+   public ABCDActivation[] getActivations()
+   {
+      return this.activations.clone();
+   } // public ABCDActivation[] getActivations()
+
+   /*
+    * Allocates an execution context sized for this model
+    *
+    * parameters: allocateForTraining is whether the context should hold the arrays needed to train
+    * return: a new context; use one per thread
+    */
+   public ABCDExecutionContext newContext(boolean allocateForTraining)
+   {
+      return (new ABCDExecutionContext(this.LAYER_SIZES, allocateForTraining));
+   } // public ABCDExecutionContext newContext(boolean allocateForTraining)
+
+   /*
+    * Runs the model on the given inputs WITHOUT calculating training details
+    *
+    * parameters: context is the calling thread's execution context, inputs are the new inputs
+    * preconditions: inputs is of length LAYER_SIZES[0] and context was allocated for this model
+    * postconditions: the context's units are calculated from the inputs. Thetas and Psis go unchanged.
+    * return: the context's output units (not a copy)
+    */
+   public double[] run(ABCDExecutionContext context, double[] inputs)
+   {
+      context.loadInputs(inputs);
+      this.executeWithoutDetails(context);
+
+      return context.getOutputs();
+   } // public double[] run(ABCDExecutionContext context, double[] inputs)
+
+   /*
+    * Runs the model on a block of members at once WITHOUT calculating training details
+    * Each layer is computed as one matrix-matrix product of its weights and the block's previous layer, in 2 x 2 tiles of
+    * (two weight rows) x (two members). Every weight row is streamed once per block instead of once per member.
+    * The block always uses the dense input layer. With the scalar kernel the outputs are identical to run();
+    * with another kernel they can differ from run() on sparse members by the same rounding as its dense and sparse dot products.
+    *
+    * parameters: context is the calling thread's execution context, inputSet holds the input members,
+    *             outputSet is the preallocated output matrix, and [start, start + count) is the block of members to run
+    * preconditions: every member in the block is of length LAYER_SIZES[0] and every output row of length LAYER_SIZES[NUM_LAYERS - 1]
+    * postconditions: outputSet[member] holds the outputs for inputSet[member] for every member in the block.
+    *                 The context's block units hold the block's hidden layers; its single-member units go unchanged.
+    */
+   public void runOnBlock(ABCDExecutionContext context, double[][] inputSet, double[][] outputSet, int start, int count)
+   {
+      double[][] sourceRows;
+      double[][] destinationRows;
+      int sourceStart;
+      int destinationStart;
+
+      context.ensureBlockCapacity(count);
+
+      for (int alpha = 1; alpha < this.NUM_LAYERS; ++alpha)                // Loop over the layers for the synapse destination
+      {
+         /*
+          * The first layer reads the caller's inputs and the last layer writes the caller's outputs in place
+          */
+         if (alpha == 1)
+         {
+            sourceRows = inputSet;
+            sourceStart = start;
+         } // if (alpha == 1)
+
+         else
+         {
+            sourceRows = context.blockUnits[alpha - 1];
+            sourceStart = 0;
+         } // if (alpha == 1)... else
+
+         if (alpha == this.NUM_LAYERS - 1)
+         {
+            destinationRows = outputSet;
+            destinationStart = start;
+         } // if (alpha == this.NUM_LAYERS - 1)
+
+         else
+         {
+            destinationRows = context.blockUnits[alpha];
+            destinationStart = 0;
+         } // if (alpha == this.NUM_LAYERS - 1)... else
+
+         this.multiplyBlock(context, alpha, sourceRows, sourceStart, destinationRows, destinationStart, count);
+      } // for (int alpha = 1; alpha < this.NUM_LAYERS; ++alpha)
+
+      return;
+   } // public void runOnBlock(ABCDExecutionContext context, double[][] inputSet, double[][] outputSet, int start, int count)
+
+   /*
+    * Computes one layer for a block of members as a matrix-matrix product followed by the layer's activation
+    *
+    * parameters: context supplies the tile scratch, alpha is the destination layer, x[xStart + b] is member b's layer (alpha - 1),
+    *             y[yStart + b] receives member b's layer alpha, and count is the number of members in the block
+    * postconditions: y[yStart + b][gamma] is the activation of weight row gamma dotted with x[xStart + b], for every b and gamma
+    */
+   private void multiplyBlock(ABCDExecutionContext context, int alpha, double[][] x, int xStart, double[][] y, int yStart, int count)
+   {
+      double[] tile = context.tile;
+      int length = this.LAYER_SIZES[alpha - 1];
+      int numRows = this.LAYER_SIZES[alpha];
+      int rowOffset = this.weightOffsets[alpha - 1];                       // Start of the current pair of weight rows
+      int gamma;
+      int b;
+
+      /*
+       * Pairs of weight rows against pairs of members
+       */
+      for (gamma = 0; gamma + 1 < numRows; gamma += 2)
+      {
+         for (b = 0; b + 1 < count; b += 2)
+         {
+            this.kernel.dotProductTile(this.w, rowOffset, rowOffset + length, x[xStart + b], x[xStart + b + 1], length, tile);
+
+            y[yStart + b][gamma] = tile[0];
+            y[yStart + b + 1][gamma] = tile[1];
+            y[yStart + b][gamma + 1] = tile[2];
+            y[yStart + b + 1][gamma + 1] = tile[3];
+         } // for (b = 0; b + 1 < count; b += 2)
+
+         if (b < count)                                                    // Odd member left over
+         {
+            y[yStart + b][gamma] = this.kernel.dotProduct(this.w, rowOffset, x[xStart + b], length);
+            y[yStart + b][gamma + 1] = this.kernel.dotProduct(this.w, rowOffset + length, x[xStart + b], length);
+         } // if (b < count)
+
+         rowOffset += 2 * length;                                          // Advance to the next pair of rows
+      } // for (gamma = 0; gamma + 1 < numRows; gamma += 2)
+
+      if (gamma < numRows)                                                 // Odd row left over
+      {
+         for (b = 0; b < count; ++b)
+         {
+            y[yStart + b][gamma] = this.kernel.dotProduct(this.w, rowOffset, x[xStart + b], length);
+         } // for (b = 0; b < count; ++b)
+      } // if (gamma < numRows)
+
+      /*
+       * Activate each member's finished layer of Thetas in place
+       */
+      for (b = 0; b < count; ++b)
+      {
+         this.activations[alpha].apply(y[yStart + b], y[yStart + b], numRows);
+      } // for (b = 0; b < count; ++b)
+
+      return;
+   } // private void multiplyBlock(ABCDExecutionContext context, int alpha, double[][] x, int xStart, double[][] y, int yStart, int count)
+
+   /*
+    * Runs the model on every member of an input set, blockSize members at a time
+    *
+    * parameters: inputSet is the set of input members, blockSize is the number of members per block (at least 1)
+    * preconditions: every member of inputSet is of length LAYER_SIZES[0]
+    * return: the set of outputs, one row per member in the same order as inputSet (see runOnBlock for how they compare to run())
+    */
+   public double[][] runOnSet(double[][] inputSet, int blockSize)
+   {
+      int numMembers = inputSet.length;
+      double[][] outputSet = new double[numMembers][this.LAYER_SIZES[this.NUM_LAYERS - 1]];   // Preallocated output matrix
+      ABCDExecutionContext context = this.newContext(false);
+
+      for (int start = 0; start < numMembers; start += blockSize)
+      {
+         this.runOnBlock(context, inputSet, outputSet, start, Math.min(blockSize, numMembers - start));
+      } // for (int start = 0; start < numMembers; start += blockSize)
+
+      return outputSet;
+   } // public double[][] runOnSet(double[][] inputSet, int blockSize)
+
+   /*
+    * Runs the model on every member of an input set in parallel, blockSize members at a time
+    * The set is split into about one contiguous range per pool worker. Each range gets its own execution context.
+    *
+    * parameters: inputSet is the set of input members, pool is the fork-join pool to run on,
+    *             and blockSize is the number of members per block (at least 1)
+    * preconditions: every member of inputSet is of length LAYER_SIZES[0], and the weights are not trained meanwhile
+    * return: the set of outputs, one row per member in the same order as inputSet, identical to runOnSet(inputSet, blockSize)
+    */
+   public double[][] runOnSet(double[][] inputSet, ForkJoinPool pool, int blockSize)
+   {
+      int numMembers = inputSet.length;
+      double[][] outputSet = new double[numMembers][this.LAYER_SIZES[this.NUM_LAYERS - 1]];   // Preallocated output matrix
+
+      if (numMembers > 0)
+      {
+         int leafSize = (numMembers + pool.getParallelism() - 1) / pool.getParallelism();     // Ceiling: about one range per worker
+
+         pool.invoke(new ABCDRunTask(this, inputSet, outputSet, 0, numMembers, leafSize, blockSize));
+      } // if (numMembers > 0)
+
+      return outputSet;
+   } // public double[][] runOnSet(double[][] inputSet, ForkJoinPool pool, int blockSize)
+
+   /*
+    * Picks the fastest block size for runOnSet on this machine
+    * Times a warm-up pass and then one pass per candidate over the sample set.
+    *
+    * parameters: sampleSet is a set of representative input members, candidates are the block sizes to try (each at least 1)
+    * return: the candidate with the shortest time
+    */
+   public int tuneBlockSize(double[][] sampleSet, int[] candidates)
+   {
+      int bestBlockSize = candidates[0];
+      long bestNanos = Long.MAX_VALUE;
+      long nanos;
+
+      this.runOnSet(sampleSet, candidates[0]);                             // Warm up the kernels before timing
+
+      for (int candidate = 0; candidate < candidates.length; ++candidate)
+      {
+         nanos = System.nanoTime();
+         this.runOnSet(sampleSet, candidates[candidate]);
+         nanos = System.nanoTime() - nanos;
+
+         if (nanos < bestNanos)
+         {
+            bestNanos = nanos;
+            bestBlockSize = candidates[candidate];
+         } // if (nanos < bestNanos)
+      } // for (int candidate = 0; candidate < candidates.length; ++candidate)
+
+      return bestBlockSize;
+   } // public int tuneBlockSize(double[][] sampleSet, int[] candidates)
+
+   /*
+    * Trains the model on a single training member
+    *
+    * parameters: context is the calling thread's execution context, inputs is the set of inputs,
+    *             targets is the set of intended target outputs, and lambda is the learning rate
+    * preconditions: context was allocated for training this model
+    * postconditions: the context's units, Thetas, and Psis are calculated from the inputs and targets,
+    *                 and the weight changes are applied to the model's weights.
+    */
+   public void train(ABCDExecutionContext context, double[] inputs, double[] targets, double lambda)
+   {
+      context.loadInputs(inputs);
+      context.loadTargets(targets);
+
+      this.executeWithDetails(context);
+      this.backpropagate(context, lambda);
+
+      return;
+   } // public void train(ABCDExecutionContext context, double[] inputs, double[] targets, double lambda)
+
+   /*
+    * Trains the model on a mini-batch of training members with a single weight update
+    * Every member's forward and backward pass uses the weights as they were before the batch. The members' weight changes
+    * are then summed (not averaged) into the weights one weight row at a time, so each row is read and written once per batch.
+    * A batch of one member changes the weights exactly as train() does.
+    *
+    * parameters: contexts holds one training context per member of the batch, inputSet and targetSet hold the members,
+    *             [start, start + count) is the batch, and lambda is the learning rate
+    * preconditions: contexts has at least count contexts, each allocated for training this model
+    * postconditions: contexts[b] holds the units, Thetas, and Psis of member (start + b), so contexts[b].getError() is its error
+    *                 before the update, and the batch's summed weight changes are applied to the model's weights.
+    */
+   public void trainOnBatch(ABCDExecutionContext[] contexts, double[][] inputSet, double[][] targetSet, int start, int count, double lambda)
+   {
+      this.calculateBatchPsis(contexts, inputSet, targetSet, start, count);
+      this.applyBatchUpdate(contexts, count, lambda, this.w);
+
+      return;
+   } // public void trainOnBatch(ABCDExecutionContext[] contexts, double[][] inputSet, double[][] targetSet, int start, int count, double lambda)
+
+   /*
+    * Calculates the summed weight changes of a mini-batch without applying them
+    * Used by data-parallel training, where each worker accumulates the changes of its shard of the batch into its own buffer.
+    *
+    * parameters: contexts, inputSet, targetSet, start, count, and lambda are as in trainOnBatch,
+    *             and changes is a buffer laid out like the weights (getWeights().length elements)
+    * preconditions: contexts has at least count contexts, each allocated for training this model
+    * postconditions: contexts[b] holds the units, Thetas, and Psis of member (start + b), and changes is increased by the
+    *                 batch's summed weight changes. The weights go unchanged.
+    */
+   public void accumulateBatchChanges(ABCDExecutionContext[] contexts, double[][] inputSet, double[][] targetSet,
+                                      int start, int count, double lambda, double[] changes)
+   {
+      this.calculateBatchPsis(contexts, inputSet, targetSet, start, count);
+      this.applyBatchUpdate(contexts, count, lambda, changes);
+
+      return;
+   } // public void accumulateBatchChanges(...)
+
+   /*
+    * Adds a buffer of weight changes to the weights
+    *
+    * parameters: changes is laid out like the weights
+    * postconditions: every weight is increased by its entry in changes
+    */
+   public void applyChanges(double[] changes)
+   {
+      this.kernel.accumulateScaled(this.w, changes, 0, 1.0, this.w.length);
+
+      return;
+   } // public void applyChanges(double[] changes)
+
+   /*
+    * Runs the forward pass and calculates every Psi for each member of a mini-batch, using the current weights
+    *
+    * postconditions: contexts[b] holds the units, Thetas, and Psis of member (start + b) for b in [0, count)
+    */
+   private void calculateBatchPsis(ABCDExecutionContext[] contexts, double[][] inputSet, double[][] targetSet, int start, int count)
+   {
+      for (int b = 0; b < count; ++b)
+      {
+         contexts[b].loadInputs(inputSet[start + b]);
+         contexts[b].loadTargets(targetSet[start + b]);
+
+         this.executeWithDetails(contexts[b]);
+         this.calculateHiddenPsis(contexts[b]);
+      } // for (int b = 0; b < count; ++b)
+
+      return;
+   } // private void calculateBatchPsis(ABCDExecutionContext[] contexts, double[][] inputSet, double[][] targetSet, int start, int count)
+
+   /*
+    * Computes the Theta of one unit from its weight row and the layer to its left
+    * Uses the compressed input layer for the first hidden layer when the inputs are sparse, which gives the identical sum
+    *
+    * parameters: context holds the units, alpha is the layer of the unit, rowOffset is the start of the unit's weight row
+    * preconditions: the units of layer (alpha - 1) are calculated and, for alpha = 1, the compressed input layer is current
+    * return: the dot product of the unit's weights and the units of layer (alpha - 1)
+    */
+   private double weightedSum(ABCDExecutionContext context, int alpha, int rowOffset)
+   {
+      double theta;
+
+      if (alpha == 1 && context.inputsAreSparse)
+      {
+         theta = this.kernel.sparseDotProduct(this.w, rowOffset, context.inputIndices, context.inputValues, context.numNonzeroInputs);
+      } // if (alpha == 1 && context.inputsAreSparse)
+
+      else
+      {
+         theta = this.kernel.dotProduct(this.w, rowOffset, context.a[alpha - 1], this.LAYER_SIZES[alpha - 1]);
+      } // if (alpha == 1 && context.inputsAreSparse)... else
+
+      return theta;
+   } // private double weightedSum(ABCDExecutionContext context, int alpha, int rowOffset)
+
+   /*
+    * Executes the model by evaluating hidden and output units from the input units.
+    * Training details (Thetas and Psis) are NOT collected.
+    *
+    * preconditions: the context's input units have been loaded appropriately
+    * postconditions: updates the context's hidden and output units based on the input units, weights, and activation function.
+    */
+   private void executeWithoutDetails(ABCDExecutionContext context)
+   {
+      double[][] a = context.a;
+      int rowOffset;                                                                            // Start of the current unit's weight row
+
+      /*
+       * Use generalized indices (beta) since the hidden, and output unit layers can be computed identically
+       * Each unit's Theta is the dot product of its contiguous weight row with the previous layer (compressed when sparse).
+       * The layer's Thetas are stored in its units and then activated in place by one call.
+       */
+      for (int alpha = 1; alpha < this.NUM_LAYERS; ++alpha)                                     // Loop over the layers for the synapse destination
+      {
+         rowOffset = this.weightOffsets[alpha - 1];                                             // Start of the first row in the weight block
+
+         for (int beta = 0; beta < this.LAYER_SIZES[alpha]; ++beta)                             // Loop through the current layer (synapse destination)
+         {
+            a[alpha][beta] = this.weightedSum(context, alpha, rowOffset);                       // Calculate the Theta of the unit
+            rowOffset += this.LAYER_SIZES[alpha - 1];                                           // Advance to the next row
+         } // for (int beta = 0; beta < this.LAYER_SIZES[alpha]; ++beta)
+
+         this.activations[alpha].apply(a[alpha], a[alpha], this.LAYER_SIZES[alpha]);          // Activate the layer
+      } // for (int alpha = 1; alpha < this.NUM_LAYERS; ++alpha)
+
+      return;
+   } // private void executeWithoutDetails(ABCDExecutionContext context)
+
+   /*
+    * Executes the model by evaluating hidden and output units from the input units.
+    * Theta and Psi values are also updated and used.
+    *
+    * preconditions: the context's input units and targets have been loaded appropriately and its training arrays are allocated.
+    * postconditions: updates the context's hidden and output units, Thetas, and output psis
+    *                 based on the input units, weights, and activation functions.
+    */
+   private void executeWithDetails(ABCDExecutionContext context)
+   {
+      double[][] a = context.a;
+      double[][] Theta = context.Theta;
+      double[][] Psi = context.Psi;
+      int rowOffset;                                                                                  // Start of the current unit's weight row
+
+      /*
+       * Evaluate every layer, storing Thetas
+       * Use generalized indices (beta) since the hidden and output layers can be calculated identically
+       */
+      for (int alpha = 1; alpha < this.NUM_LAYERS; ++alpha)                                           // Loop over the layers for the synapse destination
+      {
+         rowOffset = this.weightOffsets[alpha - 1];                                                   // Start of the first row in the weight block
+
+         for (int beta = 0; beta < this.LAYER_SIZES[alpha]; ++beta)                                   // Loop through the current layer (synapse destination)
+         {
+            Theta[alpha][beta] = this.weightedSum(context, alpha, rowOffset);                         // Calculate the stored Theta
+            rowOffset += this.LAYER_SIZES[alpha - 1];                                                 // Advance to the next row
+         } // for (int beta = 0; beta < this.LAYER_SIZES[alpha]; ++beta)
+
+         this.activations[alpha].apply(Theta[alpha], a[alpha], this.LAYER_SIZES[alpha]);             // Activate the layer
+      } // for (int alpha = 1; alpha < this.NUM_LAYERS; ++alpha)
+
+      /*
+       * Calculates and stores output layer psi_i's.
+       * Last layer: use index "i"
+       */
+      int alpha = this.NUM_LAYERS - 1;                                                                // Final layer
+
+      for (int i = 0; i < this.LAYER_SIZES[alpha]; ++i)
+      {
+         Psi[alpha][i] = (context.T[i] - a[alpha][i]);                                                // Calculates Omega_i
+      } // for (int i = 0; i < this.LAYER_SIZES[alpha]; ++i)
+
+      this.activations[alpha].multiplyByDerivative(Theta[alpha], a[alpha], Psi[alpha], this.LAYER_SIZES[alpha]);
+
+      return;
+   } // private void executeWithDetails(ABCDExecutionContext context)
+
+   /*
+    * Updates the model's weights via backpropagation
+    *
+    * Works one destination row at a time so every inner loop is a contiguous kernel call:
+    * each row first contributes its (pre-update) weights to the Omegas of the layer to its left, then receives its rank-1 update.
+    * The Omegas are accumulated in place in the left layer's Psi array and then scaled into Psis.
+    *
+    * parameters: context holds the units and training details, lambda is the learning rate
+    * preconditions: the context's input, hidden, and output units, the Thetas, and the output layer
+    *                Psis are all calculated appropriately.
+    * postconditions: the weights are updated using the unit activations, Thetas, and Psis.
+    */
+   private void backpropagate(ABCDExecutionContext context, double lambda)
+   {
+      double[][] a = context.a;
+      double[][] Theta = context.Theta;
+      double[][] Psi = context.Psi;
+      int rowOffset;                                                       // Start of the current unit's weight row
+
+      /*
+       * Loop over the rows right of each hidden layer, from the last hidden layer to the first, to find its Psis
+       * Use generalized indices (gamma) since any number of hidden layers is processed identically
+       */
+      for (int alpha = this.NUM_LAYERS - 2; alpha >= 1; --alpha)          // Loop over the hidden layers for the synapse source
+      {
+         Arrays.fill(Psi[alpha], 0.0);                                     // Reset the Omega accumulators
+         rowOffset = this.weightOffsets[alpha];                            // Start of the first row to the right
+
+         for (int gamma = 0; gamma < this.LAYER_SIZES[alpha + 1]; ++gamma) // Loop over the layer to the right
+         {
+            this.kernel.accumulateScaled(Psi[alpha], this.w, rowOffset, Psi[alpha + 1][gamma], this.LAYER_SIZES[alpha]);
+            this.kernel.updateRow(this.w, rowOffset, a[alpha], lambda, Psi[alpha + 1][gamma], this.LAYER_SIZES[alpha]);
+            rowOffset += this.LAYER_SIZES[alpha];                          // Advance to the next row
+         } // for (int gamma = 0; gamma < this.LAYER_SIZES[alpha + 1]; ++gamma)
+
+         this.activations[alpha].multiplyByDerivative(Theta[alpha], a[alpha], Psi[alpha], this.LAYER_SIZES[alpha]); // Omega to Psi
+      } // for (int alpha = this.NUM_LAYERS - 2; alpha >= 1; --alpha)
+
+      /*
+       * Update the input layer weights without calculating further Omegas or Psis
+       * The weights into unit k are contiguous, so each update is a single row sweep.
+       * For sparse inputs only the weights from non-zero inputs are touched: the rest would change by exactly zero.
+       */
+      int alpha = 1;                                                       // Select the first layer after the input layer
+      rowOffset = this.weightOffsets[alpha - 1];                           // Start of the row of weights into the first k
+
+      for (int k = 0; k < this.LAYER_SIZES[alpha]; ++k)                    // Loop over the first hidden (or, without one, output) layer
+      {
+         if (context.inputsAreSparse)
+         {
+            this.kernel.sparseUpdateRow(this.w, rowOffset, context.inputIndices, context.inputValues,
+                                        lambda, Psi[alpha][k], context.numNonzeroInputs);
+         } // if (context.inputsAreSparse)
+
+         else
+         {
+            this.kernel.updateRow(this.w, rowOffset, a[alpha - 1], lambda, Psi[alpha][k], this.LAYER_SIZES[alpha - 1]);
+         } // if (context.inputsAreSparse)... else
+
+         rowOffset += this.LAYER_SIZES[alpha - 1];                         // Advance to the next row
+      } // for (int k = 0; k < this.LAYER_SIZES[alpha]; ++k)
+
+      return;
+   } // private void backpropagate(ABCDExecutionContext context, double lambda)
+
+   /*
+    * Calculates the hidden layer Psis of one member without changing the weights
+    * Performs the same Omega accumulation as backpropagate, leaving the weight updates to applyBatchUpdate.
+    *
+    * parameters: context holds the member's units and training details
+    * preconditions: the member's units, Thetas, and output Psis are calculated
+    * postconditions: the member's hidden layer Psis are calculated from the current weights
+    */
+   private void calculateHiddenPsis(ABCDExecutionContext context)
+   {
+      double[][] Theta = context.Theta;
+      double[][] Psi = context.Psi;
+      int rowOffset;                                                       // Start of the current unit's weight row
+
+      /*
+       * Work from the last hidden layer to the first: each layer's Omegas come from the Psis of the layer to its right
+       */
+      for (int alpha = this.NUM_LAYERS - 2; alpha >= 1; --alpha)
+      {
+         Arrays.fill(Psi[alpha], 0.0);                                     // Reset the Omega accumulators
+         rowOffset = this.weightOffsets[alpha];                            // Start of the first row to the right
+
+         for (int gamma = 0; gamma < this.LAYER_SIZES[alpha + 1]; ++gamma)
+         {
+            this.kernel.accumulateScaled(Psi[alpha], this.w, rowOffset, Psi[alpha + 1][gamma], this.LAYER_SIZES[alpha]);
+            rowOffset += this.LAYER_SIZES[alpha];                          // Advance to the next row
+         } // for (int gamma = 0; gamma < this.LAYER_SIZES[alpha + 1]; ++gamma)
+
+         this.activations[alpha].multiplyByDerivative(Theta[alpha], context.a[alpha], Psi[alpha], this.LAYER_SIZES[alpha]);
+      } // for (int alpha = this.NUM_LAYERS - 2; alpha >= 1; --alpha)
+
+      return;
+   } // private void calculateHiddenPsis(ABCDExecutionContext context)
+
+   /*
+    * Applies the summed weight changes of a mini-batch
+    * Loops over weight rows outermost so each row stays in cache while all of the batch's rank-1 updates are applied to it,
+    * which makes the batch's update one rank-count product per weight layer.
+    *
+    * parameters: contexts holds the members' units and Psis, count is the number of members, lambda is the learning rate,
+    *             and destination is the array to apply the changes to: the weights themselves or a buffer laid out like them
+    * preconditions: every member's units and hidden and output Psis are calculated
+    * postconditions: each destination entry is increased by lambda * (source unit) * (destination Psi) summed over the members in order
+    */
+   private void applyBatchUpdate(ABCDExecutionContext[] contexts, int count, double lambda, double[] destination)
+   {
+      ABCDExecutionContext context;
+      int rowOffset;                                                       // Start of the current unit's weight row
+
+      for (int alpha = 0; alpha < this.NUM_LAYERS - 1; ++alpha)            // Loop over the layers for the synapse source
+      {
+         rowOffset = this.weightOffsets[alpha];
+
+         for (int gamma = 0; gamma < this.LAYER_SIZES[alpha + 1]; ++gamma) // Loop through the next layer (synapse destination)
+         {
+            for (int b = 0; b < count; ++b)
+            {
+               context = contexts[b];
+
+               if (alpha == 0 && context.inputsAreSparse)                  // Only the weights from non-zero inputs change
+               {
+                  this.kernel.sparseUpdateRow(destination, rowOffset, context.inputIndices, context.inputValues,
+                                              lambda, context.Psi[alpha + 1][gamma], context.numNonzeroInputs);
+               } // if (alpha == 0 && context.inputsAreSparse)
+
+               else
+               {
+                  this.kernel.updateRow(destination, rowOffset, context.a[alpha], lambda, context.Psi[alpha + 1][gamma], this.LAYER_SIZES[alpha]);
+               } // if (alpha == 0 && context.inputsAreSparse)... else
+            } // for (int b = 0; b < count; ++b)
+
+            rowOffset += this.LAYER_SIZES[alpha];                          // Advance to the next row
+         } // for (int gamma = 0; gamma < this.LAYER_SIZES[alpha + 1]; ++gamma)
+      } // for (int alpha = 0; alpha < this.NUM_LAYERS - 1; ++alpha)
+
+      return;
+   } // private void applyBatchUpdate(ABCDExecutionContext[] contexts, int count, double lambda, double[] destination)
+
+   /*
+    * Returns the flat buffer index of a weight
+    *
+    * parameters: layer is the weight layer (the synapse source layer), destination is the unit index in layer (layer + 1),
+    *             and source is the unit index in layer
+    * return: the index of the corresponding weight in the flat weights buffer
+    */
+   public int weightIndex(int layer, int destination, int source)
+   {
+      return (this.weightOffsets[layer] + destination * this.LAYER_SIZES[layer] + source);
+   } // public int weightIndex(int layer, int destination, int source)
+
+   /*
+    * Returns the start of a weight layer's block in the flat weights buffer
+    *
+    * parameters: layer is the weight layer, in the range [0, NUM_LAYERS - 1]; NUM_LAYERS - 1 gives the total number of weights
+    * return: the offset of the layer's first weight
+    */
+   public int getWeightOffset(int layer)
+   {
+      return this.weightOffsets[layer];
+   } // public int getWeightOffset(int layer)
+
+   /*
+    * Returns the model's flat weights buffer
+    *
+    * return: the weights buffer itself (not a copy). Writes through the returned array change the model's weights.
+    */
+   public double[] getWeights()
+   {
+      return this.w;
+   } // public double[] getWeights()
+
+   /*
+    * Returns a view of one weight layer
+    *
+    * parameters: layer is the weight layer (the synapse source layer), in the range [0, NUM_LAYERS - 1)
+    * return: a buffer sharing storage with the model's weights, positioned over the layer's destination-major block.
+    *         Element (gamma * LAYER_SIZES[layer] + beta) connects unit beta of layer to unit gamma of layer (layer + 1).
+    */
+   public DoubleBuffer getWeightLayer(int layer)
+   {
+      int layerLength = this.weightOffsets[layer + 1] - this.weightOffsets[layer];
+
+      return DoubleBuffer.wrap(this.w, this.weightOffsets[layer], layerLength).slice();
+   } // public DoubleBuffer getWeightLayer(int layer)
+
+   /*
+    * Returns the kernel used for dot products and weight updates
+    */
+   public ABCDKernel getKernel()
+   {
+      return this.kernel;
+   } // public ABCDKernel getKernel()
+
+   /*
+    * Returns the number of layers, including input, hidden, and output layers
+    */
+   public int getNumLayers()
+   {
+      return this.NUM_LAYERS;
+   } // public int getNumLayers()
+
+   /*
+    * Returns the number of units in a layer
+    *
+    * parameters: alpha is the layer index
+    */
+   public int getLayerSize(int alpha)
+   {
+      return this.LAYER_SIZES[alpha];
+   } // public int getLayerSize(int alpha)
+
+   /*
+    * Returns a copy of the layer sizes
+    */
+   public int[] getLayerSizes()
+   {
+      return this.LAYER_SIZES.clone();
+   } // public int[] getLayerSizes()
+
+} // public class ABCDModel
@@ -5,18 +5,26 @@
  * Date of creation: November 11, 2021
  */
 
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.Writer;
+import java.nio.DoubleBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.InputMismatchException;
 import java.util.NoSuchElementException;
 import java.util.Scanner;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicReference;
 
 /*
  * Defines an A-B-C-D multilayer perceptron that can run and train on inputs using gradient descent via backpropagation.
  * 
- * The number of input, hidden, and output units are variable. The number of hidden layers is fixed to 2.
+ * The number of input, hidden, and output units are variable. The number of layers is set by LAYER_SIZES in the network
+ * configuration file, which lists each layer's size from input to output and may have any length of at least MIN_LAYERS.
  * Weights are randomized or read from a file. 
  * File IO is used to construct the network, read and write weights, and (if desired) train and run on a set of members.
  * The network can be configured to forgo training capabilities if the network will only run.
@@ -25,8 +33,14 @@ public class ABCDNetwork
 {
    /*
     * Total number of layers, including input, hidden, and output layers
+    * Set by the number of sizes listed for LAYER_SIZES in the network configuration file
     */
-   private int NUM_LAYERS = 4;         // Not user configurable!
+   private int NUM_LAYERS;
+   
+   /*
+    * Fewest layers a network may have: an input and an output layer, with no hidden layers
+    */
+   public static final int MIN_LAYERS = 2;
    
    /*
     * Number of units in each layer
@@ -36,14 +50,45 @@ public class ABCDNetwork
    private int[] LAYER_SIZES;          // Of size NUM_LAYERS
    
    /*
-    * Units
+    * Weights and kernels, shareable between threads
+    * The weights file remains source-major; the model keeps its weights destination-major in one flat buffer.
+    */
+   private ABCDModel model;
+   
+   /*
+    * Units, compressed inputs, targets, and training details for this network's own execution
+    * Other threads running the same model use their own contexts (see getModel)
+    */
+   private ABCDExecutionContext context;
+   
+   /*
+    * One training context per member of a mini-batch. Only allocated if batchSize is greater than 1.
+    */
+   private ABCDExecutionContext[] batchContexts;
+   
+   /*
+    * Data-parallel trainer that shards each mini-batch across worker threads
+    * Only allocated instead of batchContexts if batchSize and numTrainingThreads are both greater than 1.
     */
-   private double[][] a;               // Each row is a layer: row 0 is the input layer, row 1 is the first hidden layer, etc.
+   private ABCDParallelTrainer parallelTrainer;
    
    /*
-    * Weights
+    * Single-precision model and contexts, used in place of the model and contexts above to run and train when the
+    * configuration file sets "precision:float32". The model's double weights then only serve to load and save weights:
+    * they are rounded into the float model after every load and widened from it before every save.
+    * All null in the default float64 precision.
     */
-   private double[][][] w;
+   private ABCDFloatModel floatModel;
+   private ABCDFloatExecutionContext floatContext;
+   private ABCDFloatExecutionContext[] floatBatchContexts;
+   
+   /*
+    * Int8 quantized model and context, used in place of the model and context above to run when the configuration file
+    * sets "precision:int8". The double weights are quantized into it after every load; the network cannot train.
+    * Both null in the other precisions.
+    */
+   private ABCDQuantizedModel quantizedModel;
+   private ABCDQuantizedExecutionContext quantizedContext;
    
    /*
     * Weight initialization
@@ -62,18 +107,8 @@ public class ABCDNetwork
    private double lambda;
    private double errorThreshold;
    private int maxIterations;
-   
-   /*
-    * Targets
-    */
-   private double[] T;                 // Only allocated if allocateForTraining is true
-   
-   /*
-    * Training hidden-output details. Only allocate if allocateForTraining is true.
-    * Both arrays contain NUM_LAYER rows
-    */
-   private double[][] Theta;           // The first and last (the input and output layers) are null since they are never used
-   private double[][] Psi;             // The first two layers (the input and leftmost hidden layer) is null since they are never used
+   private int batchSize = 1;          // Members per weight update. Optional in the configuration file; 1 is per-member training
+   private int numTrainingThreads = 1; // Workers sharing each mini-batch. Optional in the configuration file after batchSize
    
    /*
     * Training flags
@@ -95,31 +130,49 @@ public class ABCDNetwork
    private boolean saveWeightsAtEnd;
    
    /*
-    * Loop indices
+    * Writes the periodic checkpoints during trainOnSet on a background thread. Allocated on the first checkpoint.
+    */
+   private ABCDCheckpointWriter checkpointWriter;
+   
+   /*
+    * Resumable training checkpoint (weights plus training progress), written alongside the weights output file.
+    * Optional in the configuration file; null if not configured. trainOnSet resumes from it if it exists.
     */
+   private File checkpointFile;
    
-   private int alpha;                  // Layer index
+   private int WEIGHTS_WRITE_BUFFER_CHARS = 1 << 16;
    
    /*
-    * Loop indices for specific layers
-    * When each layer needs to be treated differently
+    * Prints a message every intervals with the error and milliseconds
     */
-   private int i;                      // Output layer
-   private int j;                      // Hidden layer 2
-   private int k;                      // Hidden layer 1
-   private int m;                      // Input layer
-     
+   private int printEvery = 20;
+   
    /*
-    * Generalized loop indices
-    * When each layer is treated the same way
+    * Pool that runOnSetInParallel splits input sets across, also used to load super files' mini files in parallel
     */
-   private int beta;                   // Current layer
-   private int gamma;                  // Layer to the right of the current layer
+   private ForkJoinPool runPool = ForkJoinPool.commonPool();
    
    /*
-    * Prints a message every intervals with the error and milliseconds
+    * Number of members runOnSet computes together as one matrix-matrix product per layer
+    * 0 means tune it automatically the first time a large enough input set is run
     */
-   private int printEvery = 20;
+   private int runBlockSize = 0;
+   
+   /*
+    * Number of members decoded at once when running a dataset
+    */
+   private int DATASET_CHUNK_MEMBERS = 256;
+   
+   /*
+    * Shape that image mini files are cropped and resized to (see ABCDImageFile)
+    * 0 means a square imageWidth = imageHeight = sqrt(number of input units)
+    */
+   private int imageWidth = 0;
+   private int imageHeight = 0;
+   
+   private int[] RUN_BLOCK_SIZE_CANDIDATES = {1, 2, 4, 8, 16, 32};
+   private int DEFAULT_RUN_BLOCK_SIZE = 8;            // Used untuned for input sets too small to tune on
+   private int MIN_MEMBERS_TO_TUNE = 64;              // Tuning samples this many members
    
    /*
     * Constructs the network using a network configuration file
@@ -174,14 +227,44 @@ public class ABCDNetwork
    } // public ABCDNetworkBP(File networkConfigFile) throws FileNotFoundException, IllegalArgumentException
    
    /*
-    * Reads the network sizes and allocates the corresponding unit and weight arrays
+    * Constructs a run-only network with the given layer sizes and zero weights, for example to load and convert a weights file
+    * 
+    * parameters: layerSizes holds the number of units in each layer
+    * postconditions: the model and a run-only execution context are allocated. Training is not allocated and nothing is saved
+    *                 until a weights output file is given to saveWeights(File).
+    *                 If layerSizes holds fewer than MIN_LAYERS sizes, throw an IllegalArgumentException.
+    */
+   public ABCDNetwork(int[] layerSizes) throws IllegalArgumentException
+   {
+      if (layerSizes.length < ABCDNetwork.MIN_LAYERS)
+      {
+         throw (new IllegalArgumentException("Invalid layer sizes. The number of layers (" + layerSizes.length + ") must be at least "
+                                             + ABCDNetwork.MIN_LAYERS + "."));
+      } // if (layerSizes.length < ABCDNetwork.MIN_LAYERS)
+      
+      this.NUM_LAYERS = layerSizes.length;
+      this.LAYER_SIZES = layerSizes.clone();
+      this.model = new ABCDModel(this.LAYER_SIZES, ABCDKernel.getDefaultKernel());
+      this.context = this.model.newContext(false);
+      
+      return;
+   } // public ABCDNetwork(int[] layerSizes) throws IllegalArgumentException
+   
+   /*
+    * Reads the network sizes and allocates the corresponding model
     * Does not close the scanner
     * 
     * parameters: networkFoundationReader, the scanner to read the network sizes
     * preconditions: networkFoundationReader is initialized to a scanner 
-    * postconditions: If the scanner's next (1 + NUM_LAYERS) tokens consist of a valid network configuration file's network sizes,
-    *                 load the file's network sizes into the network and allocate unit and weight arrays accordingly.
-    *                 The scanner's position therefore advances (1 + NUM_LAYERS) tokens forward.
+    * postconditions: If the scanner's next tokens are the label LAYER_SIZES and at least MIN_LAYERS dash-separated sizes,
+    *                 from input to output, set NUM_LAYERS to the number of sizes, load the sizes into the network,
+    *                 and allocate the model's weights accordingly.
+    *                 If the next two tokens are an optional precision entry (float64, the default, float32, or int8), they are read too,
+    *                 and float32 or int8 also allocates the single-precision or quantized model.
+    *                 If the next token is then an optional activation label, it is read with the activation names after it:
+    *                 either one name (see ABCDActivation.NAMES) for every layer or (NUM_LAYERS - 1) dash-separated names,
+    *                 one per layer after the input layer. Without the entry every layer uses the exact tanh.
+    *                 The scanner's position therefore advances past the sizes and whichever optional entries are present.
     *                 Otherwise, throw an IllegalArgumentException.
     *                 The scanner is not closed in this function. 
     */
@@ -194,23 +277,101 @@ public class ABCDNetwork
       {
          networkFoundationReader.useDelimiter(":|\\n|-");               // Use the colon, newline, and hyphen as delimiters
          
-         this.LAYER_SIZES = new int[this.NUM_LAYERS];                   // Allocates the layer sizes
-         
          networkFoundationReader.next();                                // Read the label "LAYER_SIZES"
          
          /*
-          * Read in the layer sizes
+          * Read in the layer sizes: every integer up to the next line's label
           */
-         for (alpha = 0; alpha < this.NUM_LAYERS; ++alpha)
+         ArrayList<Integer> layerSizeList = new ArrayList<Integer>();
+         
+         while (networkFoundationReader.hasNextInt())
+         {
+            layerSizeList.add(networkFoundationReader.nextInt());
+         } // while (networkFoundationReader.hasNextInt())
+         
+         if (layerSizeList.size() < ABCDNetwork.MIN_LAYERS)
+         {
+            throw (new IllegalArgumentException("Invalid network configuration file. LAYER_SIZES lists " + layerSizeList.size()
+                                                + " layers but must list at least " + ABCDNetwork.MIN_LAYERS + "."));
+         } // if (layerSizeList.size() < ABCDNetwork.MIN_LAYERS)
+         
+         this.NUM_LAYERS = layerSizeList.size();
+         this.LAYER_SIZES = new int[this.NUM_LAYERS];                   // Allocates the layer sizes
+         
+         for (int alpha = 0; alpha < this.NUM_LAYERS; ++alpha)
          {
-            this.LAYER_SIZES[alpha] = networkFoundationReader.nextInt();
-         } // for (alpha = 0; alpha < this.NUM_LAYERS; ++alpha)
+            this.LAYER_SIZES[alpha] = layerSizeList.get(alpha);
+         } // for (int alpha = 0; alpha < this.NUM_LAYERS; ++alpha)
          
          /*
-          * Allocate the units and weights using the network sizes
+          * Allocate the model (and with it the weights) using the network sizes
+          * The Vector API kernel is used when available, otherwise the scalar kernel
           */
-         this.allocateUnits();                                          
-         this.allocateWeights();
+         this.model = new ABCDModel(this.LAYER_SIZES, ABCDKernel.getDefaultKernel());
+         
+         if (networkFoundationReader.hasNext("precision"))              // Older configuration files are double precision
+         {
+            networkFoundationReader.next();                             // Read the label "precision"
+            String precision = networkFoundationReader.next();          // Read the precision name
+            
+            if (precision.equals("float32"))
+            {
+               this.floatModel = new ABCDFloatModel(this.LAYER_SIZES, this.model.getKernel());
+            } // if (precision.equals("float32"))
+            
+            else if (precision.equals("int8"))
+            {
+               this.quantizedModel = new ABCDQuantizedModel(this.LAYER_SIZES, this.model.getKernel());
+               this.quantizedContext = this.quantizedModel.newContext();
+            } // if (precision.equals("float32"))... else if (precision.equals("int8"))
+            
+            else if (!precision.equals("float64"))
+            {
+               throw (new IllegalArgumentException("Invalid network configuration file. The precision (" + precision + ") must be float64, float32, or int8."));
+            } // if (precision.equals("float32"))... else if (!precision.equals("float64"))
+         } // if (networkFoundationReader.hasNext("precision"))
+         
+         if (networkFoundationReader.hasNext("activation"))             // Older configuration files use the exact tanh
+         {
+            networkFoundationReader.next();                             // Read the label "activation"
+            
+            String activationNamePattern = String.join("|", ABCDActivation.NAMES);
+            ArrayList<ABCDActivation> activationList = new ArrayList<ABCDActivation>();
+            
+            while (networkFoundationReader.hasNext(activationNamePattern)) // Read the activation names
+            {
+               activationList.add(ABCDActivation.forName(networkFoundationReader.next()));
+            } // while (networkFoundationReader.hasNext(activationNamePattern))
+            
+            if (activationList.isEmpty())
+            {
+               throw (new IllegalArgumentException("Invalid network configuration file. The activation (" + networkFoundationReader.next()
+                                                   + ") must be one of " + String.join(", ", ABCDActivation.NAMES) + "."));
+            } // if (activationList.isEmpty())
+            
+            if (activationList.size() != 1 && activationList.size() != this.NUM_LAYERS - 1)
+            {
+               throw (new IllegalArgumentException("Invalid network configuration file. There must be one activation or one per layer after the input layer ("
+                                                   + (this.NUM_LAYERS - 1) + "), not " + activationList.size() + "."));
+            } // if (activationList.size() != 1 && activationList.size() != this.NUM_LAYERS - 1)
+            
+            ABCDActivation[] activations = new ABCDActivation[this.NUM_LAYERS];
+            
+            for (int alpha = 1; alpha < this.NUM_LAYERS; ++alpha)
+            {
+               activations[alpha] = activationList.get((activationList.size() == 1) ? 0 : alpha - 1);
+            } // for (int alpha = 1; alpha < this.NUM_LAYERS; ++alpha)
+            
+            try
+            {
+               this.setActivations(activations);
+            } // try
+            
+            catch (IllegalArgumentException illegalArgumentException)  // Softmax in a hidden layer, or a float32 network not using tanh
+            {
+               throw (new IllegalArgumentException("Invalid network configuration file. " + illegalArgumentException.getMessage()));
+            } // catch (IllegalArgumentException illegalArgumentException)
+         } // if (networkFoundationReader.hasNext("activation"))
       } // try
       
       catch (InputMismatchException inputMismatchException)             // If the scanner reads a wrong data type
@@ -310,7 +471,9 @@ public class ABCDNetwork
     * postconditions: If the scanner's next eight tokens consist of a valid network configuration file's training configuration 
     *                 (lambda, errorThreshold, maxIterations), load the file's training configuration into the network 
     *                 and allocate training arrays if indicated.
-    *                 The scanner's position therefore advances eight tokens forward.
+    *                 If the next two tokens are an optional batchSize entry, they are read too; otherwise batchSize stays 1.
+    *                 Likewise for an optional numTrainingThreads entry after it.
+    *                 The scanner's position therefore advances eight (ten, or twelve) tokens forward.
     *                 Otherwise, throw an IllegalArgumentException.
     *                 The scanner is not closed in this function. 
     */
@@ -335,15 +498,74 @@ public class ABCDNetwork
          trainingConfigReader.next();                                      // Read the label "maxIterations"
          this.maxIterations = trainingConfigReader.nextInt();              // Read the error threshold during training
          
+         if (trainingConfigReader.hasNext("batchSize"))                    // Older configuration files have no batch size
+         {
+            trainingConfigReader.next();                                   // Read the label "batchSize"
+            this.batchSize = trainingConfigReader.nextInt();               // Read the number of members per weight update
+         } // if (trainingConfigReader.hasNext("batchSize"))
+         
+         if (this.batchSize < 1)
+         {
+            throw (new IllegalArgumentException("Invalid network configuration file. The batch size (" + this.batchSize + ") must be at least 1."));
+         } // if (this.batchSize < 1)
+         
+         if (trainingConfigReader.hasNext("numTrainingThreads"))           // Older configuration files train on one thread
+         {
+            trainingConfigReader.next();                                   // Read the label "numTrainingThreads"
+            this.numTrainingThreads = trainingConfigReader.nextInt();      // Read the number of workers per mini-batch
+         } // if (trainingConfigReader.hasNext("numTrainingThreads"))
+         
+         if (this.numTrainingThreads < 1)
+         {
+            throw (new IllegalArgumentException("Invalid network configuration file. The number of training threads (" + this.numTrainingThreads + ") must be at least 1."));
+         } // if (this.numTrainingThreads < 1)
+         
          /*
-          * Allocate the training arrays (Thetas, targets, Psis) if desired
+          * Allocate the network's execution context, with the training arrays (Thetas, Psis) if desired
+          * Mini-batch training needs one training context per member of a batch, held by the parallel trainer if there are several threads
           */
-         if (this.allocateForTraining)
+         this.context = this.model.newContext(this.allocateForTraining);
+         
+         if (this.quantizedModel != null && this.allocateForTraining)
+         {
+            throw (new IllegalArgumentException("Invalid network configuration file. int8 precision only runs, so allocateForTraining must be false."));
+         } // if (this.quantizedModel != null && this.allocateForTraining)
+         
+         if (this.floatModel != null)
+         {
+            if (this.allocateForTraining && this.batchSize > 1 && this.numTrainingThreads > 1)
+            {
+               throw (new IllegalArgumentException("Invalid network configuration file. float32 precision trains on one thread, "
+                                                   + "so the number of training threads (" + this.numTrainingThreads + ") must be 1."));
+            } // if (this.allocateForTraining && this.batchSize > 1 && this.numTrainingThreads > 1)
+            
+            this.floatContext = this.floatModel.newContext(this.allocateForTraining);
+            
+            if (this.allocateForTraining && this.batchSize > 1)
+            {
+               this.floatBatchContexts = new ABCDFloatExecutionContext[this.batchSize];
+               
+               for (int b = 0; b < this.batchSize; ++b)
+               {
+                  this.floatBatchContexts[b] = this.floatModel.newContext(true);
+               } // for (int b = 0; b < this.batchSize; ++b)
+            } // if (this.allocateForTraining && this.batchSize > 1)
+         } // if (this.floatModel != null)
+         
+         else if (this.allocateForTraining && this.batchSize > 1 && this.numTrainingThreads > 1)
          {
-            this.allocateThetas();
-            this.allocateTargets();
-            this.allocatePsis();
-         } // if (this.allocateForTraining)
+            this.parallelTrainer = new ABCDParallelTrainer(this.model, this.numTrainingThreads, this.batchSize);
+         } // if (this.allocateForTraining && this.batchSize > 1 && this.numTrainingThreads > 1)
+         
+         else if (this.allocateForTraining && this.batchSize > 1)
+         {
+            this.batchContexts = new ABCDExecutionContext[this.batchSize];
+            
+            for (int b = 0; b < this.batchSize; ++b)
+            {
+               this.batchContexts[b] = this.model.newContext(true);
+            } // for (int b = 0; b < this.batchSize; ++b)
+         } // if (this.allocateForTraining && this.batchSize > 1)
       } // try
       
       catch (InputMismatchException inputMismatchException)                // If the scanner reads a wrong data type
@@ -368,7 +590,8 @@ public class ABCDNetwork
     * postconditions: If the scanner's next six tokens consist of a valid network configuration file's weight output configuration 
     * ```             (weights output file, weight-saving frequency, whether to save at the end),
     *                 load the file's training configuration into the network and allocate training arrays if indicated
-    *                 The scanner's position therefore advances six tokens forward.
+    *                 If the next two tokens are an optional checkpointFilename entry, they are read too.
+    *                 The scanner's position therefore advances six (or eight) tokens forward.
     *                 Otherwise, throw an IllegalArgumentException.
     *                 The scanner is not closed in this function. 
     */
@@ -387,6 +610,12 @@ public class ABCDNetwork
          
          weightsOutputConfigReader.next();                                       // Read the label "saveWeightsAtEnd"
          this.saveWeightsAtEnd = weightsOutputConfigReader.nextBoolean();        // Set whether to set the weights at the end
+         
+         if (weightsOutputConfigReader.hasNext("checkpointFilename"))            // Older configuration files have no checkpoint
+         {
+            weightsOutputConfigReader.next();                                    // Read the label "checkpointFilename"
+            this.checkpointFile = new File(weightsOutputConfigReader.next().trim()); // Set the resumable checkpoint file
+         } // if (weightsOutputConfigReader.hasNext("checkpointFilename"))
       } // try
       
       catch (InputMismatchException inputMismatchException)                      // If the scanner reads a wrong data type
@@ -408,19 +637,28 @@ public class ABCDNetwork
     * parameters: weightsInputFile is the weights input file path object
     * preconditions: the weight arrays are allocated appropriately
     * postconditions: If the file path object identifies a valid weight file, read the file's provided weights into the network's weights
+    *                 Binary weights files (see ABCDWeightsFile) are recognized by their magic number and memory-mapped instead of parsed.
     *                 If the given file path object does not identify an existing file, abort and throw a FileNotFoundException.
     *                 If the given file path object identifies an improperly formatted weight file, abort and throw an IllegalArgumentException.
     */
    public void loadWeights(File weightsInputFile) throws FileNotFoundException, IllegalArgumentException
    {
-      Scanner weightsInputReader;
+      ABCDTextReader weightsInputReader;
+      
+      if (ABCDWeightsFile.isBinary(weightsInputFile))
+      {
+         ABCDWeightsFile.read(weightsInputFile, this.LAYER_SIZES, this.model.getWeights());
+         this.roundWeightsToPrecision();
+         
+         return;
+      } // if (ABCDWeightsFile.isBinary(weightsInputFile))
       
       /*
        * Open the scanner and verify the file path object identifies an existing file
        */
       try
       {
-         weightsInputReader = new Scanner(weightsInputFile);   // New scanner to read the weight file
+         weightsInputReader = new ABCDTextReader(weightsInputFile);   // New reader for the weight file
       } // try
       
       catch (FileNotFoundException fileNotFoundException)      // If the file is not found, label and throw an exception
@@ -457,7 +695,9 @@ public class ABCDNetwork
       {
          weightsInputReader.close();                           // Always close the scanner
       } // finally
-         
+      
+      this.roundWeightsToPrecision();
+      
       return;
    } // private void readWeightsFromFile(File weightsInputFile)
    
@@ -472,9 +712,9 @@ public class ABCDNetwork
     *                 Otherwise, throw an IllegalArgumentException (if the file is too short, has a mismatched data type, or provides mismatching sizes)
     *                 The scanner is not closed in this function.
     */
-   private void confirmWeightsInputFile(Scanner weightsInputSizesReader) throws IllegalArgumentException
+   private void confirmWeightsInputFile(ABCDTextReader weightsInputSizesReader) throws IllegalArgumentException
    {
-      weightsInputSizesReader.useDelimiter(":|\\n|,|-");                         // Use the colon newline, comma, and hyphen as delimiters 
+      weightsInputSizesReader.useDelimiters(":\n,-");                         // Use the colon newline, comma, and hyphen as delimiters 
       
       /*
        * Store the provided number of layers and layer sizes
@@ -500,10 +740,10 @@ public class ABCDNetwork
 
          fileLayerSizes = new int[fileNumLayers];                                // Allocate the array storing the file's network sizes
 
-         for (alpha = 0; alpha < this.NUM_LAYERS; ++alpha)                       // Loops for each layer size
+         for (int alpha = 0; alpha < fileNumLayers; ++alpha)                     // Loops for each of the file's layer sizes
          {
             fileLayerSizes[alpha] = weightsInputSizesReader.nextInt();           // Reads the network sizes in order
-         } // for (alpha = 0; alpha < this.NUM_LAYERS; ++alpha)
+         } // for (int alpha = 0; alpha < fileNumLayers; ++alpha)
       } // try
       
       catch (InputMismatchException inputMismatchException)                      // If the scanner reads a wrong data type
@@ -535,7 +775,7 @@ public class ABCDNetwork
        * Check that each provided layer sizes match the actual layer sizes
        */
       boolean layerSizesMatch = true;                                            // Is set to false if the layer sizes do not match             
-      alpha = 0;
+      int alpha = 0;
       
       while (layerSizesMatch && alpha < this.NUM_LAYERS)
       {
@@ -578,7 +818,7 @@ public class ABCDNetwork
       } // if (!layerSizesMatch)
       
       return;
-   } // private void confirmWeightsInputFile(Scanner weightsInputSizesReader) throws IllegalArgumentException
+   } // private void confirmWeightsInputFile(ABCDTextReader weightsInputSizesReader) throws IllegalArgumentException
 
    /*
     * Loads in file weights by reading the provided weights
@@ -592,28 +832,30 @@ public class ABCDNetwork
     *                 Otherwise, throw an IllegalArgumentException (if the file is too short or has a mismatched data type).
     *                 The scanner is not closed in this function. 
     */
-   private void loadFileWeights(Scanner weightsReader) throws IllegalArgumentException
+   private void loadFileWeights(ABCDTextReader weightsReader) throws IllegalArgumentException
    {
-      weightsReader.useDelimiter(":|\\n|,");                                  // Use the colon, newline, and comma as delimiters 
+      weightsReader.useDelimiters(":\n,");                                  // Use the colon, newline, and comma as delimiters 
             
       /*
        * Read the weights into the weight arrays.
        * Use generalized indices since all the weights can be read identically
        */
+      double[] w = this.model.getWeights();
+      
       try
       {
-         for (alpha = 0; alpha < this.NUM_LAYERS - 1; ++alpha)                // Loop over the layers for the synapse source
+         for (int alpha = 0; alpha < this.NUM_LAYERS - 1; ++alpha)            // Loop over the layers for the synapse source
          {
             weightsReader.next();                                             // Reads an empty token separating layers
                         
-            for (beta = 0; beta < this.LAYER_SIZES[alpha]; ++beta)            // Loop through the current layer (synapse source)
+            for (int beta = 0; beta < this.LAYER_SIZES[alpha]; ++beta)        // Loop through the current layer (synapse source)
             {
-               for (gamma = 0; gamma < this.LAYER_SIZES[alpha + 1]; ++gamma)  // Loop through the next layer (synapse destination)
+               for (int gamma = 0; gamma < this.LAYER_SIZES[alpha + 1]; ++gamma) // Loop through the next layer (synapse destination)
                {
-                  this.w[alpha][beta][gamma] = weightsReader.nextDouble();    // Reads the corresponding weight value
-               } // for (gamma = 0; gamma < this.LAYER_SIZES[alpha + 1]; ++gamma)
-            } // for (beta = 0; beta < this.LAYER_SIZES[alpha]; ++beta) 
-         } // for (alpha = 0; alpha < this.NUM_LAYERS - 1; ++alpha)
+                  w[this.model.weightIndex(alpha, gamma, beta)] = weightsReader.nextDouble(); // Reads the corresponding weight value
+               } // for (int gamma = 0; gamma < this.LAYER_SIZES[alpha + 1]; ++gamma)
+            } // for (int beta = 0; beta < this.LAYER_SIZES[alpha]; ++beta) 
+         } // for (int alpha = 0; alpha < this.NUM_LAYERS - 1; ++alpha)
       } // try
       
       catch (InputMismatchException inputMismatchException)                   // If the scanner reads a wrong data type
@@ -627,92 +869,33 @@ public class ABCDNetwork
       } //  catch (NoSuchElementException noSuchElementException)
       
       return;
-   } // private void loadFileWeights(Scanner weightsReader) throws IllegalArgumentException
-   
-   /*
-    * Allocates unit arrays
-    * 
-    * preconditions: NUM_LAYERS is set to an appropriate positive integer
-    *                and LAYER_SIZES is set to an appropriate positive integer array of size NUM_LAYERS
-    * postconditions: the unit arrays are allocated
-    */
-   private void allocateUnits() 
-   {
-      /*
-       * Allocate the overall array to hold all the layers
-       */
-      this.a = new double[this.NUM_LAYERS][];
-      
-      /*
-       * Allocate each layer
-       */
-      for (alpha = 0; alpha < this.NUM_LAYERS; ++alpha)
-      {
-         this.a[alpha] = new double[this.LAYER_SIZES[alpha]];
-      } // for (alpha = 0; alpha < this.NUM_LAYERS; ++alpha)
-      
-      return;
-   } // private void allocateUnits()
-   
-   /*
-    * Allocate the target array
-    * 
-    * preconditions: the number of output units (this.LAYER_SIZES[this.NUM_LAYERS - 1])
-    *                is set to an appropriate positive integer.
-    * postconditions: the desired target array is allocated.
-    */
-   private void allocateTargets()
-   {
-      this.T = new double[this.LAYER_SIZES[this.NUM_LAYERS - 1]];
-      
-      return;
-   } // private void allocateTargets()
+   } // private void loadFileWeights(ABCDTextReader weightsReader) throws IllegalArgumentException
    
-   /*
-    * Allocate the weights array
-    * 
-    * preconditions: NUM_LAYERS is set to an appropriate positive integer 
-    *                and LAYER_SIZES is set to an appropriate positive integer array of size NUM_LAYERS
-    * postconditions: the weights array is allocated
-   */
-   private void allocateWeights()
-   {    
-      w = new double[this.NUM_LAYERS - 1][][];                    // Allocate the 3D array
-      
-      /*
-       * Allocate each layer
-       */
-      for (alpha = 0; alpha < this.NUM_LAYERS - 1; ++alpha)
-      {
-         this.w[alpha] = new double[this.LAYER_SIZES[alpha]][this.LAYER_SIZES[alpha + 1]];
-      } // for (alpha = 0; alpha < this.NUM_LAYERS; ++alpha)
-      
-      return;
-   } // private void allocateWeights()
-      
    /*
     * Loads weights from an input array
     * 
-    * parameters: new_w, the input weight array
-    * preconditions: the weight array and the input array have been allocated as a 3D array consisting of 
+    * parameters: new_w, the input weight array indexed new_w[alpha][gamma][beta] (layer, synapse destination, synapse source)
+    * preconditions: the weights buffer is allocated and the input array has been allocated as a 3D array consisting of 
     *                (NUM_LAYERS - 1) 2D arrays whose sizes correspond with the network with layer sizes LAYER_SIZES
-    * postconditions: the internal weight array matches the input weight array
+    * postconditions: the internal weights buffer matches the input weight array
     */
    public void loadWeights(double new_w[][][])
    {
       /*
        * Use generalized indices since all the weights can be loaded identically
+       * The input array shares the internal destination-major layout, so each row is copied as one contiguous run
        */
-      for (alpha = 0; alpha < this.NUM_LAYERS - 1; ++alpha)                // Loop over the layers for the synapse source
+      double[] w = this.model.getWeights();
+      
+      for (int alpha = 0; alpha < this.NUM_LAYERS - 1; ++alpha)            // Loop over the layers for the synapse source
       {         
-         for (beta = 0; beta < this.LAYER_SIZES[alpha]; ++beta)            // Loop through the current layer (synapse source)
+         for (int gamma = 0; gamma < this.LAYER_SIZES[alpha + 1]; ++gamma) // Loop through the next layer (synapse destination)
          {
-            for (gamma = 0; gamma < this.LAYER_SIZES[alpha + 1]; ++gamma)  // Loop through the next layer (synapse destination)
-            {
-               this.w[alpha][beta][gamma] = new_w[alpha][gamma][beta];     // Copy the corresponding weight value
-            } // for (gamma = 0; gamma < this.LAYER_SIZES[alpha + 1]; ++gamma)
-         } // for (beta = 0; beta < this.LAYER_SIZES[alpha]; ++beta)
-      } // for (alpha = 0; alpha < this.NUM_LAYERS - 1; ++alpha)
+            System.arraycopy(new_w[alpha][gamma], 0, w, this.model.weightIndex(alpha, gamma, 0), this.LAYER_SIZES[alpha]);
+         } // for (int gamma = 0; gamma < this.LAYER_SIZES[alpha + 1]; ++gamma)
+      } // for (int alpha = 0; alpha < this.NUM_LAYERS - 1; ++alpha)
+      
+      this.roundWeightsToPrecision();
       
       return;
    } // public void loadWeights(double new_w[][][])
@@ -732,144 +915,55 @@ public class ABCDNetwork
    /*
     * Randomizes weights to doubles within the network's specific range
     * 
-    * preconditions: the weight array and the input array have been allocated as a 3D array consisting of 
-    *                (NUM_LAYERS - 1) 2D arrays whose sizes correspond with the network with layer sizes LAYER_SIZES 
-    * postconditions: the weight array is populated with random doubles in the interval [RANDOM_WEIGHT_MIN, RANDOM_WEIGHT_MAX)
+    * preconditions: the weights buffer has been allocated for the network with layer sizes LAYER_SIZES 
+    * postconditions: the weights buffer is populated with random doubles in the interval [RANDOM_WEIGHT_MIN, RANDOM_WEIGHT_MAX)
     */
    public void randomizeWeights()
    {
       /*
-       * Use generalized indices since all the weights can be loaded identically
-       */
-      for (alpha = 0; alpha < this.NUM_LAYERS - 1; ++alpha)                // Loop over the layers for the synapse source
-      {         
-         for (beta = 0; beta < this.LAYER_SIZES[alpha]; ++beta)            // Loop through the current layer (synapse source)
-         {
-            for (gamma = 0; gamma < this.LAYER_SIZES[alpha + 1]; ++gamma)  // Loop through the next layer (synapse destination)
-            {
-               this.w[alpha][beta][gamma] = this.randomDouble();           // Copy the corresponding weight value
-            } // for (gamma = 0; gamma < this.LAYER_SIZES[alpha + 1]; ++gamma)
-         } // for (beta = 0; beta < this.LAYER_SIZES[alpha]; ++beta)
-      } // for (alpha = 0; alpha < this.NUM_LAYERS - 1; ++alpha)
-      
-      return;  
-   } // public void randomizeWeights()
-   
-   /*
-    * Allocate the necessary Theta arrays
-    * 
-    * preconditions: NUM_LAYERS is set to an appropriate positive integer,
-    *                and LAYER_SIZES is an appropriate positive integer array of size NUM_LAYERS
-    * postconditions: the hidden layer Theta arrays are allocated as a 2D array of size NUM_LAYERS.
-    *                 The input and output layer theta arrays are not allocated: their rows are included as empty to simplify indexing.
-    */
-   private void allocateThetas()
-   {
-      this.Theta = new double[this.NUM_LAYERS][];                 // Overall array
-      
-      /*
-       * Input Thetas never need to be stored: put a placeholder for simplified indexing
+       * Every weight is randomized identically, so sweep the flat buffer directly
        */
-      alpha = 0;
-      this.Theta[alpha] = null;
+      double[] w = this.model.getWeights();
       
-      /*
-       * Allocate hidden Thetas
-       */
-      for (alpha = 1; alpha < this.NUM_LAYERS - 1; ++alpha)       // Loops over hidden layers
+      for (int index = 0; index < w.length; ++index)
       {
-         this.Theta[alpha] = new double[this.LAYER_SIZES[alpha]];         
-      } // for (alpha = 1; alpha < this.NUM_LAYERS - 1; ++alpha)
+         w[index] = this.randomDouble();
+      } // for (int index = 0; index < w.length; ++index)
       
-      /*
-       * Output Thetas never need to be stored: put a placeholder for simplified indexing
-       */
-      alpha = this.NUM_LAYERS - 1;
-      this.Theta[alpha] = null;
+      this.roundWeightsToPrecision();
       
-      return;
-   } // private void allocateThetas()
-
+      return;  
+   } // public void randomizeWeights()
+   
    /*
-    * Allocate the necessary Psi arrays
+    * Rounds the double weights into the single-precision or quantized model, if there is one
     * 
-    * preconditions: NUM_LAYERS is set to an appropriate positive integer,
-    *                and LAYER_SIZES is an appropriate positive integer array of size NUM_LAYERS
-    * postconditions: non-first hidden and output Psi arrays are allocated as a 2D array of size NUM_LAYERS.
-    *                 The input and first hidden layer Psi arrays are not allocated: their rows are included as empty to simplify indexing.
+    * postconditions: in float32 precision the float weights are the double weights rounded to float, and in int8
+    *                 precision the quantized weights are the double weights quantized; otherwise nothing changes
     */
-   private void allocatePsis()
+   private void roundWeightsToPrecision()
    {
-      this.Psi = new double[this.NUM_LAYERS][];                // Overall array
-      
-      /*
-       * Input layer Psis never need to be stored: put a placeholder for simplified indexing
-       */
-      alpha = 0;
-      this.Psi[alpha] = null;
-      
-      /*
-       * First hidden layer Psis also never need to be stored: put a placeholder for simplified indexing
-       */
-      alpha = 1;
-      this.Psi[alpha] = null;
+      if (this.floatModel != null)
+         this.floatModel.setWeights(this.model.getWeights());
       
-      /*
-       * Allocate non-first hidden and output Thetas
-       */
-      for (alpha = 2; alpha < this.NUM_LAYERS; ++alpha)        // Loops over middle layers right of the first and the output
-      {
-         this.Psi[alpha] = new double[this.LAYER_SIZES[alpha]];
-      } // for (alpha = 2; alpha < this.NUM_LAYERS; ++alpha)
+      if (this.quantizedModel != null)
+         this.quantizedModel.setWeights(this.model.getWeights());
       
       return;
-   } // private void allocatePsis()
+   } // private void roundWeightsToPrecision()
    
    /*
-    * Loads new inputs into the input units.
-    * 
-    * parameters: new_a are the new inputs
-    * preconditions: the argument new_a is of length LAYER_SIZES[0]
-    * postconditions: the argument new_a values are copied into the internal input units
-    * 
-    * BOGO: not copied anymore
-    */
-   private void loadInputs(double[] new_a)
-   {
-      alpha = 0;                       // Select the input layer
-            
-//      for (m = 0; m < this.LAYER_SIZES[alpha]; ++m)
-//      {
-//         this.a[alpha][m] = new_a[m];
-//      } // for (m = 0; m < this.LAYER_SIZES[alpha]; ++m)
-//      
-      this.a[alpha] = new_a;
-      
-      return;
-   } // private void loadInputs(double[] new_a)
-      
-   /*
-    * Loads new targets into stored targets
+    * Returns the double weights buffer, first widened from the single-precision model if there is one
     * 
-    * parameters: new_T is the new targets
-    * preconditions: new_T is of length LAYER_SIZES[NUM_LAYERS - 1]
-    * postconditions: the argument new_T is copied into the internal targets
-    * 
-    * BOGO: not copied anymore
+    * return: the model's double weights, current with the weights used to run and train
     */
-   private void loadTargets(double[] new_T)
+   private double[] currentWeights()
    {
-//      alpha = this.NUM_LAYERS - 1;     // Select the output layer
-      
-//      for (i = 0; i < this.LAYER_SIZES[alpha]; ++i)
-//      {
-//         this.T[i] = new_T[i];
-//      } // for (i = 0; i < this.LAYER_SIZES[alpha]; ++i)
+      if (this.floatModel != null)
+         this.floatModel.getWeights(this.model.getWeights());
       
-      this.T = new_T;
-      
-      return;
-   } // private void loadTargets(double[] new_T)
+      return this.model.getWeights();
+   } // private double[] currentWeights()
    
    /*
     * Returns the output unit of the network
@@ -878,27 +972,41 @@ public class ABCDNetwork
     */
    public double[] getOutputs()
    {
-      alpha = this.NUM_LAYERS - 1;
+      if (this.floatModel != null)
+         return this.floatContext.getOutputs();
       
-      return this.a[alpha];
+      if (this.quantizedModel != null)
+         return this.quantizedContext.getOutputs();
+      
+      return this.context.getOutputs();
    } // public double[] getOutputs()
    
    /*
     * Extracts a set of input sets from a super input file that contains the file names of mini input files
+    * The mini files are parsed in parallel on the run pool (see setRunPool), each into its row of a preallocated input set.
+    * A packed dataset (see ABCDDatasetFile) is also accepted and expanded. Mini files may be images (see ABCDImageFile).
+    * 
+    * postconditions: If the super file or a mini file is not found, throws a FileNotFoundException naming it.
+    *                 If either is improperly formatted, throws an IllegalArgumentException; a mini file's message ends with its path.
+    *                 Once one mini file fails, no further mini files are opened.
     */
    public double[][] extractInputSetFromSuperFile(File superFile) throws FileNotFoundException, IllegalArgumentException
    {
-      double[][] inputSet = null;
-      
-      Scanner superReader;
+      ABCDTextReader superReader;
       int numMembers;
+      File[] miniFiles;
+      
+      if (ABCDDatasetFile.isDataset(superFile))
+      {
+         return this.openDataset(superFile).toInputSet();
+      } // if (ABCDDatasetFile.isDataset(superFile))
       
       /*
        * Open the scanner and verify the file path object identifies an existing file
        */
       try
       {
-         superReader = new Scanner(superFile);
+         superReader = new ABCDTextReader(superFile);
       } // try
       
       catch (FileNotFoundException fileNotFoundException)         // If the file is not found, label and throw an exception
@@ -911,26 +1019,23 @@ public class ABCDNetwork
        */
       try
       {
-         superReader.useDelimiter(":|\\n");                       // Use colon or newline
+         superReader.useDelimiters(":\n");                       // Use colon or newline
          
          superReader.next();                                      // Read the label "NUM_MEMBERS"
          numMembers = superReader.nextInt();                      // Read the file's provided number of input members
         
          /*
-          * Allocate the input array with numMembers rows and actualNumInputUnits columns
-          */
-         inputSet = new double[numMembers][this.getNumInputUnits()];
-         
-         /*
-          * Read the file into the inputs
+          * Read the mini file names
           */
-         superReader.useDelimiter(":|\\n|,");                     // Use colon, newline, or comma
+         superReader.useDelimiters(":\n,");                     // Use colon, newline, or comma
          
          superReader.next();                                      // Read an empty token separating input confirmation/file length and the input members
+         
+         miniFiles = new File[numMembers];
                   
          for (int member = 0; member < numMembers; ++member)      // Loop over members (lines in the file)
          {
-            inputSet[member] = this.extractInputMemberFromMiniFile(new File(superReader.next())); // Reads the corresponding input member file
+            miniFiles[member] = new File(superReader.next());     // Reads the corresponding input member file name
          } // for (int member = 0; member < numMembers; ++member)
       } // try
       
@@ -949,18 +1054,92 @@ public class ABCDNetwork
          superReader.close();                                    // Always close the scanner
       } // finally
       
+      return this.extractInputSetFromFiles(miniFiles);
+   } // public double[][] extractInputSetFromSuperFile(File superFile)
+   
+   /*
+    * Extracts an input set from a list of mini input files, text or image, as a super file listing them would
+    * The files are loaded in parallel on the run pool, each into its row of a preallocated input set.
+    * 
+    * parameters: miniFiles are the mini input files in member order
+    * return: the input set, one row per file
+    * postconditions: throws as extractInputSetFromSuperFile does for its mini files
+    */
+   public double[][] extractInputSetFromFiles(File[] miniFiles) throws FileNotFoundException, IllegalArgumentException
+   {
+      int numMembers = miniFiles.length;
+      
+      /*
+       * Load the mini files in parallel, each into its own preallocated row so the members keep their order.
+       * The first failure stops the remaining files and is rethrown here.
+       */
+      double[][] inputSet = new double[numMembers][this.getNumInputUnits()];
+      
+      AtomicReference<Exception> failure = new AtomicReference<Exception>();
+      int leafSize = Math.max(1, numMembers / (4 * this.runPool.getParallelism()));   // A few leaves per worker to balance uneven files
+      
+      this.runPool.invoke(new ABCDLoadTask(this, miniFiles, inputSet, 0, numMembers, leafSize, failure));
+      
+      if (failure.get() instanceof FileNotFoundException)
+         throw ((FileNotFoundException) failure.get());
+      
+      if (failure.get() != null)
+         throw ((RuntimeException) failure.get());
       
       return inputSet;
-   } // public double[][] extractInputSetFromSuperFile(File superFile)
+   } // public double[][] extractInputSetFromFiles(File[] miniFiles) throws FileNotFoundException, IllegalArgumentException
+   
+   /*
+    * Opens a packed dataset and confirms it matches the network's numbers of input and output units
+    * 
+    * parameters: datasetFile is the dataset file
+    * return: the opened dataset
+    * postconditions: throws a FileNotFoundException or IllegalArgumentException as ABCDDatasetFile.open does, or an
+    *                 IllegalArgumentException worded like the text loaders' if the unit counts do not match
+    */
+   public ABCDDatasetFile openDataset(File datasetFile) throws FileNotFoundException, IllegalArgumentException
+   {
+      ABCDDatasetFile dataset = ABCDDatasetFile.open(datasetFile);
+      
+      if (dataset.getNumInputUnits() != this.getNumInputUnits())
+      {
+         String longExceptionMessage = "Invalid input set file. The provided number of input units";
+         longExceptionMessage += " (" + dataset.getNumInputUnits() + ") does not match the network's number of input units (" + this.getNumInputUnits() + ").";
+         throw (new IllegalArgumentException(longExceptionMessage));
+      } // if (dataset.getNumInputUnits() != this.getNumInputUnits())
+      
+      if (dataset.getNumOutputUnits() != this.getNumOutputUnits())
+      {
+         String longExceptionMessage = "Invalid target set file. The provided number of output units";
+         longExceptionMessage += " (" + dataset.getNumOutputUnits() + ") does not match the network's number of target units (" + this.getNumOutputUnits() + ").";
+         throw (new IllegalArgumentException(longExceptionMessage));
+      } // if (dataset.getNumOutputUnits() != this.getNumOutputUnits())
+      
+      return dataset;
+   } // public ABCDDatasetFile openDataset(File datasetFile) throws FileNotFoundException, IllegalArgumentException
    
    /*
     * Extracts an input member from a mini input file
     */
    public double[] extractInputMemberFromMiniFile(File miniFile) throws FileNotFoundException, IllegalArgumentException
    {
-      double[] inputMember = null;
-    
-      Scanner miniReader;
+      double[] inputMember = new double[this.getNumInputUnits()];
+      
+      this.extractInputMemberFromMiniFile(miniFile, inputMember);
+      
+      return inputMember;
+   } // public double[] extractInputMemberFromMiniFile(File miniFile) throws FileNotFoundException, IllegalArgumentException
+   
+   /*
+    * Extracts an input member from a mini input file into a preallocated row
+    * An image file (see ABCDImageFile.isImage) is decoded, cropped, and resized to the image shape (see setImageShape).
+    * 
+    * parameters: miniFile is the mini input file, and inputMember is the row to fill, of length getNumInputUnits()
+    * postconditions: inputMember holds the file's inputs. Throws as extractInputMemberFromMiniFile(File) does.
+    */
+   public void extractInputMemberFromMiniFile(File miniFile, double[] inputMember) throws FileNotFoundException, IllegalArgumentException
+   {
+      ABCDTextReader miniReader;
       int fileNumInputUnits;
       
       /*
@@ -968,12 +1147,27 @@ public class ABCDNetwork
        */
       int actualNumInputUnits = this.getNumInputUnits();
       
+      if (ABCDImageFile.isImage(miniFile))
+      {
+         try
+         {
+            ABCDImageFile.read(miniFile, this.getImageWidth(), this.getImageHeight(), inputMember);
+         } // try
+         
+         catch (FileNotFoundException fileNotFoundException)      // Label like a missing text mini file
+         {
+            throw (new FileNotFoundException("Input set file not found: " + fileNotFoundException.getMessage()));
+         } // catch (FileNotFoundException fileNotFoundException)
+         
+         return;
+      } // if (ABCDImageFile.isImage(miniFile))
+      
       /*
        * Open the scanner and verify the file path object identifies an existing file
        */
       try
       {
-         miniReader = new Scanner(miniFile);
+         miniReader = new ABCDTextReader(miniFile);
       } // try
       
       catch (FileNotFoundException fileNotFoundException)         // If the file is not found, label and throw an exception
@@ -986,7 +1180,7 @@ public class ABCDNetwork
        */
       try
       {
-         miniReader.useDelimiter(":|\\n");                        // Use colon, newline, or comma
+         miniReader.useDelimiters(":\n");                        // Use colon, newline, or comma
          
          miniReader.next();                                       // Read the label "NUM_INPUT_UNITS"
          fileNumInputUnits = miniReader.nextInt();                // Read the file's provided number of input units
@@ -998,20 +1192,15 @@ public class ABCDNetwork
             throw (new IllegalArgumentException(longExceptionMessage));
          } // if (fileNumInputUnits != actualNumInputUnits)
          
-         /*
-          * Allocate the input member with actualNumInputUnits columns
-          */
-         inputMember = new double[actualNumInputUnits];
-         
          /*
           * Read the file into the inputs
           */
-         miniReader.useDelimiter(":|\\n|,");                      // Use colon, newline, or comma
+         miniReader.useDelimiters(":\n,");                      // Use colon, newline, or comma
                   
-         for (i = 0; i < actualNumInputUnits; ++i)                // Loop over the inputs for each member
+         for (int m = 0; m < actualNumInputUnits; ++m)            // Loop over the inputs for each member
          {
-               inputMember[i] = miniReader.nextDouble();          // Reads the corresponding input value
-         } // for (m = 0; m < actualNumInputUnits; ++m)
+               inputMember[m] = miniReader.nextDouble();          // Reads the corresponding input value
+         } // for (int m = 0; m < actualNumInputUnits; ++m)
       } // try
       
       catch (InputMismatchException inputMismatchException)       // If the scanner reads a wrong data type
@@ -1029,9 +1218,8 @@ public class ABCDNetwork
          miniReader.close();                                    // Always close the scanner
       } // finally
       
-      
-      return inputMember;
-   } // public double[] extractInputMemberFromMiniFile(File miniFile) throws FileNotFoundException, IllegalArgumentException
+      return;
+   } // public void extractInputMemberFromMiniFile(File miniFile, double[] inputMember) throws FileNotFoundException, IllegalArgumentException
    
    /*
     * Extracts a set of inputs from a file
@@ -1051,7 +1239,7 @@ public class ABCDNetwork
    {
       double[][] inputSet = null;                       // Stores the input set extracted from the file
       
-      Scanner inputsReader;
+      ABCDTextReader inputsReader;
       int fileNumInputUnits;
       int numMembers;
 
@@ -1065,7 +1253,7 @@ public class ABCDNetwork
        */
       try
       {
-         inputsReader = new Scanner(inputSetFile);
+         inputsReader = new ABCDTextReader(inputSetFile);
       } // try
       
       catch (FileNotFoundException fileNotFoundException)         // If the file is not found, label and throw an exception
@@ -1078,7 +1266,7 @@ public class ABCDNetwork
        */
       try
       {
-         inputsReader.useDelimiter(":|\\n");                      // Use colon or newline
+         inputsReader.useDelimiters(":\n");                      // Use colon or newline
          
          inputsReader.next();                                     // Read the label "NUM_INPUT_UNITS"
          fileNumInputUnits = inputsReader.nextInt();              // Read the file's provided number of input units
@@ -1104,16 +1292,16 @@ public class ABCDNetwork
          /*
           * Read the file into the inputs
           */
-         inputsReader.useDelimiter(":|\\n|,");                    // Use colon, newline, or comma
+         inputsReader.useDelimiters(":\n,");                    // Use colon, newline, or comma
          
          inputsReader.next();                                     // Read an empty token separating input confirmation/file length and the input members
          
          for (int member = 0; member < numMembers; ++member)      // Loop over members (lines in the file)
          {  
-            for (m = 0; m < actualNumInputUnits; ++m)             // Loop over the inputs for each member
+            for (int m = 0; m < actualNumInputUnits; ++m)         // Loop over the inputs for each member
             {
                inputSet[member][m] = inputsReader.nextDouble();   // Reads the corresponding input value
-            } // for (m = 0; m < actualNumInputUnits; ++m)
+            } // for (int m = 0; m < actualNumInputUnits; ++m)
          } // for (int member = 0; member < numMembers; ++member)
       } // try
       
@@ -1139,7 +1327,7 @@ public class ABCDNetwork
     * Extracts a set of targets from a file
     * Confirms that the file's number of output units matches the number of output units 
     * 
-    * parameters: targetSetFile, the file path object to extract the target set from
+    * parameters: targetSetFile, the file path object to extract the target set from, or a packed dataset (see ABCDDatasetFile)
     * postconditions: If the given file path object does not identify an existing file, 
     *                 aborts and throws a FileNotFoundException.
     *                 If the given file path object identifies an improperly formatted target set file, 
@@ -1152,10 +1340,15 @@ public class ABCDNetwork
    {
       double[][] targetSet = null;                                   // Stores the target set extracted from the file
       
-      Scanner targetSetReader;
+      ABCDTextReader targetSetReader;
       int fileNumOutputUnits;
       int numMembers;
       
+      if (ABCDDatasetFile.isDataset(targetSetFile))
+      {
+         return this.openDataset(targetSetFile).toTargetSet();
+      } // if (ABCDDatasetFile.isDataset(targetSetFile))
+      
       /*
        * The actual number of output units
        */
@@ -1166,7 +1359,7 @@ public class ABCDNetwork
        */
       try
       {
-         targetSetReader = new Scanner(targetSetFile);
+         targetSetReader = new ABCDTextReader(targetSetFile);
       } // try
       
       catch (FileNotFoundException fileNotFoundException)            // If the file is not found, label and throw an exception
@@ -1179,7 +1372,7 @@ public class ABCDNetwork
        */
       try
       {
-         targetSetReader.useDelimiter(":|\\n");                      // Use colon or newline
+         targetSetReader.useDelimiters(":\n");                      // Use colon or newline
          
          targetSetReader.next();                                     // Read the label "NUM_OUTPUT_UNITS"
          fileNumOutputUnits = targetSetReader.nextInt();             // Read the file's provided number of output units
@@ -1205,16 +1398,16 @@ public class ABCDNetwork
          /*
           * Read the file into the weights array
           */
-         targetSetReader.useDelimiter(":|\\n|,");                    // Use colon, newline, or comma
+         targetSetReader.useDelimiters(":\n,");                    // Use colon, newline, or comma
          
          targetSetReader.next();                                     // Read an empty token separating target confirmation/file length and the target members
          
          for (int member = 0; member < numMembers; ++member)         // Loop over members (lines in the file)
          {  
-            for (i = 0; i < actualNumOutputUnits; ++i)               // Loop over the targets for each member
+            for (int i = 0; i < actualNumOutputUnits; ++i)           // Loop over the targets for each member
             {
                targetSet[member][i] = targetSetReader.nextDouble();  // Reads the corresponding target value
-            } // for (i = 0; i < actualNumOutputUnits; ++u)   
+            } // for (int i = 0; i < actualNumOutputUnits; ++i)   
          } // for (int member = 0; member < numMembers; ++member)
          
       } // try
@@ -1250,239 +1443,156 @@ public class ABCDNetwork
     */
    public double[] runOnMember(double[] inputs)
    {
-      this.loadInputs(inputs);
-      this.executeWithoutDetails();
+      if (this.floatModel != null)
+         return this.floatModel.run(this.floatContext, inputs);
       
-      return this.getOutputs();
+      if (this.quantizedModel != null)
+         return this.quantizedModel.run(this.quantizedContext, inputs);
+      
+      return this.model.run(this.context, inputs);
    } // public double[] runOnMember(double[] inputs)
    
    /*
     * Run the network on the given input set WITHOUT calculating training details
     * Purely for fast and memory-efficient execution
+    * Members are run in blocks of the run block size, so each layer's weights are streamed once per block rather than once per member.
     * 
     * parameters: inputSet is the set of new inputs
-    * preconditions: inputSet has LAYER_SIZES[0] columns, the unit and weight arrays are allocated, and the weights are set 
-    * postconditions: the internal input units match the last member of the parameter input set, 
-    *                 and the hidden and output units are calculated appropriately. 
-    *                 Thetas and Psis go unchanged.
+    * preconditions: inputSet has LAYER_SIZES[0] columns and the weights are set 
+    * postconditions: the network's own units, Thetas, and Psis go unchanged.
+    *                 If the run block size is 0 and the set is large enough, the block size is tuned first.
     * return: the set of network outputs after running the network on the provided input set. Order is preserved.
+    *         With the scalar kernel the outputs are identical to running each member with runOnMember.
     */
    public double[][] runOnSet(double[][] inputSet)
    {
-      int numMembers = inputSet.length;
-      double[][] outputSet = new double[numMembers][];
+      if (this.floatModel != null)
+         return this.floatModel.runOnSet(inputSet);
       
-      for (int member = 0; member < numMembers; ++member)
-      {
-         /*
-          * Run the network on each input member and hard-copy the output arrays into the master output set
-          */
-         outputSet[member] = this.runOnMember(inputSet[member]).clone();
-      } // for (int member = 0; member < numMembers; ++member)
+      if (this.quantizedModel != null)
+         return this.quantizedModel.runOnSet(inputSet);
       
-      return outputSet;
+      return this.model.runOnSet(inputSet, this.resolveRunBlockSize(inputSet));
    } // public double[][] runOnSet(double[][] inputSet)
-    
+   
    /*
-    * Run the network on the given input set WITHOUT calculating training details
-    * Purely for fast and memory-efficient execution
+    * Returns the block size to run an input set with, tuning it first if it is not set yet
     * 
-    * parameters: inputSetFile is the file path object identifying the input set file.
-    * preconditions: the unit and weight arrays are allocated and the weights are set 
-    * postconditions: If the given file path object does not identify an existing file, aborts and throws a FileNotFoundException.
-    *                 If the given file path object identifies an improperly formatted control file,
-    *                 aborts and throws an IllegalArgumentException.
-                      Otherwise, the internal input units match the last member of the parameter input set, 
-    *                 and the hidden and output units are calculated appropriately. 
-    *                 Thetas and Psis go unchanged.
-    * return: the set of network outputs after running the network on the provided input set. Order is preserved.
+    * parameters: inputSet is the input set about to be run, also used as the tuning sample
+    * postconditions: if the run block size is 0 and inputSet has at least MIN_MEMBERS_TO_TUNE members,
+    *                 the run block size is set to the fastest candidate on its first MIN_MEMBERS_TO_TUNE members
+    * return: the run block size, or DEFAULT_RUN_BLOCK_SIZE if it is still not set
     */
-   public double[][] runOnSet(File inputSetFile) throws FileNotFoundException, IllegalArgumentException
+   private int resolveRunBlockSize(double[][] inputSet)
    {
-      return (this.runOnSet(this.extractInputSetFromFile(inputSetFile)));
-   } // public void runOnSet(File inputSetFile) throws FileNotFoundException, IllegalArgumentException
+      if (this.runBlockSize == 0 && inputSet.length >= this.MIN_MEMBERS_TO_TUNE)
+      {
+         double[][] sampleSet = Arrays.copyOf(inputSet, this.MIN_MEMBERS_TO_TUNE);   // Shares the member rows
+         
+         this.runBlockSize = this.model.tuneBlockSize(sampleSet, this.RUN_BLOCK_SIZE_CANDIDATES);
+      } // if (this.runBlockSize == 0 && inputSet.length >= this.MIN_MEMBERS_TO_TUNE)
+      
+      return ((this.runBlockSize == 0) ? this.DEFAULT_RUN_BLOCK_SIZE : this.runBlockSize);
+   } // private int resolveRunBlockSize(double[][] inputSet)
    
    /*
-    * Executes the network by evaluating hidden and output units from the input units. 
-    * Training details (Thetas and Psis) are NOT collected.
+    * Run the network on the given input set in parallel WITHOUT calculating training details
+    * Splits the input set across the network's run pool. Each worker uses its own execution context and the weights are shared.
+    * Each worker runs its members in blocks of the run block size.
     * 
-    * preconditions: the input units and the network weights have been loaded appropriately
-    * postconditions: updates hidden and output units based on the input units, weights, and activation function.
+    * parameters: inputSet is the set of new inputs
+    * preconditions: inputSet has LAYER_SIZES[0] columns and the weights are set 
+    * postconditions: the network's own units, Thetas, and Psis go unchanged.
+    * return: the set of network outputs, identical to runOnSet(inputSet). Order is preserved.
     */
-   private void executeWithoutDetails()
+   public double[][] runOnSetInParallel(double[][] inputSet)
    {
-      /*
-       * Use generalized indices (beta, gamma) since the hidden, and output unit layers can be computed identically
-       */
-      double localAllTheta_beta;                                                                // Temporary Theta for all layers
+      if (this.floatModel != null)
+         return this.floatModel.runOnSet(inputSet, this.runPool);
       
-      for (alpha = 1; alpha < this.NUM_LAYERS; ++alpha)                                         // Loop over the layers for the synapse destination
-      {         
-         for (beta = 0; beta < this.LAYER_SIZES[alpha]; ++beta)                                 // Loop through the current layer (synapse destination)
-         {
-            localAllTheta_beta = 0.0;                                                           // Reset the local Theta
-            
-            for (gamma = 0; gamma < this.LAYER_SIZES[alpha - 1]; ++gamma)                       // Loop through the previous layer (synapse source)
-            {
-               localAllTheta_beta += this.w[alpha - 1][gamma][beta] * this.a[alpha - 1][gamma]; // Accumulate the local Theta
-            } // for (gamma = 0; gamma < this.LAYER_SIZES[alpha - 1]; ++gamma)
-            
-            this.a[alpha][beta] = this.activationFunction(localAllTheta_beta);                  // Calculate the unit in the current layer
-         } // for (beta = 0; beta < this.LAYER_SIZES[alpha]; ++beta)
-      } // for (alpha = 1; alpha < this.NUM_LAYERS; ++alpha)
+      if (this.quantizedModel != null)
+         return this.quantizedModel.runOnSet(inputSet, this.runPool);
       
-      return;
-   } // private void executeWithoutDetails()
+      return this.model.runOnSet(inputSet, this.runPool, this.resolveRunBlockSize(inputSet));
+   } // public double[][] runOnSetInParallel(double[][] inputSet)
    
    /*
-    * Executes the network by evaluating hidden and output units from the input units. 
-    * Theta and Psi values are also updated and used.
+    * Run the network on a dataset WITHOUT calculating training details
+    * Members are decoded DATASET_CHUNK_MEMBERS at a time into reused rows and run as in runOnSet(double[][]), so only one
+    * chunk of inputs is held at once and a memory-mapped ABCDDatasetFile can be larger than the heap. The outputs are kept.
     * 
-    * preconditions: the input units have been loaded appropriately. The Theta and output psis arrays have been allocated.
-    * postconditions: updates hidden and output units, hidden Thetas, and output psis
-    *                 based on the input units, weights, and activation function.
+    * parameters: dataset holds the input members (its targets are not used)
+    * preconditions: the dataset has LAYER_SIZES[0] input units and the weights are set
+    * postconditions: the network's own units, Thetas, and Psis go unchanged.
+    * return: the set of network outputs, identical to runOnSet on the expanded input set. Order is preserved.
     */
-   private void executeWithDetails()
+   public double[][] runOnSet(ABCDDataset dataset)
    {
-      /*
-       * Evaluate the hidden layers, storing Thetas but NOT calculating Psis
-       * Use generalized indices (beta, gamma) since the hidden layers can be calculated identically
-       */
-      for (alpha = 1; alpha < this.NUM_LAYERS - 1; ++alpha)                                           // Loop over the layers for the synapse destination
-      {         
-         for (beta = 0; beta < this.LAYER_SIZES[alpha]; ++beta)                                       // Loop through the current layer (synapse destination)
-         {
-            this.Theta[alpha][beta] = 0.0;                                                            // Reset the stored Theta
-            
-            for (gamma = 0; gamma < this.LAYER_SIZES[alpha - 1]; ++gamma)                             // Loop through the previous layer (synapse source)
-            {
-               this.Theta[alpha][beta] += this.w[alpha - 1][gamma][beta] * this.a[alpha - 1][gamma];  // Accumulate the local Theta
-            } // for (gamma = 0; gamma < this.LAYER_SIZES[alpha - 1]; ++gamma)
-            
-            this.a[alpha][beta] = this.activationFunction(this.Theta[alpha][beta]);                   // Calculate the unit in the current layer
-         } // for (beta = 0; beta < this.LAYER_SIZES[alpha]; ++beta)
-      } // for (alpha = 1; alpha < this.NUM_LAYERS - 1; ++alpha)
-
-      /*
-       * Evaluate the output layer, NOT storing Thetas but calculating Psis
-       * Last layer: use index "i" and "j"
-       */      
-      double localOutputTheta_i;
-      
-      alpha = this.NUM_LAYERS - 1;                                                                    // Final layer
-      
-      for (i = 0; i < this.LAYER_SIZES[alpha]; ++i)
-      {
-         localOutputTheta_i = 0.0;                                                                    // Reset the local Theta
-         
-         for (j = 0; j < this.LAYER_SIZES[alpha - 1]; ++j)                                            // Loop through the previous layer (synapse source)
-         {
-            localOutputTheta_i += this.w[alpha - 1][j][i] * this.a[alpha - 1][j];                     // Accumulate the local Theta
-         } // for (j = 0; j < this.LAYER_SIZES[alpha - 1]; ++j)
-         
-         this.a[alpha][i] = this.activationFunction(localOutputTheta_i);                              // Calculate the unit in the current layer
-         
-         /*
-          * Calculates and stores output layer psi_i's. 
-          */
-         this.Psi[alpha][i] = (this.T[i] - this.a[alpha][i]);                                         // Calculates Omega_i
-         this.Psi[alpha][i] *= this.activationFunctionDerivative(localOutputTheta_i);                 // Broken into two lines to prevent long line
-      } // for (i = 0; i < this.LAYER_SIZES[alpha]; ++i)
-      
-      return;
-   } // private void executeWithDetails()
+      return this.runOnDataset(dataset, null);
+   } // public double[][] runOnSet(ABCDDataset dataset)
    
    /*
-    * Updates network weights via backpropagation
+    * Run the network on a dataset in parallel WITHOUT calculating training details
+    * As runOnSet(ABCDDataset), but each chunk is split across the network's run pool as in runOnSetInParallel(double[][]).
     * 
-    * preconditions: the input, hidden, and output units, the hidden Thetas, and the output layer
-    *                Psis are all calculated appropriately. The Psi arrays for the non-first hidden layers are allocated.
-    * postconditions: the network weights are updated using the unit activations, Thetas, and Psis.
+    * parameters: dataset holds the input members (its targets are not used)
+    * return: the set of network outputs, identical to runOnSet(dataset). Order is preserved.
     */
-   private void backpropagate()
+   public double[][] runOnSetInParallel(ABCDDataset dataset)
    {
-      /*
-       * Loop over the second hidden layer
-       * Use specific indices (j and i) since the second hidden layer is being processed
-       */
-      double localOmega_j;
-      
-      alpha = 2;                                                           // Select the second hidden layer
-      
-      for (j = 0; j < this.LAYER_SIZES[alpha]; ++j)                        // Loop over the second hidden layer
-      {
-         localOmega_j = 0.0;                                               // Reset the local Omega
-         
-         for (i = 0; i < this.LAYER_SIZES[alpha + 1]; ++i)                 // Loop over the output layer (right of second hidden layer)
-         {
-            localOmega_j += this.Psi[alpha + 1][i] * this.w[alpha][j][i];  // Accumulate the local Omega
-            this.w[alpha][j][i] += this.lambda * this.a[alpha][j] * this.Psi[alpha + 1][i];
-         } // for (i = 0; i < this.LAYER_SIZES[alpha + 1]; ++i)
-         
-         this.Psi[alpha][j] = localOmega_j * this.activationFunctionDerivative(this.Theta[alpha][j]);
-      } // for (j = 0; j < this.LAYER_SIZES[alpha]; ++j)
-      
-      /*
-       * Loop over the first hidden layer
-       * Use specific indices (i, k, and m) since the first hidden layer is being processed
-       */      
-      double localOmega_k;
-      double localPsi_k;      
-      
-      alpha = 1;                                                           // Select the first hidden layer
+      return this.runOnDataset(dataset, this.runPool);
+   } // public double[][] runOnSetInParallel(ABCDDataset dataset)
+   
+   /*
+    * Runs a dataset chunk by chunk
+    * 
+    * parameters: dataset holds the input members, and pool is the pool to split each chunk across, or null to run serially
+    * return: the set of network outputs. Order is preserved.
+    */
+   private double[][] runOnDataset(ABCDDataset dataset, ForkJoinPool pool)
+   {
+      int numMembers = dataset.getNumMembers();
+      double[][] outputSet = new double[numMembers][];
+      double[][] inputBuffers = new double[Math.min(this.DATASET_CHUNK_MEMBERS, numMembers)][this.getNumInputUnits()];
+      double[][] chunkInputs = new double[inputBuffers.length][];
       
-      for (k = 0; k < this.LAYER_SIZES[alpha]; ++k)                        // Loop over the first hidden layer
+      for (int start = 0; start < numMembers; start += this.DATASET_CHUNK_MEMBERS)
       {
-         localOmega_k = 0.0;                                               // Reset the local Omega
+         int count = Math.min(this.DATASET_CHUNK_MEMBERS, numMembers - start);
          
-         for (j = 0; j < this.LAYER_SIZES[alpha + 1]; ++j)                 // Loop over the second hidden layer
+         for (int b = 0; b < count; ++b)
          {
-            localOmega_k += this.Psi[alpha + 1][j] * this.w[alpha][k][j];  // Accumulate the local Omega
-            this.w[alpha][k][j] += this.lambda * this.a[alpha][k] * this.Psi[alpha + 1][j];
-         } // for (j = 0; j < this.LAYER_SIZES[alpha + 1]; ++j)
+            chunkInputs[b] = dataset.getInputs(start + b, inputBuffers[b]);
+         } // for (int b = 0; b < count; ++b)
          
-         localPsi_k = localOmega_k * this.activationFunctionDerivative(this.Theta[alpha][k]);
+         double[][] chunk = (count == chunkInputs.length) ? chunkInputs : Arrays.copyOf(chunkInputs, count);
+         double[][] chunkOutputs = (pool == null) ? this.runOnSet(chunk) : this.runOnSetInParallel(chunk);
          
-         /*
-          * Update the input layer weights without calculating further Omegas or Psis
-          */
-         for (m = 0; m < this.LAYER_SIZES[alpha - 1]; ++m)
-         {
-            this.w[alpha - 1][m][k] += this.lambda * this.a[alpha - 1][m] * localPsi_k;
-         } // for (m = 0; m < this.LAYER_SIZES[alpha - 1]; ++m)
-      } // for (k = 0; k < this.LAYER_SIZES[alpha]; ++k)
+         System.arraycopy(chunkOutputs, 0, outputSet, start, count);
+      } // for (int start = 0; start < numMembers; start += this.DATASET_CHUNK_MEMBERS)
       
-      return;
-   } // private void backpropagate()
-   
+      return outputSet;
+   } // private double[][] runOnDataset(ABCDDataset dataset, ForkJoinPool pool)
+    
    /*
-    * Returns the activation function of a real number
+    * Run the network on the given input set WITHOUT calculating training details
+    * Purely for fast and memory-efficient execution
     * 
-    * parameters: x, the real number input
-    * return: the hyperbolic tangent of the input
+    * parameters: inputSetFile is the file path object identifying the input set file, or a packed dataset, which is streamed
+    * preconditions: the unit and weight arrays are allocated and the weights are set 
+    * postconditions: If the given file path object does not identify an existing file, aborts and throws a FileNotFoundException.
+    *                 If the given file path object identifies an improperly formatted control file,
+    *                 aborts and throws an IllegalArgumentException.
+                      Otherwise, the input set is run as in runOnSet(double[][]). The network's own units, Thetas, and Psis go unchanged.
+    * return: the set of network outputs after running the network on the provided input set. Order is preserved.
     */
-   private double activationFunction(double x) 
+   public double[][] runOnSet(File inputSetFile) throws FileNotFoundException, IllegalArgumentException
    {
-      // return 1.0/(1.0 + Math.exp(-x));  // Sigmoid   
-      
-      return Math.tanh(x);
-   } // private double activationFunction(double x)
-   
-   /*
-    * Returns the derivative of the activation function of a real number
-    * 
-    * parameters: x, the real number input
-    * return: the derivative of the sigmoid of the input
-    */
-   private double activationFunctionDerivative(double x)
-   {  
-      // double f = this.activationFunction(x);
-      // return f * (1.0 - f);             // Sigmoid derivative
+      if (ABCDDatasetFile.isDataset(inputSetFile))
+         return this.runOnSet(this.openDataset(inputSetFile));
       
-      double c = Math.cosh(x);
-      return 1.0/(c * c);                 // Hyperbolic tangent derivative
-      
-   } // private double activationFunctionDerivative(double x)
+      return (this.runOnSet(this.extractInputSetFromFile(inputSetFile)));
+   } // public void runOnSet(File inputSetFile) throws FileNotFoundException, IllegalArgumentException
    
    /*
     * Calculates the error
@@ -1492,18 +1602,10 @@ public class ABCDNetwork
     */
    public double getError()
    {
-      double total = 0.0;
-      double current_omega;
+      if (this.floatModel != null)
+         return this.floatContext.getError();
       
-      alpha = this.NUM_LAYERS - 1;                     // Select output layer
-      
-      for (i = 0; i < this.LAYER_SIZES[alpha]; ++i)
-      {
-         current_omega = this.T[i] - this.a[alpha][i];         
-         total += current_omega * current_omega;    
-      } // for (i = 0; i < this.LAYER_SIZES[alpha]; ++i)
-      
-      return (total/2.0);
+      return this.context.getError();
    } // public double getError()
 
    /*
@@ -1518,11 +1620,10 @@ public class ABCDNetwork
     */
    public void trainOnMember(double[] inputs, double[] targets)
    {
-      this.loadInputs(inputs);
-      this.loadTargets(targets);
-      
-      this.executeWithDetails();
-      this.backpropagate();
+      if (this.floatModel != null)
+         this.floatModel.train(this.floatContext, inputs, targets, this.lambda);
+      else
+         this.model.train(this.context, inputs, targets, this.lambda);
    
       return;
    } // public void trainOnMember(double[] inputs, double[] targets)
@@ -1537,24 +1638,64 @@ public class ABCDNetwork
     * postconditions: the weights of the arrays are altered until either enough iterations have occurred or the largest error of the network 
     *                 over the training set (with latency) is lower than the network's threshold value. The network's units and target are populated with 
     *                 the last member in the input set and target set respectively.
+    *                 If batchSize is above 1, the weights are instead updated once per batch of batchSize consecutive members
+    *                 with the batch's summed weight changes, and the batch contexts hold the last batch's members.
+    *                 If numTrainingThreads is also above 1, each batch is split across that many workers whose changes are
+    *                 summed in a fixed order (see ABCDParallelTrainer), so results are repeatable but can differ in the last bits.
     *                 If saveWeightsEvery is nonzero, the weights are written to the specified file every saveWeights iterations.
+    *                 These checkpoints snapshot the weights and are written on a background thread while training continues;
+    *                 a failed checkpoint's IOException is thrown at the next checkpoint or at the end of training.
     *                 If saveWeightsAtEnd is true, writes the weights are written to specified file at the end of training.
+    *                 If a checkpoint file is configured, it is written whenever the weights are, and if it already exists when
+    *                 training starts, training resumes from it: the weights, numIterations, and maximumSetError are restored
+    *                 and maxIterations counts the iterations done before the restart.
     *                 If weights are to be saved, it is possible an IOException is thrown during file writing. Execution is then aborted.
     */
    public void trainOnSet(double[][] inputSet, double[][] targetSet) throws IOException
+   {
+      this.trainOnSet(new ABCDArrayDataset(inputSet, targetSet));
+      
+      return;
+   } // public void trainOnSet(double[][] inputSet, double[][] targetSet) throws IOException
+   
+   /*
+    * Trains the network over a dataset until enough iterations are completed or the error threshold is achieved
+    * Identical to trainOnSet(double[][], double[][]), but members are read from the dataset as they are trained, so only
+    * one member (or one batch) is decoded at a time. A memory-mapped ABCDDatasetFile can therefore be larger than the heap.
+    * 
+    * parameters: dataset holds the training members and their targets
+    * preconditions: as in trainOnSet(double[][], double[][])
+    * postconditions: as in trainOnSet(double[][], double[][]). The weights are the same as training on the expanded arrays.
+    */
+   public void trainOnSet(ABCDDataset dataset) throws IOException
    {
       /*
-       * Training progress variables
+       * Training progress variables, continued from the checkpoint if there is one
        */
       this.numIterations = 0;
       this.maximumSetError = 0.0;                                       // the maximum error on this iteration of the training set
       
+      if (this.checkpointFile != null && this.checkpointFile.isFile())
+      {
+         this.resumeFromCheckpoint(this.checkpointFile);
+         System.out.println("Resumed from " + this.checkpointFile.getName() + " after iteration " + this.numIterations);
+      } // if (this.checkpointFile != null && this.checkpointFile.isFile())
+      
       
       /*
        * Training set iteration
        */
       int memberIndex = 0;
-      int numMembers = inputSet.length;
+      int numMembers = dataset.getNumMembers();
+      
+      /*
+       * Rows the dataset decodes members into (an in-memory dataset returns its own rows instead)
+       * batchInputs and batchTargets hold the current batch's rows for the batch trainers
+       */
+      double[][] inputBuffers = new double[this.batchSize][this.getNumInputUnits()];
+      double[][] targetBuffers = new double[this.batchSize][this.getNumOutputUnits()];
+      double[][] batchInputs = new double[this.batchSize][];
+      double[][] batchTargets = new double[this.batchSize][];
       
       /*
        * Whether to save weights this iteration
@@ -1587,21 +1728,62 @@ public class ABCDNetwork
          /*
           * Iterate through each member in the training set once
           */
-         for (memberIndex = 0; memberIndex < numMembers; ++memberIndex)
-         {  
-            /*
-             * Train the network on the selected member.
-             * inputSet[memberIndex] extracts row
-             */
-            this.trainOnMember(inputSet[memberIndex], targetSet[memberIndex]);
-            
-            /*
-             * Update the maximum error
-             */
-            currentError = this.getError();
-            if (maximumSetError < currentError)
-               maximumSetError = currentError;
-         } // for (memberIndex = 0; memberIndex < numMembers; ++memberIndex)
+         if (this.batchSize == 1)
+         {
+            for (memberIndex = 0; memberIndex < numMembers; ++memberIndex)
+            {  
+               /*
+                * Train the network on the selected member.
+                */
+               this.trainOnMember(dataset.getInputs(memberIndex, inputBuffers[0]), dataset.getTargets(memberIndex, targetBuffers[0]));
+               
+               /*
+                * Update the maximum error
+                */
+               currentError = this.getError();
+               if (maximumSetError < currentError)
+                  maximumSetError = currentError;
+            } // for (memberIndex = 0; memberIndex < numMembers; ++memberIndex)
+         } // if (this.batchSize == 1)
+         
+         /*
+          * Mini-batch training: one weight update per batchSize members (the last batch may be smaller)
+          */
+         else
+         {
+            for (memberIndex = 0; memberIndex < numMembers; memberIndex += this.batchSize)
+            {
+               int count = Math.min(this.batchSize, numMembers - memberIndex);
+               
+               for (int b = 0; b < count; ++b)
+               {
+                  batchInputs[b] = dataset.getInputs(memberIndex + b, inputBuffers[b]);
+                  batchTargets[b] = dataset.getTargets(memberIndex + b, targetBuffers[b]);
+               } // for (int b = 0; b < count; ++b)
+               
+               if (this.floatModel != null)
+                  this.floatModel.trainOnBatch(this.floatBatchContexts, batchInputs, batchTargets, 0, count, this.lambda);
+               else if (this.parallelTrainer != null)
+                  this.parallelTrainer.trainOnBatch(this.model, batchInputs, batchTargets, 0, count, this.lambda);
+               else
+                  this.model.trainOnBatch(this.batchContexts, batchInputs, batchTargets, 0, count, this.lambda);
+               
+               /*
+                * Update the maximum error using each member's error from before the batch's update
+                */
+               for (int b = 0; b < count; ++b)
+               {
+                  if (this.floatModel != null)
+                     currentError = this.floatBatchContexts[b].getError();
+                  else if (this.parallelTrainer != null)
+                     currentError = this.parallelTrainer.getError(b);
+                  else
+                     currentError = this.batchContexts[b].getError();
+                  if (maximumSetError < currentError)
+                     maximumSetError = currentError;
+               } // for (int b = 0; b < count; ++b)
+            } // for (memberIndex = 0; memberIndex < numMembers; memberIndex += this.batchSize)
+         } // if (this.batchSize == 1)... else
          
          /*
           * Increment the number of iterations and update the stopping flags
@@ -1618,8 +1800,26 @@ public class ABCDNetwork
          
          if (saveOnThisIteration)
          {
-            this.saveWeights();
-            System.out.println("Saved weights on iteration " + numIterations + " to " + this.weightsOutputFile.getName());
+            if (this.checkpointWriter == null)
+               this.checkpointWriter = new ABCDCheckpointWriter(this.model.getWeights().length, this::writeWeights);
+            
+            if (this.checkpointFile == null)
+            {
+               this.checkpointWriter.checkpoint(this.weightsOutputFile, this.currentWeights());
+            } // if (this.checkpointFile == null)
+            
+            else
+            {
+               ABCDTrainingCheckpoint progress = this.getTrainingProgress();
+               
+               this.checkpointWriter.checkpoint(this.currentWeights(), snapshot ->
+               {
+                  ABCDCheckpointWriter.replaceAtomically(this.weightsOutputFile, snapshot, this::writeWeights);
+                  ABCDCheckpointWriter.replaceAtomically(this.checkpointFile, snapshot,
+                                                         (file, w) -> progress.write(file, this.LAYER_SIZES, w));
+               });
+            } // if (this.checkpointFile == null)... else
+            System.out.println("Saving weights on iteration " + numIterations + " to " + this.weightsOutputFile.getName() + " in the background");
          } // if (saveOnThisIteration)
          
          /*
@@ -1635,6 +1835,12 @@ public class ABCDNetwork
          
       } // while (!this.maxIterationsReached && !this.errorThresholdSatisified)
       
+      /*
+       * Stop the parallel trainer's worker threads; the next training session starts them again
+       */
+      if (this.parallelTrainer != null)
+         this.parallelTrainer.shutdown();
+      
       /*
        * If the weights should be saved at the end AND the last iteration didn't already save, save the weights
        */
@@ -1642,17 +1848,29 @@ public class ABCDNetwork
       {
          this.saveWeights();
          System.out.println("Saved weights at end on iteration " + numIterations + " to " + this.weightsOutputFile.getName());
+         
+         if (this.checkpointFile != null)
+            this.saveTrainingCheckpoint(this.checkpointFile);
       } // if (this.saveWeightsAtEnd && !saveOnThisIteration)
       
+      /*
+       * Wait for the last background checkpoint so the weights file is complete when training returns
+       */
+      if (this.checkpointWriter != null)
+      {
+         this.checkpointWriter.await();
+      } // if (this.checkpointWriter != null)
+      
       return;
-   } // public void trainOnSet(double[][] inputSet, double[][] targetSet) throws IOException
+   } // public void trainOnSet(ABCDDataset dataset) throws IOException
    
    /*
     * Trains the network over a training set until enough iterations are completed or the error threshold is achieved
     * Optionally saves weights after a set number of iterations and/or at the end of training.
     * 
     * parameters: inputSetFile is the file path object identifying the file containing the input members, 
-    *             targetSet is the file path object identifying the file containing the corresponding target outputs
+    *             targetSet is the file path object identifying the file containing the corresponding target outputs.
+    *             If both name the same packed dataset, it is streamed from its mapping instead of being expanded.
     * preconditions: the unit and weight arrays are allocated correctly, and each inputSetFile input element corresponds 
     *                with the targetSetFile target element on the same line.
     *                If weights are to be saved, then the weight-saving file and frequency are set.
@@ -1667,11 +1885,123 @@ public class ABCDNetwork
     */
    public void trainOnSet(File inputSetFile, File targetSetFile) throws FileNotFoundException, IllegalArgumentException, IOException
    {
+      if (ABCDDatasetFile.isDataset(inputSetFile) && inputSetFile.equals(targetSetFile))
+      {
+         this.trainOnSet(this.openDataset(inputSetFile));
+         
+         return;
+      } // if (ABCDDatasetFile.isDataset(inputSetFile) && inputSetFile.equals(targetSetFile))
+      
       this.trainOnSet(this.extractInputSetFromFile(inputSetFile), this.extractTargetSetFromFile(targetSetFile));
       
       return;
    } // public void trainOnSet(File inputSetFile, File targetSetFile) throws FileNotFoundException, IllegalArgumentException
    
+   /*
+    * Captures the current training progress for a checkpoint
+    * 
+    * return: the number of completed iterations, the training parameters, and the last maximum set error
+    */
+   private ABCDTrainingCheckpoint getTrainingProgress()
+   {
+      return new ABCDTrainingCheckpoint(this.numIterations, this.batchSize, this.lambda, this.maximumSetError);
+   } // private ABCDTrainingCheckpoint getTrainingProgress()
+   
+   /*
+    * Saves a resumable training checkpoint: the weights plus the training progress (see ABCDTrainingCheckpoint)
+    * 
+    * parameters: checkpointFile is the file to write
+    * postconditions: the checkpoint is written to a temporary file and renamed over checkpointFile.
+    *                 If writing causes an IO exception, an IO exception is thrown.
+    */
+   public void saveTrainingCheckpoint(File checkpointFile) throws IOException
+   {
+      if (this.checkpointWriter != null)
+      {
+         this.checkpointWriter.await();               // Never race a background checkpoint to the same file
+      } // if (this.checkpointWriter != null)
+      
+      ABCDTrainingCheckpoint progress = this.getTrainingProgress();
+      
+      ABCDCheckpointWriter.replaceAtomically(checkpointFile, this.currentWeights(), (file, w) -> progress.write(file, this.LAYER_SIZES, w));
+      
+      return;
+   } // public void saveTrainingCheckpoint(File checkpointFile) throws IOException
+   
+   /*
+    * Restores the weights and training progress from a training checkpoint
+    * 
+    * parameters: checkpointFile is a checkpoint written by this network's configuration
+    * postconditions: the weights, numIterations, maximumSetError, and the stopping flags are restored.
+    *                 If the file does not exist, throws a FileNotFoundException. If it is invalid for this network, or was
+    *                 written with a different batch size or learning rate, throws an IllegalArgumentException and nothing changes.
+    */
+   public void resumeFromCheckpoint(File checkpointFile) throws FileNotFoundException, IllegalArgumentException
+   {
+      double[] restoredWeights = new double[this.model.getWeights().length];
+      ABCDTrainingCheckpoint checkpoint = ABCDTrainingCheckpoint.read(checkpointFile, this.LAYER_SIZES, restoredWeights);
+      
+      if (checkpoint.batchSize != this.batchSize)
+      {
+         throw (new IllegalArgumentException("Invalid checkpoint file. The checkpoint batch size (" + checkpoint.batchSize
+                                             + ") does not match the network batch size (" + this.batchSize + ")."));
+      } // if (checkpoint.batchSize != this.batchSize)
+      
+      if (checkpoint.lambda != this.lambda)
+      {
+         throw (new IllegalArgumentException("Invalid checkpoint file. The checkpoint lambda (" + checkpoint.lambda
+                                             + ") does not match the network lambda (" + this.lambda + ")."));
+      } // if (checkpoint.lambda != this.lambda)
+      
+      System.arraycopy(restoredWeights, 0, this.model.getWeights(), 0, restoredWeights.length);
+      this.roundWeightsToPrecision();
+      
+      this.numIterations = checkpoint.numIterations;
+      this.maximumSetError = checkpoint.maximumSetError;
+      this.maxIterationsReached = (this.numIterations >= this.maxIterations);
+      this.errorThresholdSatisified = (this.numIterations > 0 && this.maximumSetError < this.errorThreshold);
+      
+      return;
+   } // public void resumeFromCheckpoint(File checkpointFile) throws FileNotFoundException, IllegalArgumentException
+   
+   /*
+    * Trains the network over a training set on several threads at once, each updating the shared weights after every member
+    * without locks (see ABCDHogwildTrainer), until enough iterations are completed or the error threshold is achieved
+    * 
+    * parameters: inputSet is the set of each input member, targetSet is the set of corresponding target outputs,
+    *             and numThreads is the number of training threads
+    * preconditions: the network is allocated for training and each inputSet element corresponds with the targetSet element of the same index
+    * postconditions: the weights are trained, and numIterations, maximumSetError, and the stopping flags describe the completed iterations.
+    *                 batchSize is ignored. The weights are not saved during training since other threads are still changing them;
+    *                 if saveWeightsAtEnd is true, they are written to the specified file once training ends.
+    *                 If weights are to be saved, it is possible an IOException is thrown during file writing.
+    *                 Not available in float32 precision: throws an IllegalStateException.
+    */
+   public void trainOnSetAsynchronously(double[][] inputSet, double[][] targetSet, int numThreads) throws IOException
+   {
+      if (this.floatModel != null)
+      {
+         throw (new IllegalStateException("Asynchronous training is not available in float32 precision."));
+      } // if (this.floatModel != null)
+      
+      ABCDHogwildTrainer trainer = new ABCDHogwildTrainer(this.model, numThreads);
+      
+      trainer.train(inputSet, targetSet, this.lambda, this.errorThreshold, this.maxIterations);
+      
+      this.numIterations = trainer.getNumIterations();
+      this.maximumSetError = trainer.getMaximumSetError();
+      this.maxIterationsReached = (this.numIterations >= this.maxIterations);
+      this.errorThresholdSatisified = trainer.isErrorThresholdSatisfied();
+      
+      if (this.saveWeightsAtEnd)
+      {
+         this.saveWeights();
+         System.out.println("Saved weights at end on iteration " + this.numIterations + " to " + this.weightsOutputFile.getName());
+      } // if (this.saveWeightsAtEnd)
+      
+      return;
+   } // public void trainOnSetAsynchronously(double[][] inputSet, double[][] targetSet, int numThreads) throws IOException
+   
    /*
     * Saves the network's current weights to the network's weights output file
     * Creates the weights output file if does not exist and overwrites any existing content
@@ -1684,13 +2014,56 @@ public class ABCDNetwork
     */
    public void saveWeights() throws IOException
    {
-      FileWriter weightsOutputWriter = null;
+      this.saveWeights(this.weightsOutputFile);
+      
+      return;
+   } // public void saveWeights() throws IOException
+   
+   /*
+    * Saves the network's current weights to a given file
+    * The binary format (see ABCDWeightsFile) is used if the filename ends with ABCDWeightsFile.BINARY_EXTENSION, the text format otherwise.
+    * 
+    * parameters: weightsOutputFile is the file to write
+    * postconditions: if writing to the file causes an IO exception, an IO exception is thrown.
+    *                 Otherwise, the file is created or overwritten with the network sizes and the series of weights.
+    *                 The weights are written to a temporary file that is then renamed over weightsOutputFile,
+    *                 so a failed write never leaves a truncated weights file.
+    */
+   public void saveWeights(File weightsOutputFile) throws IOException
+   {
+      if (this.checkpointWriter != null)
+      {
+         this.checkpointWriter.await();               // Never race a background checkpoint to the same file
+      } // if (this.checkpointWriter != null)
+      
+      ABCDCheckpointWriter.replaceAtomically(weightsOutputFile, this.currentWeights(), this::writeWeights);
+      
+      return;
+   } // public void saveWeights(File weightsOutputFile) throws IOException
+   
+   /*
+    * Writes a set of weights to a file in the format its name calls for
+    * The binary format (see ABCDWeightsFile) is used if the filename ends with ABCDWeightsFile.BINARY_EXTENSION, the text format otherwise.
+    * 
+    * parameters: weightsOutputFile is the file to write, and w is a flat weights buffer laid out like the model's
+    * postconditions: the file is created or overwritten. If writing causes an IO exception, an IO exception is thrown.
+    */
+   private void writeWeights(File weightsOutputFile, double[] w) throws IOException
+   {
+      if (ABCDWeightsFile.isBinaryName(weightsOutputFile))
+      {
+         ABCDWeightsFile.write(weightsOutputFile, this.LAYER_SIZES, w);
+         
+         return;
+      } // if (ABCDWeightsFile.isBinaryName(weightsOutputFile))
+      
+      Writer weightsOutputWriter = null;
       
       try
       {
-         this.weightsOutputFile.createNewFile();      // Creates a new file IF AND ONLY IF the file does not already exist
+         weightsOutputFile.createNewFile();           // Creates a new file IF AND ONLY IF the file does not already exist
          
-         weightsOutputWriter = new FileWriter(this.weightsOutputFile);
+         weightsOutputWriter = new BufferedWriter(new FileWriter(weightsOutputFile), WEIGHTS_WRITE_BUFFER_CHARS);
          
          /*
           * Write the number of layers
@@ -1703,10 +2076,10 @@ public class ABCDNetwork
           */
          String layerSizes = "";
          
-         for (alpha = 0; alpha < this.NUM_LAYERS; ++alpha)
+         for (int alpha = 0; alpha < this.NUM_LAYERS; ++alpha)
          {
             layerSizes += ("-" + this.LAYER_SIZES[alpha]); 
-         } // for (alpha = 0; alpha < this.NUM_LAYERS; ++alpha)
+         } // for (int alpha = 0; alpha < this.NUM_LAYERS; ++alpha)
          
          /*
           * Remove the first hyphen, label, and write to the file
@@ -1716,29 +2089,31 @@ public class ABCDNetwork
          /*
           * Write each weights layer, starting with input-hidden 1 layer and ending with hidden 2-output layer
           * Uses generalizes indices (beta and gamma) since all weight arrays can be written identically
+          * The file is source-major (one line per source unit) regardless of the internal layout
           */
-         for (alpha = 0; alpha < this.NUM_LAYERS - 1; ++alpha)
+         for (int alpha = 0; alpha < this.NUM_LAYERS - 1; ++alpha)
          {
             weightsOutputWriter.write("\n");             // Write a blank line separating layers
             
-            for (beta = 0; beta < this.LAYER_SIZES[alpha]; ++beta)
+            for (int beta = 0; beta < this.LAYER_SIZES[alpha]; ++beta)
             {
                /*
                 * Write first weight for the row (which is guaranteed to exist) preceded with a new line
                 */
-               gamma = 0;
-               weightsOutputWriter.write("\n" + this.w[alpha][beta][gamma]);
+               weightsOutputWriter.write('\n');
+               weightsOutputWriter.write(Double.toString(w[this.model.weightIndex(alpha, 0, beta)]));
                
                /*
                 * Write the remaining weights on this row with a preceding comma
                 */
-               for (gamma = 1; gamma < this.LAYER_SIZES[alpha + 1]; ++gamma)
+               for (int gamma = 1; gamma < this.LAYER_SIZES[alpha + 1]; ++gamma)
                {
-                  weightsOutputWriter.write("," + this.w[alpha][beta][gamma]);
-               } // for (gamma = 0; gamma < this.LAYER_SIZES[alpha + 1]; ++gamma)
+                  weightsOutputWriter.write(',');
+                  weightsOutputWriter.write(Double.toString(w[this.model.weightIndex(alpha, gamma, beta)]));
+               } // for (int gamma = 1; gamma < this.LAYER_SIZES[alpha + 1]; ++gamma)
                
-            } // for (beta = 0; beta < this.LAYER_SIZES[alpha]; ++beta)
-         } // for (alpha = 0; alpha < this.NUM_LAYERS; ++alpha)
+            } // for (int beta = 0; beta < this.LAYER_SIZES[alpha]; ++beta)
+         } // for (int alpha = 0; alpha < this.NUM_LAYERS - 1; ++alpha)
          
       } // try
       
@@ -1749,11 +2124,29 @@ public class ABCDNetwork
       
       finally
       {
-         weightsOutputWriter.close();                 // Always close the file writer
+         if (weightsOutputWriter != null)
+            weightsOutputWriter.close();              // Always close the file writer
       } // finally
       
       return;
-   } // public void saveWeights() throws IOException
+   } // private void writeWeights(File weightsOutputFile, double[] w) throws IOException
+   
+   /*
+    * Returns one layer of the units last calculated, from the context of the model in use
+    * 
+    * parameters: alpha is the layer index
+    * return: the layer's units as double
+    */
+   private double[] getLayerUnits(int alpha)
+   {
+      if (this.floatModel != null)
+         return this.floatContext.getUnits(alpha);
+      
+      if (this.quantizedModel != null)
+         return this.quantizedContext.getUnits(alpha);
+      
+      return this.context.getUnits(alpha);
+   } // private double[] getLayerUnits(int alpha)
    
    /*
     * Prints the input units
@@ -1769,12 +2162,13 @@ public class ABCDNetwork
        * Print the input units
        * Use specific indices (k) to specifically print the input layer
        */
-      alpha = 0;                          // Select the input layer
+      int alpha = 0;                      // Select the input layer
+      double[] inputUnits = this.getLayerUnits(alpha);
       
-      for (k = 0; k < this.LAYER_SIZES[alpha]; ++k)
+      for (int k = 0; k < this.LAYER_SIZES[alpha]; ++k)
       {
-         System.out.println("\ta[" + alpha + "][" + k + "] = " + this.a[alpha][k]);
-      } // for (k = 0; k < this.LAYER_SIZES[alpha]; ++k)
+         System.out.println("\ta[" + alpha + "][" + k + "] = " + inputUnits[k]);
+      } // for (int k = 0; k < this.LAYER_SIZES[alpha]; ++k)
      
       return;
    } // public void printInputUnits()
@@ -1791,16 +2185,17 @@ public class ABCDNetwork
        *  Loop over the hidden layers
        *  Use generalized indices (beta) to print the layers exclusively between the input and output layer
        */
-      for (alpha = 1; alpha < this.NUM_LAYERS - 1; ++alpha)
+      for (int alpha = 1; alpha < this.NUM_LAYERS - 1; ++alpha)
       {
          System.out.println("Hidden " + alpha + " units");
+         double[] hiddenUnits = this.getLayerUnits(alpha);
          
-         for (beta = 0; beta < this.LAYER_SIZES[alpha]; ++beta)
+         for (int beta = 0; beta < this.LAYER_SIZES[alpha]; ++beta)
          {
-            System.out.println("\ta[" + alpha + "][" + beta + "] = " + this.a[alpha][beta]);
-         } // for (beta = 0; beta < this.LAYER_SIZES[alpha]; ++beta)
+            System.out.println("\ta[" + alpha + "][" + beta + "] = " + hiddenUnits[beta]);
+         } // for (int beta = 0; beta < this.LAYER_SIZES[alpha]; ++beta)
          
-      } // for (alpha = 1; alpha < this.NUM_LAYERS - 1; ++i)
+      } // for (int alpha = 1; alpha < this.NUM_LAYERS - 1; ++alpha)
       
       return;
    } // public void printHiddenUnits()
@@ -1818,12 +2213,13 @@ public class ABCDNetwork
        * Print the output units
        * Use specific indices (i) to print specifically the output layer
        */
-      alpha = this.NUM_LAYERS - 1;                    // Select the output layer
+      int alpha = this.NUM_LAYERS - 1;                // Select the output layer
+      double[] outputUnits = this.getLayerUnits(alpha);
       
-      for (i = 0; i < this.LAYER_SIZES[alpha]; ++i)
+      for (int i = 0; i < this.LAYER_SIZES[alpha]; ++i)
       {
-         System.out.println("\ta[" + alpha + "][" + i + "] = " + this.a[alpha][i]);
-      } // for (i = 0; i < this.LAYER_SIZES[alpha]; ++i)
+         System.out.println("\ta[" + alpha + "][" + i + "] = " + outputUnits[i]);
+      } // for (int i = 0; i < this.LAYER_SIZES[alpha]; ++i)
      
       return;
    } // public void printOutputUnits()
@@ -1885,6 +2281,17 @@ public class ABCDNetwork
       System.out.println("lambda = " + this.lambda);
       System.out.println("errorThreshold = " + this.errorThreshold);
       System.out.println("maxIterations = " + this.maxIterations);
+      System.out.println("batchSize = " + this.batchSize);
+      System.out.println("numTrainingThreads = " + this.numTrainingThreads);
+      System.out.println("precision = " + ((this.floatModel != null) ? "float32" : (this.quantizedModel != null) ? "int8" : "float64"));
+      System.out.print("activation = ");
+      
+      for (int alpha = 1; alpha < this.NUM_LAYERS; ++alpha)
+      {
+         System.out.print(((alpha > 1) ? "-" : "") + this.model.getActivations()[alpha].getName());
+      } // for (int alpha = 1; alpha < this.NUM_LAYERS; ++alpha)
+      
+      System.out.println();
       
       return;
    } // public void printTrainingParameters()
@@ -1924,10 +2331,10 @@ public class ABCDNetwork
       /*
        * Loop over the hidden layers (second to second-last layer)
        */
-      for (alpha = 1; alpha < this.NUM_LAYERS - 1; ++alpha)
+      for (int alpha = 1; alpha < this.NUM_LAYERS - 1; ++alpha)
       {
          hiddenLayerSizes += ("," + this.LAYER_SIZES[alpha]);
-      } // for (alpha = 1; alpha < this.NUM_LAYERS - 1; ++alpha)
+      } // for (int alpha = 1; alpha < this.NUM_LAYERS - 1; ++alpha)
       
       System.out.println("NUM_HIDDEN_UNITS = " + hiddenLayerSizes.substring(1)); // Remove the first character (unwanted comma)
       System.out.println("NUM_OUTPUT_UNITS = " + this.getNumOutputUnits());
@@ -1947,6 +2354,9 @@ public class ABCDNetwork
       System.out.println("saveWeightsEvery: " + this.saveWeightsEvery);
       System.out.println("saveWeightsAtEnd: " + this.saveWeightsAtEnd);
       
+      if (this.checkpointFile != null)
+         System.out.println("checkpointFile: " + this.checkpointFile);
+      
       return;
    } // public void printWeightsOutputConfiguration()
    
@@ -1983,4 +2393,280 @@ public class ABCDNetwork
       return this.LAYER_SIZES[this.NUM_LAYERS - 1];
    } // public void getNumOutputUnits()
    
+   /*
+    * Returns the network's flat weights buffer
+    * 
+    * return: the model's weights buffer itself (not a copy), laid out destination-major as described in ABCDModel.
+    *         Writes through the returned array change the network's weights, except in float32 precision, where the
+    *         buffer is refreshed from the float weights on each call and writes only take effect through loadWeights.
+    */
+   public double[] getWeights()
+   {
+      return this.currentWeights();
+   } // public double[] getWeights()
+   
+   /*
+    * Returns a view of one weight layer
+    * 
+    * parameters: layer is the weight layer (the synapse source layer), in the range [0, NUM_LAYERS - 1)
+    * return: a buffer sharing storage with the network's weights, positioned over the layer's destination-major block.
+    *         Element (gamma * LAYER_SIZES[layer] + beta) connects unit beta of layer to unit gamma of layer (layer + 1).
+    */
+   public DoubleBuffer getWeightLayer(int layer)
+   {
+      this.currentWeights();                                      // Refresh from the float weights in float32 precision
+      
+      return this.model.getWeightLayer(layer);
+   } // public DoubleBuffer getWeightLayer(int layer)
+   
+   /*
+    * Returns the number of iterations over the training set in the last training session
+    * 
+    * return: the number of completed iterations
+    */
+   public int getNumIterations()
+   {
+      return this.numIterations;
+   } // public int getNumIterations()
+   
+   /*
+    * Returns the maximum set error of the last iteration in the last training session
+    * 
+    * return: the largest member error of the last completed iteration
+    */
+   public double getMaximumSetError()
+   {
+      return this.maximumSetError;
+   } // public double getMaximumSetError()
+   
+   /*
+    * Returns whether the last training session stopped because the error threshold was achieved
+    * 
+    * return: the errorThresholdSatisified flag
+    */
+   public boolean isErrorThresholdSatisfied()
+   {
+      return this.errorThresholdSatisified;
+   } // public boolean isErrorThresholdSatisfied()
+   
+   /*
+    * Returns the network's model
+    * The model only reads its weights while running, so other threads can classify with it concurrently,
+    * each using its own context from model.newContext(false).
+    * 
+    * return: the model holding the network's weights and kernels (not a copy)
+    */
+   public ABCDModel getModel()
+   {
+      return this.model;
+   } // public ABCDModel getModel()
+   
+   /*
+    * Quantizes the network's current weights into a run-only int8 model, for example to deploy a trained network
+    * 
+    * return: a new ABCDQuantizedModel with the network's layer sizes, kernel, and activations; later changes to the network's
+    *         weights do not affect it
+    */
+   public ABCDQuantizedModel quantize()
+   {
+      ABCDQuantizedModel quantized = new ABCDQuantizedModel(this.LAYER_SIZES, this.model.getKernel());
+      quantized.setWeights(this.currentWeights());
+      
+      return quantized.withActivations(this.model.getActivations());
+   } // public ABCDQuantizedModel quantize()
+   
+   /*
+    * Sets the activation of each layer
+    * 
+    * parameters: activations holds one activation per layer, indexed by layer; activations[0] is ignored
+    * postconditions: all later execution and training, in every precision, uses the chosen activations.
+    *                 Throws an IllegalArgumentException if softmax is given for a hidden layer, or if the network is float32
+    *                 and the activations are not all tanh or all fastTanh (the float model only implements those).
+    */
+   public void setActivations(ABCDActivation[] activations) throws IllegalArgumentException
+   {
+      ABCDModel newModel = this.model.withActivations(activations);
+      
+      if (this.floatModel != null)
+      {
+         boolean isTanh = true;
+         
+         for (int alpha = 1; alpha < this.NUM_LAYERS; ++alpha)
+         {
+            isTanh = isTanh && activations[alpha].getName().equals(activations[1].getName())
+                            && (activations[alpha] instanceof ABCDTanhActivation);
+         } // for (int alpha = 1; alpha < this.NUM_LAYERS; ++alpha)
+         
+         if (!isTanh)
+            throw (new IllegalArgumentException("Invalid activations. float32 precision supports only tanh or fastTanh, the same for every layer."));
+         
+         this.floatModel = this.floatModel.withFastActivation(((ABCDTanhActivation) activations[1]).isFast());
+      } // if (this.floatModel != null)
+      
+      if (this.quantizedModel != null)
+         this.quantizedModel = this.quantizedModel.withActivations(newModel.getActivations());
+      
+      this.model = newModel;
+      
+      return;
+   } // public void setActivations(ABCDActivation[] activations)
+   
+   /*
+    * Sets the kernel used for dot products and weight updates
+    * 
+    * parameters: kernel is the kernel to use, for example an ABCDScalarKernel to force the scalar reference path
+    * postconditions: all later execution and training uses the given kernel. The weights are shared with the previous model.
+    */
+   public void setKernel(ABCDKernel kernel)
+   {
+      this.model = this.model.withKernel(kernel);
+      
+      if (this.floatModel != null)
+         this.floatModel = this.floatModel.withKernel(kernel);
+      
+      if (this.quantizedModel != null)
+         this.quantizedModel = this.quantizedModel.withKernel(kernel);
+      
+      return;
+   } // public void setKernel(ABCDKernel kernel)
+   
+   /*
+    * Sets the pool that runOnSetInParallel splits input sets across and super files are loaded on
+    * 
+    * parameters: runPool is the fork-join pool to use, for example new ForkJoinPool(n) to use n workers
+    * postconditions: later parallel runs and super file loads use the given pool. The network does not shut the pool down.
+    */
+   public void setRunPool(ForkJoinPool runPool)
+   {
+      this.runPool = runPool;
+      
+      return;
+   } // public void setRunPool(ForkJoinPool runPool)
+   
+   /*
+    * Sets the shape that image mini files are cropped and resized to
+    * 
+    * parameters: imageWidth and imageHeight are the shape in pixels, with imageWidth * imageHeight equal to the number of input units
+    * postconditions: later image loads use the given shape. Throws an IllegalArgumentException if the shape does not fit the input layer.
+    */
+   public void setImageShape(int imageWidth, int imageHeight) throws IllegalArgumentException
+   {
+      if (imageWidth <= 0 || imageHeight <= 0 || (long) imageWidth * imageHeight != this.getNumInputUnits())
+      {
+         throw (new IllegalArgumentException("Invalid image shape. " + imageWidth + "x" + imageHeight
+                                             + " does not hold the network's " + this.getNumInputUnits() + " input units."));
+      } // if (imageWidth <= 0 || imageHeight <= 0 || (long) imageWidth * imageHeight != this.getNumInputUnits())
+      
+      this.imageWidth = imageWidth;
+      this.imageHeight = imageHeight;
+      
+      return;
+   } // public void setImageShape(int imageWidth, int imageHeight) throws IllegalArgumentException
+   
+   /*
+    * Returns the width that image mini files are resized to
+    * 
+    * return: the width set by setImageShape, or else the square root of the number of input units
+    * postconditions: throws an IllegalArgumentException if no shape was set and the number of input units is not a perfect square
+    */
+   public int getImageWidth() throws IllegalArgumentException
+   {
+      if (this.imageWidth != 0)
+         return this.imageWidth;
+      
+      int side = (int) Math.round(Math.sqrt(this.getNumInputUnits()));
+      
+      if (side * side != this.getNumInputUnits())
+      {
+         throw (new IllegalArgumentException("Invalid image shape. The network's " + this.getNumInputUnits()
+                                             + " input units are not a square image; call setImageShape first."));
+      } // if (side * side != this.getNumInputUnits())
+      
+      return side;
+   } // public int getImageWidth() throws IllegalArgumentException
+   
+   /*
+    * Returns the height that image mini files are resized to
+    * 
+    * return: the height set by setImageShape, or else the square root of the number of input units
+    * postconditions: throws as getImageWidth does
+    */
+   public int getImageHeight() throws IllegalArgumentException
+   {
+      return (this.imageHeight != 0) ? this.imageHeight : this.getImageWidth();
+   } // public int getImageHeight() throws IllegalArgumentException
+   
+   /*
+    * Sets the number of members runOnSet computes together
+    * 
+    * parameters: runBlockSize is the block size (at least 1), or 0 to tune it automatically on the next large enough input set
+    * postconditions: later runs over input sets use the given block size
+    */
+   public void setRunBlockSize(int runBlockSize)
+   {
+      this.runBlockSize = runBlockSize;
+      
+      return;
+   } // public void setRunBlockSize(int runBlockSize)
+   
+   /*
+    * Returns the number of members runOnSet computes together
+    * 
+    * return: the run block size, or 0 if it has not been set or tuned yet
+    */
+   public int getRunBlockSize()
+   {
+      return this.runBlockSize;
+   } // public int getRunBlockSize()
+   
+   /*
+    * Returns the kernel used for dot products and weight updates
+    * 
+    * return: the network's current kernel
+    */
+   public ABCDKernel getKernel()
+   {
+      return this.model.getKernel();
+   } // public ABCDKernel getKernel()
+   
+   /*
+    * Sets whether sparse inputs use the compressed input layer
+    * This covers both the input layer's forward pass and its weight updates during training.
+    * 
+    * parameters: useSparseInputs is true to run and train the input layer over only the non-zero inputs when they are sparse enough,
+    *             false to always use the dense input layer
+    * postconditions: takes effect the next time inputs are loaded
+    */
+   public void setUseSparseInputs(boolean useSparseInputs)
+   {
+      this.context.setUseSparseInputs(useSparseInputs);
+      
+      if (this.floatContext != null)
+         this.floatContext.setUseSparseInputs(useSparseInputs);
+      
+      if (this.quantizedContext != null)
+         this.quantizedContext.setUseSparseInputs(useSparseInputs);
+      
+      if (this.batchContexts != null)
+      {
+         for (ABCDExecutionContext batchContext : this.batchContexts)
+         {
+            batchContext.setUseSparseInputs(useSparseInputs);
+         } // for (ABCDExecutionContext batchContext : this.batchContexts)
+      } // if (this.batchContexts != null)
+      
+      if (this.floatBatchContexts != null)
+      {
+         for (ABCDFloatExecutionContext floatBatchContext : this.floatBatchContexts)
+         {
+            floatBatchContext.setUseSparseInputs(useSparseInputs);
+         } // for (ABCDFloatExecutionContext floatBatchContext : this.floatBatchContexts)
+      } // if (this.floatBatchContexts != null)
+      
+      if (this.parallelTrainer != null)
+         this.parallelTrainer.setUseSparseInputs(useSparseInputs);
+      
+      return;
+   } // public void setUseSparseInputs(boolean useSparseInputs)
+   
 } // public class ABCDNetworkBP
\ No newline at end of file
@@ -163,9 +163,9 @@ public class ABCDNetworkTester
    private static void printOutputTable(ABCDNetwork network, double[][] inputSet)
    {
       /*
-       * Get outputs from the network using the current input set
+       * Get outputs from the network using the current input set, split across the network's run pool
        */
-      double[][] outputSet = network.runOnSet(inputSet);
+      double[][] outputSet = network.runOnSetInParallel(inputSet);
       
       /*
        * Get the network sizes
@@ -225,9 +225,9 @@ public class ABCDNetworkTester
    private static void printComparisonTable(ABCDNetwork network, double[][] inputSet, double[][] targetSet)
    {
       /*
-       * Get outputs from the network using the current input set
+       * Get outputs from the network using the current input set, split across the network's run pool
        */
-      double[][] outputSet = network.runOnSet(inputSet);
+      double[][] outputSet = network.runOnSetInParallel(inputSet);
       
       /*
        * Get the network sizes
@@ -0,0 +1,220 @@
+/*
+ * Data-parallel synchronous mini-batch trainer for an A-B-C-D network model.
+ *
+ * Author: Jack Hsieh
+ * Date of creation: November 11, 2021
+ */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/*
+ * Splits each mini-batch into one contiguous shard per worker. Each worker runs its shard's members through its own
+ * execution contexts and sums their weight changes into its own change buffer, laid out like the model's weights.
+ * The buffers are then summed pairwise in a fixed tree (worker 0 + worker 1, worker 2 + worker 3, then the pair sums, ...)
+ * and the total is added to the weights once, so every worker sees the same weights for the whole batch.
+ *
+ * The shards and the reduction order depend only on the batch size and the number of workers, never on thread timing,
+ * so a given configuration always produces the same weights. They can differ from single-threaded mini-batch training
+ * in the last bits, since that adds each member's changes to the weights in member order.
+ */
+public class ABCDParallelTrainer
+{
+   private final int numWorkers;
+   private final int shardSize;                             // Members per worker; the last shards may be shorter or empty
+
+   private ForkJoinPool pool;                               // Started by the first batch after construction or shutdown
+
+   /*
+    * Per-worker state: workerContexts[t][s] holds member s of worker t's shard, and workerChanges[t] is worker t's change buffer
+    */
+   private final ABCDExecutionContext[][] workerContexts;
+   private final double[][] workerChanges;
+
+   /*
+    * Allocates the trainer for a model's layer sizes
+    *
+    * parameters: model is the model to allocate for (only its sizes are used), numWorkers is the number of worker threads,
+    *             and batchSize is the largest number of members per batch (both at least 1)
+    * postconditions: one training context per batch member and one change buffer per worker are allocated.
+    *                 The worker threads start with the first batch.
+    */
+   public ABCDParallelTrainer(ABCDModel model, int numWorkers, int batchSize)
+   {
+      this.numWorkers = numWorkers;
+      this.shardSize = (batchSize + numWorkers - 1) / numWorkers;
+
+      this.workerContexts = new ABCDExecutionContext[numWorkers][this.shardSize];
+      this.workerChanges = new double[numWorkers][model.getWeights().length];
+
+      for (int t = 0; t < numWorkers; ++t)
+      {
+         for (int s = 0; s < this.shardSize; ++s)
+         {
+            this.workerContexts[t][s] = model.newContext(true);
+         } // for (int s = 0; s < this.shardSize; ++s)
+      } // for (int t = 0; t < numWorkers; ++t)
+
+      return;
+   } // public ABCDParallelTrainer(ABCDModel model, int numWorkers, int batchSize)
+
+   /*
+    * Trains a model on one mini-batch with all workers
+    *
+    * parameters: model is the model to update, inputSet and targetSet hold the training members, [start, start + count)
+    *             is the batch, and lambda is the learning rate
+    * preconditions: count is in [1, batchSize] and model has the layer sizes the trainer was allocated for
+    * postconditions: the model's weights are increased by the batch's summed weight changes, calculated with the weights
+    *                 from before the batch, and getError(b) returns member (start + b)'s error from before the update
+    */
+   public void trainOnBatch(ABCDModel model, double[][] inputSet, double[][] targetSet, int start, int count, double lambda)
+   {
+      List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+
+      /*
+       * Each worker clears its buffer and accumulates its shard's changes into it
+       */
+      for (int t = 0; t < this.numWorkers; ++t)
+      {
+         int shardStart = Math.min(t * this.shardSize, count);
+         int shardCount = Math.min(this.shardSize, count - shardStart);
+         ABCDExecutionContext[] contexts = this.workerContexts[t];
+         double[] changes = this.workerChanges[t];
+
+         tasks.add(() ->
+         {
+            Arrays.fill(changes, 0.0);
+
+            if (shardCount > 0)
+               model.accumulateBatchChanges(contexts, inputSet, targetSet, start + shardStart, shardCount, lambda, changes);
+
+            return null;
+         });
+      } // for (int t = 0; t < this.numWorkers; ++t)
+
+      this.invokeAll(tasks);
+
+      /*
+       * Tree reduction: at each level, buffer t absorbs buffer (t + stride) for every t that is a multiple of 2 * stride
+       */
+      ABCDKernel kernel = model.getKernel();
+
+      for (int stride = 1; stride < this.numWorkers; stride *= 2)
+      {
+         tasks.clear();
+
+         for (int t = 0; t + stride < this.numWorkers; t += 2 * stride)
+         {
+            double[] destination = this.workerChanges[t];
+            double[] source = this.workerChanges[t + stride];
+
+            tasks.add(() ->
+            {
+               kernel.accumulateScaled(destination, source, 0, 1.0, destination.length);
+
+               return null;
+            });
+         } // for (int t = 0; t + stride < this.numWorkers; t += 2 * stride)
+
+         this.invokeAll(tasks);
+      } // for (int stride = 1; stride < this.numWorkers; stride *= 2)
+
+      model.applyChanges(this.workerChanges[0]);
+
+      return;
+   } // public void trainOnBatch(ABCDModel model, double[][] inputSet, double[][] targetSet, int start, int count, double lambda)
+
+   /*
+    * Runs tasks on the pool and waits for all of them
+    *
+    * postconditions: every task has completed. If any task threw, an IllegalStateException carrying its cause is thrown.
+    */
+   private void invokeAll(List<Callable<Void>> tasks)
+   {
+      if (this.pool == null)
+         this.pool = new ForkJoinPool(this.numWorkers);
+
+      try
+      {
+         for (Future<Void> future : this.pool.invokeAll(tasks))
+         {
+            future.get();
+         } // for (Future<Void> future : this.pool.invokeAll(tasks))
+      } // try
+
+      catch (InterruptedException interruptedException)
+      {
+         Thread.currentThread().interrupt();
+         throw (new IllegalStateException("Parallel training was interrupted."));
+      } // catch (InterruptedException interruptedException)
+
+      catch (ExecutionException executionException)
+      {
+         throw (new IllegalStateException("Parallel training failed: " + executionException.getCause(), executionException.getCause()));
+      } // catch (ExecutionException executionException)
+
+      return;
+   } // private void invokeAll(List<Callable<Void>> tasks)
+
+   /*
+    * Calculates one member's error from the last batch
+    *
+    * parameters: b is the member's position in the last batch, in [0, count)
+    * return: the member's total error, using its outputs from before the batch's update
+    */
+   public double getError(int b)
+   {
+      return this.workerContexts[b / this.shardSize][b % this.shardSize].getError();
+   } // public double getError(int b)
+
+   /*
+    * Returns the number of worker threads
+    *
+    * return: the number of workers (and shards per batch)
+    */
+   public int getNumWorkers()
+   {
+      return this.numWorkers;
+   } // public int getNumWorkers()
+
+   /*
+    * Sets whether sparse inputs use the compressed input layer in every worker context
+    *
+    * parameters: useSparseInputs is as in ABCDExecutionContext.setUseSparseInputs
+    * postconditions: takes effect the next time inputs are loaded
+    */
+   public void setUseSparseInputs(boolean useSparseInputs)
+   {
+      for (int t = 0; t < this.numWorkers; ++t)
+      {
+         for (int s = 0; s < this.shardSize; ++s)
+         {
+            this.workerContexts[t][s].setUseSparseInputs(useSparseInputs);
+         } // for (int s = 0; s < this.shardSize; ++s)
+      } // for (int t = 0; t < this.numWorkers; ++t)
+
+      return;
+   } // public void setUseSparseInputs(boolean useSparseInputs)
+
+   /*
+    * Stops the worker threads
+    *
+    * postconditions: the pool is shut down; the next batch starts a new one
+    */
+   public void shutdown()
+   {
+      if (this.pool != null)
+      {
+         this.pool.shutdown();
+         this.pool = null;
+      } // if (this.pool != null)
+
+      return;
+   } // public void shutdown()
+
+} // public class ABCDParallelTrainer
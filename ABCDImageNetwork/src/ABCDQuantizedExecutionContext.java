@@ -0,0 +1,147 @@
+/*
+ * Per-thread execution state for an int8 quantized A-B-C-D network model.
+ *
+ * Author: Jack Hsieh
+ * Date of creation: November 11, 2021
+ */
+
+/*
+ * The run-only counterpart of ABCDExecutionContext for an ABCDQuantizedModel. The inputs are held as 8-bit pixels,
+ * dense and compressed to their non-zero entries, and the first hidden layer's integer sums as int; the hidden and
+ * output units are double.
+ *
+ * The fields are package-private so the model's kernels can read and write them directly.
+ */
+public class ABCDQuantizedExecutionContext
+{
+   /*
+    * Layer sizes of the model this context was allocated for
+    */
+   final int NUM_LAYERS;
+   final int[] LAYER_SIZES;
+
+   /*
+    * Input pixels in [0, PIXEL_MAX], stored unsigned in bytes
+    */
+   final byte[] pixels;
+
+   /*
+    * Compressed input layer (see ABCDExecutionContext), with the pixel values as int
+    */
+   final int[] inputIndices;
+   final int[] inputValues;
+   int numNonzeroInputs;
+   boolean inputsAreSparse;
+
+   private double MAX_SPARSE_INPUT_DENSITY = 0.6;
+   private boolean useSparseInputs = true;
+
+   /*
+    * Integer sums of the input layer, one per unit of the first hidden layer, before scaling
+    */
+   final int[] sums;
+
+   /*
+    * Hidden and output units, one row per layer. The first row is null since the inputs are held as pixels.
+    */
+   final double[][] a;
+
+   /*
+    * Allocates a context for a model with the given layer sizes
+    *
+    * parameters: layerSizes holds the number of units in each layer
+    */
+   public ABCDQuantizedExecutionContext(int[] layerSizes)
+   {
+      this.NUM_LAYERS = layerSizes.length;
+      this.LAYER_SIZES = layerSizes.clone();
+
+      this.pixels = new byte[this.LAYER_SIZES[0]];
+      this.inputIndices = new int[this.LAYER_SIZES[0]];
+      this.inputValues = new int[this.LAYER_SIZES[0]];
+      this.sums = new int[this.LAYER_SIZES[1]];
+      this.a = new double[this.NUM_LAYERS][];
+
+      for (int alpha = 1; alpha < this.NUM_LAYERS; ++alpha)
+      {
+         this.a[alpha] = new double[this.LAYER_SIZES[alpha]];
+      } // for (int alpha = 1; alpha < this.NUM_LAYERS; ++alpha)
+
+      return;
+   } // public ABCDQuantizedExecutionContext(int[] layerSizes)
+
+   /*
+    * Loads new inputs as pixels, rounding each to the nearest gray level k / PIXEL_MAX in [0, 1], and rebuilds the
+    * compressed input layer
+    *
+    * parameters: new_a are the new inputs, of length LAYER_SIZES[0]. Inputs read from images or their converted text
+    *             files are already gray levels and load exactly.
+    */
+   void loadInputs(double[] new_a)
+   {
+      int numInputs = this.LAYER_SIZES[0];
+
+      this.numNonzeroInputs = 0;
+
+      for (int m = 0; m < numInputs; ++m)
+      {
+         int pixel = (int) (new_a[m] * ABCDImageFile.PIXEL_MAX + 0.5);  // Rounds as Math.round wherever not clamped
+         pixel = Math.min(ABCDImageFile.PIXEL_MAX, Math.max(0, pixel));
+
+         this.pixels[m] = (byte) pixel;
+
+         if (pixel != 0)
+         {
+            this.inputIndices[this.numNonzeroInputs] = m;
+            this.inputValues[this.numNonzeroInputs] = pixel;
+            ++this.numNonzeroInputs;
+         } // if (pixel != 0)
+      } // for (int m = 0; m < numInputs; ++m)
+
+      this.inputsAreSparse = this.useSparseInputs && (this.numNonzeroInputs <= this.MAX_SPARSE_INPUT_DENSITY * numInputs);
+
+      return;
+   } // void loadInputs(double[] new_a)
+
+   /*
+    * Sets whether sparse inputs use the compressed input layer (see ABCDExecutionContext.setUseSparseInputs)
+    */
+   public void setUseSparseInputs(boolean useSparseInputs)
+   {
+      this.useSparseInputs = useSparseInputs;
+
+      return;
+   } // public void setUseSparseInputs(boolean useSparseInputs)
+
+   /*
+    * Returns the output units
+    *
+    * return: the output layer (not a copy), overwritten by the next execution with this context
+    */
+   public double[] getOutputs()
+   {
+      return this.a[this.NUM_LAYERS - 1];
+   } // public double[] getOutputs()
+
+   /*
+    * Returns one layer of units
+    *
+    * parameters: alpha is the layer index
+    * return: a new array holding the layer; the input layer is returned as the pixels' gray levels
+    */
+   public double[] getUnits(int alpha)
+   {
+      if (alpha > 0)
+         return this.a[alpha].clone();
+
+      double[] units = new double[this.LAYER_SIZES[0]];
+
+      for (int m = 0; m < units.length; ++m)
+      {
+         units[m] = (this.pixels[m] & 0xFF) / (double) ABCDImageFile.PIXEL_MAX;
+      } // for (int m = 0; m < units.length; ++m)
+
+      return units;
+   } // public double[] getUnits(int alpha)
+
+} // public class ABCDQuantizedExecutionContext
@@ -0,0 +1,314 @@
+/*
+ * Run-only int8 quantized weights and forward kernels of an A-B-C-D network.
+ *
+ * Author: Jack Hsieh
+ * Date of creation: November 11, 2021
+ */
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/*
+ * An inference engine for deployed networks, selected by "precision:int8" in the network configuration file or made
+ * from any network with ABCDNetwork.quantize(). It cannot train.
+ *
+ * Every weight row (the weights into one unit) is quantized symmetrically to signed 8 bits with its own scale:
+ * scale = max |w| / 127 over the row, and q = round(w / scale), so each weight is within scale / 2 of its double value.
+ * The hidden layers keep the destination-major layout of ABCDModel, at one byte per weight instead of eight, and their
+ * int8 rows multiply the double units with the kernel's dotProduct(byte[], ...).
+ *
+ * The input layer, which holds nearly all of the weights, is stored source-major instead: the weights out of input m to
+ * every first hidden unit are contiguous. The inputs are loaded as 8-bit pixels (see ABCDQuantizedExecutionContext), and
+ * each non-zero pixel adds its weight column, times the pixel, into the context's int32 sums with the kernel's
+ * sparseAccumulateScaled (or accumulateScaled(int[], ...) on the dense path), so zero pixels cost nothing and the sums
+ * are exact. Each sum is scaled once per unit by scale / PIXEL_MAX. The activations are computed in double with each
+ * layer's ABCDActivation, as in ABCDModel.
+ *
+ * Running only reads the weights, so threads may run one model concurrently, each with its own context.
+ */
+public class ABCDQuantizedModel
+{
+   public static final int WEIGHT_MAX = 127;            // Largest quantized weight magnitude
+
+   private final int NUM_LAYERS;
+   private final int[] LAYER_SIZES;
+
+   /*
+    * Quantized weights, laid out as in ABCDModel except that the input layer is source-major (q[m * LAYER_SIZES[1] + gamma]
+    * is the weight from input m to unit gamma), and one scale per weight row: scales[alpha][gamma] dequantizes the row of
+    * weights into unit gamma of layer (alpha + 1)
+    */
+   private final byte[] q;
+   private final int[] weightOffsets;
+   private final float[][] scales;
+
+   private final ABCDKernel kernel;
+   private final ABCDActivation[] activations;          // Activation of each layer, indexed by layer (see ABCDModel)
+
+   /*
+    * Constructs a model with zeroed weights
+    *
+    * parameters: layerSizes holds the number of units in each layer, from input to output,
+    *             and kernel is the kernel to execute with
+    */
+   public ABCDQuantizedModel(int[] layerSizes, ABCDKernel kernel)
+   {
+      this.NUM_LAYERS = layerSizes.length;
+      this.LAYER_SIZES = layerSizes.clone();
+      this.kernel = kernel;
+      this.activations = new ABCDActivation[this.NUM_LAYERS];
+
+      this.weightOffsets = new int[this.NUM_LAYERS];
+      this.scales = new float[this.NUM_LAYERS - 1][];
+
+      for (int alpha = 0; alpha < this.NUM_LAYERS - 1; ++alpha)
+      {
+         this.weightOffsets[alpha + 1] = this.weightOffsets[alpha] + this.LAYER_SIZES[alpha] * this.LAYER_SIZES[alpha + 1];
+         this.scales[alpha] = new float[this.LAYER_SIZES[alpha + 1]];
+         this.activations[alpha + 1] = new ABCDTanhActivation(false);  // The default: exact tanh
+      } // for (int alpha = 0; alpha < this.NUM_LAYERS - 1; ++alpha)
+
+      this.q = new byte[this.weightOffsets[this.NUM_LAYERS - 1]];
+
+      return;
+   } // public ABCDQuantizedModel(int[] layerSizes, ABCDKernel kernel)
+
+   /*
+    * Constructs a model that shares another model's layer sizes and weights but uses a different kernel or activation
+    */
+   private ABCDQuantizedModel(ABCDQuantizedModel model, ABCDKernel kernel, ABCDActivation[] activations)
+   {
+      this.NUM_LAYERS = model.NUM_LAYERS;
+      this.LAYER_SIZES = model.LAYER_SIZES;
+      this.weightOffsets = model.weightOffsets;
+      this.q = model.q;
+      this.scales = model.scales;
+      this.kernel = kernel;
+      this.activations = activations;
+
+      return;
+   } // private ABCDQuantizedModel(ABCDQuantizedModel model, ABCDKernel kernel, ABCDActivation[] activations)
+
+   /*
+    * Returns a model sharing this model's weights that executes with the given kernel
+    */
+   public ABCDQuantizedModel withKernel(ABCDKernel kernel)
+   {
+      return (new ABCDQuantizedModel(this, kernel, this.activations));
+   } // public ABCDQuantizedModel withKernel(ABCDKernel kernel)
+
+   /*
+    * Returns a model sharing this model's weights that activates each layer with the given activation
+    *
+    * parameters: activations holds one activation per layer, indexed by layer, as returned by ABCDModel.getActivations
+    */
+   public ABCDQuantizedModel withActivations(ABCDActivation[] activations)
+   {
+      return (new ABCDQuantizedModel(this, this.kernel, activations.clone()));
+   } // public ABCDQuantizedModel withActivations(ABCDActivation[] activations)
+
+   /*
+    * Allocates an execution context sized for this model
+    *
+    * return: a new context; use one per thread
+    */
+   public ABCDQuantizedExecutionContext newContext()
+   {
+      return (new ABCDQuantizedExecutionContext(this.LAYER_SIZES));
+   } // public ABCDQuantizedExecutionContext newContext()
+
+   /*
+    * Quantizes double weights into this model's weights, row by row
+    *
+    * parameters: source is laid out like the weights of an ABCDModel with the same layer sizes
+    * postconditions: each row holds round(w / scale) with scale = max |w| / WEIGHT_MAX over the row (an all-zero row has
+    *                 scale 0 and zero weights); the input layer's rows are stored as columns
+    */
+   public void setWeights(double[] source)
+   {
+      for (int alpha = 0; alpha < this.NUM_LAYERS - 1; ++alpha)
+      {
+         int length = this.LAYER_SIZES[alpha];
+         int rowOffset = this.weightOffsets[alpha];
+         int numRows = this.LAYER_SIZES[alpha + 1];
+
+         for (int gamma = 0; gamma < this.LAYER_SIZES[alpha + 1]; ++gamma)
+         {
+            double maxMagnitude = 0.0;
+
+            for (int n = 0; n < length; ++n)
+            {
+               maxMagnitude = Math.max(maxMagnitude, Math.abs(source[rowOffset + n]));
+            } // for (int n = 0; n < length; ++n)
+
+            double scale = maxMagnitude / WEIGHT_MAX;
+            this.scales[alpha][gamma] = (float) scale;
+
+            for (int n = 0; n < length; ++n)
+            {
+               int index = (alpha == 0) ? n * numRows + gamma : rowOffset + n;   // Source-major input layer
+
+               this.q[index] = (scale == 0.0) ? 0 : (byte) Math.round(source[rowOffset + n] / scale);
+            } // for (int n = 0; n < length; ++n)
+
+            rowOffset += length;
+         } // for (int gamma = 0; gamma < this.LAYER_SIZES[alpha + 1]; ++gamma)
+      } // for (int alpha = 0; alpha < this.NUM_LAYERS - 1; ++alpha)
+
+      return;
+   } // public void setWeights(double[] source)
+
+   /*
+    * Returns the memory held by the quantized weights and their scales, in bytes
+    */
+   public long getSizeInBytes()
+   {
+      long size = this.q.length;
+
+      for (float[] layerScales : this.scales)
+      {
+         size += (long) Float.BYTES * layerScales.length;
+      } // for (float[] layerScales : this.scales)
+
+      return size;
+   } // public long getSizeInBytes()
+
+   /*
+    * Runs the model on the given inputs
+    *
+    * parameters: context is the calling thread's execution context, inputs are the new inputs
+    * return: the context's output units (not a copy)
+    */
+   public double[] run(ABCDQuantizedExecutionContext context, double[] inputs)
+   {
+      context.loadInputs(inputs);
+      this.execute(context, context.getOutputs());
+
+      return context.getOutputs();
+   } // public double[] run(ABCDQuantizedExecutionContext context, double[] inputs)
+
+   /*
+    * Runs the model on every member of an input set
+    *
+    * return: the set of outputs, one row per member in the same order as inputSet
+    */
+   public double[][] runOnSet(double[][] inputSet)
+   {
+      double[][] outputSet = new double[inputSet.length][this.LAYER_SIZES[this.NUM_LAYERS - 1]];
+
+      this.runRange(inputSet, outputSet, 0, inputSet.length);
+
+      return outputSet;
+   } // public double[][] runOnSet(double[][] inputSet)
+
+   /*
+    * Runs the model on every member of an input set in parallel, in about one contiguous range per pool worker
+    *
+    * return: the set of outputs, one row per member in the same order as inputSet, identical to runOnSet(inputSet)
+    */
+   public double[][] runOnSet(double[][] inputSet, ForkJoinPool pool)
+   {
+      int numMembers = inputSet.length;
+      double[][] outputSet = new double[numMembers][this.LAYER_SIZES[this.NUM_LAYERS - 1]];
+      int rangeSize = Math.max(1, (numMembers + pool.getParallelism() - 1) / pool.getParallelism());
+      ForkJoinTask<?>[] ranges = new ForkJoinTask<?>[(numMembers + rangeSize - 1) / rangeSize];
+
+      for (int range = 0; range < ranges.length; ++range)
+      {
+         int start = range * rangeSize;
+         int end = Math.min(numMembers, start + rangeSize);
+
+         ranges[range] = ForkJoinTask.adapt(() -> this.runRange(inputSet, outputSet, start, end));
+      } // for (int range = 0; range < ranges.length; ++range)
+
+      pool.invoke(ForkJoinTask.adapt(() -> ForkJoinTask.invokeAll(ranges)));
+
+      return outputSet;
+   } // public double[][] runOnSet(double[][] inputSet, ForkJoinPool pool)
+
+   /*
+    * Runs members [start, end) with one context, executing each member straight into its preallocated row of outputSet
+    */
+   private void runRange(double[][] inputSet, double[][] outputSet, int start, int end)
+   {
+      ABCDQuantizedExecutionContext context = this.newContext();
+
+      for (int member = start; member < end; ++member)
+      {
+         context.loadInputs(inputSet[member]);
+         this.execute(context, outputSet[member]);
+      } // for (int member = start; member < end; ++member)
+
+      return;
+   } // private void runRange(double[][] inputSet, double[][] outputSet, int start, int end)
+
+   /*
+    * Calculates the hidden and output units from the loaded pixels, layer by layer from the left
+    *
+    * parameters: outputs receives the output units; it may be the context's output layer
+    */
+   private void execute(ABCDQuantizedExecutionContext context, double[] outputs)
+   {
+      double[][] a = context.a;
+      int[] sums = context.sums;
+      int numUnits = this.LAYER_SIZES[1];
+
+      Arrays.fill(sums, 0);                                     // Integer input layer, one weight column per pixel
+
+      if (context.inputsAreSparse)
+      {
+         this.kernel.sparseAccumulateScaled(sums, this.q, context.inputIndices, context.inputValues, context.numNonzeroInputs, numUnits);
+      } // if (context.inputsAreSparse)
+
+      else
+      {
+         for (int m = 0; m < this.LAYER_SIZES[0]; ++m)
+         {
+            int pixel = context.pixels[m] & 0xFF;
+
+            if (pixel != 0)
+               this.kernel.accumulateScaled(sums, this.q, m * numUnits, pixel, numUnits);
+         } // for (int m = 0; m < this.LAYER_SIZES[0]; ++m)
+      } // if (context.inputsAreSparse)... else
+
+      for (int alpha = 1; alpha < this.NUM_LAYERS; ++alpha)
+      {
+         int length = this.LAYER_SIZES[alpha - 1];
+         int rowOffset = this.weightOffsets[alpha - 1];
+         float[] rowScales = this.scales[alpha - 1];
+         double[] layer = (alpha == this.NUM_LAYERS - 1) ? outputs : a[alpha];
+
+         for (int beta = 0; beta < this.LAYER_SIZES[alpha]; ++beta)
+         {
+            if (alpha == 1)                                     // Activated with the rest of the layer below
+               layer[beta] = sums[beta] * (rowScales[beta] / (double) ABCDImageFile.PIXEL_MAX);
+            else
+               layer[beta] = rowScales[beta] * this.kernel.dotProduct(this.q, rowOffset, a[alpha - 1], length);
+
+            rowOffset += length;
+         } // for (int beta = 0; beta < this.LAYER_SIZES[alpha]; ++beta)
+
+         this.activations[alpha].apply(layer, layer, this.LAYER_SIZES[alpha]);
+      } // for (int alpha = 1; alpha < this.NUM_LAYERS; ++alpha)
+
+      return;
+   } // private void execute(ABCDQuantizedExecutionContext context, double[] outputs)
+
+   /*
+    * Returns the number of units in a layer
+    */
+   public int getLayerSize(int alpha)
+   {
+      return this.LAYER_SIZES[alpha];
+   } // public int getLayerSize(int alpha)
+
+   /*
+    * Returns the kernel used for the quantized layers
+    */
+   public ABCDKernel getKernel()
+   {
+      return this.kernel;
+   } // public ABCDKernel getKernel()
+
+} // public class ABCDQuantizedModel
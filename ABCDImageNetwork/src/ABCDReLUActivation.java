@@ -0,0 +1,59 @@
+/*
+ * Rectified linear (and leaky rectified linear) activation for A-B-C-D network layers.
+ *
+ * Author: Jack Hsieh
+ * Date of creation: November 11, 2021
+ */
+
+/*
+ * f(x) = max(x, slope * x): x for positive x and slope * x otherwise, with slope 0 for ReLU ("relu") and LEAKY_SLOPE
+ * for leaky ReLU ("leakyRelu"). Both loops are a compare and a select per unit, with no transcendental calls.
+ * The derivative at exactly 0 is taken as slope.
+ */
+public class ABCDReLUActivation implements ABCDActivation
+{
+   public static final double LEAKY_SLOPE = 0.01;
+
+   private final double slope;
+
+   /*
+    * parameters: slope is the gradient for negative inputs, in [0, 1)
+    */
+   public ABCDReLUActivation(double slope)
+   {
+      this.slope = slope;
+
+      return;
+   } // public ABCDReLUActivation(double slope)
+
+   public String getName()
+   {
+      return ((this.slope == 0.0) ? "relu" : "leakyRelu");
+   } // public String getName()
+
+   public void apply(double[] theta, double[] a, int length)
+   {
+      for (int n = 0; n < length; ++n)
+      {
+         a[n] = Math.max(theta[n], this.slope * theta[n]);
+      } // for (int n = 0; n < length; ++n)
+
+      return;
+   } // public void apply(double[] theta, double[] a, int length)
+
+   public void multiplyByDerivative(double[] theta, double[] a, double[] psi, int length)
+   {
+      for (int n = 0; n < length; ++n)
+      {
+         psi[n] *= (theta[n] > 0.0) ? 1.0 : this.slope;
+      } // for (int n = 0; n < length; ++n)
+
+      return;
+   } // public void multiplyByDerivative(double[] theta, double[] a, double[] psi, int length)
+
+   public boolean isOutputOnly()
+   {
+      return false;
+   } // public boolean isOutputOnly()
+
+} // public class ABCDReLUActivation implements ABCDActivation
@@ -0,0 +1,78 @@
+/*
+ * Fork-join task that runs an A-B-C-D model over a range of input members.
+ *
+ * Author: Jack Hsieh
+ * Date of creation: November 11, 2021
+ */
+
+import java.util.concurrent.RecursiveAction;
+
+/*
+ * Runs a shared model on the members [start, end) of an input set, writing each member's outputs into its row of a
+ * preallocated output matrix. Ranges longer than the leaf size are split in half and run in parallel.
+ *
+ * Each leaf allocates one execution context and runs its range through it blockSize members at a time. The leaf size is
+ * chosen so there is about one leaf per worker, so there is about one context per worker. The model's weights are only read.
+ */
+public class ABCDRunTask extends RecursiveAction
+{
+   private static final long serialVersionUID = 1L;
+
+   private final ABCDModel model;
+   private final double[][] inputSet;
+   private final double[][] outputSet;
+   private final int start;
+   private final int end;
+   private final int leafSize;
+   private final int blockSize;
+
+   /*
+    * Constructs a task over a range of members
+    *
+    * parameters: model is the shared model, inputSet holds the input members, outputSet is the preallocated output matrix
+    *             with one row of getLayerSize(NUM_LAYERS - 1) per member, [start, end) is the range of members to run,
+    *             leafSize is the largest range run without splitting, and blockSize is the number of members per block (both at least 1)
+    */
+   public ABCDRunTask(ABCDModel model, double[][] inputSet, double[][] outputSet, int start, int end, int leafSize, int blockSize)
+   {
+      this.model = model;
+      this.inputSet = inputSet;
+      this.outputSet = outputSet;
+      this.start = start;
+      this.end = end;
+      this.leafSize = leafSize;
+      this.blockSize = blockSize;
+
+      return;
+   } // public ABCDRunTask(ABCDModel model, double[][] inputSet, double[][] outputSet, int start, int end, int leafSize, int blockSize)
+
+   /*
+    * Runs the range directly if it is small enough, otherwise splits it in half and runs both halves
+    *
+    * postconditions: outputSet[member] holds the model's outputs for inputSet[member] for every member in [start, end)
+    */
+   @Override
+   protected void compute()
+   {
+      if (this.end - this.start <= this.leafSize)
+      {
+         ABCDExecutionContext context = this.model.newContext(false);   // One context for the whole leaf
+
+         for (int blockStart = this.start; blockStart < this.end; blockStart += this.blockSize)
+         {
+            this.model.runOnBlock(context, this.inputSet, this.outputSet, blockStart, Math.min(this.blockSize, this.end - blockStart));
+         } // for (int blockStart = this.start; blockStart < this.end; blockStart += this.blockSize)
+      } // if (this.end - this.start <= this.leafSize)
+
+      else
+      {
+         int middle = (this.start + this.end) >>> 1;
+
+         ABCDRunTask.invokeAll(new ABCDRunTask(this.model, this.inputSet, this.outputSet, this.start, middle, this.leafSize, this.blockSize),
+                               new ABCDRunTask(this.model, this.inputSet, this.outputSet, middle, this.end, this.leafSize, this.blockSize));
+      } // if (this.end - this.start <= this.leafSize)... else
+
+      return;
+   } // protected void compute()
+
+} // public class ABCDRunTask extends RecursiveAction
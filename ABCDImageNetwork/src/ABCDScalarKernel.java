@@ -0,0 +1,238 @@
+/*
+ * Scalar reference kernel for the A-B-C-D network.
+ *
+ * Author: Jack Hsieh
+ * Date of creation: November 11, 2021
+ */
+
+/*
+ * Implements the network kernels with plain loops in ascending index order.
+ * Results are bit-for-bit identical to the network's original unit-by-unit loops.
+ */
+public class ABCDScalarKernel implements ABCDKernel
+{
+   /*
+    * Computes the dot product of a weight row and a layer of units
+    *
+    * return: the sum of w[wOffset + n] * x[n] for n in [0, length), accumulated in ascending order
+    */
+   public double dotProduct(double[] w, int wOffset, double[] x, int length)
+   {
+      double total = 0.0;
+
+      for (int n = 0; n < length; ++n)
+      {
+         total += w[wOffset + n] * x[n];
+      } // for (int n = 0; n < length; ++n)
+
+      return total;
+   } // public double dotProduct(double[] w, int wOffset, double[] x, int length)
+
+   /*
+    * Computes a 2 x 2 tile of dot products
+    * Each of the four sums is accumulated in ascending order on its own, so each matches dotProduct exactly
+    *
+    * postconditions: tile holds (row 0 . x0, row 0 . x1, row 1 . x0, row 1 . x1)
+    */
+   public void dotProductTile(double[] w, int wOffset0, int wOffset1, double[] x0, double[] x1, int length, double[] tile)
+   {
+      double total00 = 0.0;
+      double total01 = 0.0;
+      double total10 = 0.0;
+      double total11 = 0.0;
+      double w0;
+      double w1;
+
+      for (int n = 0; n < length; ++n)
+      {
+         w0 = w[wOffset0 + n];
+         w1 = w[wOffset1 + n];
+
+         total00 += w0 * x0[n];
+         total01 += w0 * x1[n];
+         total10 += w1 * x0[n];
+         total11 += w1 * x1[n];
+      } // for (int n = 0; n < length; ++n)
+
+      tile[0] = total00;
+      tile[1] = total01;
+      tile[2] = total10;
+      tile[3] = total11;
+
+      return;
+   } // public void dotProductTile(double[] w, int wOffset0, int wOffset1, double[] x0, double[] x1, int length, double[] tile)
+
+   /*
+    * Computes the dot product of a weight row and a sparse layer of units
+    * Skipping zero units drops only zero terms, so the result is identical to dotProduct over the dense layer
+    *
+    * return: the sum of w[wOffset + indices[n]] * values[n] for n in [0, count), accumulated in ascending order
+    */
+   public double sparseDotProduct(double[] w, int wOffset, int[] indices, double[] values, int count)
+   {
+      double total = 0.0;
+
+      for (int n = 0; n < count; ++n)
+      {
+         total += w[wOffset + indices[n]] * values[n];
+      } // for (int n = 0; n < count; ++n)
+
+      return total;
+   } // public double sparseDotProduct(double[] w, int wOffset, int[] indices, double[] values, int count)
+
+   /*
+    * Accumulates a scaled weight row into an array
+    *
+    * postconditions: y[n] is increased by scale * x[xOffset + n] for n in [0, length)
+    */
+   public void accumulateScaled(double[] y, double[] x, int xOffset, double scale, int length)
+   {
+      for (int n = 0; n < length; ++n)
+      {
+         y[n] += scale * x[xOffset + n];
+      } // for (int n = 0; n < length; ++n)
+
+      return;
+   } // public void accumulateScaled(double[] y, double[] x, int xOffset, double scale, int length)
+
+   /*
+    * Applies a rank-1 weight update to one weight row
+    *
+    * postconditions: w[wOffset + n] is increased by lambda * x[n] * psi for n in [0, length)
+    */
+   public void updateRow(double[] w, int wOffset, double[] x, double lambda, double psi, int length)
+   {
+      for (int n = 0; n < length; ++n)
+      {
+         w[wOffset + n] += lambda * x[n] * psi;
+      } // for (int n = 0; n < length; ++n)
+
+      return;
+   } // public void updateRow(double[] w, int wOffset, double[] x, double lambda, double psi, int length)
+
+   /*
+    * Applies a rank-1 weight update to the weights of one row whose source units are non-zero
+    *
+    * postconditions: w[wOffset + indices[n]] is increased by lambda * values[n] * psi for n in [0, count)
+    */
+   public void sparseUpdateRow(double[] w, int wOffset, int[] indices, double[] values, double lambda, double psi, int count)
+   {
+      for (int n = 0; n < count; ++n)
+      {
+         w[wOffset + indices[n]] += lambda * values[n] * psi;
+      } // for (int n = 0; n < count; ++n)
+
+      return;
+   } // public void sparseUpdateRow(double[] w, int wOffset, int[] indices, double[] values, double lambda, double psi, int count)
+
+   /*
+    * Single-precision dot product, accumulated in ascending order in float
+    */
+   public float dotProduct(float[] w, int wOffset, float[] x, int length)
+   {
+      float total = 0.0f;
+
+      for (int n = 0; n < length; ++n)
+      {
+         total += w[wOffset + n] * x[n];
+      } // for (int n = 0; n < length; ++n)
+
+      return total;
+   } // public float dotProduct(float[] w, int wOffset, float[] x, int length)
+
+   /*
+    * Single-precision sparse dot product, accumulated in ascending order in float
+    */
+   public float sparseDotProduct(float[] w, int wOffset, int[] indices, float[] values, int count)
+   {
+      float total = 0.0f;
+
+      for (int n = 0; n < count; ++n)
+      {
+         total += w[wOffset + indices[n]] * values[n];
+      } // for (int n = 0; n < count; ++n)
+
+      return total;
+   } // public float sparseDotProduct(float[] w, int wOffset, int[] indices, float[] values, int count)
+
+   /*
+    * Single-precision scaled accumulation
+    */
+   public void accumulateScaled(float[] y, float[] x, int xOffset, float scale, int length)
+   {
+      for (int n = 0; n < length; ++n)
+      {
+         y[n] += scale * x[xOffset + n];
+      } // for (int n = 0; n < length; ++n)
+
+      return;
+   } // public void accumulateScaled(float[] y, float[] x, int xOffset, float scale, int length)
+
+   /*
+    * Single-precision rank-1 row update
+    */
+   public void updateRow(float[] w, int wOffset, float[] x, float lambda, float psi, int length)
+   {
+      for (int n = 0; n < length; ++n)
+      {
+         w[wOffset + n] += lambda * x[n] * psi;
+      } // for (int n = 0; n < length; ++n)
+
+      return;
+   } // public void updateRow(float[] w, int wOffset, float[] x, float lambda, float psi, int length)
+
+   /*
+    * Single-precision rank-1 update of the weights whose source units are non-zero
+    */
+   public void sparseUpdateRow(float[] w, int wOffset, int[] indices, float[] values, float lambda, float psi, int count)
+   {
+      for (int n = 0; n < count; ++n)
+      {
+         w[wOffset + indices[n]] += lambda * values[n] * psi;
+      } // for (int n = 0; n < count; ++n)
+
+      return;
+   } // public void sparseUpdateRow(float[] w, int wOffset, int[] indices, float[] values, float lambda, float psi, int count)
+
+   /*
+    * Integer scaled accumulation of a signed 8-bit weight column
+    */
+   public void accumulateScaled(int[] y, byte[] x, int xOffset, int scale, int length)
+   {
+      for (int n = 0; n < length; ++n)
+      {
+         y[n] += scale * x[xOffset + n];
+      } // for (int n = 0; n < length; ++n)
+
+      return;
+   } // public void accumulateScaled(int[] y, byte[] x, int xOffset, int scale, int length)
+
+   /*
+    * Integer scaled accumulation of the signed 8-bit weight columns of the non-zero pixels
+    */
+   public void sparseAccumulateScaled(int[] y, byte[] x, int[] indices, int[] values, int count, int length)
+   {
+      for (int k = 0; k < count; ++k)
+      {
+         this.accumulateScaled(y, x, indices[k] * length, values[k], length);
+      } // for (int k = 0; k < count; ++k)
+
+      return;
+   } // public void sparseAccumulateScaled(int[] y, byte[] x, int[] indices, int[] values, int count, int length)
+
+   /*
+    * Dot product of a signed 8-bit weight row and a layer of double units, accumulated in ascending order
+    */
+   public double dotProduct(byte[] w, int wOffset, double[] x, int length)
+   {
+      double total = 0.0;
+
+      for (int n = 0; n < length; ++n)
+      {
+         total += w[wOffset + n] * x[n];
+      } // for (int n = 0; n < length; ++n)
+
+      return total;
+   } // public double dotProduct(byte[] w, int wOffset, double[] x, int length)
+
+} // public class ABCDScalarKernel implements ABCDKernel
@@ -0,0 +1,43 @@
+/*
+ * Logistic sigmoid activation for A-B-C-D network layers.
+ *
+ * Author: Jack Hsieh
+ * Date of creation: November 11, 2021
+ */
+
+/*
+ * f(x) = 1 / (1 + e^-x), in (0, 1), with the derivative f (1 - f) computed from the activation.
+ */
+public class ABCDSigmoidActivation implements ABCDActivation
+{
+   public String getName()
+   {
+      return "sigmoid";
+   } // public String getName()
+
+   public void apply(double[] theta, double[] a, int length)
+   {
+      for (int n = 0; n < length; ++n)
+      {
+         a[n] = 1.0/(1.0 + Math.exp(-theta[n]));
+      } // for (int n = 0; n < length; ++n)
+
+      return;
+   } // public void apply(double[] theta, double[] a, int length)
+
+   public void multiplyByDerivative(double[] theta, double[] a, double[] psi, int length)
+   {
+      for (int n = 0; n < length; ++n)
+      {
+         psi[n] *= a[n] * (1.0 - a[n]);
+      } // for (int n = 0; n < length; ++n)
+
+      return;
+   } // public void multiplyByDerivative(double[] theta, double[] a, double[] psi, int length)
+
+   public boolean isOutputOnly()
+   {
+      return false;
+   } // public boolean isOutputOnly()
+
+} // public class ABCDSigmoidActivation implements ABCDActivation
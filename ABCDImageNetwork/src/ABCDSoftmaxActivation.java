@@ -0,0 +1,69 @@
+/*
+ * Softmax activation for the output layer of an A-B-C-D network.
+ *
+ * Author: Jack Hsieh
+ * Date of creation: November 11, 2021
+ */
+
+/*
+ * a[i] = e^theta[i] / (sum over j of e^theta[j]): positive outputs summing to 1, read as class probabilities. The
+ * largest Theta is subtracted first so the exponentials cannot overflow.
+ *
+ * Every output depends on every Theta, so the derivative is the Jacobian da[i]/dtheta[j] = a[i] (delta_ij - a[j]), and
+ * the Psis are psi[i] = a[i] (omega[i] - sum over j of omega[j] a[j]). The network still minimizes the squared error.
+ * Because it couples its units, softmax may only activate the output layer.
+ */
+public class ABCDSoftmaxActivation implements ABCDActivation
+{
+   public String getName()
+   {
+      return "softmax";
+   } // public String getName()
+
+   public void apply(double[] theta, double[] a, int length)
+   {
+      double max = Double.NEGATIVE_INFINITY;
+      double sum = 0.0;
+
+      for (int n = 0; n < length; ++n)
+      {
+         max = Math.max(max, theta[n]);
+      } // for (int n = 0; n < length; ++n)
+
+      for (int n = 0; n < length; ++n)
+      {
+         a[n] = Math.exp(theta[n] - max);
+         sum += a[n];
+      } // for (int n = 0; n < length; ++n)
+
+      for (int n = 0; n < length; ++n)
+      {
+         a[n] /= sum;
+      } // for (int n = 0; n < length; ++n)
+
+      return;
+   } // public void apply(double[] theta, double[] a, int length)
+
+   public void multiplyByDerivative(double[] theta, double[] a, double[] psi, int length)
+   {
+      double weightedOmega = 0.0;
+
+      for (int n = 0; n < length; ++n)
+      {
+         weightedOmega += psi[n] * a[n];
+      } // for (int n = 0; n < length; ++n)
+
+      for (int n = 0; n < length; ++n)
+      {
+         psi[n] = a[n] * (psi[n] - weightedOmega);
+      } // for (int n = 0; n < length; ++n)
+
+      return;
+   } // public void multiplyByDerivative(double[] theta, double[] a, double[] psi, int length)
+
+   public boolean isOutputOnly()
+   {
+      return true;
+   } // public boolean isOutputOnly()
+
+} // public class ABCDSoftmaxActivation implements ABCDActivation
@@ -0,0 +1,88 @@
+/*
+ * Hyperbolic tangent activation for A-B-C-D network layers.
+ *
+ * Author: Jack Hsieh
+ * Date of creation: November 11, 2021
+ */
+
+/*
+ * The network's original activation. The exact version uses Math.tanh and the derivative 1 / cosh^2(Theta), as the
+ * network always has, so its results are unchanged. The fast version ("fastTanh") uses ABCDFastTanh and the derivative
+ * 1 - a^2 from the activation, with no transcendental calls.
+ */
+public class ABCDTanhActivation implements ABCDActivation
+{
+   private final boolean fast;
+
+   /*
+    * parameters: fast is whether to use the ABCDFastTanh approximation
+    */
+   public ABCDTanhActivation(boolean fast)
+   {
+      this.fast = fast;
+
+      return;
+   } // public ABCDTanhActivation(boolean fast)
+
+   /*
+    * Returns whether this is the fast approximation
+    */
+   public boolean isFast()
+   {
+      return this.fast;
+   } // public boolean isFast()
+
+   public String getName()
+   {
+      return (this.fast ? "fastTanh" : "tanh");
+   } // public String getName()
+
+   public void apply(double[] theta, double[] a, int length)
+   {
+      if (this.fast)
+      {
+         for (int n = 0; n < length; ++n)
+         {
+            a[n] = ABCDFastTanh.tanh(theta[n]);
+         } // for (int n = 0; n < length; ++n)
+      } // if (this.fast)
+
+      else
+      {
+         for (int n = 0; n < length; ++n)
+         {
+            a[n] = Math.tanh(theta[n]);
+         } // for (int n = 0; n < length; ++n)
+      } // if (this.fast)... else
+
+      return;
+   } // public void apply(double[] theta, double[] a, int length)
+
+   public void multiplyByDerivative(double[] theta, double[] a, double[] psi, int length)
+   {
+      if (this.fast)
+      {
+         for (int n = 0; n < length; ++n)
+         {
+            psi[n] *= ABCDFastTanh.derivativeFromActivation(a[n]);
+         } // for (int n = 0; n < length; ++n)
+      } // if (this.fast)
+
+      else
+      {
+         for (int n = 0; n < length; ++n)
+         {
+            double c = Math.cosh(theta[n]);
+            psi[n] *= 1.0/(c * c);
+         } // for (int n = 0; n < length; ++n)
+      } // if (this.fast)... else
+
+      return;
+   } // public void multiplyByDerivative(double[] theta, double[] a, double[] psi, int length)
+
+   public boolean isOutputOnly()
+   {
+      return false;
+   } // public boolean isOutputOnly()
+
+} // public class ABCDTanhActivation implements ABCDActivation
@@ -0,0 +1,543 @@
+/*
+ * Streaming tokenizer and number parser for the network's text files.
+ *
+ * Author: Jack Hsieh
+ * Date of creation: November 11, 2021
+ */
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.InputMismatchException;
+import java.util.NoSuchElementException;
+
+/*
+ * Reads the input, target, and weights text files through a large byte buffer, splitting tokens on single-character
+ * delimiters and parsing ints and doubles straight from the bytes, with no regular expressions and no String per number.
+ *
+ * Tokens follow java.util.Scanner with a delimiter pattern of single characters (for example ":|\n|,"): each call skips
+ * at most one delimiter and then reads up to the next one, so two adjacent delimiters hold an empty token. The loaders
+ * rely on this to skip the blank and label lines between sections. Like Scanner, a number that does not parse throws
+ * an InputMismatchException and running out of tokens throws a NoSuchElementException, so the loaders' error handling
+ * and messages are unchanged.
+ *
+ * Doubles are converted with the Eisel-Lemire algorithm (D. Lemire, "Number Parsing at a Gigabyte per Second", 2021),
+ * which gives the correctly rounded result, the same as Double.parseDouble, for up to 19 significant digits. The rare
+ * tokens it cannot decide (more digits, halfway cases, subnormals, NaN, Infinity) fall back to Double.parseDouble.
+ */
+public class ABCDTextReader implements Closeable
+{
+   private static final int DEFAULT_BUFFER_BYTES = 1 << 16;
+
+   private final InputStream input;
+   private byte[] buffer;
+   private int position;                            // Next unread byte
+   private int limit;                               // End of the valid bytes
+   private boolean endOfInput;
+
+   private final boolean[] isDelimiter = new boolean[256];
+
+   /*
+    * Bounds of the last token read
+    */
+   private int tokenStart;
+   private int tokenEnd;
+
+   /*
+    * 128-bit truncated powers of five for the Eisel-Lemire algorithm, from 5^SMALLEST_POWER_OF_FIVE to 5^LARGEST_POWER_OF_FIVE:
+    * entry 2 * (q - SMALLEST_POWER_OF_FIVE) holds the high 64 bits and the next entry the low 64 bits
+    */
+   private static final int SMALLEST_POWER_OF_FIVE = -342;
+   private static final int LARGEST_POWER_OF_FIVE = 308;
+   private static final long[] POWERS_OF_FIVE = ABCDTextReader.computePowersOfFive();
+
+   private static final int MAX_DIGITS = 19;        // Significant digits that always fit in an unsigned 64-bit integer
+
+   /*
+    * Opens a file for reading
+    *
+    * parameters: file is the file to read
+    * postconditions: the reader is positioned at the start of the file with no delimiters set.
+    *                 If the file cannot be opened, throws a FileNotFoundException as new Scanner(file) would.
+    */
+   public ABCDTextReader(File file) throws FileNotFoundException
+   {
+      this.input = new FileInputStream(file);
+      this.buffer = new byte[DEFAULT_BUFFER_BYTES];
+
+      return;
+   } // public ABCDTextReader(File file) throws FileNotFoundException
+
+   /*
+    * Sets the delimiters
+    *
+    * parameters: delimiters holds each delimiter character, for example ":\n," for Scanner's ":|\\n|,"
+    * postconditions: later tokens are split on exactly these characters
+    */
+   public ABCDTextReader useDelimiters(String delimiters)
+   {
+      java.util.Arrays.fill(this.isDelimiter, false);
+
+      for (int c = 0; c < delimiters.length(); ++c)
+      {
+         this.isDelimiter[delimiters.charAt(c) & 0xFF] = true;
+      } // for (int c = 0; c < delimiters.length(); ++c)
+
+      return this;
+   } // public ABCDTextReader useDelimiters(String delimiters)
+
+   /*
+    * Makes sure at least one unread byte is buffered, reading more of the file if needed
+    *
+    * return: true if a byte is available, false at the end of the file
+    */
+   private boolean fill()
+   {
+      if (this.position < this.limit)
+         return true;
+
+      if (this.endOfInput)
+         return false;
+
+      /*
+       * Keep the current token (from tokenStart) and read after it, growing the buffer if the token fills it
+       */
+      int keep = this.limit - this.tokenStart;
+
+      if (keep == this.buffer.length)
+      {
+         this.buffer = java.util.Arrays.copyOf(this.buffer, 2 * this.buffer.length);
+      } // if (keep == this.buffer.length)
+
+      System.arraycopy(this.buffer, this.tokenStart, this.buffer, 0, keep);
+      this.position -= this.tokenStart;
+      this.tokenStart = 0;
+      this.limit = keep;
+
+      try
+      {
+         int numRead = this.input.read(this.buffer, this.limit, this.buffer.length - this.limit);
+
+         if (numRead < 0)
+            this.endOfInput = true;
+         else
+            this.limit += numRead;
+      } // try
+
+      catch (IOException ioException)
+      {
+         throw (new UncheckedIOException(ioException));
+      } // catch (IOException ioException)
+
+      return this.position < this.limit;
+   } // private boolean fill()
+
+   /*
+    * Reads the next token into [tokenStart, tokenEnd)
+    *
+    * postconditions: one delimiter is skipped if the reader is at one, then the token runs up to the next delimiter or the end
+    *                 of the file and the reader stops on that delimiter. Throws a NoSuchElementException if no input remains.
+    */
+   private void readToken()
+   {
+      this.tokenStart = this.position;
+
+      if (!this.fill())
+      {
+         throw (new NoSuchElementException());
+      } // if (!this.fill())
+
+      if (this.isDelimiter[this.buffer[this.position] & 0xFF])
+      {
+         ++this.position;
+      } // if (this.isDelimiter[this.buffer[this.position] & 0xFF])
+
+      this.tokenStart = this.position;
+
+      if (!this.fill())                                    // Only a delimiter was left
+      {
+         throw (new NoSuchElementException());
+      } // if (!this.fill())
+
+      while (this.fill() && !this.isDelimiter[this.buffer[this.position] & 0xFF])
+      {
+         ++this.position;
+      } // while (this.fill() && !this.isDelimiter[this.buffer[this.position] & 0xFF])
+
+      this.tokenEnd = this.position;
+
+      return;
+   } // private void readToken()
+
+   /*
+    * Skips the next token, like Scanner.next() when the value is not needed
+    */
+   public void skip()
+   {
+      this.readToken();
+
+      return;
+   } // public void skip()
+
+   /*
+    * Reads the next token as a String
+    *
+    * return: the token's text
+    */
+   public String next()
+   {
+      this.readToken();
+
+      return new String(this.buffer, this.tokenStart, this.tokenEnd - this.tokenStart, StandardCharsets.UTF_8);
+   } // public String next()
+
+   /*
+    * Reads the next token as an int
+    *
+    * return: the token's value
+    * postconditions: throws an InputMismatchException if the token is not an optionally signed decimal int
+    */
+   public int nextInt()
+   {
+      this.readToken();
+
+      int index = this.tokenStart;
+      boolean negative = false;
+
+      if (index < this.tokenEnd && (this.buffer[index] == '-' || this.buffer[index] == '+'))
+      {
+         negative = (this.buffer[index] == '-');
+         ++index;
+      } // if (index < this.tokenEnd && (this.buffer[index] == '-' || this.buffer[index] == '+'))
+
+      if (index == this.tokenEnd)
+      {
+         throw (new InputMismatchException());
+      } // if (index == this.tokenEnd)
+
+      long value = 0;
+
+      for (; index < this.tokenEnd; ++index)
+      {
+         int digit = this.buffer[index] - '0';
+
+         if (digit < 0 || digit > 9)
+         {
+            throw (new InputMismatchException());
+         } // if (digit < 0 || digit > 9)
+
+         value = 10 * value + digit;
+
+         if (value > (long) Integer.MAX_VALUE + 1)
+         {
+            throw (new InputMismatchException());
+         } // if (value > (long) Integer.MAX_VALUE + 1)
+      } // for (; index < this.tokenEnd; ++index)
+
+      value = negative ? -value : value;
+
+      if (value > Integer.MAX_VALUE)
+      {
+         throw (new InputMismatchException());
+      } // if (value > Integer.MAX_VALUE)
+
+      return (int) value;
+   } // public int nextInt()
+
+   /*
+    * Reads the next token as a double
+    *
+    * return: the correctly rounded value of the token
+    * postconditions: throws an InputMismatchException if the token is not a decimal floating-point number
+    */
+   public double nextDouble()
+   {
+      this.readToken();
+
+      byte[] bytes = this.buffer;
+      int index = this.tokenStart;
+      int end = this.tokenEnd;
+      boolean negative = false;
+
+      if (index < end && (bytes[index] == '-' || bytes[index] == '+'))
+      {
+         negative = (bytes[index] == '-');
+         ++index;
+      } // if (index < end && (bytes[index] == '-' || bytes[index] == '+'))
+
+      /*
+       * Significand: up to MAX_DIGITS significant digits in mantissa, with exponent10 tracking the decimal point
+       */
+      long mantissa = 0;
+      int numDigits = 0;                            // Significant digits kept, not counting leading zeros
+      int numSignificandChars = 0;                  // All digits, to reject a bare sign or point
+      int exponent10 = 0;
+      boolean tooManyDigits = false;
+
+      while (index < end && bytes[index] >= '0' && bytes[index] <= '9')
+      {
+         int digit = bytes[index] - '0';
+
+         if (numDigits < MAX_DIGITS)
+         {
+            mantissa = 10 * mantissa + digit;
+            numDigits += (mantissa != 0) ? 1 : 0;
+         } // if (numDigits < MAX_DIGITS)
+
+         else
+         {
+            ++exponent10;
+            tooManyDigits |= (digit != 0);
+         } // if (numDigits < MAX_DIGITS)... else
+
+         ++numSignificandChars;
+         ++index;
+      } // while (index < end && bytes[index] >= '0' && bytes[index] <= '9')
+
+      if (index < end && bytes[index] == '.')
+      {
+         ++index;
+
+         while (index < end && bytes[index] >= '0' && bytes[index] <= '9')
+         {
+            int digit = bytes[index] - '0';
+
+            if (numDigits < MAX_DIGITS)
+            {
+               mantissa = 10 * mantissa + digit;
+               numDigits += (mantissa != 0) ? 1 : 0;
+               --exponent10;
+            } // if (numDigits < MAX_DIGITS)
+
+            else
+            {
+               tooManyDigits |= (digit != 0);
+            } // if (numDigits < MAX_DIGITS)... else
+
+            ++numSignificandChars;
+            ++index;
+         } // while (index < end && bytes[index] >= '0' && bytes[index] <= '9')
+      } // if (index < end && bytes[index] == '.')
+
+      /*
+       * Exponent
+       */
+      if (numSignificandChars > 0 && index < end && (bytes[index] == 'e' || bytes[index] == 'E'))
+      {
+         ++index;
+         boolean negativeExponent = false;
+
+         if (index < end && (bytes[index] == '-' || bytes[index] == '+'))
+         {
+            negativeExponent = (bytes[index] == '-');
+            ++index;
+         } // if (index < end && (bytes[index] == '-' || bytes[index] == '+'))
+
+         int exponentStart = index;
+         int exponent = 0;
+
+         while (index < end && bytes[index] >= '0' && bytes[index] <= '9')
+         {
+            exponent = Math.min(10 * exponent + (bytes[index] - '0'), 100000);   // Saturate: anything this large over- or underflows
+            ++index;
+         } // while (index < end && bytes[index] >= '0' && bytes[index] <= '9')
+
+         if (index == exponentStart)
+         {
+            return this.parseFallback();
+         } // if (index == exponentStart)
+
+         exponent10 += negativeExponent ? -exponent : exponent;
+      } // if (numSignificandChars > 0 && index < end && (bytes[index] == 'e' || bytes[index] == 'E'))
+
+      if (numSignificandChars == 0 || index != end || tooManyDigits)
+      {
+         return this.parseFallback();               // NaN, Infinity, more digits than fit, or not a number at all
+      } // if (numSignificandChars == 0 || index != end || tooManyDigits)
+
+      if (mantissa == 0)
+      {
+         return negative ? -0.0 : 0.0;
+      } // if (mantissa == 0)
+
+      long bits = ABCDTextReader.eiselLemire(mantissa, exponent10);
+
+      if (bits < 0)
+      {
+         return this.parseFallback();
+      } // if (bits < 0)
+
+      return Double.longBitsToDouble(negative ? (bits | Long.MIN_VALUE) : bits);
+   } // public double nextDouble()
+
+   /*
+    * Parses the current token with Double.parseDouble, for the cases the fast path does not decide
+    *
+    * return: the token's value
+    * postconditions: throws an InputMismatchException if the token is not a number
+    */
+   private double parseFallback()
+   {
+      String token = new String(this.buffer, this.tokenStart, this.tokenEnd - this.tokenStart, StandardCharsets.ISO_8859_1);
+
+      if (token.isEmpty() || token.trim().length() != token.length() || token.endsWith("d") || token.endsWith("D")
+          || token.endsWith("f") || token.endsWith("F"))                   // Forms Double.parseDouble accepts but Scanner does not
+      {
+         throw (new InputMismatchException());
+      } // if (token.isEmpty() || ...)
+
+      try
+      {
+         return Double.parseDouble(token);
+      } // try
+
+      catch (NumberFormatException numberFormatException)
+      {
+         throw (new InputMismatchException());
+      } // catch (NumberFormatException numberFormatException)
+   } // private double parseFallback()
+
+   /*
+    * Converts mantissa * 10^exponent10 to the nearest double with the Eisel-Lemire algorithm
+    *
+    * parameters: mantissa is a non-zero unsigned significand of at most MAX_DIGITS digits, and exponent10 is its decimal exponent
+    * return: the raw bits of the positive result, or -1 if the algorithm cannot decide the rounding (or the result is
+    *         subnormal), in which case the caller falls back to a slower exact conversion
+    */
+   private static long eiselLemire(long mantissa, int exponent10)
+   {
+      if (exponent10 < SMALLEST_POWER_OF_FIVE)
+         return 0L;                                 // Rounds to zero
+
+      if (exponent10 > LARGEST_POWER_OF_FIVE)
+         return Double.doubleToRawLongBits(Double.POSITIVE_INFINITY);
+
+      int leadingZeros = Long.numberOfLeadingZeros(mantissa);
+      long normalized = mantissa << leadingZeros;
+      int tableIndex = 2 * (exponent10 - SMALLEST_POWER_OF_FIVE);
+
+      /*
+       * 128-bit product of the normalized mantissa and the power of five, refined with the power's low half if the
+       * high half alone leaves the rounding unclear
+       */
+      long productHigh = ABCDTextReader.unsignedMultiplyHigh(normalized, POWERS_OF_FIVE[tableIndex]);
+      long productLow = normalized * POWERS_OF_FIVE[tableIndex];
+
+      if ((productHigh & 0x1FF) == 0x1FF)
+      {
+         long secondHigh = ABCDTextReader.unsignedMultiplyHigh(normalized, POWERS_OF_FIVE[tableIndex + 1]);
+         long sum = productLow + secondHigh;
+
+         if (Long.compareUnsigned(sum, productLow) < 0)
+            ++productHigh;
+
+         productLow = sum;
+
+         if ((productHigh & 0x1FF) == 0x1FF && productLow == -1L)
+            return -1L;
+      } // if ((productHigh & 0x1FF) == 0x1FF)
+
+      long upperBit = productHigh >>> 63;
+      long significand = productHigh >>> (upperBit + 9);
+      leadingZeros += (int) (1 ^ upperBit);
+
+      long exponent2 = ((((152170L + 65536L) * exponent10) >> 16) + 63 + 1024) - leadingZeros;   // Biased, as floor(log2(10^q)) = (217706 * q) >> 16
+
+      if (exponent2 <= 0)
+         return -1L;                                // Subnormal
+
+      if (productLow == 0 && (productHigh & 0x1FF) == 0 && (significand & 3) == 1)
+         return -1L;                                // Possibly exactly halfway between two doubles
+
+      significand += (significand & 1);
+      significand >>>= 1;
+
+      if (significand >= (1L << 53))
+      {
+         significand = (1L << 52);
+         ++exponent2;
+      } // if (significand >= (1L << 53))
+
+      significand &= ~(1L << 52);
+
+      if (exponent2 >= 2047)
+         return Double.doubleToRawLongBits(Double.POSITIVE_INFINITY);
+
+      return significand | (exponent2 << 52);
+   } // private static long eiselLemire(long mantissa, int exponent10)
+
+   /*
+    * Returns the high 64 bits of the unsigned 128-bit product of two longs
+    */
+   private static long unsignedMultiplyHigh(long x, long y)
+   {
+      return Math.multiplyHigh(x, y) + ((x >> 63) & y) + ((y >> 63) & x);
+   } // private static long unsignedMultiplyHigh(long x, long y)
+
+   /*
+    * Builds the table of 128-bit truncated powers of five
+    *
+    * return: the high and low halves of each power from SMALLEST_POWER_OF_FIVE to LARGEST_POWER_OF_FIVE,
+    *         normalized so the high bit is set. Negative powers are reciprocals rounded up before truncation.
+    */
+   private static long[] computePowersOfFive()
+   {
+      long[] table = new long[2 * (LARGEST_POWER_OF_FIVE - SMALLEST_POWER_OF_FIVE + 1)];
+      BigInteger twoTo128 = BigInteger.ONE.shiftLeft(128);
+
+      for (int q = SMALLEST_POWER_OF_FIVE; q <= LARGEST_POWER_OF_FIVE; ++q)
+      {
+         BigInteger power = BigInteger.valueOf(5).pow(Math.abs(q));
+         BigInteger value;
+
+         if (q >= 0)
+         {
+            int shift = power.bitLength() - 128;
+            value = (shift > 0) ? power.shiftRight(shift) : power.shiftLeft(-shift);
+         } // if (q >= 0)
+
+         else
+         {
+            int z = power.bitLength();
+            int b = (q >= -27) ? (z + 127) : (2 * z + 128);
+            value = BigInteger.ONE.shiftLeft(b).divide(power).add(BigInteger.ONE);
+
+            while (value.compareTo(twoTo128) >= 0)
+            {
+               value = value.shiftRight(1);
+            } // while (value.compareTo(twoTo128) >= 0)
+         } // if (q >= 0)... else
+
+         int index = 2 * (q - SMALLEST_POWER_OF_FIVE);
+         table[index] = value.shiftRight(64).longValue();
+         table[index + 1] = value.longValue();
+      } // for (int q = SMALLEST_POWER_OF_FIVE; q <= LARGEST_POWER_OF_FIVE; ++q)
+
+      return table;
+   } // private static long[] computePowersOfFive()
+
+   /*
+    * Closes the file
+    */
+   @Override
+   public void close()
+   {
+      try
+      {
+         this.input.close();
+      } // try
+
+      catch (IOException ioException)               // Nothing useful to do after reading is finished
+      {
+      } // catch (IOException ioException)
+
+      return;
+   } // public void close()
+
+} // public class ABCDTextReader
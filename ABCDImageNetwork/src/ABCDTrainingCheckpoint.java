@@ -0,0 +1,162 @@
+/*
+ * Resumable training checkpoint for A-B-C-D networks.
+ *
+ * Author: Jack Hsieh
+ * Date of creation: November 11, 2021
+ */
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/*
+ * Holds everything trainOnSet needs to continue a training session exactly where it stopped: the weights, the number of
+ * completed iterations, the last iteration's maximum set error, and the parameters that shape later updates.
+ *
+ * Checkpoints are taken between iterations, and trainOnSet always visits the members in file order, so the number of
+ * completed iterations also fixes the position in the training order. Plain gradient descent keeps no optimizer
+ * accumulators and training draws no random numbers (the weights are only randomized at construction), so there is no
+ * further state to store. A resumed serial or mini-batch session therefore produces the same weights as an uninterrupted one.
+ *
+ * Layout (every field little-endian):
+ *    offset 0:   int     MAGIC, the bytes "ABCK"
+ *    offset 4:   int     VERSION
+ *    offset 8:   int     numIterations
+ *    offset 12:  int     batchSize
+ *    offset 16:  double  lambda
+ *    offset 24:  double  maximumSetError
+ *    offset 32:  long    CRC-32 of bytes [0, 32)
+ *    offset 40:  a complete binary weights image (see ABCDWeightsFile)
+ */
+public class ABCDTrainingCheckpoint
+{
+   public static final int MAGIC = 0x4B434241;           // "ABCK" read as a little-endian int
+   public static final int VERSION = 1;
+
+   private static final int STATE_BYTES = 32;            // Before the state checksum
+   private static final int WEIGHTS_OFFSET = 40;
+
+   /*
+    * Training progress and parameters
+    */
+   public final int numIterations;
+   public final int batchSize;
+   public final double lambda;
+   public final double maximumSetError;
+
+   /*
+    * Constructs a checkpoint's training state
+    *
+    * parameters: numIterations is the number of completed iterations, batchSize and lambda are the training parameters,
+    *             and maximumSetError is the last completed iteration's maximum set error
+    */
+   public ABCDTrainingCheckpoint(int numIterations, int batchSize, double lambda, double maximumSetError)
+   {
+      this.numIterations = numIterations;
+      this.batchSize = batchSize;
+      this.lambda = lambda;
+      this.maximumSetError = maximumSetError;
+
+      return;
+   } // public ABCDTrainingCheckpoint(int numIterations, int batchSize, double lambda, double maximumSetError)
+
+   /*
+    * Writes the training state and the weights to a checkpoint file
+    *
+    * parameters: checkpointFile is the file to write, layerSizes are the network's layer sizes, and w is the model's weights buffer
+    * postconditions: the file is created or overwritten. If writing fails, an IOException is thrown.
+    */
+   public void write(File checkpointFile, int[] layerSizes, double[] w) throws IOException
+   {
+      try (FileChannel channel = FileChannel.open(checkpointFile.toPath(), StandardOpenOption.CREATE,
+                                                  StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING))
+      {
+         ByteBuffer state = ByteBuffer.allocate(WEIGHTS_OFFSET).order(ByteOrder.LITTLE_ENDIAN);
+
+         state.putInt(MAGIC).putInt(VERSION).putInt(this.numIterations).putInt(this.batchSize);
+         state.putDouble(this.lambda).putDouble(this.maximumSetError);
+
+         CRC32 checksum = new CRC32();
+         checksum.update(state.array(), 0, STATE_BYTES);
+         state.putLong(checksum.getValue());
+
+         state.clear();
+
+         while (state.hasRemaining())
+         {
+            channel.write(state, state.position());
+         } // while (state.hasRemaining())
+
+         ABCDWeightsFile.write(channel, WEIGHTS_OFFSET, layerSizes, w);
+      } // try (FileChannel channel = ...)
+
+      catch (IOException ioException)
+      {
+         throw (new IOException("IO exception encountered while writing to checkpoint file: " + ioException.getMessage()));
+      } // catch (IOException ioException)
+
+      return;
+   } // public void write(File checkpointFile, int[] layerSizes, double[] w) throws IOException
+
+   /*
+    * Reads a checkpoint file
+    *
+    * parameters: checkpointFile is the checkpoint file, layerSizes are the network's layer sizes, and w is the model's weights buffer
+    * return: the checkpoint's training state
+    * postconditions: w holds the checkpoint's weights.
+    *                 If the file is not found, throws a FileNotFoundException. If it is not a valid checkpoint for the
+    *                 network, throws an IllegalArgumentException and w is left unchanged.
+    */
+   public static ABCDTrainingCheckpoint read(File checkpointFile, int[] layerSizes, double[] w) throws FileNotFoundException, IllegalArgumentException
+   {
+      if (!checkpointFile.isFile())
+      {
+         throw (new FileNotFoundException("Checkpoint file not found: " + checkpointFile.getPath()));
+      } // if (!checkpointFile.isFile())
+
+      ABCDTrainingCheckpoint checkpoint;
+
+      try (FileChannel channel = FileChannel.open(checkpointFile.toPath(), StandardOpenOption.READ))
+      {
+         MappedByteBuffer mapping = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+         mapping.order(ByteOrder.LITTLE_ENDIAN);
+
+         if (mapping.capacity() < WEIGHTS_OFFSET || mapping.getInt(0) != MAGIC)
+         {
+            throw (new IllegalArgumentException("Invalid checkpoint file. The file is not a training checkpoint."));
+         } // if (mapping.capacity() < WEIGHTS_OFFSET || mapping.getInt(0) != MAGIC)
+
+         if (mapping.getInt(4) != VERSION)
+         {
+            throw (new IllegalArgumentException("Invalid checkpoint file. The checkpoint version (" + mapping.getInt(4)
+                                                + ") is not supported (" + VERSION + ")."));
+         } // if (mapping.getInt(4) != VERSION)
+
+         CRC32 checksum = new CRC32();
+         checksum.update(mapping.duplicate().position(0).limit(STATE_BYTES));
+
+         if (checksum.getValue() != mapping.getLong(STATE_BYTES))
+         {
+            throw (new IllegalArgumentException("Invalid checkpoint file. The training state checksum does not match."));
+         } // if (checksum.getValue() != mapping.getLong(STATE_BYTES))
+
+         checkpoint = new ABCDTrainingCheckpoint(mapping.getInt(8), mapping.getInt(12), mapping.getDouble(16), mapping.getDouble(24));
+
+         ABCDWeightsFile.read(mapping.position(WEIGHTS_OFFSET).slice(), layerSizes, w);
+      } // try (FileChannel channel = FileChannel.open(checkpointFile.toPath(), StandardOpenOption.READ))
+
+      catch (IOException ioException)
+      {
+         throw (new IllegalArgumentException("Invalid checkpoint file. The checkpoint file could not be read: " + ioException.getMessage()));
+      } // catch (IOException ioException)
+
+      return checkpoint;
+   } // public static ABCDTrainingCheckpoint read(File checkpointFile, int[] layerSizes, double[] w)
+
+} // public class ABCDTrainingCheckpoint
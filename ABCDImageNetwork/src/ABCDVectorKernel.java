@@ -0,0 +1,476 @@
+/*
+ * SIMD kernel for the A-B-C-D network built on the JDK Vector API.
+ * Compile and run with "--add-modules jdk.incubator.vector".
+ *
+ * Author: Jack Hsieh
+ * Date of creation: November 11, 2021
+ */
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+/*
+ * Implements the network kernels with the widest double vectors the CPU supports, finishing each row with a scalar tail.
+ *
+ * The element-wise updates (accumulateScaled, updateRow, and sparseUpdateRow) perform the same operations in the same order as
+ * ABCDScalarKernel and therefore match it exactly. dotProduct and sparseDotProduct sum in lane order with fused multiply-adds,
+ * so they differ from the scalar kernel only by floating-point rounding. The dense single-precision kernels follow the same
+ * pattern over float vectors, while the sparse ones use scalar loops (see sparseDotProduct(float[], ...)). The integer
+ * accumulations widen bytes to int lanes and match the scalar kernel exactly; the int8 by double dot product widens
+ * bytes to double lanes and rounds like dotProduct.
+ */
+public class ABCDVectorKernel implements ABCDKernel
+{
+   private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+   private static final VectorSpecies<Float> FLOAT_SPECIES = FloatVector.SPECIES_PREFERRED;     // Twice the lanes of SPECIES
+   private static final VectorSpecies<Integer> INT_SPECIES = IntVector.SPECIES_PREFERRED;
+
+   /*
+    * Byte vectors of int8 weights to widen: at least as many lanes as INT_SPECIES (and at least 64 bits, the narrowest
+    * shape), and exactly 8 lanes, at least as many as SPECIES on any CPU, for widening to double
+    */
+   private static final VectorSpecies<Byte> INT_BYTE_SPECIES = VectorSpecies.of(byte.class,
+                                                                                VectorShape.forBitSize(Math.max(64, 8 * INT_SPECIES.length())));
+   private static final VectorSpecies<Byte> DOUBLE_BYTE_SPECIES = ByteVector.SPECIES_64;
+
+   /*
+    * Computes the dot product of a weight row and a layer of units
+    *
+    * return: the sum of w[wOffset + n] * x[n] for n in [0, length), accumulated lane-wise and then reduced
+    */
+   public double dotProduct(double[] w, int wOffset, double[] x, int length)
+   {
+      DoubleVector lanes = DoubleVector.zero(SPECIES);
+      int upperBound = SPECIES.loopBound(length);
+      int n;
+
+      /*
+       * Vector body
+       */
+      for (n = 0; n < upperBound; n += SPECIES.length())
+      {
+         DoubleVector wVector = DoubleVector.fromArray(SPECIES, w, wOffset + n);
+         DoubleVector xVector = DoubleVector.fromArray(SPECIES, x, n);
+         lanes = wVector.fma(xVector, lanes);
+      } // for (n = 0; n < upperBound; n += SPECIES.length())
+
+      double total = lanes.reduceLanes(VectorOperators.ADD);
+
+      /*
+       * Scalar tail
+       */
+      for (; n < length; ++n)
+      {
+         total += w[wOffset + n] * x[n];
+      } // for (; n < length; ++n)
+
+      return total;
+   } // public double dotProduct(double[] w, int wOffset, double[] x, int length)
+
+   /*
+    * Computes a 2 x 2 tile of dot products
+    * Each of the four sums uses its own lane accumulators and scalar tail, so each matches dotProduct exactly
+    *
+    * postconditions: tile holds (row 0 . x0, row 0 . x1, row 1 . x0, row 1 . x1)
+    */
+   public void dotProductTile(double[] w, int wOffset0, int wOffset1, double[] x0, double[] x1, int length, double[] tile)
+   {
+      DoubleVector lanes00 = DoubleVector.zero(SPECIES);
+      DoubleVector lanes01 = DoubleVector.zero(SPECIES);
+      DoubleVector lanes10 = DoubleVector.zero(SPECIES);
+      DoubleVector lanes11 = DoubleVector.zero(SPECIES);
+      int upperBound = SPECIES.loopBound(length);
+      int n;
+
+      for (n = 0; n < upperBound; n += SPECIES.length())
+      {
+         DoubleVector w0Vector = DoubleVector.fromArray(SPECIES, w, wOffset0 + n);
+         DoubleVector w1Vector = DoubleVector.fromArray(SPECIES, w, wOffset1 + n);
+         DoubleVector x0Vector = DoubleVector.fromArray(SPECIES, x0, n);
+         DoubleVector x1Vector = DoubleVector.fromArray(SPECIES, x1, n);
+
+         lanes00 = w0Vector.fma(x0Vector, lanes00);
+         lanes01 = w0Vector.fma(x1Vector, lanes01);
+         lanes10 = w1Vector.fma(x0Vector, lanes10);
+         lanes11 = w1Vector.fma(x1Vector, lanes11);
+      } // for (n = 0; n < upperBound; n += SPECIES.length())
+
+      double total00 = lanes00.reduceLanes(VectorOperators.ADD);
+      double total01 = lanes01.reduceLanes(VectorOperators.ADD);
+      double total10 = lanes10.reduceLanes(VectorOperators.ADD);
+      double total11 = lanes11.reduceLanes(VectorOperators.ADD);
+
+      for (; n < length; ++n)
+      {
+         total00 += w[wOffset0 + n] * x0[n];
+         total01 += w[wOffset0 + n] * x1[n];
+         total10 += w[wOffset1 + n] * x0[n];
+         total11 += w[wOffset1 + n] * x1[n];
+      } // for (; n < length; ++n)
+
+      tile[0] = total00;
+      tile[1] = total01;
+      tile[2] = total10;
+      tile[3] = total11;
+
+      return;
+   } // public void dotProductTile(double[] w, int wOffset0, int wOffset1, double[] x0, double[] x1, int length, double[] tile)
+
+   /*
+    * Computes the dot product of a weight row and a sparse layer of units, gathering the weights at the non-zero indices
+    *
+    * return: the sum of w[wOffset + indices[n]] * values[n] for n in [0, count), accumulated lane-wise and then reduced
+    */
+   public double sparseDotProduct(double[] w, int wOffset, int[] indices, double[] values, int count)
+   {
+      DoubleVector lanes = DoubleVector.zero(SPECIES);
+      int upperBound = SPECIES.loopBound(count);
+      int n;
+
+      for (n = 0; n < upperBound; n += SPECIES.length())
+      {
+         DoubleVector wVector = DoubleVector.fromArray(SPECIES, w, wOffset, indices, n);
+         DoubleVector valueVector = DoubleVector.fromArray(SPECIES, values, n);
+         lanes = wVector.fma(valueVector, lanes);
+      } // for (n = 0; n < upperBound; n += SPECIES.length())
+
+      double total = lanes.reduceLanes(VectorOperators.ADD);
+
+      for (; n < count; ++n)
+      {
+         total += w[wOffset + indices[n]] * values[n];
+      } // for (; n < count; ++n)
+
+      return total;
+   } // public double sparseDotProduct(double[] w, int wOffset, int[] indices, double[] values, int count)
+
+   /*
+    * Accumulates a scaled weight row into an array
+    *
+    * postconditions: y[n] is increased by scale * x[xOffset + n] for n in [0, length)
+    */
+   public void accumulateScaled(double[] y, double[] x, int xOffset, double scale, int length)
+   {
+      int upperBound = SPECIES.loopBound(length);
+      int n;
+
+      for (n = 0; n < upperBound; n += SPECIES.length())
+      {
+         DoubleVector xVector = DoubleVector.fromArray(SPECIES, x, xOffset + n);
+         DoubleVector yVector = DoubleVector.fromArray(SPECIES, y, n);
+         yVector.add(xVector.mul(scale)).intoArray(y, n);
+      } // for (n = 0; n < upperBound; n += SPECIES.length())
+
+      for (; n < length; ++n)
+      {
+         y[n] += scale * x[xOffset + n];
+      } // for (; n < length; ++n)
+
+      return;
+   } // public void accumulateScaled(double[] y, double[] x, int xOffset, double scale, int length)
+
+   /*
+    * Applies a rank-1 weight update to one weight row
+    *
+    * postconditions: w[wOffset + n] is increased by lambda * x[n] * psi for n in [0, length)
+    */
+   public void updateRow(double[] w, int wOffset, double[] x, double lambda, double psi, int length)
+   {
+      int upperBound = SPECIES.loopBound(length);
+      int n;
+
+      for (n = 0; n < upperBound; n += SPECIES.length())
+      {
+         DoubleVector xVector = DoubleVector.fromArray(SPECIES, x, n);
+         DoubleVector wVector = DoubleVector.fromArray(SPECIES, w, wOffset + n);
+         wVector.add(xVector.mul(lambda).mul(psi)).intoArray(w, wOffset + n);
+      } // for (n = 0; n < upperBound; n += SPECIES.length())
+
+      for (; n < length; ++n)
+      {
+         w[wOffset + n] += lambda * x[n] * psi;
+      } // for (; n < length; ++n)
+
+      return;
+   } // public void updateRow(double[] w, int wOffset, double[] x, double lambda, double psi, int length)
+
+   /*
+    * Applies a rank-1 weight update to the weights of one row whose source units are non-zero
+    * Gathers the affected weights, updates them, and scatters them back; the indices are distinct so no lanes collide
+    *
+    * postconditions: w[wOffset + indices[n]] is increased by lambda * values[n] * psi for n in [0, count)
+    */
+   public void sparseUpdateRow(double[] w, int wOffset, int[] indices, double[] values, double lambda, double psi, int count)
+   {
+      int upperBound = SPECIES.loopBound(count);
+      int n;
+
+      for (n = 0; n < upperBound; n += SPECIES.length())
+      {
+         DoubleVector valueVector = DoubleVector.fromArray(SPECIES, values, n);
+         DoubleVector wVector = DoubleVector.fromArray(SPECIES, w, wOffset, indices, n);
+         wVector.add(valueVector.mul(lambda).mul(psi)).intoArray(w, wOffset, indices, n);
+      } // for (n = 0; n < upperBound; n += SPECIES.length())
+
+      for (; n < count; ++n)
+      {
+         w[wOffset + indices[n]] += lambda * values[n] * psi;
+      } // for (; n < count; ++n)
+
+      return;
+   } // public void sparseUpdateRow(double[] w, int wOffset, int[] indices, double[] values, double lambda, double psi, int count)
+
+   /*
+    * Single-precision dot product, accumulated lane-wise with fused multiply-adds and then reduced
+    */
+   public float dotProduct(float[] w, int wOffset, float[] x, int length)
+   {
+      FloatVector lanes = FloatVector.zero(FLOAT_SPECIES);
+      int upperBound = FLOAT_SPECIES.loopBound(length);
+      int n;
+
+      for (n = 0; n < upperBound; n += FLOAT_SPECIES.length())
+      {
+         FloatVector wVector = FloatVector.fromArray(FLOAT_SPECIES, w, wOffset + n);
+         FloatVector xVector = FloatVector.fromArray(FLOAT_SPECIES, x, n);
+         lanes = wVector.fma(xVector, lanes);
+      } // for (n = 0; n < upperBound; n += FLOAT_SPECIES.length())
+
+      float total = lanes.reduceLanes(VectorOperators.ADD);
+
+      for (; n < length; ++n)
+      {
+         total += w[wOffset + n] * x[n];
+      } // for (; n < length; ++n)
+
+      return total;
+   } // public float dotProduct(float[] w, int wOffset, float[] x, int length)
+
+   /*
+    * Single-precision sparse dot product, summed in four interleaved scalar accumulators that are then added together
+    * Float gathers are not intrinsified well on JDK 17 (a FloatVector gather measured several times slower than a scalar
+    * loop, and made float32 training slower than double), so this breaks the add dependency chain without gathering.
+    */
+   public float sparseDotProduct(float[] w, int wOffset, int[] indices, float[] values, int count)
+   {
+      float total0 = 0.0f;
+      float total1 = 0.0f;
+      float total2 = 0.0f;
+      float total3 = 0.0f;
+      int upperBound = count & ~3;
+      int n;
+
+      for (n = 0; n < upperBound; n += 4)
+      {
+         total0 += w[wOffset + indices[n]] * values[n];
+         total1 += w[wOffset + indices[n + 1]] * values[n + 1];
+         total2 += w[wOffset + indices[n + 2]] * values[n + 2];
+         total3 += w[wOffset + indices[n + 3]] * values[n + 3];
+      } // for (n = 0; n < upperBound; n += 4)
+
+      float total = (total0 + total1) + (total2 + total3);
+
+      for (; n < count; ++n)
+      {
+         total += w[wOffset + indices[n]] * values[n];
+      } // for (; n < count; ++n)
+
+      return total;
+   } // public float sparseDotProduct(float[] w, int wOffset, int[] indices, float[] values, int count)
+
+   /*
+    * Single-precision scaled accumulation
+    */
+   public void accumulateScaled(float[] y, float[] x, int xOffset, float scale, int length)
+   {
+      int upperBound = FLOAT_SPECIES.loopBound(length);
+      int n;
+
+      for (n = 0; n < upperBound; n += FLOAT_SPECIES.length())
+      {
+         FloatVector xVector = FloatVector.fromArray(FLOAT_SPECIES, x, xOffset + n);
+         FloatVector yVector = FloatVector.fromArray(FLOAT_SPECIES, y, n);
+         yVector.add(xVector.mul(scale)).intoArray(y, n);
+      } // for (n = 0; n < upperBound; n += FLOAT_SPECIES.length())
+
+      for (; n < length; ++n)
+      {
+         y[n] += scale * x[xOffset + n];
+      } // for (; n < length; ++n)
+
+      return;
+   } // public void accumulateScaled(float[] y, float[] x, int xOffset, float scale, int length)
+
+   /*
+    * Single-precision rank-1 row update
+    */
+   public void updateRow(float[] w, int wOffset, float[] x, float lambda, float psi, int length)
+   {
+      int upperBound = FLOAT_SPECIES.loopBound(length);
+      int n;
+
+      for (n = 0; n < upperBound; n += FLOAT_SPECIES.length())
+      {
+         FloatVector xVector = FloatVector.fromArray(FLOAT_SPECIES, x, n);
+         FloatVector wVector = FloatVector.fromArray(FLOAT_SPECIES, w, wOffset + n);
+         wVector.add(xVector.mul(lambda).mul(psi)).intoArray(w, wOffset + n);
+      } // for (n = 0; n < upperBound; n += FLOAT_SPECIES.length())
+
+      for (; n < length; ++n)
+      {
+         w[wOffset + n] += lambda * x[n] * psi;
+      } // for (; n < length; ++n)
+
+      return;
+   } // public void updateRow(float[] w, int wOffset, float[] x, float lambda, float psi, int length)
+
+   /*
+    * Single-precision rank-1 update of the weights whose source units are non-zero, as in ABCDScalarKernel
+    * Like the float gather, the float scatter is slower than this scalar loop on JDK 17.
+    */
+   public void sparseUpdateRow(float[] w, int wOffset, int[] indices, float[] values, float lambda, float psi, int count)
+   {
+      for (int n = 0; n < count; ++n)
+      {
+         w[wOffset + indices[n]] += lambda * values[n] * psi;
+      } // for (int n = 0; n < count; ++n)
+
+      return;
+   } // public void sparseUpdateRow(float[] w, int wOffset, int[] indices, float[] values, float lambda, float psi, int count)
+
+   /*
+    * Integer scaled accumulation of a signed 8-bit weight column
+    * Each byte vector holds a whole number of int vectors' worth of weights; it is sign-extended to int lanes part by part,
+    * multiplied by the scale, and added into y. Integer sums are exact, so the result matches the scalar kernel exactly.
+    */
+   public void accumulateScaled(int[] y, byte[] x, int xOffset, int scale, int length)
+   {
+      int upperBound = INT_BYTE_SPECIES.loopBound(length);
+      int n;
+
+      for (n = 0; n < upperBound; n += INT_BYTE_SPECIES.length())
+      {
+         ByteVector xBytes = ByteVector.fromArray(INT_BYTE_SPECIES, x, xOffset + n);
+
+         for (int part = 0; part < INT_BYTE_SPECIES.length() / INT_SPECIES.length(); ++part)
+         {
+            int yOffset = n + part * INT_SPECIES.length();
+            IntVector xVector = (IntVector) xBytes.convertShape(VectorOperators.B2I, INT_SPECIES, part);
+            IntVector.fromArray(INT_SPECIES, y, yOffset).add(xVector.mul(scale)).intoArray(y, yOffset);
+         } // for (int part = 0; part < INT_BYTE_SPECIES.length() / INT_SPECIES.length(); ++part)
+      } // for (n = 0; n < upperBound; n += INT_BYTE_SPECIES.length())
+
+      for (; n < length; ++n)
+      {
+         y[n] += scale * x[xOffset + n];
+      } // for (; n < length; ++n)
+
+      return;
+   } // public void accumulateScaled(int[] y, byte[] x, int xOffset, int scale, int length)
+
+   /*
+    * Integer scaled accumulation of the signed 8-bit weight columns of the non-zero pixels
+    * Each int vector of y is held in a register while every column adds into it, instead of being loaded and stored once
+    * per column. A tail shorter than a vector is summed in one more vector block ending at the end of the column, of which
+    * only the tail's lanes are added into y. Integer sums are exact, so the result matches the scalar kernel exactly.
+    */
+   public void sparseAccumulateScaled(int[] y, byte[] x, int[] indices, int[] values, int count, int length)
+   {
+      int upperBound = INT_BYTE_SPECIES.loopBound(length);
+      int n;
+
+      for (n = 0; n < upperBound; n += INT_BYTE_SPECIES.length())
+      {
+         for (int part = 0; part < INT_BYTE_SPECIES.length() / INT_SPECIES.length(); ++part)
+         {
+            int yOffset = n + part * INT_SPECIES.length();
+            IntVector yVector = IntVector.fromArray(INT_SPECIES, y, yOffset);
+
+            for (int k = 0; k < count; ++k)
+            {
+               ByteVector xBytes = ByteVector.fromArray(INT_BYTE_SPECIES, x, indices[k] * length + n);
+               IntVector xVector = (IntVector) xBytes.convertShape(VectorOperators.B2I, INT_SPECIES, part);
+               yVector = yVector.add(xVector.mul(values[k]));
+            } // for (int k = 0; k < count; ++k)
+
+            yVector.intoArray(y, yOffset);
+         } // for (int part = 0; part < INT_BYTE_SPECIES.length() / INT_SPECIES.length(); ++part)
+      } // for (n = 0; n < upperBound; n += INT_BYTE_SPECIES.length())
+
+      if (n < length && length >= INT_BYTE_SPECIES.length())
+      {
+         int blockStart = length - INT_BYTE_SPECIES.length();
+
+         for (int part = 0; part < INT_BYTE_SPECIES.length() / INT_SPECIES.length(); ++part)
+         {
+            IntVector blockVector = IntVector.zero(INT_SPECIES);
+
+            for (int k = 0; k < count; ++k)
+            {
+               ByteVector xBytes = ByteVector.fromArray(INT_BYTE_SPECIES, x, indices[k] * length + blockStart);
+               IntVector xVector = (IntVector) xBytes.convertShape(VectorOperators.B2I, INT_SPECIES, part);
+               blockVector = blockVector.add(xVector.mul(values[k]));
+            } // for (int k = 0; k < count; ++k)
+
+            int yOffset = blockStart + part * INT_SPECIES.length();
+            VectorMask<Integer> tailLanes = INT_SPECIES.indexInRange(yOffset, n).not();        // Lanes at or past n
+            IntVector.fromArray(INT_SPECIES, y, yOffset).add(blockVector, tailLanes).intoArray(y, yOffset);
+         } // for (int part = 0; part < INT_BYTE_SPECIES.length() / INT_SPECIES.length(); ++part)
+
+         n = length;
+      } // if (n < length && length >= INT_BYTE_SPECIES.length())
+
+      for (; n < length; ++n)                                   // Columns shorter than a vector
+      {
+         int total = y[n];
+
+         for (int k = 0; k < count; ++k)
+         {
+            total += values[k] * x[indices[k] * length + n];
+         } // for (int k = 0; k < count; ++k)
+
+         y[n] = total;
+      } // for (; n < length; ++n)
+
+      return;
+   } // public void sparseAccumulateScaled(int[] y, byte[] x, int[] indices, int[] values, int count, int length)
+
+   /*
+    * Dot product of a signed 8-bit weight row and a layer of double units
+    * Each eight weights are converted to double lanes part by part and multiplied in with fused multiply-adds.
+    */
+   public double dotProduct(byte[] w, int wOffset, double[] x, int length)
+   {
+      DoubleVector lanes = DoubleVector.zero(SPECIES);
+      int upperBound = DOUBLE_BYTE_SPECIES.loopBound(length);
+      int n;
+
+      for (n = 0; n < upperBound; n += DOUBLE_BYTE_SPECIES.length())
+      {
+         ByteVector wBytes = ByteVector.fromArray(DOUBLE_BYTE_SPECIES, w, wOffset + n);
+
+         for (int part = 0; part < DOUBLE_BYTE_SPECIES.length() / SPECIES.length(); ++part)
+         {
+            DoubleVector wVector = (DoubleVector) wBytes.convertShape(VectorOperators.B2D, SPECIES, part);
+            DoubleVector xVector = DoubleVector.fromArray(SPECIES, x, n + part * SPECIES.length());
+            lanes = wVector.fma(xVector, lanes);
+         } // for (int part = 0; part < DOUBLE_BYTE_SPECIES.length() / SPECIES.length(); ++part)
+      } // for (n = 0; n < upperBound; n += DOUBLE_BYTE_SPECIES.length())
+
+      double total = lanes.reduceLanes(VectorOperators.ADD);
+
+      for (; n < length; ++n)
+      {
+         total += w[wOffset + n] * x[n];
+      } // for (; n < length; ++n)
+
+      return total;
+   } // public double dotProduct(byte[] w, int wOffset, double[] x, int length)
+
+} // public class ABCDVectorKernel implements ABCDKernel
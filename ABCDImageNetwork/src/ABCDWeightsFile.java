@@ -0,0 +1,461 @@
+/*
+ * Binary weights file format for A-B-C-D networks.
+ *
+ * Author: Jack Hsieh
+ * Date of creation: November 11, 2021
+ */
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.InputMismatchException;
+import java.util.NoSuchElementException;
+import java.util.zip.CRC32;
+
+/*
+ * Reads and writes weights in a versioned little-endian binary format that loads through a memory mapping with no parsing.
+ *
+ * Layout (every field little-endian):
+ *    offset 0:   int    MAGIC, the bytes "ABCD"
+ *    offset 4:   int    VERSION
+ *    offset 8:   int    dtype, DTYPE_FLOAT64 or DTYPE_FLOAT32
+ *    offset 12:  int    NUM_LAYERS
+ *    offset 16:  long   CRC-32 of the payload bytes
+ *    offset 24:  int[]  LAYER_SIZES, padded with zeros to a multiple of 8 bytes
+ *    then:              the payload, every weight in the model's destination-major order (see ABCDModel)
+ *
+ * Unlike the text format, the payload is in the model's own layout, so loading is a bulk copy out of the mapping.
+ * Binary files are recognized by their magic number, so a network configuration file can name either format.
+ * The main method converts between the text and binary formats.
+ */
+public class ABCDWeightsFile
+{
+   public static final int MAGIC = 0x44434241;           // "ABCD" read as a little-endian int
+   public static final int VERSION = 1;
+   public static final int DTYPE_FLOAT64 = 1;
+   public static final int DTYPE_FLOAT32 = 2;
+
+   /*
+    * Weights output filenames ending in this extension are written in the binary format
+    */
+   public static final String BINARY_EXTENSION = ".bin";
+
+   private static final int FIXED_HEADER_BYTES = 24;     // Through the checksum
+   private static final int WRITE_CHUNK_DOUBLES = 8192;  // Doubles encoded per write
+
+   /*
+    * Returns whether a file is a binary weights file
+    *
+    * parameters: weightsFile is the file to check
+    * return: true if the file exists and begins with the magic number
+    */
+   public static boolean isBinary(File weightsFile)
+   {
+      boolean binary = false;
+
+      if (weightsFile.isFile() && weightsFile.length() >= 4)
+      {
+         try (FileChannel channel = FileChannel.open(weightsFile.toPath(), StandardOpenOption.READ))
+         {
+            ByteBuffer magic = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+            channel.read(magic, 0);
+            binary = (magic.getInt(0) == MAGIC);
+         } // try (FileChannel channel = FileChannel.open(weightsFile.toPath(), StandardOpenOption.READ))
+
+         catch (IOException ioException)                 // An unreadable file is left to the text loader to report
+         {
+            binary = false;
+         } // catch (IOException ioException)
+      } // if (weightsFile.isFile() && weightsFile.length() >= 4)
+
+      return binary;
+   } // public static boolean isBinary(File weightsFile)
+
+   /*
+    * Returns whether weights saved to a file should use the binary format
+    *
+    * parameters: weightsFile is the weights output file
+    * return: true if the filename ends with BINARY_EXTENSION
+    */
+   public static boolean isBinaryName(File weightsFile)
+   {
+      return weightsFile.getName().endsWith(BINARY_EXTENSION);
+   } // public static boolean isBinaryName(File weightsFile)
+
+   /*
+    * Returns the number of header bytes before the payload
+    *
+    * parameters: numLayers is the number of layers
+    * return: the fixed header plus the layer sizes, rounded up to a multiple of 8 so the payload is aligned
+    */
+   private static int headerBytes(int numLayers)
+   {
+      return ((FIXED_HEADER_BYTES + 4 * numLayers + 7) / 8) * 8;
+   } // private static int headerBytes(int numLayers)
+
+   /*
+    * Writes weights in the binary format (float64)
+    *
+    * parameters: weightsFile is the file to write, layerSizes are the network's layer sizes,
+    *             and w is the model's flat destination-major weights buffer
+    * postconditions: the file is created or overwritten with the header and payload.
+    *                 If writing fails, an IOException is thrown.
+    */
+   public static void write(File weightsFile, int[] layerSizes, double[] w) throws IOException
+   {
+      try (FileChannel channel = FileChannel.open(weightsFile.toPath(), StandardOpenOption.CREATE,
+                                                  StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING))
+      {
+         ABCDWeightsFile.write(channel, 0, layerSizes, w);
+      } // try (FileChannel channel = ...)
+
+      catch (IOException ioException)
+      {
+         throw (new IOException("IO exception encountered while writing to output file: " + ioException.getMessage()));
+      } // catch (IOException ioException)
+
+      return;
+   } // public static void write(File weightsFile, int[] layerSizes, double[] w) throws IOException
+
+   /*
+    * Writes a binary weights image into a channel at a given position, so other files can embed one
+    *
+    * parameters: channel is open for writing, base is the file position of the image (a multiple of 8), and the rest are as in write
+    * postconditions: the header and payload occupy [base, base + headerBytes + 8 * w.length) of the file
+    */
+   static void write(FileChannel channel, long base, int[] layerSizes, double[] w) throws IOException
+   {
+      int payloadOffset = ABCDWeightsFile.headerBytes(layerSizes.length);
+      CRC32 checksum = new CRC32();
+
+      /*
+       * Write the payload in chunks after the space reserved for the header, checksumming each chunk as it is written
+       */
+      ByteBuffer chunk = ByteBuffer.allocateDirect(8 * WRITE_CHUNK_DOUBLES).order(ByteOrder.LITTLE_ENDIAN);
+      DoubleBuffer chunkDoubles = chunk.asDoubleBuffer();
+      long position = base + payloadOffset;
+
+      for (int start = 0; start < w.length; start += WRITE_CHUNK_DOUBLES)
+      {
+         int count = Math.min(WRITE_CHUNK_DOUBLES, w.length - start);
+
+         chunkDoubles.clear();
+         chunkDoubles.put(w, start, count);
+
+         chunk.clear().limit(8 * count);
+         checksum.update(chunk);
+         chunk.flip();
+
+         while (chunk.hasRemaining())
+         {
+            position += channel.write(chunk, position);
+         } // while (chunk.hasRemaining())
+      } // for (int start = 0; start < w.length; start += WRITE_CHUNK_DOUBLES)
+
+      /*
+       * Write the header now that the checksum is known
+       */
+      ByteBuffer header = ByteBuffer.allocate(payloadOffset).order(ByteOrder.LITTLE_ENDIAN);
+
+      header.putInt(MAGIC).putInt(VERSION).putInt(DTYPE_FLOAT64).putInt(layerSizes.length).putLong(checksum.getValue());
+
+      for (int alpha = 0; alpha < layerSizes.length; ++alpha)
+      {
+         header.putInt(layerSizes[alpha]);
+      } // for (int alpha = 0; alpha < layerSizes.length; ++alpha)
+
+      header.clear();
+
+      while (header.hasRemaining())
+      {
+         channel.write(header, base + header.position());
+      } // while (header.hasRemaining())
+
+      return;
+   } // static void write(FileChannel channel, long base, int[] layerSizes, double[] w) throws IOException
+
+   /*
+    * Loads binary weights into a model's weights buffer through a memory mapping
+    *
+    * parameters: weightsFile is the binary weights file, layerSizes are the network's layer sizes,
+    *             and w is the model's flat destination-major weights buffer
+    * preconditions: w holds exactly the network's number of weights
+    * postconditions: w holds the file's weights (float32 payloads are widened).
+    *                 If the file is not found, throws a FileNotFoundException.
+    *                 If the header does not match the network, the payload is the wrong length, or the checksum fails,
+    *                 throws an IllegalArgumentException and w is left unchanged.
+    */
+   public static void read(File weightsFile, int[] layerSizes, double[] w) throws FileNotFoundException, IllegalArgumentException
+   {
+      if (!weightsFile.isFile())
+      {
+         throw (new FileNotFoundException("Weights input file not found: " + weightsFile.getPath()));
+      } // if (!weightsFile.isFile())
+
+      try (FileChannel channel = FileChannel.open(weightsFile.toPath(), StandardOpenOption.READ))
+      {
+         MappedByteBuffer mapping = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+         ABCDWeightsFile.read(mapping, layerSizes, w);
+      } // try (FileChannel channel = FileChannel.open(weightsFile.toPath(), StandardOpenOption.READ))
+
+      catch (IOException ioException)
+      {
+         throw (new IllegalArgumentException("Invalid weights input file. The binary weights file could not be read: " + ioException.getMessage()));
+      } // catch (IOException ioException)
+
+      return;
+   } // public static void read(File weightsFile, int[] layerSizes, double[] w) throws FileNotFoundException, IllegalArgumentException
+
+   /*
+    * Loads weights from a binary weights image, so other files can embed one
+    *
+    * parameters: image holds exactly one header and payload starting at index 0, and the rest are as in read
+    * postconditions: as in read
+    */
+   static void read(ByteBuffer image, int[] layerSizes, double[] w) throws IllegalArgumentException
+   {
+      image = image.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+
+      int dtype = ABCDWeightsFile.readHeader(image, layerSizes);
+      long expectedChecksum = image.getLong(16);
+      int bytesPerWeight = (dtype == DTYPE_FLOAT64) ? 8 : 4;
+
+      /*
+       * Check the payload length, then its checksum, then copy it out
+       */
+      int payloadOffset = ABCDWeightsFile.headerBytes(layerSizes.length);
+      long payloadBytes = image.capacity() - (long) payloadOffset;
+
+      if (payloadBytes != (long) bytesPerWeight * w.length)
+      {
+         throw (new IllegalArgumentException("Invalid weights input file. The binary payload holds " + payloadBytes + " bytes but "
+                                             + ((long) bytesPerWeight * w.length) + " are expected."));
+      } // if (payloadBytes != (long) bytesPerWeight * w.length)
+
+      ByteBuffer payload = image.position(payloadOffset).slice().order(ByteOrder.LITTLE_ENDIAN);
+      CRC32 checksum = new CRC32();
+      checksum.update(payload.duplicate());
+
+      if (checksum.getValue() != expectedChecksum)
+      {
+         throw (new IllegalArgumentException("Invalid weights input file. The binary payload checksum does not match its header."));
+      } // if (checksum.getValue() != expectedChecksum)
+
+      if (dtype == DTYPE_FLOAT64)
+      {
+         payload.asDoubleBuffer().get(w);
+      } // if (dtype == DTYPE_FLOAT64)
+
+      else
+      {
+         FloatBuffer floats = payload.asFloatBuffer();
+
+         for (int index = 0; index < w.length; ++index)
+         {
+            w[index] = floats.get(index);
+         } // for (int index = 0; index < w.length; ++index)
+      } // if (dtype == DTYPE_FLOAT64)... else
+
+      return;
+   } // static void read(ByteBuffer image, int[] layerSizes, double[] w) throws IllegalArgumentException
+
+   /*
+    * Validates a binary header against the network's layer sizes
+    *
+    * parameters: header is the file's bytes in little-endian order, and layerSizes are the network's layer sizes
+    * return: the payload's dtype
+    * postconditions: throws an IllegalArgumentException with the same wording as the text format if the magic number, version,
+    *                 dtype, number of layers, or layer sizes do not match
+    */
+   private static int readHeader(ByteBuffer header, int[] layerSizes) throws IllegalArgumentException
+   {
+      if (header.capacity() < FIXED_HEADER_BYTES)
+      {
+         throw (new IllegalArgumentException("Invalid weights input file. The weights input file contains too few arguments."));
+      } // if (header.capacity() < FIXED_HEADER_BYTES)
+
+      if (header.getInt(0) != MAGIC)
+      {
+         throw (new IllegalArgumentException("Invalid weights input file. The file is not a binary weights file."));
+      } // if (header.getInt(0) != MAGIC)
+
+      if (header.getInt(4) != VERSION)
+      {
+         throw (new IllegalArgumentException("Invalid weights input file. The binary format version (" + header.getInt(4)
+                                             + ") is not supported (" + VERSION + ")."));
+      } // if (header.getInt(4) != VERSION)
+
+      int dtype = header.getInt(8);
+
+      if (dtype != DTYPE_FLOAT64 && dtype != DTYPE_FLOAT32)
+      {
+         throw (new IllegalArgumentException("Invalid weights input file. The binary dtype (" + dtype + ") is not supported."));
+      } // if (dtype != DTYPE_FLOAT64 && dtype != DTYPE_FLOAT32)
+
+      int fileNumLayers = header.getInt(12);
+
+      if (fileNumLayers != layerSizes.length)
+      {
+         throw (new IllegalArgumentException("Invalid weights input file. The provided number of layers (" + fileNumLayers
+                                             + ") does not match the network number of layers (" + layerSizes.length + ")."));
+      } // if (fileNumLayers != layerSizes.length)
+
+      if (header.capacity() < ABCDWeightsFile.headerBytes(fileNumLayers))
+      {
+         throw (new IllegalArgumentException("Invalid weights input file. The weights input file contains too few arguments."));
+      } // if (header.capacity() < ABCDWeightsFile.headerBytes(fileNumLayers))
+
+      String fileLayerSizesString = "";
+      String actualLayerSizesString = "";
+      boolean layerSizesMatch = true;
+
+      for (int alpha = 0; alpha < fileNumLayers; ++alpha)
+      {
+         int fileLayerSize = header.getInt(FIXED_HEADER_BYTES + 4 * alpha);
+
+         layerSizesMatch = layerSizesMatch && (fileLayerSize == layerSizes[alpha]);
+         fileLayerSizesString += ("-" + fileLayerSize);
+         actualLayerSizesString += ("-" + layerSizes[alpha]);
+      } // for (int alpha = 0; alpha < fileNumLayers; ++alpha)
+
+      if (!layerSizesMatch)
+      {
+         throw (new IllegalArgumentException("Invalid weights input file. The provided layer sizes (" + fileLayerSizesString.substring(1)
+                                             + ") does not match the network layer sizes (" + actualLayerSizesString.substring(1) + ")."));
+      } // if (!layerSizesMatch)
+
+      return dtype;
+   } // private static int readHeader(ByteBuffer header, int[] layerSizes) throws IllegalArgumentException
+
+   /*
+    * Reads the layer sizes a weights file was written for, in either format
+    *
+    * parameters: weightsFile is a text or binary weights file
+    * return: the file's layer sizes
+    * postconditions: throws a FileNotFoundException if the file does not exist, or an IllegalArgumentException if its header is invalid
+    */
+   public static int[] readLayerSizes(File weightsFile) throws FileNotFoundException, IllegalArgumentException
+   {
+      int[] layerSizes;
+
+      if (ABCDWeightsFile.isBinary(weightsFile))
+      {
+         try (FileChannel channel = FileChannel.open(weightsFile.toPath(), StandardOpenOption.READ))
+         {
+            ByteBuffer header = ByteBuffer.allocate((int) Math.min(channel.size(), 1 << 16)).order(ByteOrder.LITTLE_ENDIAN);
+            channel.read(header, 0);
+
+            if (header.capacity() < FIXED_HEADER_BYTES)
+            {
+               throw (new IllegalArgumentException("Invalid weights input file. The weights input file contains too few arguments."));
+            } // if (header.capacity() < FIXED_HEADER_BYTES)
+
+            int numLayers = header.getInt(12);
+            long sizesEnd = FIXED_HEADER_BYTES + 4L * numLayers;     // In long, so a corrupt layer count cannot overflow
+
+            if (numLayers < 2 || sizesEnd > header.capacity())
+            {
+               throw (new IllegalArgumentException("Invalid weights input file. The weights input file contains too few arguments."));
+            } // if (numLayers < 2 || sizesEnd > header.capacity())
+
+            layerSizes = new int[numLayers];
+
+            for (int alpha = 0; alpha < numLayers; ++alpha)
+            {
+               layerSizes[alpha] = header.getInt(FIXED_HEADER_BYTES + 4 * alpha);
+            } // for (int alpha = 0; alpha < numLayers; ++alpha)
+         } // try (FileChannel channel = FileChannel.open(weightsFile.toPath(), StandardOpenOption.READ))
+
+         catch (IOException ioException)
+         {
+            throw (new IllegalArgumentException("Invalid weights input file. The binary weights file could not be read: " + ioException.getMessage()));
+         } // catch (IOException ioException)
+      } // if (ABCDWeightsFile.isBinary(weightsFile))
+
+      else
+      {
+         try (ABCDTextReader sizesReader = new ABCDTextReader(weightsFile))
+         {
+            sizesReader.useDelimiters(":\n,-");
+
+            sizesReader.next();                                // Reads label "NUM_LAYERS"
+            layerSizes = new int[sizesReader.nextInt()];
+
+            sizesReader.next();                                // Reads label "LAYER_SIZES"
+
+            for (int alpha = 0; alpha < layerSizes.length; ++alpha)
+            {
+               layerSizes[alpha] = sizesReader.nextInt();
+            } // for (int alpha = 0; alpha < layerSizes.length; ++alpha)
+         } // try (ABCDTextReader sizesReader = new ABCDTextReader(weightsFile))
+
+         catch (FileNotFoundException fileNotFoundException)
+         {
+            throw (new FileNotFoundException("Weights input file not found: " + fileNotFoundException.getMessage()));
+         } // catch (FileNotFoundException fileNotFoundException)
+
+         catch (InputMismatchException inputMismatchException)
+         {
+            throw (new IllegalArgumentException("Invalid weights input file. The weights input file contains a mismatched data type."));
+         } // catch (InputMismatchException inputMismatchException)
+
+         catch (NoSuchElementException noSuchElementException)
+         {
+            throw (new IllegalArgumentException("Invalid weights input file. The weights input file contains too few arguments."));
+         } // catch (NoSuchElementException noSuchElementException)
+      } // if (ABCDWeightsFile.isBinary(weightsFile))... else
+
+      return layerSizes;
+   } // public static int[] readLayerSizes(File weightsFile) throws FileNotFoundException, IllegalArgumentException
+
+   /*
+    * Converts a weights file between the text and binary formats
+    * The output format is binary if the output filename ends with BINARY_EXTENSION, text otherwise.
+    *
+    * parameters: args holds the input weights filename and the output weights filename
+    * postconditions: the output file holds the input file's weights, and the load and save times are printed
+    */
+   public static void main(String[] args)
+   {
+      if (args.length != 2)
+      {
+         System.out.println("Usage: java ABCDWeightsFile <input weights file> <output weights file>");
+         System.out.println("Outputs ending in " + BINARY_EXTENSION + " are written in the binary format, others as text.");
+      } // if (args.length != 2)
+
+      else
+      {
+         try
+         {
+            File inputFile = new File(args[0]);
+            File outputFile = new File(args[1]);
+            ABCDNetwork network = new ABCDNetwork(ABCDWeightsFile.readLayerSizes(inputFile));
+
+            long start = System.currentTimeMillis();
+            network.loadWeights(inputFile);
+            long loaded = System.currentTimeMillis();
+            network.saveWeights(outputFile);
+            long saved = System.currentTimeMillis();
+
+            System.out.println("Loaded " + inputFile.getName() + " in " + (loaded - start) + " milliseconds");
+            System.out.println("Saved " + outputFile.getName() + " in " + (saved - loaded) + " milliseconds");
+         } // try
+
+         catch (Exception exception)   // Catch and print any exceptions. Abort execution.
+         {
+            System.out.println("An exception has terminated execution:\n\t" + exception.getMessage());
+         } // catch (Exception exception)
+      } // if (args.length != 2)... else
+
+      return;
+   } // public static void main(String[] args)
+
+} // public class ABCDWeightsFile